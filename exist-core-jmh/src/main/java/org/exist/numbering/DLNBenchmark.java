@@ -0,0 +1,139 @@
+/*
+ * eXist-db Open Source Native XML Database
+ * Copyright (C) 2001 The eXist-db Authors
+ *
+ * info@exist-db.org
+ * http://www.exist-db.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.numbering;
+
+import org.exist.storage.io.VariableByteArrayInput;
+import org.exist.storage.io.VariableByteOutputStream;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks encoding, decoding and comparing {@link DLN} node ids.
+ *
+ * The node ids are those of a document of {@link #nodes} nodes in
+ * document order, with {@link #fanOut} children per element.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class DLNBenchmark {
+
+    @Param({"10000"})
+    private int nodes;
+
+    @Param({"5", "100"})
+    private int fanOut;
+
+    private DLN[] ids;
+    private final DLNFactory factory = new DLNFactory();
+    private final VariableByteOutputStream os = new VariableByteOutputStream(256);
+    private final VariableByteArrayInput is = new VariableByteArrayInput();
+    private byte[] encoded;
+    private byte[] prefixEncoded;
+    private SplittableRandom random;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        ids = new DLN[nodes];
+        ids[0] = new DLN();
+        // breadth first, then sorted into document order
+        for (int i = 1; i < nodes; i++) {
+            final DLN parent = ids[(i - 1) / fanOut];
+            ids[i] = (DLN) ((i - 1) % fanOut == 0 ? parent.newChild() : ids[i - 1].nextSibling());
+        }
+        Arrays.sort(ids);
+
+        os.clear();
+        for (final DLN id : ids) {
+            id.write(os);
+        }
+        encoded = os.toByteArray();
+
+        os.clear();
+        NodeId previous = null;
+        for (final DLN id : ids) {
+            previous = id.write(previous, os);
+        }
+        prefixEncoded = os.toByteArray();
+
+        random = new SplittableRandom(42);
+    }
+
+    @Benchmark
+    public int encode() throws IOException {
+        os.clear();
+        for (final DLN id : ids) {
+            id.write(os);
+        }
+        return os.size();
+    }
+
+    /**
+     * Encodes each node id relative to its predecessor, as done for
+     * the node ids of structural index entries.
+     */
+    @Benchmark
+    public int encodePrefix() throws IOException {
+        os.clear();
+        NodeId previous = null;
+        for (final DLN id : ids) {
+            previous = id.write(previous, os);
+        }
+        return os.size();
+    }
+
+    @Benchmark
+    public void decode(final Blackhole blackhole) throws IOException {
+        is.initialize(encoded, 0, encoded.length);
+        for (int i = 0; i < nodes; i++) {
+            blackhole.consume(factory.createFromStream(is));
+        }
+    }
+
+    @Benchmark
+    public void decodePrefix(final Blackhole blackhole) throws IOException {
+        is.initialize(prefixEncoded, 0, prefixEncoded.length);
+        NodeId previous = null;
+        for (int i = 0; i < nodes; i++) {
+            previous = factory.createFromStream(previous, is);
+            blackhole.consume(previous);
+        }
+    }
+
+    @Benchmark
+    public int compare() {
+        return ids[random.nextInt(nodes)].compareTo(ids[random.nextInt(nodes)]);
+    }
+
+    @Benchmark
+    public boolean isDescendantOf() {
+        return ids[random.nextInt(nodes)].isDescendantOf(ids[random.nextInt(nodes)]);
+    }
+}
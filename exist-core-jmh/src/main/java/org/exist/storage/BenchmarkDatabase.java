@@ -0,0 +1,82 @@
+/*
+ * eXist-db Open Source Native XML Database
+ * Copyright (C) 2001 The eXist-db Authors
+ *
+ * info@exist-db.org
+ * http://www.exist-db.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.storage;
+
+import org.exist.EXistException;
+import org.exist.test.ExistEmbeddedServer;
+import org.exist.util.DatabaseConfigurationException;
+import org.exist.util.FileUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+
+/**
+ * An embedded database in a temporary directory for benchmarks
+ * which need a {@link BrokerPool}, e.g. to open database files.
+ *
+ * The configuration is read from the {@code conf.xml} of this module.
+ */
+public class BenchmarkDatabase {
+
+    private final ExistEmbeddedServer server;
+    private Path workDir;
+
+    public BenchmarkDatabase() {
+        this(new Properties());
+    }
+
+    /**
+     * @param configProperties properties which override the settings of {@code conf.xml}
+     */
+    public BenchmarkDatabase(final Properties configProperties) {
+        this.server = new ExistEmbeddedServer(null, null, configProperties, true, true);
+    }
+
+    public void start() throws DatabaseConfigurationException, EXistException, IOException {
+        this.workDir = Files.createTempDirectory("org.exist.storage.BenchmarkDatabase");
+        server.startDb();
+    }
+
+    public void stop() {
+        server.stopDb();
+        if (workDir != null) {
+            FileUtils.deleteQuietly(workDir);
+            workDir = null;
+        }
+    }
+
+    public BrokerPool getBrokerPool() {
+        return server.getBrokerPool();
+    }
+
+    /**
+     * Get a directory for files created by the benchmark, separate from
+     * the files of the database itself. It is deleted by {@link #stop()}.
+     *
+     * @return the directory
+     */
+    public Path getWorkDir() {
+        return workDir;
+    }
+}
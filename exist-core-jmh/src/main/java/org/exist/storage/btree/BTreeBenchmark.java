@@ -0,0 +1,115 @@
+/*
+ * eXist-db Open Source Native XML Database
+ * Copyright (C) 2001 The eXist-db Authors
+ *
+ * info@exist-db.org
+ * http://www.exist-db.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.storage.btree;
+
+import org.exist.storage.BenchmarkDatabase;
+import org.exist.storage.BrokerPool;
+import org.exist.util.FileUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+/**
+ * Benchmarks inserts, point lookups and range scans of a {@link BTree}
+ * holding {@link #keys} keys of the given {@link KeyDistribution}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class BTreeBenchmark {
+
+    private static final byte FILE_ID = 0x7E;
+    private static final short FILE_VERSION = Short.MIN_VALUE;
+
+    /** the number of keys returned by a range scan */
+    private static final int RANGE_SIZE = 100;
+
+    @Param({"100000"})
+    private int keys;
+
+    @Param({"NODE_IDS", "UNIFORM_LONGS", "ZIPF_STRINGS"})
+    private KeyDistribution distribution;
+
+    private final BenchmarkDatabase database = new BenchmarkDatabase();
+    private BTree btree;
+    private Value[] keyValues;
+    private Value[] sortedKeys;
+    private IntSupplier lookups;
+    private int nextKey;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        database.start();
+        final BrokerPool pool = database.getBrokerPool();
+        btree = new BTree(pool, FILE_ID, FILE_VERSION, false, pool.getCacheManager(),
+                database.getWorkDir().resolve("benchmark.dbx"));
+        btree.create((short) -1);
+
+        keyValues = distribution.keys(keys);
+        for (int i = 0; i < keys; i++) {
+            btree.addValue(keyValues[i], i);
+        }
+        btree.flush();
+
+        sortedKeys = keyValues.clone();
+        Arrays.sort(sortedKeys);
+        lookups = distribution.lookups(keys, 42);
+        nextKey = keys;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        final Path file = btree.getFile();
+        btree.close();
+        FileUtils.deleteQuietly(file);
+        database.stop();
+    }
+
+    @Benchmark
+    public long insert() throws Exception {
+        final int key = nextKey++;
+        return btree.addValue(distribution.key(key), key);
+    }
+
+    @Benchmark
+    public long find() throws Exception {
+        return btree.findValue(keyValues[lookups.getAsInt()]);
+    }
+
+    @Benchmark
+    public int rangeScan() throws Exception {
+        final int start = lookups.getAsInt() % (keys - RANGE_SIZE);
+        final IndexQuery query = new IndexQuery(IndexQuery.BW, sortedKeys[start], sortedKeys[start + RANGE_SIZE - 1]);
+        final int[] count = new int[1];
+        btree.query(query, (value, pointer) -> {
+            count[0]++;
+            return true;
+        });
+        return count[0];
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * eXist-db Open Source Native XML Database
+ * Copyright (C) 2001 The eXist-db Authors
+ *
+ * info@exist-db.org
+ * http://www.exist-db.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.storage.btree;
+
+import org.exist.storage.BenchmarkDatabase;
+import org.exist.storage.BrokerPool;
+import org.exist.util.FileUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares building a {@link BTree} from {@link #keys} keys in random order
+ * by inserting them one by one with building it through a {@link KeySorter}
+ * and a {@link BTree.BulkLoader}, as a full reindex does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class BTreeBuildBenchmark {
+
+    private static final byte FILE_ID = 0x7E;
+    private static final short FILE_VERSION = Short.MIN_VALUE;
+
+    @Param({"1000000"})
+    private int keys;
+
+    @Param({"NODE_IDS", "UNIFORM_LONGS", "ZIPF_STRINGS"})
+    private KeyDistribution distribution;
+
+    private final BenchmarkDatabase database = new BenchmarkDatabase();
+    private Value[] keyValues;
+    private BTree btree;
+
+    @Setup(Level.Trial)
+    public void setUpTrial() throws Exception {
+        database.start();
+        keyValues = distribution.keys(keys);
+        // the order in which a reindex would produce the keys
+        final Random random = new Random(42);
+        for (int i = keyValues.length - 1; i > 0; i--) {
+            final int j = random.nextInt(i + 1);
+            final Value tmp = keyValues[i];
+            keyValues[i] = keyValues[j];
+            keyValues[j] = tmp;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDownTrial() throws Exception {
+        database.stop();
+    }
+
+    @Setup(Level.Iteration)
+    public void setUp() throws Exception {
+        final BrokerPool pool = database.getBrokerPool();
+        btree = new BTree(pool, FILE_ID, FILE_VERSION, false, pool.getCacheManager(),
+                database.getWorkDir().resolve("build.dbx"));
+        btree.create((short) -1);
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws Exception {
+        final Path file = btree.getFile();
+        btree.close();
+        FileUtils.deleteQuietly(file);
+    }
+
+    @Benchmark
+    public BTree insert() throws Exception {
+        for (int i = 0; i < keyValues.length; i++) {
+            btree.addValue(keyValues[i], i);
+        }
+        btree.flush();
+        return btree;
+    }
+
+    @Benchmark
+    public BTree bulkLoad() throws Exception {
+        try (final KeySorter sorter = new KeySorter()) {
+            for (int i = 0; i < keyValues.length; i++) {
+                sorter.add(keyValues[i], i);
+            }
+            final BTree.BulkLoader loader = btree.bulkLoad(0.9);
+            sorter.drainTo(loader);
+            loader.finish();
+        }
+        btree.flush();
+        return btree;
+    }
+}
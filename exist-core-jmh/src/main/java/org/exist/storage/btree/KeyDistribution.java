@@ -0,0 +1,140 @@
+/*
+ * eXist-db Open Source Native XML Database
+ * Copyright (C) 2001 The eXist-db Authors
+ *
+ * info@exist-db.org
+ * http://www.exist-db.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.storage.btree;
+
+import org.exist.numbering.DLN;
+import org.exist.storage.NativeBroker;
+import org.exist.util.ByteConversion;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.function.IntSupplier;
+
+/**
+ * Keys and lookup patterns modelled after the database files,
+ * for the storage benchmarks.
+ */
+public enum KeyDistribution {
+
+    /**
+     * Node ids of documents with 1000 nodes each, stored one document
+     * after the other as in {@code dom.dbx}. Keys are inserted in ascending
+     * order and looked up uniformly.
+     */
+    NODE_IDS {
+        @Override
+        public Value key(final int i) {
+            final int node = i % 1000;
+            return new NativeBroker.NodeRef(i / 1000 + 1, new DLN("1." + (node / 50 + 1) + '.' + (node % 50 + 1)));
+        }
+    },
+
+    /**
+     * Random 8 byte keys, inserted and looked up uniformly.
+     */
+    UNIFORM_LONGS {
+        @Override
+        public Value key(final int i) {
+            final byte[] data = new byte[8];
+            ByteConversion.longToByte(i * 0x9e3779b97f4a7c15L, data, 0);
+            return new Value(data);
+        }
+    },
+
+    /**
+     * Path like string keys with long common prefixes, as in {@code collections.dbx}
+     * or {@code values.dbx}, looked up with a Zipf skew so that a few keys are hot.
+     */
+    ZIPF_STRINGS {
+        @Override
+        public Value key(final int i) {
+            return new Value("/db/apps/app" + (i % 37) + "/data/" + WORDS[(i / 37) % WORDS.length] + '/' + i);
+        }
+
+        @Override
+        public IntSupplier lookups(final int count, final long seed) {
+            final SplittableRandom random = new SplittableRandom(seed);
+            final double[] cdf = zipfCdf(count, 0.99);
+            return () -> {
+                int rank = Arrays.binarySearch(cdf, random.nextDouble());
+                if (rank < 0) {
+                    rank = Math.min(-rank - 1, count - 1);
+                }
+                // scatter the hot keys over the key space
+                return (int) ((rank * 7919L) % count);
+            };
+        }
+    };
+
+    private static final String[] WORDS = {
+            "auction", "bidder", "category", "description", "item", "location", "mailbox", "name",
+            "open_auction", "closed_auction", "payment", "person", "price", "quantity", "region", "seller",
+            "shipping", "text", "type", "watch"
+    };
+
+    /**
+     * Get the i-th key. Keys are unique and the same for every run.
+     *
+     * @param i the number of the key
+     * @return the key
+     */
+    public abstract Value key(int i);
+
+    /**
+     * Get the keys from 0 (inclusive) to count (exclusive).
+     *
+     * @param count the number of keys
+     * @return the keys
+     */
+    public Value[] keys(final int count) {
+        final Value[] keys = new Value[count];
+        for (int i = 0; i < count; i++) {
+            keys[i] = key(i);
+        }
+        return keys;
+    }
+
+    /**
+     * Get a supplier of key numbers to look up.
+     *
+     * @param count the number of keys available
+     * @param seed the seed of the random numbers
+     * @return numbers between 0 (inclusive) and count (exclusive)
+     */
+    public IntSupplier lookups(final int count, final long seed) {
+        final SplittableRandom random = new SplittableRandom(seed);
+        return () -> random.nextInt(count);
+    }
+
+    private static double[] zipfCdf(final int count, final double exponent) {
+        final double[] cdf = new double[count];
+        double sum = 0;
+        for (int i = 0; i < count; i++) {
+            sum += 1.0 / Math.pow(i + 1, exponent);
+            cdf[i] = sum;
+        }
+        for (int i = 0; i < count; i++) {
+            cdf[i] /= sum;
+        }
+        return cdf;
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * eXist-db Open Source Native XML Database
+ * Copyright (C) 2001 The eXist-db Authors
+ *
+ * info@exist-db.org
+ * http://www.exist-db.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.storage.dom;
+
+import org.exist.numbering.DLN;
+import org.exist.storage.BenchmarkDatabase;
+import org.exist.storage.NativeBroker;
+import org.exist.storage.btree.Value;
+import org.exist.util.ReadOnlyException;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks storing and retrieving node values in a {@link DOMFile}.
+ *
+ * Values larger than a page (the default of 4096 bytes) are written
+ * to overflow pages.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class DOMFileBenchmark {
+
+    private static final byte FILE_ID = 0x7E;
+
+    /** the number of nodes per document */
+    private static final int NODES = 1000;
+
+    @Param({"50000"})
+    private int values;
+
+    @Param({"32", "512", "8192"})
+    private int valueSize;
+
+    private final BenchmarkDatabase database = new BenchmarkDatabase();
+    private DOMFile domDb;
+    private byte[] value;
+    private Value[] keys;
+    private long[] pointers;
+    private SplittableRandom random;
+    private int nextValue;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        database.start();
+        domDb = new DOMFile(database.getBrokerPool(), FILE_ID, database.getWorkDir(), database.getBrokerPool().getConfiguration());
+        domDb.setOwnerObject(this);
+
+        value = new byte[valueSize];
+        new Random(7).nextBytes(value);
+
+        keys = new Value[values];
+        pointers = new long[values];
+        for (int i = 0; i < values; i++) {
+            keys[i] = nodeRef(i);
+            pointers[i] = domDb.put(null, keys[i], value);
+            if (i % NODES == NODES - 1) {
+                domDb.closeDocument();
+            }
+        }
+        domDb.closeDocument();
+        domDb.flush();
+
+        random = new SplittableRandom(42);
+        nextValue = values;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        domDb.close();
+        database.stop();
+    }
+
+    private static Value nodeRef(final int i) {
+        final int node = i % NODES;
+        return new NativeBroker.NodeRef(i / NODES + 1, new DLN("1." + (node / 50 + 1) + '.' + (node % 50 + 1)));
+    }
+
+    @Benchmark
+    public long store() throws ReadOnlyException {
+        final int i = nextValue++;
+        final long pointer = domDb.put(null, nodeRef(i), value);
+        if (i % NODES == NODES - 1) {
+            domDb.closeDocument();
+        }
+        return pointer;
+    }
+
+    /**
+     * Retrieves a value by its storage address, as done when
+     * navigating from a node proxy.
+     */
+    @Benchmark
+    public Value getByAddress() {
+        return domDb.get(pointers[random.nextInt(values)]);
+    }
+
+    /**
+     * Retrieves a value by its node id, which needs a lookup
+     * in the B+-tree of the file first.
+     */
+    @Benchmark
+    public Value getByKey() {
+        return domDb.get(keys[random.nextInt(values)]);
+    }
+}
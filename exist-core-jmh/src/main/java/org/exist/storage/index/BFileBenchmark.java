@@ -0,0 +1,125 @@
+/*
+ * eXist-db Open Source Native XML Database
+ * Copyright (C) 2001 The eXist-db Authors
+ *
+ * info@exist-db.org
+ * http://www.exist-db.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.storage.index;
+
+import org.exist.storage.BenchmarkDatabase;
+import org.exist.storage.BrokerPool;
+import org.exist.storage.btree.KeyDistribution;
+import org.exist.storage.btree.Value;
+import org.exist.storage.io.VariableByteInput;
+import org.exist.util.ReadOnlyException;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+/**
+ * Benchmarks storing and retrieving values by key in a {@link BFile},
+ * the file type used by the value and structural indexes.
+ *
+ * Keys are path like strings which are looked up with a Zipf
+ * distribution, see {@link KeyDistribution#ZIPF_STRINGS}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class BFileBenchmark {
+
+    private static final byte FILE_ID = 0x7E;
+    private static final short FILE_VERSION = Short.MIN_VALUE;
+
+    // the defaults of NativeValueIndex
+    private static final double CACHE_GROWTH = 1.25;
+    private static final double CACHE_VALUE_THRESHOLD = 0.04;
+
+    @Param({"50000"})
+    private int values;
+
+    @Param({"32", "512", "8192"})
+    private int valueSize;
+
+    private final BenchmarkDatabase database = new BenchmarkDatabase();
+    private BFile bfile;
+    private byte[] value;
+    private Value[] keys;
+    private IntSupplier lookups;
+    private SplittableRandom random;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        database.start();
+        final BrokerPool pool = database.getBrokerPool();
+        bfile = new BFile(pool, FILE_ID, FILE_VERSION, false, database.getWorkDir().resolve("benchmark.dbx"),
+                pool.getCacheManager(), CACHE_GROWTH, CACHE_VALUE_THRESHOLD);
+
+        value = new byte[valueSize];
+        new Random(7).nextBytes(value);
+
+        keys = KeyDistribution.ZIPF_STRINGS.keys(values);
+        for (final Value key : keys) {
+            bfile.put(key, value, true);
+        }
+        bfile.flush();
+
+        lookups = KeyDistribution.ZIPF_STRINGS.lookups(values, 42);
+        random = new SplittableRandom(42);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        bfile.close();
+        database.stop();
+    }
+
+    /**
+     * Overwrites the value of a random existing key.
+     */
+    @Benchmark
+    public long update() throws ReadOnlyException {
+        return bfile.put(keys[random.nextInt(values)], value, true);
+    }
+
+    @Benchmark
+    public Value get() {
+        return bfile.get(keys[lookups.getAsInt()]);
+    }
+
+    /**
+     * Reads a value through a stream, as done by the indexes
+     * when scanning the entries of a key.
+     */
+    @Benchmark
+    public int getAsStream() throws IOException {
+        final VariableByteInput is = bfile.getAsStream(keys[lookups.getAsInt()]);
+        int sum = 0;
+        while (is.available() > 0) {
+            sum += is.readByte();
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * eXist-db Open Source Native XML Database
+ * Copyright (C) 2001 The eXist-db Authors
+ *
+ * info@exist-db.org
+ * http://www.exist-db.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.storage.io;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the variable length encoding of {@link VariableByteOutputStream}
+ * and the decoding of {@link VariableByteArrayInput}.
+ *
+ * Each invocation writes or reads {@link #VALUES} values, the magnitude
+ * of which is set by {@link #bits}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class VariableByteOutputStreamBenchmark {
+
+    private static final int VALUES = 1024;
+
+    /** the number of significant bits of the values */
+    @Param({"7", "28", "63"})
+    private int bits;
+
+    private final VariableByteOutputStream os = new VariableByteOutputStream(VALUES * 10);
+    private final VariableByteArrayInput is = new VariableByteArrayInput();
+    private final int[] ints = new int[VALUES];
+    private final long[] longs = new long[VALUES];
+    private final String[] strings = new String[VALUES];
+    private byte[] encodedInts;
+    private byte[] encodedLongs;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < VALUES; i++) {
+            longs[i] = random.nextLong() >>> (64 - bits);
+            ints[i] = (int) (longs[i] >>> Math.max(0, bits - 31));
+            strings[i] = Long.toString(longs[i], 36);
+        }
+
+        os.clear();
+        for (final int i : ints) {
+            os.writeInt(i);
+        }
+        encodedInts = os.toByteArray();
+
+        os.clear();
+        for (final long l : longs) {
+            os.writeLong(l);
+        }
+        encodedLongs = os.toByteArray();
+    }
+
+    @Benchmark
+    public int writeInt() {
+        os.clear();
+        for (final int i : ints) {
+            os.writeInt(i);
+        }
+        return os.size();
+    }
+
+    @Benchmark
+    public int writeLong() {
+        os.clear();
+        for (final long l : longs) {
+            os.writeLong(l);
+        }
+        return os.size();
+    }
+
+    @Benchmark
+    public int writeUTF() throws IOException {
+        os.clear();
+        for (final String s : strings) {
+            os.writeUTF(s);
+        }
+        return os.size();
+    }
+
+    @Benchmark
+    public int readInt() throws IOException {
+        is.initialize(encodedInts, 0, encodedInts.length);
+        int sum = 0;
+        for (int i = 0; i < VALUES; i++) {
+            sum += is.readInt();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long readLong() throws IOException {
+        is.initialize(encodedLongs, 0, encodedLongs.length);
+        long sum = 0;
+        for (int i = 0; i < VALUES; i++) {
+            sum += is.readLong();
+        }
+        return sum;
+    }
+}
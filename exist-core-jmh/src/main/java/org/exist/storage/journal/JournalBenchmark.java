@@ -0,0 +1,187 @@
+/*
+ * eXist-db Open Source Native XML Database
+ * Copyright (C) 2001 The eXist-db Authors
+ *
+ * info@exist-db.org
+ * http://www.exist-db.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.storage.journal;
+
+import org.exist.EXistException;
+import org.exist.storage.BenchmarkDatabase;
+import org.exist.storage.BrokerPool;
+import org.exist.storage.DBBroker;
+import org.exist.storage.txn.TransactionException;
+import org.exist.storage.txn.TransactionManager;
+import org.exist.storage.txn.Txn;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks writing entries to the journal of the database,
+ * and committing transactions which have to sync the journal.
+ *
+ * The concurrent variants show the effect of group syncs,
+ * see {@link BrokerPool#PROPERTY_RECOVERY_GROUP_SYNC}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class JournalBenchmark {
+
+    private static final byte PAYLOAD_ENTRY = 0x7E;
+
+    /** the size in bytes of the payload of each journal entry */
+    @Param({"16", "256", "4096"})
+    private int payload;
+
+    @Param({"true"})
+    private boolean syncOnCommit;
+
+    @Param({"false", "true"})
+    private boolean groupSync;
+
+    private BenchmarkDatabase database;
+    private JournalManager journalManager;
+    private TransactionManager transactionManager;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        final Properties properties = new Properties();
+        properties.put(Journal.PROPERTY_RECOVERY_SYNC_ON_COMMIT, syncOnCommit);
+        properties.put(BrokerPool.PROPERTY_RECOVERY_GROUP_SYNC, groupSync);
+        database = new BenchmarkDatabase(properties);
+        database.start();
+        journalManager = database.getBrokerPool().getJournalManager().get();
+        transactionManager = database.getBrokerPool().getTransactionManager();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.stop();
+    }
+
+    /**
+     * The broker of each benchmark thread.
+     */
+    @State(Scope.Thread)
+    public static class Worker {
+        private DBBroker broker;
+
+        @Setup(Level.Iteration)
+        public void setUp(final JournalBenchmark benchmark) throws EXistException {
+            final BrokerPool pool = benchmark.database.getBrokerPool();
+            broker = pool.get(Optional.of(pool.getSecurityManager().getSystemSubject()));
+        }
+
+        @TearDown(Level.Iteration)
+        public void tearDown() {
+            broker.close();
+        }
+    }
+
+    /**
+     * A transaction of each benchmark thread, which all of its
+     * journal entries are written for.
+     *
+     * Note that any transaction begun by the thread whilst this
+     * one is open would be nested into it.
+     */
+    @State(Scope.Thread)
+    public static class Transaction {
+        private Txn txn;
+        private PayloadLoggable entry;
+
+        @Setup(Level.Iteration)
+        public void setUp(final JournalBenchmark benchmark, final Worker worker) {
+            txn = benchmark.transactionManager.beginTransaction();
+            entry = new PayloadLoggable(txn.getId(), benchmark.payload);
+        }
+
+        @TearDown(Level.Iteration)
+        public void tearDown(final JournalBenchmark benchmark) throws TransactionException {
+            benchmark.transactionManager.commit(txn);
+            txn.close();
+        }
+    }
+
+    /**
+     * Writes an entry to the journal buffer, which is
+     * flushed to disk without a sync whenever it is full.
+     */
+    @Benchmark
+    public Lsn write(final Transaction transaction) throws JournalException {
+        journalManager.journal(transaction.entry);
+        return transaction.entry.getLsn();
+    }
+
+    /**
+     * Begins a transaction, writes a single entry and commits it.
+     */
+    @Benchmark
+    public void commit(final Worker worker) throws JournalException, TransactionException {
+        try (final Txn txn = transactionManager.beginTransaction()) {
+            journalManager.journal(new PayloadLoggable(txn.getId(), payload));
+            transactionManager.commit(txn);
+        }
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void commitConcurrent(final Worker worker) throws JournalException, TransactionException {
+        commit(worker);
+    }
+
+    /**
+     * A journal entry with a payload of a fixed size.
+     */
+    static class PayloadLoggable extends AbstractLoggable {
+        private final byte[] data;
+
+        PayloadLoggable(final long transactionId, final int size) {
+            super(PAYLOAD_ENTRY, transactionId);
+            this.data = new byte[size];
+        }
+
+        @Override
+        public void write(final ByteBuffer out) {
+            out.put(data);
+        }
+
+        @Override
+        public void read(final ByteBuffer in) {
+            in.get(data);
+        }
+
+        @Override
+        public int getLogSize() {
+            return data.length;
+        }
+
+        @Override
+        public String dump() {
+            return super.dump() + " - payload of " + data.length + " bytes";
+        }
+    }
+}
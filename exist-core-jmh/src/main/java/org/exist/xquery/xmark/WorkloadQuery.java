@@ -0,0 +1,170 @@
+/*
+ * eXist-db Open Source Native XML Database
+ * Copyright (C) 2001 The eXist-db Authors
+ *
+ * info@exist-db.org
+ * http://www.exist-db.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.xquery.xmark;
+
+import org.exist.xquery.XPathException;
+import org.exist.xquery.XQueryContext;
+
+import java.util.SplittableRandom;
+
+/**
+ * The queries of the XQuery workload, run against a corpus
+ * generated by {@link XMarkGenerator} stored in {@link #COLLECTION}.
+ *
+ * Each query declares external variables, which are bound to random
+ * values for each execution by {@link #declareVariables(XQueryContext, SplittableRandom, XMarkGenerator)}.
+ */
+public enum WorkloadQuery {
+
+    /**
+     * A long child path (XMark Q15).
+     */
+    PATH(
+            "collection('" + WorkloadQuery.COLLECTION + "')/site/closed_auctions/closed_auction/annotation/description/text/keyword/string()"
+    ),
+
+    /**
+     * A join of people and the auctions they have bought in, grouped
+     * and ordered in a FLWOR expression (after XMark Q8).
+     */
+    FLWOR(
+            "declare variable $income external;\n" +
+            "let $site := collection('" + WorkloadQuery.COLLECTION + "')/site\n" +
+            "for $p in $site/people/person[profile/@income > $income]\n" +
+            "let $a := $site/closed_auctions/closed_auction[buyer/@person = $p/@id]\n" +
+            "order by count($a) descending, $p/name\n" +
+            "return <buyer name=\"{$p/name}\" count=\"{count($a)}\"/>"
+    ) {
+        @Override
+        public void declareVariables(final XQueryContext context, final SplittableRandom random, final XMarkGenerator corpus) throws XPathException {
+            context.declareVariable("income", 80000.0 + random.nextInt(40000));
+        }
+    },
+
+    /**
+     * A lookup of a single person by id, using the range index on {@code @id}.
+     */
+    ID_LOOKUP(
+            "declare variable $id external;\n" +
+            "collection('" + WorkloadQuery.COLLECTION + "')/site/people/person[@id = $id]/name/string()"
+    ) {
+        @Override
+        public void declareVariables(final XQueryContext context, final SplittableRandom random, final XMarkGenerator corpus) throws XPathException {
+            context.declareVariable("id", "person" + random.nextInt(corpus.getPersons()));
+        }
+    },
+
+    /**
+     * A range of prices of closed auctions, using the range index on {@code price}.
+     */
+    RANGE(
+            "declare variable $min external;\n" +
+            "declare variable $max external;\n" +
+            "count(collection('" + WorkloadQuery.COLLECTION + "')/site/closed_auctions/closed_auction[price >= $min][price < $max])"
+    ) {
+        @Override
+        public void declareVariables(final XQueryContext context, final SplittableRandom random, final XMarkGenerator corpus) throws XPathException {
+            final double min = random.nextInt(200);
+            context.declareVariable("min", min);
+            context.declareVariable("max", min + 20.0);
+        }
+    },
+
+    /**
+     * A full text search on the descriptions of items, ordered by score.
+     */
+    FULL_TEXT(
+            "import module namespace ft = \"http://exist-db.org/xquery/lucene\";\n" +
+            "declare variable $term external;\n" +
+            "for $i in collection('" + WorkloadQuery.COLLECTION + "')/site/regions//item[ft:query(description, $term)]\n" +
+            "order by ft:score($i) descending\n" +
+            "return $i/name/string()"
+    ) {
+        @Override
+        public void declareVariables(final XQueryContext context, final SplittableRandom random, final XMarkGenerator corpus) throws XPathException {
+            // skip the most frequent words, which may be stop words
+            context.declareVariable("term", XMarkGenerator.WORDS[14 + random.nextInt(XMarkGenerator.WORDS.length - 14)]);
+        }
+    },
+
+    /**
+     * An update of the email address of a single person.
+     */
+    UPDATE(
+            "declare variable $id external;\n" +
+            "declare variable $email external;\n" +
+            "update value collection('" + WorkloadQuery.COLLECTION + "')/site/people/person[@id = $id]/emailaddress with $email"
+    ) {
+        @Override
+        public void declareVariables(final XQueryContext context, final SplittableRandom random, final XMarkGenerator corpus) throws XPathException {
+            final int person = random.nextInt(corpus.getPersons());
+            context.declareVariable("id", "person" + person);
+            context.declareVariable("email", "mailto:person" + person + '.' + random.nextInt(1000) + "@example.org");
+        }
+    };
+
+    /**
+     * The collection which holds the corpus.
+     */
+    public static final String COLLECTION = "/db/xmark";
+
+    /**
+     * The index configuration of {@link #COLLECTION} used by the queries.
+     */
+    public static final String COLLECTION_CONFIG =
+            "<collection xmlns=\"http://exist-db.org/collection-config/1.0\">\n" +
+            "    <index xmlns:xs=\"http://www.w3.org/2001/XMLSchema\">\n" +
+            "        <lucene>\n" +
+            "            <text qname=\"description\"/>\n" +
+            "        </lucene>\n" +
+            "        <range>\n" +
+            "            <create qname=\"@id\" type=\"xs:string\"/>\n" +
+            "            <create qname=\"@person\" type=\"xs:string\"/>\n" +
+            "            <create qname=\"@income\" type=\"xs:double\"/>\n" +
+            "            <create qname=\"price\" type=\"xs:double\"/>\n" +
+            "        </range>\n" +
+            "    </index>\n" +
+            "</collection>";
+
+    private final String query;
+
+    WorkloadQuery(final String query) {
+        this.query = query;
+    }
+
+    public String getQuery() {
+        return query;
+    }
+
+    /**
+     * Declare the external variables of the query.
+     *
+     * @param context the context of the query
+     * @param random the source of random values
+     * @param corpus the generator of the corpus which is queried
+     *
+     * @throws XPathException if a variable cannot be declared
+     */
+    public void declareVariables(final XQueryContext context, final SplittableRandom random, final XMarkGenerator corpus) throws XPathException {
+        // no external variables
+    }
+}
@@ -0,0 +1,374 @@
+/*
+ * eXist-db Open Source Native XML Database
+ * Copyright (C) 2001 The eXist-db Authors
+ *
+ * info@exist-db.org
+ * http://www.exist-db.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.xquery.xmark;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Generates an auction document in the style of the XMark benchmark
+ * (https://projects.cwi.nl/xmark/), with regions of items, categories,
+ * people, and open and closed auctions.
+ *
+ * At a scale factor of 1.0 the element counts match those of the
+ * original {@code xmlgen}, which produces a document of about 100 MB.
+ * The generated content is determined by the scale factor and the seed,
+ * so that results are comparable between runs.
+ */
+public class XMarkGenerator {
+
+    private static final String[] REGIONS = { "africa", "asia", "australia", "europe", "namerica", "samerica" };
+    private static final int[] ITEMS_PER_REGION = { 550, 2000, 2200, 6000, 10000, 1000 };
+    private static final int CATEGORIES = 1000;
+    private static final int PERSONS = 25500;
+    private static final int OPEN_AUCTIONS = 12000;
+    private static final int CLOSED_AUCTIONS = 9750;
+
+    /**
+     * The vocabulary of the generated texts, in order of decreasing frequency.
+     */
+    static final String[] WORDS = {
+            "the", "and", "of", "to", "my", "that", "with", "his", "not", "for", "your", "but", "this", "him",
+            "lord", "king", "love", "heart", "good", "death", "night", "sweet", "honour", "blood", "fair",
+            "noble", "grace", "crown", "sword", "gold", "fortune", "battle", "queen", "prince", "heaven",
+            "traitor", "spirit", "ghost", "storm", "castle", "villain", "ocean", "mercy", "shadow", "throne",
+            "poison", "dagger", "tempest", "jealousy", "banquet", "exile", "serpent", "falcon", "orchard",
+            "lantern", "harbour", "pilgrim", "sonnet", "masque", "goblet", "gauntlet", "sceptre", "chalice",
+            "parchment"
+    };
+
+    private static final String[] FIRST_NAMES = { "Ada", "Bram", "Chiara", "Dmitri", "Elif", "Femi", "Greta",
+            "Hiro", "Ines", "Jonas", "Kamala", "Lars", "Mira", "Nuno", "Olga", "Pavel", "Quinn", "Rosa",
+            "Sven", "Tala", "Umar", "Vera", "Wim", "Xenia", "Yusuf", "Zofia" };
+    private static final String[] LAST_NAMES = { "Abe", "Berg", "Costa", "Dunn", "Engel", "Fischer", "Garcia",
+            "Hahn", "Ivanov", "Jansen", "Kovac", "Lind", "Moreau", "Novak", "Okafor", "Petrov", "Quist",
+            "Rossi", "Silva", "Tanaka", "Urban", "Vogel", "Weiss", "Young", "Zeller" };
+    private static final String[] CITIES = { "Amsterdam", "Berlin", "Cairo", "Dublin", "Lagos", "Lima",
+            "Melbourne", "Montreal", "Mumbai", "Osaka", "Oslo", "Porto", "Seattle", "Tunis" };
+    private static final String[] EDUCATION = { "High School", "College", "Graduate School", "Other" };
+    private static final String[] PAYMENTS = { "Creditcard", "Money order", "Personal Check", "Cash" };
+
+    private final double scale;
+    private final long seed;
+
+    private final int[] itemsPerRegion = new int[REGIONS.length];
+    private final int items;
+    private final int categories;
+    private final int persons;
+    private final int openAuctions;
+    private final int closedAuctions;
+
+    private Random random;
+    private Writer writer;
+
+    /**
+     * @param scale the scale factor, 1.0 produces a document of about 100 MB
+     * @param seed the seed for the random content
+     */
+    public XMarkGenerator(final double scale, final long seed) {
+        if (scale <= 0) {
+            throw new IllegalArgumentException("scale must be positive: " + scale);
+        }
+        this.scale = scale;
+        this.seed = seed;
+
+        int items = 0;
+        for (int i = 0; i < REGIONS.length; i++) {
+            itemsPerRegion[i] = scaled(ITEMS_PER_REGION[i]);
+            items += itemsPerRegion[i];
+        }
+        this.items = items;
+        this.categories = scaled(CATEGORIES);
+        this.persons = scaled(PERSONS);
+        this.openAuctions = scaled(OPEN_AUCTIONS);
+        this.closedAuctions = scaled(CLOSED_AUCTIONS);
+    }
+
+    private int scaled(final int count) {
+        return Math.max(1, (int) Math.round(count * scale));
+    }
+
+    public int getItems() {
+        return items;
+    }
+
+    public int getCategories() {
+        return categories;
+    }
+
+    public int getPersons() {
+        return persons;
+    }
+
+    public int getOpenAuctions() {
+        return openAuctions;
+    }
+
+    public int getClosedAuctions() {
+        return closedAuctions;
+    }
+
+    /**
+     * Write the document.
+     *
+     * @param writer the writer to write the document to
+     * @throws IOException if the document cannot be written
+     */
+    public void generate(final Writer writer) throws IOException {
+        this.random = new Random(seed);
+        this.writer = writer;
+
+        writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<site>\n<regions>\n");
+        int itemId = 0;
+        for (int i = 0; i < REGIONS.length; i++) {
+            writer.write('<');
+            writer.write(REGIONS[i]);
+            writer.write(">\n");
+            for (int j = 0; j < itemsPerRegion[i]; j++) {
+                item(itemId++);
+            }
+            writer.write("</");
+            writer.write(REGIONS[i]);
+            writer.write(">\n");
+        }
+        writer.write("</regions>\n<categories>\n");
+        for (int i = 0; i < categories; i++) {
+            category(i);
+        }
+        writer.write("</categories>\n<catgraph>\n");
+        for (int i = 0; i < categories; i++) {
+            writer.write("<edge from=\"category" + random.nextInt(categories) + "\" to=\"category" + random.nextInt(categories) + "\"/>\n");
+        }
+        writer.write("</catgraph>\n<people>\n");
+        for (int i = 0; i < persons; i++) {
+            person(i);
+        }
+        writer.write("</people>\n<open_auctions>\n");
+        for (int i = 0; i < openAuctions; i++) {
+            openAuction(i);
+        }
+        writer.write("</open_auctions>\n<closed_auctions>\n");
+        for (int i = 0; i < closedAuctions; i++) {
+            closedAuction();
+        }
+        writer.write("</closed_auctions>\n</site>\n");
+        writer.flush();
+    }
+
+    private void item(final int id) throws IOException {
+        writer.write("<item id=\"item" + id + "\"" + (random.nextInt(10) == 0 ? " featured=\"yes\"" : "") + ">\n");
+        element("location", pick(CITIES));
+        element("quantity", Integer.toString(1 + random.nextInt(3)));
+        element("name", words(2 + random.nextInt(3)));
+        element("payment", pick(PAYMENTS));
+        writer.write("<description>");
+        text(10 + random.nextInt(60));
+        writer.write("</description>\n");
+        element("shipping", "Will ship " + (random.nextBoolean() ? "internationally" : "only within country"));
+        for (int i = 1 + random.nextInt(3); i > 0; i--) {
+            writer.write("<incategory category=\"category" + random.nextInt(categories) + "\"/>\n");
+        }
+        writer.write("<mailbox>\n");
+        for (int i = random.nextInt(3); i > 0; i--) {
+            writer.write("<mail>\n");
+            element("from", personName());
+            element("to", personName());
+            element("date", date());
+            writer.write("<text>");
+            text(10 + random.nextInt(30));
+            writer.write("</text>\n</mail>\n");
+        }
+        writer.write("</mailbox>\n</item>\n");
+    }
+
+    private void category(final int id) throws IOException {
+        writer.write("<category id=\"category" + id + "\">\n");
+        element("name", words(1 + random.nextInt(2)));
+        writer.write("<description>");
+        text(10 + random.nextInt(40));
+        writer.write("</description>\n</category>\n");
+    }
+
+    private void person(final int id) throws IOException {
+        writer.write("<person id=\"person" + id + "\">\n");
+        final String first = pick(FIRST_NAMES);
+        final String last = pick(LAST_NAMES);
+        element("name", first + ' ' + last);
+        element("emailaddress", "mailto:" + first + '.' + last + id + "@example.com");
+        if (random.nextBoolean()) {
+            element("phone", "+" + (1 + random.nextInt(99)) + " (" + random.nextInt(1000) + ") " + (1000000 + random.nextInt(9000000)));
+        }
+        if (random.nextBoolean()) {
+            writer.write("<address>\n");
+            element("street", (1 + random.nextInt(99)) + " " + pick(LAST_NAMES) + " St");
+            element("city", pick(CITIES));
+            element("country", "Country" + random.nextInt(50));
+            element("zipcode", Integer.toString(10000 + random.nextInt(90000)));
+            writer.write("</address>\n");
+        }
+        if (random.nextInt(4) != 0) {
+            writer.write("<profile income=\"" + money(Math.abs(40000 + random.nextGaussian() * 30000)) + "\">\n");
+            for (int i = random.nextInt(5); i > 0; i--) {
+                writer.write("<interest category=\"category" + random.nextInt(categories) + "\"/>\n");
+            }
+            if (random.nextBoolean()) {
+                element("education", pick(EDUCATION));
+            }
+            element("gender", random.nextBoolean() ? "male" : "female");
+            element("business", random.nextBoolean() ? "Yes" : "No");
+            element("age", Integer.toString(18 + random.nextInt(60)));
+            writer.write("</profile>\n");
+        }
+        writer.write("<watches>\n");
+        for (int i = random.nextInt(4); i > 0; i--) {
+            writer.write("<watch open_auction=\"open_auction" + random.nextInt(openAuctions) + "\"/>\n");
+        }
+        writer.write("</watches>\n</person>\n");
+    }
+
+    private void openAuction(final int id) throws IOException {
+        writer.write("<open_auction id=\"open_auction" + id + "\">\n");
+        final double initial = 1 + random.nextDouble() * 200;
+        element("initial", money(initial));
+        if (random.nextBoolean()) {
+            element("reserve", money(initial * (1.2 + random.nextDouble())));
+        }
+        double current = initial;
+        for (int i = random.nextInt(8); i > 0; i--) {
+            final double increase = 1.5 * (1 + random.nextInt(10));
+            current += increase;
+            writer.write("<bidder>\n");
+            element("date", date());
+            element("time", String.format(Locale.ROOT, "%02d:%02d:%02d", random.nextInt(24), random.nextInt(60), random.nextInt(60)));
+            writer.write("<personref person=\"person" + random.nextInt(persons) + "\"/>\n");
+            element("increase", money(increase));
+            writer.write("</bidder>\n");
+        }
+        element("current", money(current));
+        writer.write("<itemref item=\"item" + random.nextInt(items) + "\"/>\n");
+        writer.write("<seller person=\"person" + random.nextInt(persons) + "\"/>\n");
+        annotation();
+        element("quantity", Integer.toString(1 + random.nextInt(3)));
+        element("type", random.nextBoolean() ? "Regular" : "Featured");
+        writer.write("<interval>\n");
+        element("start", date());
+        element("end", date());
+        writer.write("</interval>\n</open_auction>\n");
+    }
+
+    private void closedAuction() throws IOException {
+        writer.write("<closed_auction>\n");
+        writer.write("<seller person=\"person" + random.nextInt(persons) + "\"/>\n");
+        writer.write("<buyer person=\"person" + random.nextInt(persons) + "\"/>\n");
+        writer.write("<itemref item=\"item" + random.nextInt(items) + "\"/>\n");
+        element("price", money(1 + Math.abs(random.nextGaussian()) * 150));
+        element("date", date());
+        element("quantity", Integer.toString(1 + random.nextInt(3)));
+        element("type", random.nextBoolean() ? "Regular" : "Featured");
+        annotation();
+        writer.write("</closed_auction>\n");
+    }
+
+    private void annotation() throws IOException {
+        writer.write("<annotation>\n<author person=\"person" + random.nextInt(persons) + "\"/>\n<description>");
+        text(10 + random.nextInt(40));
+        writer.write("</description>\n");
+        element("happiness", Integer.toString(1 + random.nextInt(10)));
+        writer.write("</annotation>\n");
+    }
+
+    /**
+     * Writes a text of the given number of words, as mixed content with
+     * some of the words marked up as {@code keyword}, {@code bold} or {@code emph}.
+     */
+    private void text(final int words) throws IOException {
+        writer.write("<text>");
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                writer.write(' ');
+            }
+            final String word = word();
+            switch (random.nextInt(20)) {
+                case 0:
+                    writer.write("<keyword>" + word + "</keyword>");
+                    break;
+                case 1:
+                    writer.write("<bold>" + word + "</bold>");
+                    break;
+                case 2:
+                    writer.write("<emph>" + word + "</emph>");
+                    break;
+                default:
+                    writer.write(word);
+            }
+        }
+        writer.write("</text>");
+    }
+
+    private void element(final String name, final String content) throws IOException {
+        writer.write('<');
+        writer.write(name);
+        writer.write('>');
+        writer.write(content);
+        writer.write("</");
+        writer.write(name);
+        writer.write(">\n");
+    }
+
+    /**
+     * Picks a word with a skewed distribution, so that
+     * the first words of the vocabulary are the most frequent.
+     */
+    private String word() {
+        final double r = random.nextDouble();
+        return WORDS[(int) (r * r * r * WORDS.length)];
+    }
+
+    private String words(final int count) {
+        final StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                builder.append(' ');
+            }
+            builder.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return builder.toString();
+    }
+
+    private String personName() {
+        return pick(FIRST_NAMES) + ' ' + pick(LAST_NAMES);
+    }
+
+    private String pick(final String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    private String date() {
+        return String.format(Locale.ROOT, "%02d/%02d/%d", 1 + random.nextInt(12), 1 + random.nextInt(28), 1998 + random.nextInt(4));
+    }
+
+    private static String money(final double value) {
+        return String.format(Locale.ROOT, "%.2f", value);
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * eXist-db Open Source Native XML Database
+ * Copyright (C) 2001 The eXist-db Authors
+ *
+ * info@exist-db.org
+ * http://www.exist-db.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.xquery.xmark;
+
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.util.Statistics;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the {@link XQueryWorkloadBenchmark} for each of a number of thread
+ * counts, and prints the throughput and the median and 99th percentile
+ * latencies per query and thread count.
+ *
+ * Usage: {@code XQueryWorkload [--threads 1,2,4,8] [JMH options]}, e.g.
+ * {@code -p scale=0.1 -p query=PATH,RANGE} to choose the corpus size and queries.
+ */
+public class XQueryWorkload {
+
+    private static final String THREADS_OPTION = "--threads";
+    private static final int[] DEFAULT_THREADS = { 1, 2, 4, 8 };
+
+    public static void main(final String[] args) throws RunnerException {
+        int[] threads = DEFAULT_THREADS;
+        final List<String> jmhArgs = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (THREADS_OPTION.equals(args[i]) && i + 1 < args.length) {
+                threads = Arrays.stream(args[++i].split(",")).mapToInt(t -> Integer.parseInt(t.trim())).toArray();
+            } else {
+                jmhArgs.add(args[i]);
+            }
+        }
+
+        final CommandLineOptions commandLineOptions;
+        try {
+            commandLineOptions = new CommandLineOptions(jmhArgs.toArray(new String[0]));
+        } catch (final CommandLineOptionException e) {
+            System.err.println("Error parsing command line: " + e.getMessage());
+            System.exit(1);
+            return;
+        }
+
+        // query -> threads -> results
+        final Map<String, Map<Integer, Summary>> summaries = new TreeMap<>();
+        for (final int threadCount : threads) {
+            final Options options = new OptionsBuilder()
+                    .parent(commandLineOptions)
+                    .include(XQueryWorkloadBenchmark.class.getName())
+                    .threads(threadCount)
+                    .build();
+            for (final RunResult result : new Runner(options).run()) {
+                final BenchmarkParams params = result.getParams();
+                final String query = params.getParam("query") + " (scale " + params.getParam("scale") + ")";
+                final Summary summary = summaries.computeIfAbsent(query, k -> new TreeMap<>())
+                        .computeIfAbsent(threadCount, k -> new Summary());
+                summary.add(params, result);
+            }
+        }
+
+        print(System.out, summaries);
+    }
+
+    private static void print(final PrintStream out, final Map<String, Map<Integer, Summary>> summaries) {
+        out.println();
+        out.printf("%-28s %8s %14s %14s %14s%n", "Query", "Threads", "ops/s", "p50 (ms)", "p99 (ms)");
+        for (final Map.Entry<String, Map<Integer, Summary>> query : summaries.entrySet()) {
+            for (final Map.Entry<Integer, Summary> threads : query.getValue().entrySet()) {
+                final Summary summary = threads.getValue();
+                out.printf("%-28s %8d %14.1f %14.3f %14.3f%n", query.getKey(), threads.getKey(),
+                        summary.opsPerSecond, summary.p50Millis, summary.p99Millis);
+            }
+        }
+    }
+
+    /**
+     * The results of a query for a number of threads.
+     */
+    private static class Summary {
+        private double opsPerSecond = Double.NaN;
+        private double p50Millis = Double.NaN;
+        private double p99Millis = Double.NaN;
+
+        void add(final BenchmarkParams params, final RunResult result) {
+            final double nanosPerUnit = TimeUnit.NANOSECONDS.convert(1, params.getTimeUnit());
+            switch (params.getMode()) {
+                case Throughput:
+                    // score is in operations per time unit
+                    opsPerSecond = result.getPrimaryResult().getScore() * TimeUnit.SECONDS.toNanos(1) / nanosPerUnit;
+                    break;
+
+                case SampleTime:
+                    // samples are in time units per operation
+                    final Statistics statistics = result.getPrimaryResult().getStatistics();
+                    final double millisPerUnit = nanosPerUnit / TimeUnit.MILLISECONDS.toNanos(1);
+                    p50Millis = statistics.getPercentile(50.0) * millisPerUnit;
+                    p99Millis = statistics.getPercentile(99.0) * millisPerUnit;
+                    break;
+
+                default:
+                    break;
+            }
+        }
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * eXist-db Open Source Native XML Database
+ * Copyright (C) 2001 The eXist-db Authors
+ *
+ * info@exist-db.org
+ * http://www.exist-db.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.xquery.xmark;
+
+import org.exist.EXistException;
+import org.exist.collections.Collection;
+import org.exist.security.PermissionDeniedException;
+import org.exist.source.Source;
+import org.exist.source.StringSource;
+import org.exist.storage.BenchmarkDatabase;
+import org.exist.storage.BrokerPool;
+import org.exist.storage.DBBroker;
+import org.exist.storage.XQueryPool;
+import org.exist.storage.txn.Txn;
+import org.exist.util.FileInputSource;
+import org.exist.util.MimeType;
+import org.exist.xmldb.XmldbURI;
+import org.exist.xquery.CompiledXQuery;
+import org.exist.xquery.XPathException;
+import org.exist.xquery.XQuery;
+import org.exist.xquery.XQueryContext;
+import org.exist.xquery.value.Sequence;
+import org.exist.xquery.value.SequenceIterator;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the queries of the {@link WorkloadQuery} mix end-to-end,
+ * i.e. taking a compiled query from the {@link XQueryPool}, executing
+ * it and iterating over the result, against an XMark style corpus of
+ * the given {@link #scale}.
+ *
+ * The throughput and the distribution of latencies are measured, see
+ * {@link XQueryWorkload} for running the benchmark for different numbers
+ * of threads and summarising the results.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 10)
+@Measurement(iterations = 5, time = 10)
+public class XQueryWorkloadBenchmark {
+
+    private static final XmldbURI DOCUMENT_URI = XmldbURI.create("auction.xml");
+
+    /** the scale factor of the corpus, see {@link XMarkGenerator} */
+    @Param({"0.01"})
+    private double scale;
+
+    @Param({"PATH", "FLWOR", "ID_LOOKUP", "RANGE", "FULL_TEXT", "UPDATE"})
+    private WorkloadQuery query;
+
+    private final BenchmarkDatabase database = new BenchmarkDatabase();
+    private XMarkGenerator corpus;
+    private Source source;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        database.start();
+        corpus = new XMarkGenerator(scale, 42);
+
+        final Path file = database.getWorkDir().resolve(DOCUMENT_URI.lastSegmentString());
+        try (final Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            corpus.generate(writer);
+        }
+
+        final BrokerPool pool = database.getBrokerPool();
+        try (final DBBroker broker = pool.get(Optional.of(pool.getSecurityManager().getSystemSubject()));
+             final Txn transaction = pool.getTransactionManager().beginTransaction()) {
+            final Collection collection = broker.getOrCreateCollection(transaction, XmldbURI.create(WorkloadQuery.COLLECTION));
+            broker.saveCollection(transaction, collection);
+            pool.getConfigurationManager().addConfiguration(transaction, broker, collection, WorkloadQuery.COLLECTION_CONFIG);
+            broker.storeDocument(transaction, DOCUMENT_URI, new FileInputSource(file), MimeType.XML_TYPE, collection);
+            transaction.commit();
+        }
+
+        source = new StringSource(query.getQuery());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.stop();
+    }
+
+    /**
+     * The broker of each benchmark thread, and
+     * the random values for the external variables of its queries.
+     */
+    @State(Scope.Thread)
+    public static class Worker {
+        private DBBroker broker;
+        private SplittableRandom random;
+
+        @Setup(Level.Iteration)
+        public void setUp(final XQueryWorkloadBenchmark benchmark) throws EXistException {
+            final BrokerPool pool = benchmark.database.getBrokerPool();
+            broker = pool.get(Optional.of(pool.getSecurityManager().getSystemSubject()));
+            if (random == null) {
+                random = new SplittableRandom(Thread.currentThread().getId());
+            }
+        }
+
+        @TearDown(Level.Iteration)
+        public void tearDown() {
+            broker.close();
+        }
+    }
+
+    @Benchmark
+    public long query(final Worker worker) throws XPathException, PermissionDeniedException, IOException {
+        final BrokerPool pool = database.getBrokerPool();
+        final XQuery xquery = pool.getXQueryService();
+        final XQueryPool xqueryPool = pool.getXQueryPool();
+
+        CompiledXQuery compiled = xqueryPool.borrowCompiledXQuery(worker.broker, source);
+        final XQueryContext context;
+        if (compiled == null) {
+            context = new XQueryContext(pool);
+        } else {
+            context = compiled.getContext();
+            context.prepareForReuse();
+        }
+        query.declareVariables(context, worker.random, corpus);
+        if (compiled == null) {
+            compiled = xquery.compile(worker.broker, context, source);
+        }
+
+        try {
+            final Sequence result = xquery.execute(worker.broker, compiled, null);
+            long items = 0;
+            for (final SequenceIterator i = result.iterate(); i.hasNext(); i.nextItem()) {
+                items++;
+            }
+            return items;
+        } finally {
+            context.runCleanupTasks();
+            xqueryPool.returnCompiledXQuery(source, compiled);
+        }
+    }
+}
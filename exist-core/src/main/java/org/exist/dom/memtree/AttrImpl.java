@@ -43,7 +43,8 @@ public class AttrImpl extends NodeImpl implements Attr {
 
     @Override
     public NodeId getNodeId() {
-        return document.attrNodeId[nodeNumber];
+        expand();
+        return document.getAttrNodeIdFor(nodeNumber);
     }
 
     @Override
@@ -87,12 +88,12 @@ public class AttrImpl extends NodeImpl implements Attr {
 
     @Override
     public String getValue() {
-        return document.attrValue[nodeNumber];
+        return document.getAttrValueFor(nodeNumber);
     }
 
     @Override
     public void setValue(final String value) throws DOMException {
-        document.attrValue[nodeNumber] = value;
+        document.setAttrValueFor(nodeNumber, value);
     }
 
     @Override
@@ -109,7 +110,7 @@ public class AttrImpl extends NodeImpl implements Attr {
 
     @Override
     public String getStringValue() throws DOMException {
-        return document.attrValue[nodeNumber];
+        return document.getAttrValueFor(nodeNumber);
     }
 
     @Override
@@ -200,7 +201,7 @@ public class AttrImpl extends NodeImpl implements Attr {
         if(obj instanceof AttrImpl) {
             final AttrImpl other = ((AttrImpl)obj);
             return other.getQName().equals(getQName())
-                    && other.document.attrValue[nodeNumber].equals(document.attrValue[nodeNumber]);
+                    && other.document.getAttrValueFor(nodeNumber).equals(document.getAttrValueFor(nodeNumber));
         }
 
         return false;
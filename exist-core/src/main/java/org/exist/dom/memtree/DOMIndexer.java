@@ -232,7 +232,7 @@ public class DOMIndexer {
             }
 
             case Node.PROCESSING_INSTRUCTION_NODE: {
-                final QName qn = doc.nodeName[nodeNr];
+                final QName qn = doc.getQNameFor(nodeNr);
                 pi.setTarget(qn.getLocalPart());
                 pi.setData(new String(doc.characters, doc.alpha[nodeNr], doc.alphaLen[nodeNr]));
                 pi.setOwnerDocument(targetDoc);
@@ -265,7 +265,7 @@ public class DOMIndexer {
         elem.setOwnerDocument(targetDoc);
         elem.setAttributes(attribs);
         elem.setChildCount(doc.getChildCountFor(nodeNr) + attribs);
-        elem.setNodeName(doc.nodeName[nodeNr], broker.getBrokerPool().getSymbols());
+        elem.setNodeName(doc.getQNameFor(nodeNr), broker.getBrokerPool().getSymbols());
         final Map<String, String> ns = getNamespaces(nodeNr);
         if(ns != null) {
             elem.setNamespaceMappings(ns);
@@ -282,7 +282,7 @@ public class DOMIndexer {
         final Map<String, String> map = new HashMap<>();
 
         while((ns < doc.nextNamespace) && (doc.namespaceParent[ns] == nodeNr)) {
-            final QName qn = doc.namespaceCode[ns];
+            final QName qn = doc.getNamespaceQNameFor(ns);
 
             if(XMLConstants.XMLNS_ATTRIBUTE.equals(qn.getLocalPart())) {
                 map.put(XMLConstants.DEFAULT_NS_PREFIX, qn.getNamespaceURI());
@@ -307,10 +307,10 @@ public class DOMIndexer {
         int attr = doc.alpha[nodeNr];
         if(attr > -1) {
             while((attr < doc.nextAttr) && (doc.attrParent[attr] == nodeNr)) {
-                final QName qn = doc.attrName[attr];
+                final QName qn = doc.getAttrQNameFor(attr);
                 final AttrImpl attrib = (AttrImpl) NodePool.getInstance().borrowNode(Node.ATTRIBUTE_NODE);
                 attrib.setNodeName(qn, broker.getBrokerPool().getSymbols());
-                attrib.setValue(doc.attrValue[attr]);
+                attrib.setValue(doc.getAttrValueFor(attr));
                 attrib.setOwnerDocument(targetDoc);
                 elem.appendChildInternal(prevNode, attrib);
                 setPrevious(attrib);
@@ -75,14 +75,17 @@ import static org.exist.dom.QName.Validity.ILLEGAL_FORMAT;
  *  * {@link #alpha}
  *  * {@link #alphaLen}
  *  * {@link #characters}
- *  * {@link #nodeId}
  *  * {@link #attrName}
  *  * {@link #attrType}
- *  * {@link #attrNodeId}
  *  * {@link #attrParent}
- *  * {@link #attrValue}
+ *  * {@link #attrValueStart}
+ *  * {@link #attrValueLen}
+ *  * {@link #attrChars}
  *  * {@link #references}
  *
+ * Names are stored as codes of the {@link NamePool} and attribute values share a single character buffer.
+ * Node ids are not stored, they are computed from the position of a node in the tree, see {@link #getNodeIdFor(int)}.
+ *
  * This implementation stores all node data in the document object. Nodes from another document, i.e. a persistent document in the database, can be
  * stored as reference nodes, i.e. the nodes are not copied into this document object. Instead a reference is inserted which will only be expanded
  * during serialization.
@@ -105,10 +108,15 @@ public class DocumentImpl extends NodeImpl<DocumentImpl> implements Document {
     // the node number of the next sibling
     protected int[] next;
 
-    // pointer into the namePool
-    protected QName[] nodeName;
+    // code of the node name in the namePool, or -1
+    protected int[] nodeName;
 
-    protected NodeId[] nodeId;
+    // node ids are not stored, but computed from the position of a node in
+    // the tree: the parent and the position among the siblings of each node
+    // are calculated on first use, see getNodeIdFor
+    private int[] nodeIdParent = null;
+    private int[] nodeIdOrdinal = null;
+    private volatile int nodeIdSize = 0;
 
     //alphanumeric content
     protected int[] alpha;
@@ -116,17 +124,20 @@ public class DocumentImpl extends NodeImpl<DocumentImpl> implements Document {
     protected char[] characters = null;
     protected int nextChar = 0;
 
-    // attributes
-    protected QName[] attrName;
-    protected int[] attrType;
-    protected NodeId[] attrNodeId;
-    protected int[] attrParent;
-    protected String[] attrValue;
+    // attributes, allocated with the first attribute; the values
+    // share a single character buffer
+    protected int[] attrName = null;
+    protected int[] attrType = null;
+    protected int[] attrParent = null;
+    protected int[] attrValueStart = null;
+    protected int[] attrValueLen = null;
+    protected char[] attrChars = null;
+    protected int nextAttrChar = 0;
     protected int nextAttr = 0;
 
     // namespaces
     protected int[] namespaceParent = null;
-    protected QName[] namespaceCode = null;
+    protected int[] namespaceCode = null;
     protected int nextNamespace = 0;
 
     // the current number of nodes in the doc
@@ -180,16 +191,11 @@ public class DocumentImpl extends NodeImpl<DocumentImpl> implements Document {
         treeLevel = new short[NODE_SIZE];
         next = new int[NODE_SIZE];
         Arrays.fill(next, -1);
-        nodeName = new QName[NODE_SIZE];
-        nodeId = new NodeId[NODE_SIZE];
+        nodeName = new int[NODE_SIZE];
+        nodeName[0] = -1;
         alpha = new int[NODE_SIZE];
         alphaLen = new int[NODE_SIZE];
         Arrays.fill(alphaLen, -1);
-        attrName = new QName[ATTR_SIZE];
-        attrParent = new int[ATTR_SIZE];
-        attrValue = new String[ATTR_SIZE];
-        attrType = new int[ATTR_SIZE];
-        attrNodeId = new NodeId[NODE_SIZE];
         treeLevel[0] = 0;
         nodeKind[0] = Node.DOCUMENT_NODE;
         document = this;
@@ -199,7 +205,9 @@ public class DocumentImpl extends NodeImpl<DocumentImpl> implements Document {
         size = 0;
         nextChar = 0;
         nextAttr = 0;
+        nextAttrChar = 0;
         nextReferenceIdx = 0;
+        nodeIdSize = 0;
         references = null;
     }
 
@@ -224,7 +232,7 @@ public class DocumentImpl extends NodeImpl<DocumentImpl> implements Document {
         }
         nodeKind[size] = kind;
         treeLevel[size] = level;
-        nodeName[size] = qname != null ? namePool.getSharedName(qname) : null;
+        nodeName[size] = qname != null ? namePool.getNameCode(qname) : -1;
         alpha[size] = -1; // undefined
         next[size] = -1;
         return (size++);
@@ -344,10 +352,10 @@ public class DocumentImpl extends NodeImpl<DocumentImpl> implements Document {
         //Check if an attribute with the same qname exists in the parent element
         while((nodeNum > 0) && (prevAttr > -1) && (attrParent[prevAttr] == nodeNum)) {
             attrN = prevAttr--;
-            final QName prevQn = attrName[attrN];
+            final QName prevQn = getAttrQNameFor(attrN);
             if(prevQn.equals(qname)) {
                 if(replaceAttribute) {
-                    attrValue[attrN] = value;
+                    setAttrValueFor(attrN, value);
                     attrType[attrN] = type;
                     return attrN;
                 } else {
@@ -356,13 +364,13 @@ public class DocumentImpl extends NodeImpl<DocumentImpl> implements Document {
                 }
             }
         }
-        if(nextAttr == attrName.length) {
+        if(attrName == null || nextAttr == attrName.length) {
             growAttributes();
         }
         final QName attrQname = new QName(qname.getLocalPart(), qname.getNamespaceURI(), qname.getPrefix(), ElementValue.ATTRIBUTE);
         attrParent[nextAttr] = nodeNum;
-        attrName[nextAttr] = namePool.getSharedName(attrQname);
-        attrValue[nextAttr] = value;
+        attrName[nextAttr] = namePool.getNameCode(attrQname);
+        setAttrValueFor(nextAttr, value);
         attrType[nextAttr] = type;
         if(alpha[nodeNum] < 0) {
             alpha[nodeNum] = nextAttr;
@@ -377,7 +385,7 @@ public class DocumentImpl extends NodeImpl<DocumentImpl> implements Document {
         if((namespaceCode == null) || (nextNamespace == namespaceCode.length)) {
             growNamespaces();
         }
-        namespaceCode[nextNamespace] = namePool.getSharedName(qname);
+        namespaceCode[nextNamespace] = namePool.getNameCode(qname);
         namespaceParent[nextNamespace] = nodeNum;
         if(alphaLen[nodeNum] < 0) {
             alphaLen[nodeNum] = nextNamespace;
@@ -400,6 +408,154 @@ public class DocumentImpl extends NodeImpl<DocumentImpl> implements Document {
         return nodeKind[nodeNum];
     }
 
+    public QName getQNameFor(final int nodeNum) {
+        final int code = nodeName[nodeNum];
+        return code < 0 ? null : namePool.getName(code);
+    }
+
+    void setQNameFor(final int nodeNum, final QName qname) {
+        nodeName[nodeNum] = qname != null ? namePool.getNameCode(qname) : -1;
+    }
+
+    public QName getAttrQNameFor(final int attr) {
+        return namePool.getName(attrName[attr]);
+    }
+
+    void setAttrQNameFor(final int attr, final QName qname) {
+        attrName[attr] = namePool.getNameCode(qname);
+    }
+
+    public String getAttrValueFor(final int attr) {
+        return new String(attrChars, attrValueStart[attr], attrValueLen[attr]);
+    }
+
+    /**
+     * Set the value of an attribute. The characters are appended to the
+     * shared attribute value buffer; a previous value is not reclaimed.
+     *
+     * @param attr the attribute number
+     * @param value the new value
+     */
+    void setAttrValueFor(final int attr, final String value) {
+        final int len = value == null ? 0 : value.length();
+        if(attrChars == null) {
+            attrChars = new char[len > CHAR_BUF_SIZE ? len : CHAR_BUF_SIZE];
+        } else if(nextAttrChar + len > attrChars.length) {
+            int newLen = (attrChars.length * 3) / 2;
+            if(newLen < nextAttrChar + len) {
+                newLen = nextAttrChar + len;
+            }
+            attrChars = Arrays.copyOf(attrChars, newLen);
+        }
+        if(len > 0) {
+            value.getChars(0, len, attrChars, nextAttrChar);
+        }
+        attrValueStart[attr] = nextAttrChar;
+        attrValueLen[attr] = len;
+        nextAttrChar += len;
+    }
+
+    public QName getNamespaceQNameFor(final int ns) {
+        return namePool.getName(namespaceCode[ns]);
+    }
+
+    void setNamespaceQNameFor(final int ns, final QName qname) {
+        namespaceCode[ns] = namePool.getNameCode(qname);
+    }
+
+    /**
+     * Get the node id of a node. Node ids are not stored, but calculated
+     * from the position of the node in the tree.
+     *
+     * @param nodeNum the node number
+     * @return the node id
+     */
+    public NodeId getNodeIdFor(final int nodeNum) {
+        final NodeIdFactory nodeFactory = getDatabase().getNodeFactory();
+        if(nodeNum == 0) {
+            return nodeFactory.documentNodeId();
+        }
+        computeNodeIdPositions();
+        final int parent = nodeIdParent[nodeNum];
+        if(parent == 0) {
+            return nodeFactory.createInstance(nodeIdOrdinal[nodeNum]);
+        }
+        return getNodeIdFor(parent).getChild(nodeIdOrdinal[nodeNum]);
+    }
+
+    /**
+     * Get the node id of an attribute. Attributes precede the child nodes
+     * of their element in the numbering.
+     *
+     * @param attr the attribute number
+     * @return the node id, or null if the attribute does not belong to an element
+     */
+    public NodeId getAttrNodeIdFor(final int attr) {
+        final int parent = attrParent[attr];
+        if(parent == 0 || nodeKind[parent] != Node.ELEMENT_NODE) {
+            return null;
+        }
+        return getNodeIdFor(parent).getChild(attr - alpha[parent] + 1);
+    }
+
+    private void computeNodeIdPositions() {
+        if(nodeIdSize == size) {
+            return;
+        }
+        synchronized(this) {
+            if(nodeIdSize == size) {
+                return;
+            }
+            nodeIdParent = new int[size];
+            nodeIdOrdinal = new int[size];
+            int ordinal = 1;
+            int nextNode = getFirstChildFor(0);
+            while(nextNode > 0) {
+                computeNodeIdPositions(0, ordinal++, nextNode);
+                nextNode = next[nextNode];
+            }
+            nodeIdSize = size;
+        }
+    }
+
+    private void computeNodeIdPositions(final int parent, final int ordinal, final int nodeNum) {
+        nodeIdParent[nodeNum] = parent;
+        nodeIdOrdinal[nodeNum] = ordinal;
+        if(nodeKind[nodeNum] == Node.ELEMENT_NODE) {
+            int childOrdinal = getAttributesCountFor(nodeNum) + 1;
+            int nextNode = getFirstChildFor(nodeNum);
+            while(nextNode > nodeNum) {
+                computeNodeIdPositions(nodeNum, childOrdinal++, nextNode);
+                nextNode = next[nextNode];
+            }
+        }
+    }
+
+    /**
+     * Estimate the number of bytes of heap used by the node data of this document.
+     * Reference nodes are counted as pointers only.
+     *
+     * @return the estimated memory usage in bytes
+     */
+    public long getMemoryUsage() {
+        return sizeOf(nodeKind, 2) + sizeOf(treeLevel, 2) + sizeOf(next, 4) + sizeOf(nodeName, 4)
+                + sizeOf(alpha, 4) + sizeOf(alphaLen, 4) + sizeOf(characters, 2)
+                + sizeOf(nodeIdParent, 4) + sizeOf(nodeIdOrdinal, 4)
+                + sizeOf(attrName, 4) + sizeOf(attrType, 4) + sizeOf(attrParent, 4)
+                + sizeOf(attrValueStart, 4) + sizeOf(attrValueLen, 4) + sizeOf(attrChars, 2)
+                + sizeOf(namespaceParent, 4) + sizeOf(namespaceCode, 4)
+                + sizeOf(references, 4);
+    }
+
+    private static long sizeOf(final Object array, final int elementSize) {
+        if(array == null) {
+            return 0;
+        }
+        // array header plus elements, aligned to 8 bytes
+        final long bytes = 16 + (long) java.lang.reflect.Array.getLength(array) * elementSize;
+        return (bytes + 7) & ~7L;
+    }
+
     @Override
     public String getStringValue() {
         if(document == null) {
@@ -424,14 +580,10 @@ public class DocumentImpl extends NodeImpl<DocumentImpl> implements Document {
         System.arraycopy(next, 0, newNext, 0, size);
         next = newNext;
 
-        final QName[] newNodeName = new QName[newSize];
+        final int[] newNodeName = new int[newSize];
         System.arraycopy(nodeName, 0, newNodeName, 0, size);
         nodeName = newNodeName;
 
-        final NodeId[] newNodeId = new NodeId[newSize];
-        System.arraycopy(nodeId, 0, newNodeId, 0, size);
-        nodeId = newNodeId;
-
         final int[] newAlpha = new int[newSize];
         System.arraycopy(alpha, 0, newAlpha, 0, size);
         alpha = newAlpha;
@@ -443,28 +595,20 @@ public class DocumentImpl extends NodeImpl<DocumentImpl> implements Document {
     }
 
     private void growAttributes() {
-        final int size = attrName.length;
-        final int newSize = (size * 3) / 2;
-
-        final QName[] newAttrName = new QName[newSize];
-        System.arraycopy(attrName, 0, newAttrName, 0, size);
-        attrName = newAttrName;
-
-        final int[] newAttrParent = new int[newSize];
-        System.arraycopy(attrParent, 0, newAttrParent, 0, size);
-        attrParent = newAttrParent;
-
-        final String[] newAttrValue = new String[newSize];
-        System.arraycopy(attrValue, 0, newAttrValue, 0, size);
-        attrValue = newAttrValue;
-
-        final int[] newAttrType = new int[newSize];
-        System.arraycopy(attrType, 0, newAttrType, 0, size);
-        attrType = newAttrType;
-
-        final NodeId[] newNodeId = new NodeId[newSize];
-        System.arraycopy(attrNodeId, 0, newNodeId, 0, size);
-        attrNodeId = newNodeId;
+        if(attrName == null) {
+            attrName = new int[ATTR_SIZE];
+            attrParent = new int[ATTR_SIZE];
+            attrValueStart = new int[ATTR_SIZE];
+            attrValueLen = new int[ATTR_SIZE];
+            attrType = new int[ATTR_SIZE];
+            return;
+        }
+        final int newSize = (attrName.length * 3) / 2;
+        attrName = Arrays.copyOf(attrName, newSize);
+        attrParent = Arrays.copyOf(attrParent, newSize);
+        attrValueStart = Arrays.copyOf(attrValueStart, newSize);
+        attrValueLen = Arrays.copyOf(attrValueLen, newSize);
+        attrType = Arrays.copyOf(attrType, newSize);
     }
 
     private void growReferences() {
@@ -481,13 +625,13 @@ public class DocumentImpl extends NodeImpl<DocumentImpl> implements Document {
 
     private void growNamespaces() {
         if(namespaceCode == null) {
-            namespaceCode = new QName[5];
+            namespaceCode = new int[5];
             namespaceParent = new int[5];
         } else {
             final int size = namespaceCode.length;
             final int newSize = (size * 3) / 2;
 
-            final QName[] newCodes = new QName[newSize];
+            final int[] newCodes = new int[newSize];
             System.arraycopy(namespaceCode, 0, newCodes, 0, size);
             namespaceCode = newCodes;
 
@@ -748,7 +892,7 @@ public class DocumentImpl extends NodeImpl<DocumentImpl> implements Document {
         if(-1 < attr) {
             while((attr < document.nextAttr) && (document.attrParent[attr] == nodeNumber)) {
                 if((document.attrType[attr] == AttrImpl.ATTR_ID_TYPE) &&
-                    id.equals(document.attrValue[attr])) {
+                    id.equals(document.getAttrValueFor(attr))) {
                     return true;
                 }
                 ++attr;
@@ -762,7 +906,7 @@ public class DocumentImpl extends NodeImpl<DocumentImpl> implements Document {
         if(-1 < attr) {
             while((attr < document.nextAttr) && (document.attrParent[attr] == nodeNumber)) {
                 if((document.attrType[attr] == AttrImpl.ATTR_IDREF_TYPE) &&
-                    id.equals(document.attrValue[attr])) {
+                    id.equals(document.getAttrValueFor(attr))) {
                     return new AttrImpl(this, attr);
                 }
                 ++attr;
@@ -1012,7 +1156,7 @@ public class DocumentImpl extends NodeImpl<DocumentImpl> implements Document {
         final NodeListImpl nl = new NodeListImpl();
         for(int i = 1; i < size; i++) {
             if(nodeKind[i] == Node.ELEMENT_NODE) {
-                final QName qn = nodeName[i];
+                final QName qn = getQNameFor(i);
                 if(qn.matches(qname)) {
                     nl.add(getNode(i));
                 }
@@ -1087,20 +1231,20 @@ public class DocumentImpl extends NodeImpl<DocumentImpl> implements Document {
         final int nr = node.nodeNumber;
         switch(node.getNodeType()) {
             case Node.ELEMENT_NODE: {
-                final QName nodeName = document.nodeName[nr];
+                final QName nodeName = document.getQNameFor(nr);
                 receiver.startElement(nodeName, null);
                 int attr = document.alpha[nr];
                 if(-1 < attr) {
                     while((attr < document.nextAttr) && (document.attrParent[attr] == nr)) {
-                        final QName attrQName = document.attrName[attr];
-                        receiver.attribute(attrQName, attrValue[attr]);
+                        final QName attrQName = document.getAttrQNameFor(attr);
+                        receiver.attribute(attrQName, document.getAttrValueFor(attr));
                         ++attr;
                     }
                 }
                 int ns = document.alphaLen[nr];
                 if(-1 < ns) {
                     while((ns < document.nextNamespace) && (document.namespaceParent[ns] == nr)) {
-                        final QName nsQName = document.namespaceCode[ns];
+                        final QName nsQName = document.getNamespaceQNameFor(ns);
                         receiver.addNamespaceNode(nsQName);
                         ++ns;
                     }
@@ -1114,19 +1258,19 @@ public class DocumentImpl extends NodeImpl<DocumentImpl> implements Document {
                 receiver.cdataSection(document.characters, document.alpha[nr], document.alphaLen[nr]);
                 break;
             case Node.ATTRIBUTE_NODE:
-                final QName attrQName = document.attrName[nr];
-                receiver.attribute(attrQName, attrValue[nr]);
+                final QName attrQName = document.getAttrQNameFor(nr);
+                receiver.attribute(attrQName, document.getAttrValueFor(nr));
                 break;
             case Node.COMMENT_NODE:
                 receiver.comment(document.characters, document.alpha[nr], document.alphaLen[nr]);
                 break;
             case Node.PROCESSING_INSTRUCTION_NODE:
-                final QName piQName = document.nodeName[nr];
+                final QName piQName = document.getQNameFor(nr);
                 final String data = new String(document.characters, document.alpha[nr], document.alphaLen[nr]);
                 receiver.processingInstruction(piQName.getLocalPart(), data);
                 break;
             case NodeImpl.NAMESPACE_NODE:
-                receiver.addNamespaceNode(document.namespaceCode[nr]);
+                receiver.addNamespaceNode(document.getNamespaceQNameFor(nr));
                 break;
             case NodeImpl.REFERENCE_NODE:
                 if(expandRefs) {
@@ -1174,81 +1318,45 @@ public class DocumentImpl extends NodeImpl<DocumentImpl> implements Document {
     }
 
     public DocumentImpl expandRefs(final NodeImpl rootNode) throws DOMException {
+        if(nextReferenceIdx == 0) {
+            return this;
+        }
+        final MemTreeBuilder builder = new MemTreeBuilder(context);
+        final DocumentBuilderReceiver receiver = new DocumentBuilderReceiver(builder);
         try {
-            if(nextReferenceIdx == 0) {
-                computeNodeIds();
-                return this;
-            }
-            final MemTreeBuilder builder = new MemTreeBuilder(context);
-            final DocumentBuilderReceiver receiver = new DocumentBuilderReceiver(builder);
-            try {
-                builder.startDocument();
-                NodeImpl node = (rootNode == null) ? (NodeImpl) getFirstChild() : rootNode;
-                while(node != null) {
-                    copyTo(node, receiver, true);
-                    node = (NodeImpl) node.getNextSibling();
-                }
-                receiver.endDocument();
-            } catch(final SAXException e) {
-                throw new DOMException(DOMException.INVALID_STATE_ERR, e.getMessage());
+            builder.startDocument();
+            NodeImpl node = (rootNode == null) ? (NodeImpl) getFirstChild() : rootNode;
+            while(node != null) {
+                copyTo(node, receiver, true);
+                node = (NodeImpl) node.getNextSibling();
             }
-            final DocumentImpl newDoc = builder.getDocument();
-            newDoc.computeNodeIds();
-            return newDoc;
-        } catch(final EXistException e) {
+            receiver.endDocument();
+        } catch(final SAXException e) {
             throw new DOMException(DOMException.INVALID_STATE_ERR, e.getMessage());
         }
+        return builder.getDocument();
     }
 
     public NodeImpl getNodeById(final NodeId id) {
         expand();
-        for(int i = 0; i < size; i++) {
-            if(id.equals(nodeId[i])) {
-                return getNode(i);
-            }
-        }
-        return null;
-    }
-
-    private void computeNodeIds() throws EXistException {
-        if(nodeId[0] != null) {
-            return;
-        }
-        final NodeIdFactory nodeFactory = getDatabase().getNodeFactory();
-        nodeId[0] = nodeFactory.documentNodeId();
-        if(size == 1) {
-            return;
-        }
-        NodeId nextId = nodeFactory.createInstance();
-        NodeImpl next = (NodeImpl) getFirstChild();
-        while(next != null) {
-            computeNodeIds(nextId, next.nodeNumber);
-            next = (NodeImpl) next.getNextSibling();
-            nextId = nextId.nextSibling();
+        if(id.equals(getNodeIdFor(0))) {
+            return this;
         }
-    }
-
-    private void computeNodeIds(final NodeId id, final int nodeNum) {
-        nodeId[nodeNum] = id;
-        if(nodeKind[nodeNum] == Node.ELEMENT_NODE) {
-            NodeId nextId = id.newChild();
-            int attr = document.alpha[nodeNum];
-            if(-1 < attr) {
-                while((attr < document.nextAttr) && (document.attrParent[attr] == nodeNum)) {
-                    attrNodeId[attr] = nextId;
-                    nextId = nextId.nextSibling();
-                    ++attr;
-                }
+        // descend along the ancestors of the node id
+        int nodeNum = getFirstChildFor(0);
+        while(nodeNum > 0) {
+            final NodeId current = getNodeIdFor(nodeNum);
+            if(id.equals(current)) {
+                return getNode(nodeNum);
             }
-            int nextNode = getFirstChildFor(nodeNum);
-            while(nextNode > nodeNum) {
-                computeNodeIds(nextId, nextNode);
-                nextNode = document.next[nextNode];
-                if(nextNode > nodeNum) {
-                    nextId = nextId.nextSibling();
-                }
+            if(id.isDescendantOf(current)) {
+                nodeNum = getFirstChildFor(nodeNum);
+            } else {
+                final int nextNode = next[nodeNum];
+                nodeNum = nextNode > nodeNum ? nextNode : -1;
             }
         }
+        return null;
     }
 
     /**
@@ -1262,15 +1370,19 @@ public class DocumentImpl extends NodeImpl<DocumentImpl> implements Document {
         treeLevel = newDoc.treeLevel;
         next = newDoc.next;
         nodeName = newDoc.nodeName;
-        nodeId = newDoc.nodeId;
+        nodeIdParent = newDoc.nodeIdParent;
+        nodeIdOrdinal = newDoc.nodeIdOrdinal;
+        nodeIdSize = newDoc.nodeIdSize;
         alpha = newDoc.alpha;
         alphaLen = newDoc.alphaLen;
         characters = newDoc.characters;
         nextChar = newDoc.nextChar;
         attrName = newDoc.attrName;
-        attrNodeId = newDoc.attrNodeId;
         attrParent = newDoc.attrParent;
-        attrValue = newDoc.attrValue;
+        attrValueStart = newDoc.attrValueStart;
+        attrValueLen = newDoc.attrValueLen;
+        attrChars = newDoc.attrChars;
+        nextAttrChar = newDoc.nextAttrChar;
         attrType = newDoc.attrType;
         nextAttr = newDoc.nextAttr;
         namespaceParent = newDoc.namespaceParent;
@@ -1328,12 +1440,12 @@ public class DocumentImpl extends NodeImpl<DocumentImpl> implements Document {
         final int nr = node.nodeNumber;
         switch(node.getNodeType()) {
             case Node.ELEMENT_NODE:
-                final QName nodeName = document.nodeName[nr];
+                final QName nodeName = document.getQNameFor(nr);
                 //Output required namespace declarations
                 int ns = document.alphaLen[nr];
                 if(ns > -1) {
                     while((ns < document.nextNamespace) && (document.namespaceParent[ns] == nr)) {
-                        final QName nsQName = document.namespaceCode[ns];
+                        final QName nsQName = document.getNamespaceQNameFor(ns);
                         if(XMLConstants.XMLNS_ATTRIBUTE.equals(nsQName.getLocalPart())) {
                             receiver.startPrefixMapping(XMLConstants.DEFAULT_NS_PREFIX, nsQName.getNamespaceURI());
                         } else {
@@ -1348,8 +1460,8 @@ public class DocumentImpl extends NodeImpl<DocumentImpl> implements Document {
                 if(attr > -1) {
                     attribs = new AttrList();
                     while((attr < document.nextAttr) && (document.attrParent[attr] == nr)) {
-                        final QName attrQName = document.attrName[attr];
-                        attribs.addAttribute(attrQName, attrValue[attr]);
+                        final QName attrQName = document.getAttrQNameFor(attr);
+                        attribs.addAttribute(attrQName, document.getAttrValueFor(attr));
                         ++attr;
                     }
                 }
@@ -1360,14 +1472,14 @@ public class DocumentImpl extends NodeImpl<DocumentImpl> implements Document {
                     document.alphaLen[nr]));
                 break;
             case Node.ATTRIBUTE_NODE:
-                final QName attrQName = document.attrName[nr];
-                receiver.attribute(attrQName, attrValue[nr]);
+                final QName attrQName = document.getAttrQNameFor(nr);
+                receiver.attribute(attrQName, document.getAttrValueFor(nr));
                 break;
             case Node.COMMENT_NODE:
                 receiver.comment(document.characters, document.alpha[nr], document.alphaLen[nr]);
                 break;
             case Node.PROCESSING_INSTRUCTION_NODE:
-                final QName qn = document.nodeName[nr];
+                final QName qn = document.getQNameFor(nr);
                 final String data = new String(document.characters, document.alpha[nr], document.alphaLen[nr]);
                 receiver.processingInstruction(qn.getLocalPart(), data);
                 break;
@@ -1388,7 +1500,7 @@ public class DocumentImpl extends NodeImpl<DocumentImpl> implements Document {
             int ns = document.alphaLen[nr];
             if(ns > -1) {
                 while((ns < document.nextNamespace) && (document.namespaceParent[ns] == nr)) {
-                    final QName nsQName = document.namespaceCode[ns];
+                    final QName nsQName = document.getNamespaceQNameFor(ns);
                     if(XMLConstants.XMLNS_ATTRIBUTE.equals(nsQName.getLocalPart())) {
                         receiver.endPrefixMapping(XMLConstants.DEFAULT_NS_PREFIX);
                     } else {
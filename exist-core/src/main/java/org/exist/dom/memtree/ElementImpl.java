@@ -99,9 +99,9 @@ public class ElementImpl extends NodeImpl implements Element {
         int attr = document.alpha[nodeNumber];
         if(-1 < attr) {
             while(attr < document.nextAttr && document.attrParent[attr] == nodeNumber) {
-                final QName attrQName = document.attrName[attr];
+                final QName attrQName = document.getAttrQNameFor(attr);
                 if(attrQName.getStringValue().equals(name)) {
-                    return document.attrValue[attr];
+                    return document.getAttrValueFor(attr);
                 }
                 ++attr;
             }
@@ -110,7 +110,7 @@ public class ElementImpl extends NodeImpl implements Element {
             int ns = document.alphaLen[nodeNumber];
             if(-1 < ns) {
                 while(ns < document.nextNamespace && document.namespaceParent[ns] == nodeNumber) {
-                    final QName nsQName = document.namespaceCode[ns];
+                    final QName nsQName = document.getNamespaceQNameFor(ns);
                     if(nsQName.getStringValue().equals(name)) {
                         return nsQName.getNamespaceURI();
                     }
@@ -220,7 +220,7 @@ public class ElementImpl extends NodeImpl implements Element {
         int attr = document.alpha[nodeNumber];
         if(-1 < attr) {
             while(attr < document.nextAttr && document.attrParent[attr] == nodeNumber) {
-                final QName attrQName = document.attrName[attr];
+                final QName attrQName = document.getAttrQNameFor(attr);
                 if(attrQName.getStringValue().equals(name)) {
                     return new AttrImpl(document, attr);
                 }
@@ -231,7 +231,7 @@ public class ElementImpl extends NodeImpl implements Element {
             int ns = document.alphaLen[nodeNumber];
             if(-1 < ns) {
                 while(ns < document.nextNamespace && document.namespaceParent[ns] == nodeNumber) {
-                    final QName nsQName = document.namespaceCode[ns];
+                    final QName nsQName = document.getNamespaceQNameFor(ns);
                     if(nsQName.getStringValue().equals(name)) {
                         return new NamespaceNode(document, ns);
                     }
@@ -394,7 +394,7 @@ public class ElementImpl extends NodeImpl implements Element {
         final int treeLevel = document.treeLevel[nodeNumber];
         while(++nextNode < document.size && document.treeLevel[nextNode] > treeLevel) {
             if(document.nodeKind[nextNode] == Node.ELEMENT_NODE) {
-                final QName qn = document.nodeName[nextNode];
+                final QName qn = document.getQNameFor(nextNode);
                 if(qname.matches(qn)) {
                     nl.add(document.getNode(nextNode));
                 }
@@ -408,9 +408,9 @@ public class ElementImpl extends NodeImpl implements Element {
         int attr = document.alpha[nodeNumber];
         if(-1 < attr) {
             while(attr < document.nextAttr && document.attrParent[attr] == nodeNumber) {
-                final QName name = document.attrName[attr];
+                final QName name = document.getAttrQNameFor(attr);
                 if(name.getLocalPart().equals(localName) && name.getNamespaceURI().equals(namespaceURI)) {
-                    return document.attrValue[attr];
+                    return document.getAttrValueFor(attr);
                 }
                 ++attr;
             }
@@ -419,7 +419,7 @@ public class ElementImpl extends NodeImpl implements Element {
             int ns = document.alphaLen[nodeNumber];
             if(-1 < ns) {
                 while(ns < document.nextNamespace && document.namespaceParent[ns] == nodeNumber) {
-                    final QName nsQName = document.namespaceCode[ns];
+                    final QName nsQName = document.getNamespaceQNameFor(ns);
                     if(nsQName.getLocalPart().equals(localName)) {
                         return nsQName.getNamespaceURI();
                     }
@@ -439,7 +439,7 @@ public class ElementImpl extends NodeImpl implements Element {
         int attr = document.alpha[nodeNumber];
         if(-1 < attr) {
             while((attr < document.nextAttr) && (document.attrParent[attr] == nodeNumber)) {
-                final QName name = document.attrName[attr];
+                final QName name = document.getAttrQNameFor(attr);
                 if(name.getLocalPart().equals(localName) && name.getNamespaceURI().equals(namespaceURI)) {
                     return (new AttrImpl(document, attr));
                 }
@@ -450,7 +450,7 @@ public class ElementImpl extends NodeImpl implements Element {
             int ns = document.alphaLen[nodeNumber];
             if(-1 < ns) {
                 while((ns < document.nextNamespace) && (document.namespaceParent[ns] == nodeNumber)) {
-                    final QName nsQName = document.namespaceCode[ns];
+                    final QName nsQName = document.getNamespaceQNameFor(ns);
                     if(nsQName.getLocalPart().equals(localName)) {
                         return (new NamespaceNode(document, ns));
                     }
@@ -486,7 +486,7 @@ public class ElementImpl extends NodeImpl implements Element {
         int ns = document.alphaLen[nodeNumber];
         if(-1 < ns) {
             while(ns < document.nextNamespace && document.namespaceParent[ns] == nodeNumber) {
-                final QName nsQName = document.namespaceCode[ns];
+                final QName nsQName = document.getNamespaceQNameFor(ns);
                 set.add(nsQName.getStringValue());
                 ++ns;
             }
@@ -516,7 +516,7 @@ public class ElementImpl extends NodeImpl implements Element {
         int ns = document.alphaLen[nodeNumber];
         if(-1 < ns) {
             while(ns < document.nextNamespace && document.namespaceParent[ns] == nodeNumber) {
-                final QName nsQName = document.namespaceCode[ns];
+                final QName nsQName = document.getNamespaceQNameFor(ns);
                 map.put(nsQName.getLocalPart(), nsQName.getNamespaceURI());
                 ++ns;
             }
@@ -525,7 +525,7 @@ public class ElementImpl extends NodeImpl implements Element {
         int attr = document.alpha[nodeNumber];
         if(-1 < attr) {
             while(attr < document.nextAttr && document.attrParent[attr] == nodeNumber) {
-                final QName qname = document.attrName[attr];
+                final QName qname = document.getAttrQNameFor(attr);
                 if(qname.getPrefix() != null && !qname.getPrefix().isEmpty()) {
                     map.put(qname.getPrefix(), qname.getNamespaceURI());
                 }
@@ -66,7 +66,7 @@ public class InMemoryXMLStreamReader implements ExtendedXMLStreamReader {
                 return null;
             }
             doc.expand();
-            return doc.nodeId[currentNode];
+            return doc.getNodeIdFor(currentNode);
         }
         return null;
     }
@@ -227,10 +227,10 @@ public class InMemoryXMLStreamReader implements ExtendedXMLStreamReader {
         final int attrStart = doc.alpha[currentNode];
 
         for(int i = 0; i < attrCount; i++) {
-            final QName qname = doc.attrName[attrStart + i];
+            final QName qname = doc.getAttrQNameFor(attrStart + i);
 
             if((namespaceURI == null || namespaceURI.equals(qname.getNamespaceURI())) && localName.equals(qname.getLocalPart())) {
-                return doc.attrValue[attrStart + i];
+                return doc.getAttrValueFor(attrStart + i);
             }
         }
         return null;
@@ -254,7 +254,7 @@ public class InMemoryXMLStreamReader implements ExtendedXMLStreamReader {
             throw new ArrayIndexOutOfBoundsException();
         }
         final int attr = doc.alpha[currentNode];
-        return doc.attrName[attr + index];
+        return doc.getAttrQNameFor(attr + index);
     }
 
     @Override
@@ -297,7 +297,7 @@ public class InMemoryXMLStreamReader implements ExtendedXMLStreamReader {
         }
         doc.expand();
         final int attr = doc.alpha[currentNode];
-        return doc.attrNodeId[attr + index];
+        return doc.getAttrNodeIdFor(attr + index);
     }
 
     @Override
@@ -342,7 +342,7 @@ public class InMemoryXMLStreamReader implements ExtendedXMLStreamReader {
             throw new ArrayIndexOutOfBoundsException();
         }
         final int attr = doc.alpha[currentNode];
-        return doc.attrValue[attr + index];
+        return doc.getAttrValueFor(attr + index);
     }
 
     @Override
@@ -367,7 +367,7 @@ public class InMemoryXMLStreamReader implements ExtendedXMLStreamReader {
             throw new ArrayIndexOutOfBoundsException();
         }
         final int ns = doc.alphaLen[currentNode];
-        final QName nsQName = doc.namespaceCode[ns + index];
+        final QName nsQName = doc.getNamespaceQNameFor(ns + index);
         return nsQName.getLocalPart();
     }
 
@@ -377,7 +377,7 @@ public class InMemoryXMLStreamReader implements ExtendedXMLStreamReader {
             throw new ArrayIndexOutOfBoundsException();
         }
         final int ns = doc.alphaLen[currentNode];
-        final QName nsQName = doc.namespaceCode[ns + index];
+        final QName nsQName = doc.getNamespaceQNameFor(ns + index);
         return nsQName.getNamespaceURI();
     }
 
@@ -439,7 +439,7 @@ public class InMemoryXMLStreamReader implements ExtendedXMLStreamReader {
     @Override
     public QName getQName() {
         if(state == START_ELEMENT || state == END_ELEMENT) {
-            return doc.nodeName[currentNode];
+            return doc.getQNameFor(currentNode);
         }
         throw new IllegalStateException("Cursor is not at the start of end of an element");
     }
@@ -491,7 +491,7 @@ public class InMemoryXMLStreamReader implements ExtendedXMLStreamReader {
 
     @Override
     public String getPITarget() {
-        final QName qn = doc.nodeName[currentNode];
+        final QName qn = doc.getQNameFor(currentNode);
         return qn != null ? qn.getLocalPart() : null;
     }
 
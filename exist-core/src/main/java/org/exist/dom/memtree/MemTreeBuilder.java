@@ -448,7 +448,7 @@ public class MemTreeBuilder {
         final int lastNode = doc.getLastNode();
         boolean addNode = true;
         if(doc.nodeName != null) {
-            final QName elemQN = doc.nodeName[lastNode];
+            final QName elemQN = doc.getQNameFor(lastNode);
             if(elemQN != null) {
                 final String elemPrefix = (elemQN.getPrefix() == null) ? XMLConstants.DEFAULT_NS_PREFIX : elemQN.getPrefix();
                 final String elemNs = (elemQN.getNamespaceURI() == null) ? XMLConstants.NULL_NS_URI : elemQN.getNamespaceURI();
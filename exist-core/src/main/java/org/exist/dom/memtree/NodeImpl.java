@@ -88,14 +88,14 @@ public abstract class NodeImpl<T extends NodeImpl> implements INode<DocumentImpl
     public final QName getQName() {
         switch(getNodeType()) {
             case Node.ATTRIBUTE_NODE:
-                return document.attrName[nodeNumber];
+                return document.getAttrQNameFor(nodeNumber);
 
             case Node.ELEMENT_NODE:
             case Node.PROCESSING_INSTRUCTION_NODE:
-                return document.nodeName[nodeNumber];
+                return document.getQNameFor(nodeNumber);
 
             case NodeImpl.NAMESPACE_NODE:
-                return document.namespaceCode[nodeNumber];
+                return document.getNamespaceQNameFor(nodeNumber);
 
             case Node.DOCUMENT_NODE:
                 return QName.EMPTY_QNAME;
@@ -118,16 +118,16 @@ public abstract class NodeImpl<T extends NodeImpl> implements INode<DocumentImpl
     public final void setQName(final QName qname) {
         switch(getNodeType()) {
             case Node.ATTRIBUTE_NODE:
-                document.attrName[nodeNumber] = qname;
+                document.setAttrQNameFor(nodeNumber, qname);
                 break;
 
             case Node.ELEMENT_NODE:
             case Node.PROCESSING_INSTRUCTION_NODE:
-                document.nodeName[nodeNumber] = qname;
+                document.setQNameFor(nodeNumber, qname);
                 break;
 
             case NodeImpl.NAMESPACE_NODE:
-                document.namespaceCode[nodeNumber] = qname;
+                document.setNamespaceQNameFor(nodeNumber, qname);
                 break;
         }
     }
@@ -232,7 +232,7 @@ public abstract class NodeImpl<T extends NodeImpl> implements INode<DocumentImpl
     @Override
     public NodeId getNodeId() {
         expand();
-        return document.nodeId[nodeNumber];
+        return document.getNodeIdFor(nodeNumber);
     }
 
     public void expand() throws DOMException {
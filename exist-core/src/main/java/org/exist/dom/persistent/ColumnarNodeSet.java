@@ -0,0 +1,571 @@
+/*
+ * eXist-db Open Source Native XML Database
+ * Copyright (C) 2001 The eXist-db Authors
+ *
+ * info@exist-db.org
+ * http://www.exist-db.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.dom.persistent;
+
+import org.exist.dom.QName;
+import org.exist.numbering.NodeId;
+import org.exist.numbering.NodeIdFactory;
+import org.exist.xquery.Constants;
+import org.exist.xquery.Expression;
+import org.exist.xquery.value.Item;
+import org.exist.xquery.value.SequenceIterator;
+import org.exist.xquery.value.Type;
+import org.w3c.dom.Node;
+
+import javax.annotation.Nullable;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * A read-only node set which stores its nodes in columns instead of one
+ * {@link NodeProxy} per node: the documents as runs of an int array of document ids,
+ * the node ids as packed DLN bytes and the storage addresses as a long array.
+ * All nodes share the same node type and name.
+ *
+ * The set is used to hold all elements or attributes of a name found by the
+ * structural index, which may be millions of nodes, most of which are discarded
+ * by the following structural join. {@link NodeProxy} and {@link NodeId} objects
+ * are only created when a node is accessed, and the joins
+ * ({@link #selectParentChild(NodeSet, int, int)} and
+ * {@link #selectAncestorDescendant(NodeSet, int, boolean, int, boolean)}) search the
+ * packed node ids directly, creating objects only for the nodes within the range
+ * of a context node.
+ *
+ * The set does not keep context or match information: every call to {@link #get(int)}
+ * or to the iterators returns a new {@link NodeProxy}.
+ *
+ * Nodes are appended with {@link #add(DocumentImpl, int, byte[], int, long)}: the nodes of
+ * a document have to be appended consecutively and in document order, documents may
+ * be appended in any order.
+ */
+public class ColumnarNodeSet extends AbstractNodeSet {
+
+    private static final int INITIAL_SIZE = 64;
+
+    private final NodeIdFactory nodeFactory;
+    private final short nodeType;
+    @Nullable private final QName qname;
+
+    // the documents, and the position of the first node of each document; documentStart[documentCount] == size
+    private int documentCount = 0;
+    private DocumentImpl[] documents = new DocumentImpl[16];
+    private int[] documentIds = new int[16];
+    private int[] documentStart = new int[17];
+    private boolean documentsSorted = true;
+
+    // the nodes: node id i is stored in nodeIdData[nodeIdOffset[i]..nodeIdOffset[i + 1]) and has nodeIdUnits[i] bits
+    private int size = 0;
+    private int[] nodeIdOffset = new int[INITIAL_SIZE + 1];
+    private short[] nodeIdUnits = new short[INITIAL_SIZE];
+    private byte[] nodeIdData = new byte[INITIAL_SIZE * 4];
+    private long[] addresses = new long[INITIAL_SIZE];
+
+    /**
+     * @param nodeFactory the factory to create the node ids with
+     * @param nodeType the DOM node type of the nodes, {@link Node#ELEMENT_NODE} or {@link Node#ATTRIBUTE_NODE}
+     * @param qname the name of the nodes, or null if unknown
+     */
+    public ColumnarNodeSet(final NodeIdFactory nodeFactory, final short nodeType, @Nullable final QName qname) {
+        this.nodeFactory = nodeFactory;
+        this.nodeType = nodeType;
+        this.qname = qname;
+    }
+
+    /**
+     * Append a node.
+     *
+     * @param doc the document of the node
+     * @param units the number of bits of the node id
+     * @param data array containing the serialized node id
+     * @param offset the offset of the node id within data
+     * @param address the storage address of the node
+     */
+    public void add(final DocumentImpl doc, final int units, final byte[] data, final int offset, final long address) {
+        if (documentCount == 0 || documents[documentCount - 1].getDocId() != doc.getDocId()) {
+            addDocument(doc);
+        }
+        final int length = (units + 7) / 8;
+        if (size == addresses.length) {
+            final int newSize = size << 1;
+            nodeIdOffset = Arrays.copyOf(nodeIdOffset, newSize + 1);
+            nodeIdUnits = Arrays.copyOf(nodeIdUnits, newSize);
+            addresses = Arrays.copyOf(addresses, newSize);
+        }
+        final int dataOffset = nodeIdOffset[size];
+        if (dataOffset + length > nodeIdData.length) {
+            nodeIdData = Arrays.copyOf(nodeIdData, Math.max(nodeIdData.length << 1, dataOffset + length));
+        }
+        System.arraycopy(data, offset, nodeIdData, dataOffset, length);
+        nodeIdUnits[size] = (short) units;
+        addresses[size] = address;
+        nodeIdOffset[++size] = dataOffset + length;
+        documentStart[documentCount] = size;
+    }
+
+    private void addDocument(final DocumentImpl doc) {
+        if (documentCount + 1 == documentStart.length) {
+            final int newLength = documentCount << 1;
+            documents = Arrays.copyOf(documents, newLength);
+            documentIds = Arrays.copyOf(documentIds, newLength);
+            documentStart = Arrays.copyOf(documentStart, newLength + 1);
+        }
+        if (documentCount > 0 && documentIds[documentCount - 1] > doc.getDocId()) {
+            documentsSorted = false;
+        }
+        documents[documentCount] = doc;
+        documentIds[documentCount] = doc.getDocId();
+        documentStart[++documentCount] = size;
+    }
+
+    /**
+     * Reorder the columns by document id, if the documents were not appended in order.
+     */
+    private void sortDocuments() {
+        if (documentsSorted) {
+            return;
+        }
+        final Integer[] order = new Integer[documentCount];
+        for (int i = 0; i < documentCount; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (d1, d2) -> Integer.compare(documentIds[d1], documentIds[d2]));
+
+        final DocumentImpl[] newDocuments = new DocumentImpl[documents.length];
+        final int[] newDocumentIds = new int[documentIds.length];
+        final int[] newDocumentStart = new int[documentStart.length];
+        final int[] newNodeIdOffset = new int[nodeIdOffset.length];
+        final short[] newNodeIdUnits = new short[nodeIdUnits.length];
+        final byte[] newNodeIdData = new byte[nodeIdData.length];
+        final long[] newAddresses = new long[addresses.length];
+        int pos = 0;
+        for (int i = 0; i < documentCount; i++) {
+            final int d = order[i];
+            newDocuments[i] = documents[d];
+            newDocumentIds[i] = documentIds[d];
+            newDocumentStart[i] = pos;
+            final int start = documentStart[d];
+            final int count = documentStart[d + 1] - start;
+            System.arraycopy(nodeIdUnits, start, newNodeIdUnits, pos, count);
+            System.arraycopy(addresses, start, newAddresses, pos, count);
+            final int dataStart = nodeIdOffset[start];
+            final int dataLength = nodeIdOffset[start + count] - dataStart;
+            final int shift = newNodeIdOffset[pos] - dataStart;
+            System.arraycopy(nodeIdData, dataStart, newNodeIdData, newNodeIdOffset[pos], dataLength);
+            for (int j = 1; j <= count; j++) {
+                newNodeIdOffset[pos + j] = nodeIdOffset[start + j] + shift;
+            }
+            pos += count;
+        }
+        newDocumentStart[documentCount] = size;
+
+        documents = newDocuments;
+        documentIds = newDocumentIds;
+        documentStart = newDocumentStart;
+        nodeIdOffset = newNodeIdOffset;
+        nodeIdUnits = newNodeIdUnits;
+        nodeIdData = newNodeIdData;
+        addresses = newAddresses;
+        documentsSorted = true;
+    }
+
+    private int findDoc(final int docId) {
+        sortDocuments();
+        return Arrays.binarySearch(documentIds, 0, documentCount, docId);
+    }
+
+    /**
+     * Compare the packed node id at the given position with a serialized node id,
+     * the same way as {@link NodeId#compareTo(NodeId)} does.
+     */
+    private int compareNodeId(final int pos, final byte[] other, final int otherLength) {
+        final int start = nodeIdOffset[pos];
+        final int length = nodeIdOffset[pos + 1] - start;
+        final int limit = Math.min(length, otherLength);
+        for (int i = 0; i < limit; i++) {
+            final byte b1 = nodeIdData[start + i];
+            final byte b2 = other[i];
+            if (b1 != b2) {
+                return (b1 & 0xFF) - (b2 & 0xFF);
+            }
+        }
+        return length - otherLength;
+    }
+
+    private static byte[] serialize(final NodeId nodeId) {
+        final byte[] data = new byte[nodeId.size()];
+        nodeId.serialize(data, 0);
+        return data;
+    }
+
+    /**
+     * Returns the position of the first node of the document at or after the given node id.
+     */
+    private int lowerBound(final int docIdx, final byte[] nodeId) {
+        int low = documentStart[docIdx];
+        int high = documentStart[docIdx + 1];
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (compareNodeId(mid, nodeId, nodeId.length) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int indexOf(final int docIdx, final NodeId nodeId) {
+        final byte[] data = serialize(nodeId);
+        final int pos = lowerBound(docIdx, data);
+        return pos < documentStart[docIdx + 1] && compareNodeId(pos, data, data.length) == 0 ? pos : -1;
+    }
+
+    private NodeId getNodeId(final int pos) {
+        return nodeFactory.createFromData(nodeIdUnits[pos], nodeIdData, nodeIdOffset[pos]);
+    }
+
+    private NodeProxy getNode(final int docIdx, final int pos, final NodeId nodeId) {
+        final NodeProxy proxy = new NodeProxy(documents[docIdx], nodeId, nodeType, addresses[pos]);
+        if (qname != null) {
+            proxy.setQName(qname);
+        }
+        return proxy;
+    }
+
+    private int documentOf(final int pos) {
+        final int idx = Arrays.binarySearch(documentStart, 0, documentCount, pos);
+        if (idx >= 0) {
+            // skip documents without nodes
+            int docIdx = idx;
+            while (docIdx + 1 < documentCount && documentStart[docIdx + 1] == pos) {
+                docIdx++;
+            }
+            return docIdx;
+        }
+        return -(idx + 1) - 1;
+    }
+
+    @Override
+    public void add(final NodeProxy proxy) {
+        throw new UnsupportedOperationException("ColumnarNodeSet is read-only");
+    }
+
+    @Override
+    public void addAll(final NodeSet other) {
+        throw new UnsupportedOperationException("ColumnarNodeSet is read-only");
+    }
+
+    @Override
+    public int getItemType() {
+        return nodeType == Node.ATTRIBUTE_NODE ? Type.ATTRIBUTE : Type.ELEMENT;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public boolean hasOne() {
+        return size == 1;
+    }
+
+    @Override
+    public int getLength() {
+        return size;
+    }
+
+    @Override
+    public long getItemCountLong() {
+        return size;
+    }
+
+    @Override
+    public Node item(final int pos) {
+        final NodeProxy proxy = get(pos);
+        return proxy == null ? null : proxy.getNode();
+    }
+
+    @Override
+    public Item itemAt(final int pos) {
+        return get(pos);
+    }
+
+    @Override
+    public NodeProxy get(final int pos) {
+        if (pos < 0 || pos >= size) {
+            return null;
+        }
+        sortDocuments();
+        return getNode(documentOf(pos), pos, getNodeId(pos));
+    }
+
+    @Override
+    public NodeProxy get(final NodeProxy proxy) {
+        return get(proxy.getOwnerDocument(), proxy.getNodeId());
+    }
+
+    @Override
+    public NodeProxy get(final DocumentImpl doc, final NodeId nodeId) {
+        final int docIdx = findDoc(doc.getDocId());
+        if (docIdx < 0) {
+            return null;
+        }
+        final int pos = indexOf(docIdx, nodeId);
+        return pos < 0 ? null : getNode(docIdx, pos, getNodeId(pos));
+    }
+
+    @Override
+    public boolean contains(final NodeProxy proxy) {
+        final int docIdx = findDoc(proxy.getOwnerDocument().getDocId());
+        return docIdx >= 0 && indexOf(docIdx, proxy.getNodeId()) >= 0;
+    }
+
+    @Override
+    public boolean contains(final Item item) {
+        return item instanceof NodeProxy && contains((NodeProxy) item);
+    }
+
+    @Override
+    public boolean containsReference(final Item item) {
+        // the nodes are created on demand, so no item is a reference to one of them
+        return false;
+    }
+
+    @Override
+    public int getSizeHint(final DocumentImpl doc) {
+        final int docIdx = findDoc(doc.getDocId());
+        return docIdx < 0 ? Constants.NO_SIZE_HINT : documentStart[docIdx + 1] - documentStart[docIdx];
+    }
+
+    @Override
+    public DocumentSet getDocumentSet() {
+        sortDocuments();
+        final DefaultDocumentSet docs = new DefaultDocumentSet(documentCount);
+        for (int i = 0; i < documentCount; i++) {
+            docs.add(documents[i], false);
+        }
+        return docs;
+    }
+
+    @Override
+    public NodeSetIterator iterator() {
+        sortDocuments();
+        return new ColumnarIterator();
+    }
+
+    @Override
+    public SequenceIterator iterate() {
+        sortDocuments();
+        return new ColumnarIterator();
+    }
+
+    @Override
+    public SequenceIterator unorderedIterator() {
+        return iterate();
+    }
+
+    @Override
+    public NodeSet selectParentChild(final NodeSet al, final int mode, final int contextId) {
+        if (al instanceof VirtualNodeSet) {
+            return super.selectParentChild(al, mode, contextId);
+        }
+        return getDescendantsInSet(al, true, false, mode, contextId, true);
+    }
+
+    @Override
+    public NodeSet selectAncestorDescendant(final NodeSet al, final int mode, final boolean includeSelf,
+            final int contextId, final boolean copyMatches) {
+        if (al instanceof VirtualNodeSet) {
+            return super.selectAncestorDescendant(al, mode, includeSelf, contextId, copyMatches);
+        }
+        return getDescendantsInSet(al, false, includeSelf, mode, contextId, copyMatches);
+    }
+
+    /**
+     * Find the nodes of this set which are children or descendants of the nodes in the
+     * given set. The node ids of a document are sorted, so the descendants of a node
+     * follow it directly: they are found by a binary search for the node, followed by
+     * a scan until the first node which is not a descendant.
+     *
+     * @param al the potential parents or ancestors
+     * @param childOnly only select children, not descendants
+     * @param includeSelf include the self axis
+     * @param mode {@link NodeSet#DESCENDANT} to return the matching nodes of this set,
+     *     {@link NodeSet#ANCESTOR} to return the matching nodes of the given set
+     * @param contextId the context id to add to the results
+     * @param copyMatches copy the matches between the nodes
+     * @return the matching nodes
+     */
+    private NodeSet getDescendantsInSet(final NodeSet al, final boolean childOnly, final boolean includeSelf,
+            final int mode, final int contextId, final boolean copyMatches) {
+        final NewArrayNodeSet result = new NewArrayNodeSet();
+        for (final NodeProxy ancestor : al) {
+            final int docIdx = findDoc(ancestor.getOwnerDocument().getDocId());
+            if (docIdx < 0) {
+                continue;
+            }
+            final NodeId ancestorId = ancestor.getNodeId();
+            final int start = ancestorId == NodeId.DOCUMENT_NODE ?
+                    documentStart[docIdx] : lowerBound(docIdx, serialize(ancestorId));
+            final int end = documentStart[docIdx + 1];
+            for (int i = start; i < end; i++) {
+                final NodeId nodeId = getNodeId(i);
+                final int relation = nodeId.computeRelation(ancestorId);
+                if (relation < 0) {
+                    break;
+                }
+                final boolean add;
+                if (childOnly) {
+                    add = relation == NodeId.IS_CHILD;
+                } else if (relation == NodeId.IS_SELF) {
+                    add = includeSelf;
+                } else {
+                    add = true;
+                }
+                if (!add) {
+                    continue;
+                }
+                final NodeProxy node = getNode(docIdx, i, nodeId);
+                switch (mode) {
+                    case NodeSet.DESCENDANT:
+                        if (Expression.NO_CONTEXT_ID != contextId) {
+                            node.deepCopyContext(ancestor, contextId);
+                        } else {
+                            node.copyContext(ancestor);
+                        }
+                        if (copyMatches) {
+                            node.addMatches(ancestor);
+                        }
+                        result.add(node);
+                        break;
+                    case NodeSet.ANCESTOR:
+                        if (Expression.NO_CONTEXT_ID != contextId) {
+                            ancestor.deepCopyContext(node, contextId);
+                        } else {
+                            ancestor.copyContext(node);
+                        }
+                        if (copyMatches) {
+                            ancestor.addMatches(node);
+                        }
+                        result.add(ancestor, 1);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Bad 'mode' argument");
+                }
+            }
+        }
+        if (mode == NodeSet.DESCENDANT) {
+            // a node found for nested ancestors is added once for each of them, merge their contexts
+            result.sort(true);
+        }
+        return result;
+    }
+
+    private class ColumnarIterator implements NodeSetIterator, SequenceIterator {
+        private int pos = 0;
+        private int docIdx = 0;
+
+        @Override
+        public boolean hasNext() {
+            return pos < size && pos > -1;
+        }
+
+        @Override
+        public NodeProxy next() {
+            if (pos == size || pos < 0) {
+                pos = -1;
+                throw new NoSuchElementException();
+            }
+            return nextNode();
+        }
+
+        private NodeProxy nextNode() {
+            while (documentStart[docIdx + 1] <= pos) {
+                docIdx++;
+            }
+            final NodeProxy proxy = getNode(docIdx, pos, getNodeId(pos));
+            pos++;
+            return proxy;
+        }
+
+        @Override
+        public long skippable() {
+            if (pos == -1) {
+                return 0;
+            }
+            return size - pos;
+        }
+
+        @Override
+        public long skip(final long n) {
+            final long skip = Math.min(n, pos == -1 ? 0 : size - pos);
+            pos += skip;
+            if (pos < size) {
+                docIdx = documentOf(pos);
+            }
+            return skip;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public NodeProxy peekNode() {
+            if (pos == size || pos < 0) {
+                pos = -1;
+                return null;
+            }
+            final int current = pos;
+            final int currentDoc = docIdx;
+            final NodeProxy proxy = nextNode();
+            pos = current;
+            docIdx = currentDoc;
+            return proxy;
+        }
+
+        @Override
+        public Item nextItem() {
+            if (pos == size || pos < 0) {
+                pos = -1;
+                return null;
+            }
+            return nextNode();
+        }
+
+        @Override
+        public void setPosition(final NodeProxy proxy) {
+            final int idx = findDoc(proxy.getOwnerDocument().getDocId());
+            if (idx > -1) {
+                final int found = indexOf(idx, proxy.getNodeId());
+                if (found > -1) {
+                    pos = found;
+                    docIdx = idx;
+                    return;
+                }
+            }
+            pos = -1;
+        }
+    }
+}
@@ -63,7 +63,6 @@ import org.exist.util.serializer.SAXSerializer;
 import org.exist.util.serializer.SerializerPool;
 import org.exist.util.serializer.XQuerySerializer;
 import org.exist.util.serializer.json.JSONNode;
-import org.exist.util.serializer.json.JSONObject;
 import org.exist.util.serializer.json.JSONSimpleProperty;
 import org.exist.util.serializer.json.JSONValue;
 import org.exist.xmldb.XmldbURI;
@@ -72,6 +71,7 @@ import org.exist.xquery.*;
 import org.exist.xquery.value.*;
 import org.exist.xupdate.Modification;
 import org.exist.xupdate.XUpdateProcessor;
+import org.eclipse.jetty.server.HttpOutput;
 import org.exquery.http.HttpRequest;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
@@ -84,6 +84,7 @@ import org.xml.sax.XMLReader;
 import org.xml.sax.helpers.AttributesImpl;
 import org.xml.sax.helpers.XMLFilterImpl;
 
+import javax.annotation.Nullable;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.xml.XMLConstants;
@@ -96,10 +97,18 @@ import java.lang.invoke.LambdaMetafactory;
 import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles;
 import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.Properties;
 import java.util.*;
 import java.util.function.BiFunction;
 
+import static com.evolvedbinary.j8fu.Try.TaggedTryUnchecked;
 import static java.lang.invoke.MethodType.methodType;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.exist.http.RESTServerParameter.*;
@@ -115,6 +124,7 @@ public class RESTServer {
 
     protected final static Logger LOG = LogManager.getLogger(RESTServer.class);
     public final static String SERIALIZATION_METHOD_PROPERTY = "output-as";
+    private final static String STREAM_PROPERTY = "_stream";
     // Should we not obey the instance's defaults? /ljo
     protected final static Properties defaultProperties = new Properties();
 
@@ -232,6 +242,11 @@ public class RESTServer {
      * <li>_wrap: if set to "yes", the query results will be wrapped into a
      * exist:result element.</li>
      *
+     * <li>_stream: if set to "yes", the query results are written to the
+     * response as they are iterated, without first counting them. If the body
+     * of the query is an element constructor, the element is written as it is
+     * constructed, without first building it in memory.</li>
+     *
      * <li>_indent: if set to "yes", the returned XML will be pretty-printed.
      * </li>
      *
@@ -343,6 +358,9 @@ public class RESTServer {
         if ((option = getParameter(request, Cache)) != null) {
             cache = "yes".equals(option);
         }
+        if ((option = getParameter(request, Stream)) != null) {
+            outputProperties.setProperty(STREAM_PROPERTY, option);
+        }
         if ((option = getParameter(request, Indent)) != null) {
             outputProperties.setProperty(OutputKeys.INDENT, option);
         }
@@ -574,6 +592,9 @@ public class RESTServer {
                 //	response.setContentLength(resource.getContentLength());
                 // must be set so
                 response.addHeader("Content-Length", Long.toString(resource.getContentLength()));
+                if (resource.getResourceType() == DocumentImpl.BINARY_FILE) {
+                    response.setHeader("Accept-Ranges", "bytes");
+                }
                 setCreatedAndLastModifiedHeaders(response, resource.getCreated(), resource.getLastModified());
             } else {
                 try(final Collection col = broker.openCollection(pathUri, LockMode.READ_LOCK)) {
@@ -791,6 +812,11 @@ public class RESTServer {
                             cache = "yes".equals(option);
                         }
 
+                        if ((option = root.getAttribute(Stream.xmlKey())) != null
+                                && option.length() > 0) {
+                            outputProperties.setProperty(STREAM_PROPERTY, option);
+                        }
+
                         if ((option = root.getAttribute(Session.xmlKey())) != null
                                 && option.length() > 0) {
                             outputProperties.setProperty(
@@ -1357,7 +1383,12 @@ public class RESTServer {
 
             try {
                 final long executeStart = System.currentTimeMillis();
-                final Sequence resultSequence = xquery.execute(broker, compiled, null, outputProperties);
+                final Sequence resultSequence = cache ?
+                        xquery.execute(broker, compiled, null, outputProperties) :
+                        executeQuery(xquery, broker, compiled, response, outputProperties, start, typed, wrap);
+                if (resultSequence == null) {
+                    return;
+                }
                 final long executionTime = System.currentTimeMillis() - executeStart;
 
                 if (LOG.isDebugEnabled()) {
@@ -1556,8 +1587,10 @@ public class RESTServer {
 
             try {
                 final long executeStart = System.currentTimeMillis();
-                final Sequence result = xquery.execute(broker, compiled, null, outputProperties);
-                writeResults(response, broker, transaction, result, -1, 1, false, outputProperties, wrap, compilationTime, System.currentTimeMillis() - executeStart);
+                final Sequence result = executeQuery(xquery, broker, compiled, response, outputProperties, 1, false, wrap);
+                if (result != null) {
+                    writeResults(response, broker, transaction, result, -1, 1, false, outputProperties, wrap, compilationTime, System.currentTimeMillis() - executeStart);
+                }
 
             } finally {
                 context.runCleanupTasks();
@@ -1674,6 +1707,190 @@ public class RESTServer {
         response.addDateHeader("Created", created);
     }
 
+    /**
+     * Writes part of the content of a binary document to the response.
+     *
+     * The content is read directly from the document's file in the Blob Store.
+     * When the servlet container is Jetty the file channel, limited to the
+     * range to write, is handed to {@link HttpOutput#sendContent(ReadableByteChannel)},
+     * which reads it into Jetty's pooled (direct) buffers and writes those to the
+     * connection. Otherwise the range is copied by
+     * {@link FileChannel#transferTo(long, long, WritableByteChannel)} into a channel
+     * over the output stream, which goes through a buffer on the Java heap.
+     *
+     * @param broker the database broker
+     * @param transaction the current transaction
+     * @param binaryDocument the binary document to write
+     * @param offset the offset of the first byte of the content to write
+     * @param length the number of bytes of the content to write
+     * @param os the output stream of the response
+     *
+     * @throws IOException if the content cannot be read or written
+     */
+    private static void writeBinaryResource(final DBBroker broker, final Txn transaction,
+            final BinaryDocument binaryDocument, final long offset, final long length, final OutputStream os)
+            throws IOException {
+        broker.withBinaryFile(transaction, binaryDocument, file -> TaggedTryUnchecked(IOException.class, () -> {
+            if (file == null) {
+                throw new IOException("No BLOB file found for binary resource: " + binaryDocument.getURI());
+            }
+
+            try (final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                final long end = offset + length;
+                if (channel.size() < end) {
+                    throw new EOFException("BLOB file for binary resource: " + binaryDocument.getURI() + " is shorter than its content length");
+                }
+
+                if (os instanceof HttpOutput) {
+                    ((HttpOutput) os).sendContent(new FileRangeChannel(channel, offset, end));
+                } else {
+                    final WritableByteChannel target = Channels.newChannel(os);
+                    long position = offset;
+                    while (position < end) {
+                        position += channel.transferTo(position, end - position, target);
+                    }
+                }
+            }
+            return null;
+        })).get();
+    }
+
+    /**
+     * Reads a range of a file, by positional reads which leave the
+     * position of the file channel untouched. Closing it does not
+     * close the file channel.
+     */
+    private static final class FileRangeChannel implements ReadableByteChannel {
+        private final FileChannel channel;
+        private final long end;
+        private long position;
+        private boolean open = true;
+
+        FileRangeChannel(final FileChannel channel, final long offset, final long end) {
+            this.channel = channel;
+            this.position = offset;
+            this.end = end;
+        }
+
+        @Override
+        public int read(final ByteBuffer dst) throws IOException {
+            if (!open) {
+                throw new ClosedChannelException();
+            }
+            if (position >= end) {
+                return -1;
+            }
+            final int limit = dst.limit();
+            dst.limit(dst.position() + (int) Math.min(dst.remaining(), end - position));
+            try {
+                final int read = channel.read(dst, position);
+                if (read > 0) {
+                    position += read;
+                }
+                return read;
+            } finally {
+                dst.limit(limit);
+            }
+        }
+
+        @Override
+        public boolean isOpen() {
+            return open;
+        }
+
+        @Override
+        public void close() {
+            open = false;
+        }
+    }
+
+    /**
+     * A single byte range requested by a HTTP Range header, see RFC 7233.
+     */
+    private static final class ByteRange {
+        static final ByteRange UNSATISFIABLE = new ByteRange(-1, -1);
+
+        final long offset;
+        final long length;
+
+        private ByteRange(final long offset, final long length) {
+            this.offset = offset;
+            this.length = length;
+        }
+
+        /**
+         * Gets the byte range requested by the Range header of a request.
+         *
+         * Multiple ranges, other units, and invalid ranges are ignored, as
+         * is a Range header with an If-Range that does not match the resource;
+         * in which case the whole of the resource should be sent.
+         *
+         * @param request the HTTP request
+         * @param contentLength the length of the resource
+         * @param lastModified the last modified time of the resource
+         *
+         * @return the requested range, {@link #UNSATISFIABLE} if none of the requested
+         *     bytes are within the resource, or null if the whole resource should be sent.
+         */
+        static @Nullable ByteRange fromRequest(final HttpServletRequest request, final long contentLength,
+                final long lastModified) {
+            final String range = request.getHeader("Range");
+            if (range == null || !range.regionMatches(true, 0, "bytes=", 0, 6)) {
+                return null;
+            }
+
+            if (request.getHeader("If-Range") != null) {
+                // we do not send an ETag, so only a HTTP-date can match
+                try {
+                    final long ifRange = request.getDateHeader("If-Range");
+                    if (lastModified > ifRange + 999) {
+                        return null;
+                    }
+                } catch (final IllegalArgumentException e) {
+                    return null;
+                }
+            }
+
+            final String spec = range.substring(6).trim();
+            final int idxSeparator = spec.indexOf('-');
+            if (idxSeparator < 0 || spec.indexOf(',') > -1) {
+                return null;
+            }
+
+            try {
+                final String first = spec.substring(0, idxSeparator).trim();
+                final String last = spec.substring(idxSeparator + 1).trim();
+                if (first.isEmpty()) {
+                    // suffix range i.e. the last n bytes
+                    if (last.isEmpty()) {
+                        return null;
+                    }
+                    final long suffixLength = Long.parseLong(last);
+                    if (suffixLength < 0) {
+                        return null;
+                    }
+                    if (suffixLength == 0 || contentLength == 0) {
+                        return UNSATISFIABLE;
+                    }
+                    final long length = Math.min(suffixLength, contentLength);
+                    return new ByteRange(contentLength - length, length);
+                }
+
+                final long firstPos = Long.parseLong(first);
+                final long lastPos = last.isEmpty() ? Long.MAX_VALUE : Long.parseLong(last);
+                if (firstPos < 0 || lastPos < firstPos) {
+                    return null;
+                }
+                if (firstPos >= contentLength) {
+                    return UNSATISFIABLE;
+                }
+                return new ByteRange(firstPos, Math.min(lastPos, contentLength - 1) - firstPos + 1);
+            } catch (final NumberFormatException e) {
+                return null;
+            }
+        }
+    }
+
     // writes out a resource, uses asMimeType as the specified mime-type or if
     // null uses the type of the resource
     private void writeResourceAs(final DocumentImpl resource, final DBBroker broker, final Txn transaction,
@@ -1739,14 +1956,40 @@ public class RESTServer {
                 response.setContentType(asMimeType);
             }
 
+            final long contentLength = resource.getContentLength();
+            response.setHeader("Accept-Ranges", "bytes");
+
+            /**
+             * HTTP 1.1 RFC 7233 Section 3.1 *
+             */
+            final ByteRange range = ByteRange.fromRequest(request, contentLength, lastModified);
+            if (range == ByteRange.UNSATISFIABLE) {
+                response.setHeader("Content-Range", "bytes */" + contentLength);
+                // NOTE: sendError would discard the Content-Range header
+                response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+
+            final long offset;
+            final long length;
+            if (range != null) {
+                offset = range.offset;
+                length = range.length;
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader("Content-Range", "bytes " + offset + '-' + (offset + length - 1) + '/' + contentLength);
+            } else {
+                offset = 0;
+                length = contentLength;
+            }
+
             // As HttpServletResponse.setContentLength is limited to integers,
             // (see http://bugs.sun.com/bugdatabase/view_bug.do?bug_id=4187336)
             // next sentence:
             //	response.setContentLength(resource.getContentLength());
             // must be set so
-            response.addHeader("Content-Length", Long.toString(resource.getContentLength()));
+            response.addHeader("Content-Length", Long.toString(length));
             final OutputStream os = response.getOutputStream();
-            broker.readBinaryResource((BinaryDocument) resource, os);
+            writeBinaryResource(broker, transaction, (BinaryDocument) resource, offset, length, os);
             os.flush();
         } else {
             // xml resource
@@ -2086,8 +2329,15 @@ public class RESTServer {
             return;
         }
 
+        final boolean stream = "yes".equals(outputProperties.getProperty(STREAM_PROPERTY));
+
         // calculate number of results to return
-        if (!results.isEmpty()) {
+        if (stream) {
+            // the length of the results is not known until they have been iterated
+            if (start < 1) {
+                throw new BadRequestException("Start parameter out of range");
+            }
+        } else if (!results.isEmpty()) {
             final int rlen = results.getItemCount();
             if ((start < 1) || (start > rlen)) {
                 throw new BadRequestException("Start parameter out of range");
@@ -2102,9 +2352,9 @@ public class RESTServer {
         final String method = outputProperties.getProperty(SERIALIZATION_METHOD_PROPERTY, "xml");
 
         if ("json".equals(method)) {
-            writeResultJSON(response, broker, transaction, results, howmany, start, outputProperties, wrap, compilationTime, executionTime);
+            writeResultJSON(response, broker, transaction, results, howmany, start, outputProperties, wrap, stream, compilationTime, executionTime);
         } else {
-            writeResultXML(response, broker, results, howmany, start, typed, outputProperties, wrap, compilationTime, executionTime);
+            writeResultXML(response, broker, results, howmany, start, typed, outputProperties, wrap, stream, compilationTime, executionTime);
         }
 
     }
@@ -2112,7 +2362,7 @@ public class RESTServer {
     private void writeResultXML(final HttpServletResponse response,
         final DBBroker broker, final Sequence results, final int howmany,
         final int start, final boolean typed, final Properties outputProperties,
-        final boolean wrap, final long compilationTime, final long executionTime) throws BadRequestException {
+        final boolean wrap, final boolean stream, final long compilationTime, final long executionTime) throws BadRequestException {
 
         // serialize the results to the response output stream
         outputProperties.setProperty(Serializer.GENERATE_DOC_EVENTS, "false");
@@ -2120,27 +2370,19 @@ public class RESTServer {
 
             // set output headers
             final String encoding = outputProperties.getProperty(OutputKeys.ENCODING);
-            if (!response.containsHeader("Content-Type")) {
-                String mimeType = outputProperties.getProperty(OutputKeys.MEDIA_TYPE);
-                if (mimeType != null) {
-                    final int semicolon = mimeType.indexOf(';');
-                    if (semicolon != Constants.STRING_NOT_FOUND) {
-                        mimeType = mimeType.substring(0, semicolon);
-                    }
-                    if (wrap) {
-                        mimeType = "application/xml";
-                    }
-                    response.setContentType(mimeType + "; charset=" + encoding);
-                }
-            }
+            setResultContentType(response, outputProperties, wrap);
             if (wrap) {
                 outputProperties.setProperty("method", "xml");
             }
+            if (stream) {
+                // commit the headers now, the body follows in chunks as it is serialized
+                response.flushBuffer();
+            }
             final Writer writer = new OutputStreamWriter(response.getOutputStream(), encoding);
             final XQuerySerializer serializer = new XQuerySerializer(broker, outputProperties, writer);
 
             //Marshaller.marshall(broker, results, start, howmany, serializer.getContentHandler());
-            serializer.serialize(results, start, howmany, wrap, typed, compilationTime, executionTime);
+            serializer.serialize(results, start, howmany, wrap, typed, compilationTime, executionTime, stream);
 
             writer.flush();
             writer.close();
@@ -2156,66 +2398,135 @@ public class RESTServer {
         }
     }
 
-    private void writeResultJSON(final HttpServletResponse response,
-        final DBBroker broker, final Txn transaction, final Sequence results, int howmany,
-        int start, final Properties outputProperties, final boolean wrap, final long compilationTime, final long executionTime)
-            throws BadRequestException {
-
-        // calculate number of results to return
-        final int rlen = results.getItemCount();
-        if (!results.isEmpty()) {
-            if ((start < 1) || (start > rlen)) {
-                throw new BadRequestException("Start parameter out of range");
-            }
-            // FD : correct bound evaluation
-            if (((howmany + start) > rlen) || (howmany <= 0)) {
-                howmany = rlen - start + 1;
+    private void setResultContentType(final HttpServletResponse response, final Properties outputProperties,
+            final boolean wrap) {
+        if (!response.containsHeader("Content-Type")) {
+            String mimeType = outputProperties.getProperty(OutputKeys.MEDIA_TYPE);
+            if (mimeType != null) {
+                final int semicolon = mimeType.indexOf(';');
+                if (semicolon != Constants.STRING_NOT_FOUND) {
+                    mimeType = mimeType.substring(0, semicolon);
+                }
+                if (wrap) {
+                    mimeType = "application/xml";
+                }
+                response.setContentType(mimeType + "; charset=" + outputProperties.getProperty(OutputKeys.ENCODING));
             }
-        } else {
-            howmany = 0;
         }
+    }
+
+    /**
+     * Executes the query. If the result was requested with _stream=yes, without a
+     * wrapper, type annotations or offset, and the body of the query is an element
+     * constructor, e.g. a query rendering an HTML page, the element is serialized to
+     * the response while it is being constructed rather than first being built in
+     * memory; null is then returned as the result has already been written.
+     *
+     * In that case the response is committed as soon as the output buffer fills, so
+     * headers set by the query after that point are lost and an error raised part way
+     * through can only be reported after the content written so far.
+     *
+     * @return the result of the query, or null if it was written to the response
+     */
+    private @Nullable Sequence executeQuery(final XQuery xquery, final DBBroker broker, final CompiledXQuery compiled,
+            final HttpServletResponse response, final Properties outputProperties, final int start,
+            final boolean typed, final boolean wrap) throws XPathException, PermissionDeniedException {
+        if (!"yes".equals(outputProperties.getProperty(STREAM_PROPERTY)) || wrap || typed || start != 1
+                || !(compiled instanceof PathExpr) || ((PathExpr) compiled).getStreamableBody() == null) {
+            return xquery.execute(broker, compiled, null, outputProperties);
+        }
+
+        return xquery.execute(broker, compiled, null, outputProperties, contextSequence -> {
+            final String method = outputProperties.getProperty(OutputKeys.METHOD, "xml");
+            if ("json".equals(outputProperties.getProperty(SERIALIZATION_METHOD_PROPERTY))
+                    || "json".equals(method) || "adaptive".equals(method)) {
+                // serialization options declared by the query rule out streaming
+                return compiled.eval(contextSequence);
+            }
+            outputProperties.setProperty(Serializer.GENERATE_DOC_EVENTS, "false");
+            setResultContentType(response, outputProperties, false);
+            try {
+                final Writer writer = new OutputStreamWriter(response.getOutputStream(), outputProperties.getProperty(OutputKeys.ENCODING));
+                final XQuerySerializer serializer = new XQuerySerializer(broker, outputProperties, writer);
+                serializer.serialize((PathExpr) compiled, contextSequence);
+                writer.flush();
+                writer.close();
+            } catch (final IOException | SAXException e) {
+                throw new XPathException("Error while serializing xml: " + e.toString(), e);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Writes the results as a JSON object of the form
+     * <code>{"start":1,"count":2,"hits":2,"compilationTime":0,"executionTime":0,"data":["a","b"]}</code>.
+     *
+     * The items are serialized one at a time as the results are iterated, rather than first
+     * building the whole object in memory. When streaming, "count" and "hits" are omitted and
+     * a howmany of less than 1 writes all the items from start onwards.
+     */
+    private void writeResultJSON(final HttpServletResponse response,
+        final DBBroker broker, final Txn transaction, final Sequence results, final int howmany,
+        final int start, final Properties outputProperties, final boolean wrap, final boolean stream,
+        final long compilationTime, final long executionTime)
+            throws BadRequestException {
 
         final Serializer serializer = broker.borrowSerializer();
         outputProperties.setProperty(Serializer.GENERATE_DOC_EVENTS, "false");
         try {
             serializer.setProperties(outputProperties);
+            if (stream) {
+                response.flushBuffer();
+            }
             try (Writer writer = new OutputStreamWriter(response.getOutputStream(), outputProperties.getProperty(OutputKeys.ENCODING))) {
-                final JSONObject root = new JSONObject();
-                root.addObject(new JSONSimpleProperty("start", Integer.toString(start), true));
-                root.addObject(new JSONSimpleProperty("count", Integer.toString(howmany), true));
-                root.addObject(new JSONSimpleProperty("hits", Integer.toString(results.getItemCount()), true));
+                writer.write('{');
+                new JSONSimpleProperty("start", Integer.toString(start), true).serialize(writer, false);
+                if (!stream) {
+                    writer.write(',');
+                    new JSONSimpleProperty("count", Integer.toString(howmany), true).serialize(writer, false);
+                    writer.write(',');
+                    new JSONSimpleProperty("hits", Integer.toString(results.getItemCount()), true).serialize(writer, false);
+                }
                 if (outputProperties.getProperty(Serializer.PROPERTY_SESSION_ID) != null) {
-                    root.addObject(new JSONSimpleProperty("session",
-                            outputProperties.getProperty(Serializer.PROPERTY_SESSION_ID)));
+                    writer.write(',');
+                    new JSONSimpleProperty("session",
+                            outputProperties.getProperty(Serializer.PROPERTY_SESSION_ID)).serialize(writer, false);
                 }
-                root.addObject(new JSONSimpleProperty("compilationTime", Long.toString(compilationTime), true));
-                root.addObject(new JSONSimpleProperty("executionTime", Long.toString(executionTime), true));
-
-                final JSONObject data = new JSONObject("data");
-                root.addObject(data);
-
-                Item item;
-                for (int i = --start; i < start + howmany; i++) {
-                    item = results.itemAt(i);
-                    if (Type.subTypeOf(item.getType(), Type.NODE)) {
-                        final NodeValue value = (NodeValue) item;
-                        JSONValue json;
-                        if ("json".equals(outputProperties.getProperty("method", "xml"))) {
-                            json = new JSONValue(serializer.serialize(value), false);
-                            json.setSerializationDataType(JSONNode.SerializationDataType.AS_LITERAL);
-                        } else {
-                            json = new JSONValue(serializer.serialize(value));
-                            json.setSerializationType(JSONNode.SerializationType.AS_ARRAY);
-                        }
-                        data.addObject(json);
-                    } else {
-                        final JSONValue json = new JSONValue(item.getStringValue());
-                        json.setSerializationType(JSONNode.SerializationType.AS_ARRAY);
-                        data.addObject(json);
+                writer.write(',');
+                new JSONSimpleProperty("compilationTime", Long.toString(compilationTime), true).serialize(writer, false);
+                writer.write(',');
+                new JSONSimpleProperty("executionTime", Long.toString(executionTime), true).serialize(writer, false);
+                writer.write(",\"data\":");
+
+                // as for a JSONObject, no items is null, one item is a value and more are an array
+                final SequenceIterator items = results.iterate();
+                for (int i = 1; i < start && items.hasNext(); i++) {
+                    items.nextItem();
+                }
+                JSONValue first = null;
+                int count = 0;
+                for (; (howmany < 1 || count < howmany) && items.hasNext(); count++) {
+                    final JSONValue json = toJSONValue(serializer, items.nextItem(), outputProperties);
+                    if (count == 0) {
+                        first = json;
+                        continue;
                     }
+                    if (count == 1) {
+                        writer.write('[');
+                        first.serializeContent(writer);
+                    }
+                    writer.write(',');
+                    json.serializeContent(writer);
                 }
-
-                root.serialize(writer, true);
+                if (count == 0) {
+                    writer.write("null");
+                } else if (count == 1) {
+                    first.serializeContent(writer);
+                } else {
+                    writer.write(']');
+                }
+                writer.write('}');
 
                 writer.flush();
             }
@@ -2226,6 +2537,26 @@ public class RESTServer {
         }
     }
 
+    private JSONValue toJSONValue(final Serializer serializer, final Item item, final Properties outputProperties)
+            throws SAXException, XPathException {
+        if (Type.subTypeOf(item.getType(), Type.NODE)) {
+            final NodeValue value = (NodeValue) item;
+            final JSONValue json;
+            if ("json".equals(outputProperties.getProperty("method", "xml"))) {
+                json = new JSONValue(serializer.serialize(value), false);
+                json.setSerializationDataType(JSONNode.SerializationDataType.AS_LITERAL);
+            } else {
+                json = new JSONValue(serializer.serialize(value));
+                json.setSerializationType(JSONNode.SerializationType.AS_ARRAY);
+            }
+            return json;
+        } else {
+            final JSONValue json = new JSONValue(item.getStringValue());
+            json.setSerializationType(JSONNode.SerializationType.AS_ARRAY);
+            return json;
+        }
+    }
+
     private boolean isExecutableType(final DocumentImpl resource) {
         return (
             resource != null
@@ -69,6 +69,7 @@ enum RESTServerParameter {
      * <exist:query start? = number
      *  max? = number
      *  cache? = ("yes" | "no")
+     *  stream? = ("yes" | "no")
      *  session? = string
      *  typed? = ("yes" | "no")
      *  (wrap = ("yes" | "no") | enclose = ("yes" | "no"))?
@@ -224,6 +225,27 @@ enum RESTServerParameter {
      */
     Cache,
 
+    /**
+     * Can be used in either the Query String of a GET request
+     * or in the body of a POST request when supplying an XPath or XQuery,
+     * it causes the results of the query to be written to the response
+     * as the result sequence is iterated, without first determining
+     * its length.
+     * 
+     * This parameter is useful for exporting large results, as the response
+     * headers are sent straight away and the body is sent in chunks. The
+     * exist:result wrapper (or the JSON envelope) then omits the hits
+     * and count, and a HowMany/Max of zero or less returns all the items
+     * from Start onwards. As the response is already committed, an error
+     * raised whilst serializing truncates the response instead of
+     * changing its status.
+     * 
+     * Contexts: GET, POST
+     * 
+     * The value of the parameter should be either "yes" or "no".
+     */
+    Stream,
+
     /**
      * Can be used in the Query String of a GET request
      * to indicate that an XML result should be indented.
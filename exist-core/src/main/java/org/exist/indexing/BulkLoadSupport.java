@@ -0,0 +1,50 @@
+/*
+ * eXist-db Open Source Native XML Database
+ * Copyright (C) 2001 The eXist-db Authors
+ *
+ * info@exist-db.org
+ * http://www.exist-db.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.indexing;
+
+import org.exist.storage.btree.DBException;
+
+/**
+ * Interface to be implemented by an index if it can build its data
+ * files in one pass when the whole database is reindexed, instead of
+ * updating them document by document. Used by
+ * {@link org.exist.storage.DBBroker#repair()}, which reindexes all
+ * documents into freshly created index files.
+ */
+public interface BulkLoadSupport {
+
+    /**
+     * Called before the documents are reindexed. From now on, the index
+     * may buffer the entries it receives instead of storing them.
+     *
+     * @throws DBException in case of an eXist-db error
+     */
+    void startBulkLoad() throws DBException;
+
+    /**
+     * Called after all documents have been reindexed. The index must
+     * store the buffered entries.
+     *
+     * @throws DBException in case of an eXist-db error
+     */
+    void endBulkLoad() throws DBException;
+}
@@ -0,0 +1,41 @@
+/*
+ * eXist-db Open Source Native XML Database
+ * Copyright (C) 2001 The eXist-db Authors
+ *
+ * info@exist-db.org
+ * http://www.exist-db.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.indexing;
+
+/**
+ * Interface to be implemented by an index which may defer committing its
+ * changes past a major sync of the database, and thus past the journal
+ * checkpoint written by that sync. Changes lost in a crash after the
+ * checkpoint cannot be recovered from the journal, so the index has to
+ * report them when it is opened again. The database is then repaired, as
+ * after a recovery, see {@link org.exist.storage.DBBroker#repair()}.
+ */
+public interface DeferredCommitSupport {
+
+    /**
+     * Determine if the index lost changes, because the database stopped
+     * before they were committed.
+     *
+     * @return true if the index has to be rebuilt.
+     */
+    boolean hasLostChanges();
+}
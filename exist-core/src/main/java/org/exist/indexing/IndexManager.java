@@ -294,6 +294,52 @@ public class IndexManager implements BrokerPoolService {
         }
     }
 
+    /**
+     * Tell the indexes implementing {@link BulkLoadSupport} that all documents
+     * are about to be reindexed into empty index files.
+     *
+     * @throws DBException in case of an eXist-db error
+     */
+    public void startBulkLoad() throws DBException {
+        for (final Iterator<Index> i = iterator(); i.hasNext(); ) {
+            final Index index = i.next();
+            if (index instanceof BulkLoadSupport) {
+                ((BulkLoadSupport) index).startBulkLoad();
+            }
+        }
+    }
+
+    /**
+     * Tell the indexes implementing {@link BulkLoadSupport} to store the
+     * entries buffered since {@link #startBulkLoad()}.
+     *
+     * @throws DBException in case of an eXist-db error
+     */
+    public void endBulkLoad() throws DBException {
+        for (final Iterator<Index> i = iterator(); i.hasNext(); ) {
+            final Index index = i.next();
+            if (index instanceof BulkLoadSupport) {
+                ((BulkLoadSupport) index).endBulkLoad();
+            }
+        }
+    }
+
+    /**
+     * Determine if any of the indexes implementing {@link DeferredCommitSupport}
+     * lost changes which were not committed before the database stopped.
+     *
+     * @return true if the indexes have to be rebuilt.
+     */
+    public boolean hasLostChanges() {
+        for (final Iterator<Index> i = iterator(); i.hasNext(); ) {
+            final Index index = i.next();
+            if (index instanceof DeferredCommitSupport && ((DeferredCommitSupport) index).hasLostChanges()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     public void backupToArchive(final RawDataBackup backup) throws IOException {
         for (final Iterator<Index> i = iterator(); i.hasNext(); ) {
             final Index index = i.next();
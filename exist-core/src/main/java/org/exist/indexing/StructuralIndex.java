@@ -48,6 +48,22 @@ public interface StructuralIndex {
 
     public NodeSet findElementsByTagName(byte type, DocumentSet docs, QName qname, NodeSelector selector, Expression parent);
 
+    /**
+     * Find all elements or attributes of the given name in the given documents. Other than
+     * {@link #findElementsByTagName(byte, DocumentSet, QName, NodeSelector, Expression)}, the nodes
+     * are returned in a compact, read-only {@link org.exist.dom.persistent.ColumnarNodeSet}, which
+     * is meant to be joined with a context set by
+     * {@link NodeSet#selectParentChild(NodeSet, int, int)} or
+     * {@link NodeSet#selectAncestorDescendant(NodeSet, int, boolean, int, boolean)}.
+     *
+     * @param type the type of the nodes, see {@link org.exist.storage.ElementValue}
+     * @param docs the documents to search
+     * @param qname the name of the nodes
+     * @param parent the expression to check for termination, or null
+     * @return the nodes found
+     */
+    public NodeSet findAllElementsByTagName(byte type, DocumentSet docs, QName qname, Expression parent);
+
     public NodeSet findDescendantsByTagName(byte type, QName qname, int axis,
         DocumentSet docs, NodeSet contextSet,  int contextId);
 
@@ -76,6 +76,23 @@ public class Cache implements CacheMXBean {
         return cache.getFails();
     }
 
+    @Override
+    public double getHitRatio() {
+        final long hits = cache.getHits();
+        final long lookups = hits + cache.getFails();
+        return lookups == 0 ? 0.0 : hits / (double) lookups;
+    }
+
+    @Override
+    public long getEvictions() {
+        return cache.getEvictions();
+    }
+
+    @Override
+    public long getContention() {
+        return cache.getContention();
+    }
+
     @Override
     public String getCacheName() {
         return cache.getName();
@@ -40,5 +40,14 @@ public interface CacheMXBean extends PerInstanceMBean {
 
     int getFails();
 
+    /**
+     * @return the fraction of lookups which were answered by the cache
+     */
+    double getHitRatio();
+
+    long getEvictions();
+
+    long getContention();
+
     String getCacheName();
 }
\ No newline at end of file
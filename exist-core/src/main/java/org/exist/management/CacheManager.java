@@ -21,8 +21,11 @@
  */
 package org.exist.management;
 
+import org.exist.storage.CacheBalanceEvent;
+
 import javax.management.MalformedObjectNameException;
 import javax.management.ObjectName;
+import java.util.List;
 
 public class CacheManager implements CacheManagerMXBean {
     private final String instanceId;
@@ -65,4 +68,14 @@ public class CacheManager implements CacheManagerMXBean {
     public long getCurrentSize() {
         return manager.getCurrentSize();
     }
+
+    @Override
+    public boolean isBalancing() {
+        return manager.isBalancing();
+    }
+
+    @Override
+    public List<CacheBalanceEvent> getBalanceHistory() {
+        return manager.getBalanceHistory();
+    }
 }
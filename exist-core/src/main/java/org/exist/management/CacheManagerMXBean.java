@@ -22,6 +22,9 @@
 package org.exist.management;
 
 import org.exist.management.impl.PerInstanceMBean;
+import org.exist.storage.CacheBalanceEvent;
+
+import java.util.List;
 
 public interface CacheManagerMXBean extends PerInstanceMBean {
 
@@ -30,4 +33,8 @@ public interface CacheManagerMXBean extends PerInstanceMBean {
     long getMaxSingle();
 
     long getCurrentSize();
+
+    boolean isBalancing();
+
+    List<CacheBalanceEvent> getBalanceHistory();
 }
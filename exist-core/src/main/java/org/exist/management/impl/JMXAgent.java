@@ -85,6 +85,7 @@ public final class JMXAgent implements Agent {
                 new DiskUsage(instance),
                 new ProcessReport(instance),
                 new BinaryValues(instance),
+                new BlobStoreUsage(instance),
                 new CollectionCache(instance)
         );
 
@@ -87,6 +87,8 @@ import java.util.*;
 import java.util.Map.Entry;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Consumer;
@@ -389,6 +391,15 @@ public class BrokerPool extends BrokerPools implements BrokerPoolConstants, Data
      */
     private AtomicLazyVal<net.sf.saxon.Configuration> saxonConfig = new AtomicLazyVal<>(net.sf.saxon.Configuration::newConfiguration);
 
+    /**
+     * Threads evaluating parts of queries in parallel, see {@link org.exist.xquery.pragmas.ParallelPragma}.
+     *
+     * One instance per-database, lazily initialised. Threads are created as needed,
+     * their number is bounded by the brokers they hold.
+     */
+    private final Object queryExecutorLock = new Object();
+    private volatile ExecutorService queryExecutor = null;
+
     /**
      * Creates and configures the database instance.
      *
@@ -631,7 +642,8 @@ public class BrokerPool extends BrokerPools implements BrokerPoolConstants, Data
 
                         //If necessary, launch a task to repair the DB
                         //TODO : merge this with the recovery process ?
-                        if(isRecoveryEnabled() && recovered) {
+                        //An index which defers its commits may also have lost changes covered by the last checkpoint
+                        if(isRecoveryEnabled() && (recovered || indexManager.hasLostChanges())) {
                             if(!exportOnly) {
                                 reportStatus("Reindexing database files...");
                                 try {
@@ -804,8 +816,9 @@ public class BrokerPool extends BrokerPools implements BrokerPoolConstants, Data
         if(LOG.isDebugEnabled()) {
             LOG.debug("ForceRestart = {}", forceRestart);
         }
+        final int redoThreads = conf.getProperty(PROPERTY_RECOVERY_REDO_THREADS, DEFAULT_RECOVERY_REDO_THREADS);
         if(journalManager.isPresent()) {
-            final RecoveryManager recovery = new RecoveryManager(broker, journalManager.get(), forceRestart);
+            final RecoveryManager recovery = new RecoveryManager(broker, journalManager.get(), forceRestart, redoThreads);
             return recovery.recover();
         } else {
             throw new IllegalStateException("Cannot run recovery without a JournalManager");
@@ -1304,6 +1317,37 @@ public class BrokerPool extends BrokerPools implements BrokerPoolConstants, Data
         }
     }
 
+    /**
+     * Returns an active broker for the database instance, without waiting
+     * for a broker to become available, and only if other threads can still
+     * get a number of brokers afterwards without waiting.
+     *
+     * @param subject Optionally a subject to set on the broker, if a user is not provided then the
+     *                current user assigned to the broker will be re-used
+     * @param headroom The number of brokers which must remain available to other threads
+     * @return The broker, or empty if the current thread has no broker and
+     *     no more than {@code headroom} brokers are available
+     * @throws EXistException If the instance is not available (stopped or not configured)
+     */
+    public Optional<DBBroker> tryGet(final Optional<Subject> subject, final int headroom) throws EXistException {
+        Objects.requireNonNull(subject, "Subject cannot be null");
+
+        if (activeBrokers.containsKey(Thread.currentThread())) {
+            return Optional.of(get(subject));
+        }
+
+        synchronized (this) {
+            if (serviceModeUser != null && subject.isPresent() && !subject.equals(Optional.of(serviceModeUser))) {
+                return Optional.empty();
+            }
+            if (inactiveBrokers.size() + Math.max(0, maxBrokers - brokersCount) <= headroom) {
+                return Optional.empty();
+            }
+            // holding the monitor, get will not have to wait
+            return Optional.of(get(subject));
+        }
+    }
+
     /**
      * Releases a broker for the database instance. If it is no more used, make if invactive.
      * If there are pending system maintenance tasks,
@@ -1646,6 +1690,13 @@ public class BrokerPool extends BrokerPools implements BrokerPoolConstants, Data
                     //Notify all running XQueries that we are shutting down
                     processMonitor.killAll(500);
 
+                    synchronized (queryExecutorLock) {
+                        if (queryExecutor != null) {
+                            queryExecutor.shutdownNow();
+                            queryExecutor = null;
+                        }
+                    }
+
                     if (isRecoveryEnabled()) {
                         journalManager.ifPresent(jm -> jm.flush(true, true));
                     }
@@ -1956,6 +2007,26 @@ public class BrokerPool extends BrokerPools implements BrokerPoolConstants, Data
         return saxonConfig.get();
     }
 
+    /**
+     * Returns the executor shared by the queries which evaluate parts of themselves in parallel.
+     * Every task must get a broker of its own without waiting, see {@link #tryGet(Optional, int)}.
+     *
+     * @return the executor
+     */
+    public ExecutorService getQueryExecutor() {
+        ExecutorService executor = queryExecutor;
+        if (executor == null) {
+            synchronized (queryExecutorLock) {
+                executor = queryExecutor;
+                if (executor == null) {
+                    executor = Executors.newCachedThreadPool(new NamedThreadFactory(this, "parallel-query"));
+                    queryExecutor = executor;
+                }
+            }
+        }
+        return executor;
+    }
+
     /**
      * Represents a change involving {@link BrokerPool#inactiveBrokers}
      * or {@link BrokerPool#activeBrokers} or {@link DBBroker#getReferenceCount}
@@ -84,8 +84,16 @@ public interface BrokerPoolConstants {
 
     String PROPERTY_RECOVERY_GROUP_COMMIT = "db-connection.recovery.group-commit";
     String RECOVERY_GROUP_COMMIT_ATTRIBUTE = "group-commit";
+    String PROPERTY_RECOVERY_GROUP_SYNC = "db-connection.recovery.group-sync";
+    String RECOVERY_GROUP_SYNC_ATTRIBUTE = "group-sync";
+    String PROPERTY_RECOVERY_GROUP_SYNC_MAX_DELAY = "db-connection.recovery.group-sync-max-delay";
+    String RECOVERY_GROUP_SYNC_MAX_DELAY_ATTRIBUTE = "group-sync-max-delay";
+    String PROPERTY_RECOVERY_GROUP_SYNC_MAX_BATCH = "db-connection.recovery.group-sync-max-batch";
+    String RECOVERY_GROUP_SYNC_MAX_BATCH_ATTRIBUTE = "group-sync-max-batch";
     String PROPERTY_RECOVERY_FORCE_RESTART = "db-connection.recovery.force-restart";
     String RECOVERY_FORCE_RESTART_ATTRIBUTE = "force-restart";
+    String PROPERTY_RECOVERY_REDO_THREADS = "db-connection.recovery.redo-threads";
+    String RECOVERY_REDO_THREADS_ATTRIBUTE = "redo-threads";
 
     String PROPERTY_PAGE_SIZE = "db-connection.page-size";
 
@@ -98,4 +106,7 @@ public interface BrokerPoolConstants {
     int DEFAULT_COLLECTION_BUFFER_SIZE = 64;
     int DEFAULT_PAGE_SIZE = 4096;
     short DEFAULT_DISK_SPACE_MIN = 64; // 64 MB
+    long DEFAULT_GROUP_SYNC_MAX_DELAY = 0; // ms
+    int DEFAULT_GROUP_SYNC_MAX_BATCH = 64;
+    int DEFAULT_RECOVERY_REDO_THREADS = 1;
 }
@@ -0,0 +1,110 @@
+/*
+ * eXist-db Open Source Native XML Database
+ * Copyright (C) 2001 The eXist-db Authors
+ *
+ * info@exist-db.org
+ * http://www.exist-db.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.storage;
+
+import net.jcip.annotations.Immutable;
+
+/**
+ * Records a cache which was resized by the balancer of the
+ * {@link DefaultCacheManager}, together with the statistics of the
+ * check interval which led to the decision.
+ */
+@Immutable
+public class CacheBalanceEvent {
+
+    private final long timestamp;
+    private final String cacheName;
+    private final String cacheType;
+    private final int oldSize;
+    private final int newSize;
+    private final double hitRatio;
+    private final long missPenalty;
+    private final long missCost;
+
+    public CacheBalanceEvent(final long timestamp, final String cacheName, final String cacheType, final int oldSize,
+            final int newSize, final double hitRatio, final long missPenalty, final long missCost) {
+        this.timestamp = timestamp;
+        this.cacheName = cacheName;
+        this.cacheType = cacheType;
+        this.oldSize = oldSize;
+        this.newSize = newSize;
+        this.hitRatio = hitRatio;
+        this.missPenalty = missPenalty;
+        this.missCost = missCost;
+    }
+
+    /**
+     * @return the time of the resize in milliseconds since the epoch
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public String getCacheName() {
+        return cacheName;
+    }
+
+    public String getCacheType() {
+        return cacheType;
+    }
+
+    /**
+     * @return the size of the cache in pages before the resize
+     */
+    public int getOldSize() {
+        return oldSize;
+    }
+
+    /**
+     * @return the size of the cache in pages after the resize
+     */
+    public int getNewSize() {
+        return newSize;
+    }
+
+    /**
+     * @return the fraction of lookups answered by the cache during the check interval
+     */
+    public double getHitRatio() {
+        return hitRatio;
+    }
+
+    /**
+     * @return the average time in microseconds it took to read a page from disk
+     */
+    public long getMissPenalty() {
+        return missPenalty;
+    }
+
+    /**
+     * @return the total time in milliseconds spent on cache misses during the check interval
+     */
+    public long getMissCost() {
+        return missCost;
+    }
+
+    @Override
+    public String toString() {
+        return cacheName + " (" + cacheType + "): " + oldSize + " -> " + newSize + " pages; hit ratio: " + hitRatio
+                + "; miss penalty: " + missPenalty + "us; miss cost: " + missCost + "ms";
+    }
+}
@@ -23,6 +23,8 @@ package org.exist.storage;
 
 import org.exist.storage.cache.Cache;
 
+import java.util.List;
+
 public interface CacheManager {
 
     /**
@@ -85,4 +87,18 @@ public interface CacheManager {
      * @return  Default initial size in bytes.
      */
     int getDefaultInitialSize();
+
+    /**
+     * @return true if the cache manager redistributes pages between caches
+     *     based on the time they spend on cache misses
+     */
+    boolean isBalancing();
+
+    /**
+     * Returns the most recent resizes done to balance the caches,
+     * the oldest first.
+     *
+     * @return the resize events
+     */
+    List<CacheBalanceEvent> getBalanceHistory();
 }
@@ -26,15 +26,27 @@ import org.apache.logging.log4j.Logger;
 
 import org.exist.management.Agent;
 import org.exist.management.AgentFactory;
+import org.exist.storage.btree.Paged;
+import org.exist.storage.cache.BTreeCache;
+import org.exist.storage.cache.BTreeCacheable;
 import org.exist.storage.cache.Cache;
+import org.exist.storage.cache.Cacheable;
+import org.exist.storage.cache.LRUCache;
+import org.exist.storage.cache.TwoQueueCache;
 import org.exist.util.Configuration;
 import org.exist.util.DatabaseConfigurationException;
 
+import javax.annotation.Nullable;
 import java.text.NumberFormat;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 
 /**
@@ -77,6 +89,22 @@ public class DefaultCacheManager implements CacheManager, BrokerPoolService
     public static final String  SHRINK_THRESHOLD_ATTRIBUTE     		 	= "cacheShrinkThreshold";
     public static final String  SHRINK_THRESHOLD_PROPERTY      			= "db-connection.cache-shrink-threshold";
 
+    public static final String  DEFAULT_CACHE_BALANCING_STRING     			= "false";
+    public static final String  CACHE_BALANCING_ATTRIBUTE      			= "cacheBalancing";
+    public static final String  PROPERTY_CACHE_BALANCING       			= "db-connection.cache-balancing";
+
+    /** The number of resize events kept in the balancing history. */
+    public final static int     BALANCE_HISTORY_SIZE            = 100;
+
+    /**
+     * A cache may give pages to a cache with a higher miss cost if its own miss cost during the last check interval
+     * was below this fraction of the other cache's miss cost.
+     */
+    public final static double  COLD_CACHE_RATIO                = 0.1;
+
+    public static final String  CACHE_POLICY_ATTRIBUTE         			= "cachePolicy";
+    public static final String  PROPERTY_CACHE_POLICY          			= "db-connection.cache-policy";
+
     /** Caches maintained by this class. */
     private List<Cache>         caches                          = new ArrayList<>();
 
@@ -108,6 +136,18 @@ public class DefaultCacheManager implements CacheManager, BrokerPoolService
 
     private String              instanceName;
 
+    /** If true, {@link #checkCaches()} redistributes pages between caches based on the time spent on cache misses. */
+    private final boolean       balancing;
+
+    /** Statistics of the caches as of the last balancing check, guarded by this. */
+    private final Map<Cache, CacheSample> samples                 = new IdentityHashMap<>();
+
+    /** The most recent resizes done by the balancer, guarded by itself. */
+    private final Deque<CacheBalanceEvent> balanceHistory         = new ArrayDeque<>();
+
+    /** The replacement policy of the page caches allocated by {@link #createBTreeCache} and {@link #createDataCache}. */
+    private final CachePolicy   cachePolicy;
+
     public DefaultCacheManager( BrokerPool pool )
     {
         this.instanceName = pool.getId();
@@ -126,6 +166,12 @@ public class DefaultCacheManager implements CacheManager, BrokerPoolService
 
         shrinkThreshold = configuration.getInteger( SHRINK_THRESHOLD_PROPERTY );
 
+        final CachePolicy configuredPolicy = (CachePolicy)configuration.getProperty( PROPERTY_CACHE_POLICY );
+        cachePolicy = configuredPolicy != null ? configuredPolicy : CachePolicy.LRU;
+
+        final Boolean configuredBalancing = (Boolean)configuration.getProperty( PROPERTY_CACHE_BALANCING );
+        balancing = configuredBalancing != null && configuredBalancing;
+
         totalMem        = cacheSize * 1024L * 1024L;
 
         final Boolean checkMaxCache = (Boolean)configuration.getProperty( PROPERTY_CACHE_CHECK_MAX_SIZE );
@@ -149,24 +195,89 @@ public class DefaultCacheManager implements CacheManager, BrokerPoolService
         this.maxCacheSize   = (int)( totalPageCount * MAX_MEM_USE );
         final NumberFormat nf     = NumberFormat.getNumberInstance();
 
-        LOG.info("Cache settings: {}k; totalPages: {}; maxCacheSize: {}; cacheShrinkThreshold: {}", nf.format(totalMem / 1024L), nf.format(totalPageCount), nf.format(maxCacheSize), nf.format(shrinkThreshold));
+        LOG.info("Cache settings: {}k; totalPages: {}; maxCacheSize: {}; cacheShrinkThreshold: {}; cachePolicy: {}; cacheBalancing: {}", nf.format(totalMem / 1024L), nf.format(totalPageCount), nf.format(maxCacheSize), nf.format(shrinkThreshold), cachePolicy.getId(), balancing);
 
         registerMBean();
     }
 
+    /**
+     * Allocates a cache for the pages of a B+-tree file, which keeps the inner pages of the tree
+     * in memory for as long as possible. The cache implementation depends on the configured {@link CachePolicy}.
+     *
+     * The cache still has to be registered through {@link #registerCache(Cache)}.
+     *
+     * @param <T> the type of the B+-tree pages
+     * @param name the name of the cache, usually the file name
+     * @param size the initial number of pages
+     * @param growthFactor the factor by which the cache grows, see {@link Cache#getGrowthFactor()}
+     * @param growthThreshold the amount of trashing tolerated before the cache asks to grow
+     *
+     * @return the cache
+     */
+    public <T extends BTreeCacheable> Cache<T> createBTreeCache( final String name, final int size, final double growthFactor, final double growthThreshold )
+    {
+        if( cachePolicy == CachePolicy.TWO_QUEUE ) {
+            return new TwoQueueCache<>( name, size, growthFactor, growthThreshold, Cache.CacheType.BTREE );
+        }
+        return new BTreeCache<>( name, size, growthFactor, growthThreshold, Cache.CacheType.BTREE );
+    }
+
+    /**
+     * Allocates a cache for the data pages of a file. The cache implementation depends
+     * on the configured {@link CachePolicy}.
+     *
+     * The cache still has to be registered through {@link #registerCache(Cache)}.
+     *
+     * @param <T> the type of the data pages
+     * @param name the name of the cache, usually the file name
+     * @param size the initial number of pages
+     * @param growthFactor the factor by which the cache grows, see {@link Cache#getGrowthFactor()}
+     * @param growthThreshold the amount of trashing tolerated before the cache asks to grow
+     *
+     * @return the cache
+     */
+    public <T extends Cacheable> Cache<T> createDataCache( final String name, final int size, final double growthFactor, final double growthThreshold )
+    {
+        if( cachePolicy == CachePolicy.TWO_QUEUE ) {
+            return new TwoQueueCache<>( name, size, growthFactor, growthThreshold, Cache.CacheType.DATA );
+        }
+        return new LRUCache<>( name, size, growthFactor, growthThreshold, Cache.CacheType.DATA );
+    }
+
+    public CachePolicy getCachePolicy()
+    {
+        return( cachePolicy );
+    }
+
     @Override
     public void registerCache( Cache cache )
     {
-        currentPageCount += cache.getBuffers();
-        caches.add( cache );
+        registerCache( cache, null );
+    }
+
+    /**
+     * Register a cache holding the pages of the given file. The time spent reading pages from the file
+     * is used as the miss penalty of the cache when balancing the caches.
+     *
+     * @param cache cache to register
+     * @param file the file whose pages are cached, or null if unknown
+     */
+    public void registerCache( final Cache cache, @Nullable final Paged file )
+    {
+        synchronized( this ) {
+            currentPageCount += cache.getBuffers();
+            caches.add( cache );
+            samples.put( cache, new CacheSample( file ) );
+        }
         cache.setCacheManager( this );
         registerMBean( cache );
     }
 
 
     @Override
-    public void deregisterCache( Cache cache )
+    public synchronized void deregisterCache( Cache cache )
     {
+        samples.remove( cache );
         for (final Iterator<Cache> cacheIt = caches.iterator(); cacheIt.hasNext(); ) {
             if (cache == cacheIt.next()) {
                 cache.setCacheManager( null );
@@ -243,6 +354,11 @@ public class DefaultCacheManager implements CacheManager, BrokerPoolService
     @Override
     public void checkCaches()
     {
+        if( balancing ) {
+            balance();
+            return;
+        }
+
         final int   minSize = (int)( totalPageCount * MIN_SHRINK_FACTOR );
         Cache cache;
         int   load;
@@ -300,6 +416,108 @@ public class DefaultCacheManager implements CacheManager, BrokerPoolService
     }
 
 
+    /**
+     * Redistributes pages from cold caches to the cache which spent the most time on cache misses since the last check.
+     *
+     * The miss cost of a cache is its number of misses multiplied by its miss penalty, the average time it took to read a
+     * page of its file. The cache with the highest miss cost is grown by its growth factor if it is full. If there are
+     * not enough free pages, caches whose miss cost is below {@link #COLD_CACHE_RATIO} of it are shrinked by
+     * {@link #SHRINK_FACTOR}, but not below the default initial size.
+     */
+    private synchronized void balance()
+    {
+        final long now = System.currentTimeMillis();
+
+        long totalReads = 0;
+        long totalReadNanos = 0;
+        for( final Map.Entry<Cache, CacheSample> entry : samples.entrySet() ) {
+            entry.getValue().update( entry.getKey() );
+            totalReads += entry.getValue().intervalReads;
+            totalReadNanos += entry.getValue().intervalReadNanos;
+        }
+        // caches without a file of their own are charged the average penalty,
+        // if no page reads were timed at all, all misses are weighted equally
+        final long averagePenalty = totalReads > 0 ? totalReadNanos / totalReads : 1;
+
+        Cache hottest = null;
+        CacheSample hottestSample = null;
+        for( final Cache cache : caches ) {
+            final CacheSample sample = samples.get( cache );
+            if( sample == null ) {
+                continue;
+            }
+            sample.computeMissCost( averagePenalty );
+            if( cache.getGrowthFactor() > 1.0 && cache.getBuffers() < maxCacheSize && cache.getUsedBuffers() >= cache.getBuffers()
+                    && sample.missCost > 0 && ( hottestSample == null || sample.missCost > hottestSample.missCost ) ) {
+                hottest = cache;
+                hottestSample = sample;
+            }
+        }
+        if( hottest == null ) {
+            return;
+        }
+
+        final int wanted = Math.min( (int)( hottest.getBuffers() * hottest.getGrowthFactor() ), maxCacheSize ) - hottest.getBuffers();
+
+        if( ( totalPageCount - currentPageCount ) < wanted ) {
+            final List<Cache> donors = new ArrayList<>();
+            for( final Cache cache : caches ) {
+                final CacheSample sample = samples.get( cache );
+                if( cache != hottest && sample != null && cache.getGrowthFactor() > 1.0 && cache.getBuffers() > getDefaultInitialSize()
+                        && sample.missCost < hottestSample.missCost * COLD_CACHE_RATIO ) {
+                    donors.add( cache );
+                }
+            }
+            donors.sort( Comparator.comparingLong( cache -> samples.get( cache ).missCost ) );
+
+            for( final Cache donor : donors ) {
+                if( ( totalPageCount - currentPageCount ) >= wanted ) {
+                    break;
+                }
+                final int newSize = Math.max( (int)( donor.getBuffers() * SHRINK_FACTOR ), getDefaultInitialSize() );
+                resize( donor, newSize, samples.get( donor ), now );
+            }
+        }
+
+        final int grow = Math.min( wanted, totalPageCount - currentPageCount );
+        if( grow > 0 ) {
+            resize( hottest, hottest.getBuffers() + grow, hottestSample, now );
+        }
+    }
+
+    private void resize( final Cache cache, final int newSize, final CacheSample sample, final long timestamp )
+    {
+        final CacheBalanceEvent event = new CacheBalanceEvent( timestamp, cache.getName(), cache.getType().toString(), cache.getBuffers(), newSize,
+                sample.hitRatio(), sample.missPenalty / 1000, sample.missCost / 1000000 );
+        if( LOG.isDebugEnabled() ) {
+            LOG.debug( "Balancing cache {}", event );
+        }
+        currentPageCount -= cache.getBuffers();
+        cache.resize( newSize );
+        currentPageCount += newSize;
+
+        synchronized( balanceHistory ) {
+            if( balanceHistory.size() == BALANCE_HISTORY_SIZE ) {
+                balanceHistory.removeFirst();
+            }
+            balanceHistory.addLast( event );
+        }
+    }
+
+    @Override
+    public boolean isBalancing()
+    {
+        return( balancing );
+    }
+
+    @Override
+    public List<CacheBalanceEvent> getBalanceHistory()
+    {
+        synchronized( balanceHistory ) {
+            return( new ArrayList<>( balanceHistory ) );
+        }
+    }
+
     /**
      * @return Maximum size of all Caches in pages
      */
@@ -359,4 +577,113 @@ public class DefaultCacheManager implements CacheManager, BrokerPoolService
             LOG.warn("Exception while registering JMX Cache MBean.", e);
         }
     }
+
+    /**
+     * The statistics of a cache during the last balancing check interval.
+     */
+    private static class CacheSample
+    {
+        private final @Nullable Paged file;
+        private long hits = 0;
+        private long fails = 0;
+        private long reads = 0;
+        private long readNanos = 0;
+
+        private long intervalHits = 0;
+        private long intervalFails = 0;
+        private long intervalReads = 0;
+        private long intervalReadNanos = 0;
+
+        /** the average time in nanoseconds to read a page, kept from earlier intervals if there were no reads */
+        private long missPenalty = 0;
+
+        /** the time in nanoseconds spent on misses during the interval */
+        private long missCost = 0;
+
+        CacheSample( @Nullable final Paged file )
+        {
+            this.file = file;
+        }
+
+        void update( final Cache cache )
+        {
+            final long currentHits = cache.getHits();
+            final long currentFails = cache.getFails();
+            // counters restart if the cache was replaced
+            intervalHits = Math.max( currentHits - hits, 0 );
+            intervalFails = Math.max( currentFails - fails, 0 );
+            hits = currentHits;
+            fails = currentFails;
+
+            if( file != null ) {
+                final long currentReads = file.getPageReads();
+                final long currentReadNanos = file.getPageReadNanos();
+                intervalReads = currentReads - reads;
+                intervalReadNanos = currentReadNanos - readNanos;
+                reads = currentReads;
+                readNanos = currentReadNanos;
+                if( intervalReads > 0 ) {
+                    missPenalty = intervalReadNanos / intervalReads;
+                }
+            }
+        }
+
+        void computeMissCost( final long averagePenalty )
+        {
+            if( missPenalty == 0 ) {
+                missPenalty = averagePenalty;
+            }
+            missCost = intervalFails * missPenalty;
+        }
+
+        double hitRatio()
+        {
+            final long lookups = intervalHits + intervalFails;
+            return( lookups == 0 ? 0.0 : intervalHits / (double)lookups );
+        }
+    }
+
+    /**
+     * The replacement policy of the page caches.
+     */
+    public enum CachePolicy {
+        /**
+         * Least recently used, see {@link LRUCache} and {@link BTreeCache}.
+         * Caches with this policy rely on the locks of the file they belong to.
+         */
+        LRU("lru"),
+
+        /**
+         * Scan resistant and thread-safe, see {@link TwoQueueCache}.
+         */
+        TWO_QUEUE("2q");
+
+        private final String id;
+
+        CachePolicy(final String id) {
+            this.id = id;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        /**
+         * Get the cache policy from its configuration id.
+         *
+         * @param id the id as used in conf.xml, e.g. {@code 2q}
+         *
+         * @return the cache policy
+         *
+         * @throws IllegalArgumentException if there is no policy with the id
+         */
+        public static CachePolicy fromId(final String id) {
+            for (final CachePolicy cachePolicy : values()) {
+                if (cachePolicy.id.equalsIgnoreCase(id)) {
+                    return cachePolicy;
+                }
+            }
+            throw new IllegalArgumentException("Unknown cache policy: " + id);
+        }
+    }
 }
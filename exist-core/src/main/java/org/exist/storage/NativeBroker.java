@@ -93,7 +93,7 @@ import java.nio.file.Paths;
 import java.text.NumberFormat;
 import java.util.*;
 import java.util.function.Function;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -138,6 +138,8 @@ public class NativeBroker extends DBBroker {
     public static final String INDEX_DEPTH_ATTRIBUTE = "index-depth";
 
     public static final String PROPERTY_INDEX_DEPTH = "indexer.index-depth";
+    public static final String REINDEX_THREADS_ATTRIBUTE = "reindex-threads";
+    public static final String PROPERTY_REINDEX_THREADS = "indexer.reindex-threads";
     private static final byte[] ALL_STORAGE_FILES = {
         COLLECTIONS_DBX_ID, VALUES_DBX_ID, DOM_DBX_ID
     };
@@ -147,6 +149,7 @@ public class NativeBroker extends DBBroker {
 
     public static final String DEFAULT_DATA_DIR = "data";
     public static final int DEFAULT_INDEX_DEPTH = 1;
+    public static final int DEFAULT_REINDEX_THREADS = 1;
 
     /** check available memory after storing DEFAULT_NODES_BEFORE_MEMORY_CHECK nodes */
     public static final int DEFAULT_NODES_BEFORE_MEMORY_CHECK = 500;
@@ -173,6 +176,8 @@ public class NativeBroker extends DBBroker {
 
     private int defaultIndexDepth;
 
+    private final int reindexThreads;
+
     private final XmlSerializerPool xmlSerializerPool;
 
     /** used to count the nodes inserted after the last memory check */
@@ -221,6 +226,8 @@ public class NativeBroker extends DBBroker {
             defaultIndexDepth = DEFAULT_INDEX_DEPTH;
         }
 
+        this.reindexThreads = config.getProperty(PROPERTY_REINDEX_THREADS, DEFAULT_REINDEX_THREADS);
+
         this.indexConfiguration = (IndexSpec) config.getProperty(Indexer.PROPERTY_INDEXER_CONFIG);
         this.xmlSerializerPool = new XmlSerializerPool(this, config, 5);
 
@@ -840,7 +847,7 @@ public class NativeBroker extends DBBroker {
     private @Nullable @EnsureLocked(mode=LockMode.READ_LOCK, type=LockType.COLLECTION) Collection loadCollection(
             @EnsureLocked(mode=LockMode.READ_LOCK, type=LockType.COLLECTION) final XmldbURI collectionUri)
             throws PermissionDeniedException, LockException, IOException {
-        try (final ManagedLock<ReentrantLock> collectionsDbLock = lockManager.acquireBtreeReadLock(collectionsDb.getLockName())) {
+        try (final ManagedLock<ReentrantReadWriteLock> collectionsDbLock = lockManager.acquireBtreeReadLock(collectionsDb.getLockName())) {
             final Value key = new CollectionStore.CollectionKey(collectionUri.toString());
             final VariableByteInput is = collectionsDb.getAsStream(key);
             return is == null ? null : MutableCollection.load(this, collectionUri, is);
@@ -994,7 +1001,7 @@ public class NativeBroker extends DBBroker {
         final Pattern p = Pattern.compile(regexp);
         final Matcher m = p.matcher("");
 
-        try(final ManagedLock<ReentrantLock> collectionsDbLock = lockManager.acquireBtreeReadLock(collectionsDb.getLockName())) {
+        try(final ManagedLock<ReentrantReadWriteLock> collectionsDbLock = lockManager.acquireBtreeReadLock(collectionsDb.getLockName())) {
 
             //TODO write a regexp lookup for key data in BTree.query
             //final IndexQuery idxQuery = new IndexQuery(IndexQuery.REGEXP, regexp);
@@ -1033,7 +1040,7 @@ public class NativeBroker extends DBBroker {
         final CollectionCache collectionsCache = pool.getCollectionsCache();
         final Collection collection = collectionsCache.getIfPresent(uri);
         if(collection == null) {
-            try(final ManagedLock<ReentrantLock> collectionsDbLock = lockManager.acquireBtreeReadLock(collectionsDb.getLockName())) {
+            try(final ManagedLock<ReentrantReadWriteLock> collectionsDbLock = lockManager.acquireBtreeReadLock(collectionsDb.getLockName())) {
 
                 final Value key = new CollectionStore.CollectionKey(uri.toString());
                 final VariableByteInput is = collectionsDb.getAsStream(key);
@@ -1577,7 +1584,7 @@ public class NativeBroker extends DBBroker {
         collectionsCache.invalidate(sourceCollection.getURI());
 
         // remove source from disk
-        try(final ManagedLock<ReentrantLock> collectionsDbLock = lockManager.acquireBtreeWriteLock(collectionsDb.getLockName())) {
+        try(final ManagedLock<ReentrantReadWriteLock> collectionsDbLock = lockManager.acquireBtreeWriteLock(collectionsDb.getLockName())) {
             final Value key = new CollectionStore.CollectionKey(sourceCollectionUri.toString());
             collectionsDb.remove(transaction, key);
         }
@@ -1665,7 +1672,7 @@ public class NativeBroker extends DBBroker {
 
             // 5) remove Collection from collections.dbx
             if(parentCollection != null) {
-                try(final ManagedLock<ReentrantLock> collectionsDbLock = lockManager.acquireBtreeWriteLock(collectionsDb.getLockName())) {
+                try(final ManagedLock<ReentrantReadWriteLock> collectionsDbLock = lockManager.acquireBtreeWriteLock(collectionsDb.getLockName())) {
                     final Value key = new CollectionStore.CollectionKey(collectionUri.getRawCollectionPath());
                     collectionsDb.remove(transaction, key);
 
@@ -1688,7 +1695,7 @@ public class NativeBroker extends DBBroker {
 
             //TODO(AR) this could possibly be executed asynchronously as a task, we don't need to know when it completes (this is because access to documents is through a Collection, and the Collection was removed above), however we cannot recycle the collectionId until all docs are gone
             // 6) unlink all documents from the Collection
-            try(final ManagedLock<ReentrantLock> collectionsDbLock = lockManager.acquireBtreeWriteLock(collectionsDb.getLockName())) {
+            try(final ManagedLock<ReentrantReadWriteLock> collectionsDbLock = lockManager.acquireBtreeWriteLock(collectionsDb.getLockName())) {
                 final Value docKey = new CollectionStore.DocumentKey(collection.getId());
                 final IndexQuery query = new IndexQuery(IndexQuery.TRUNC_RIGHT, docKey);
                 collectionsDb.removeAll(transaction, query);
@@ -1851,7 +1858,7 @@ public class NativeBroker extends DBBroker {
         final CollectionCache collectionsCache = pool.getCollectionsCache();
         collectionsCache.put(collection);
 
-        try(final ManagedLock<ReentrantLock> collectionsDbLock = lockManager.acquireBtreeWriteLock(collectionsDb.getLockName())) {
+        try(final ManagedLock<ReentrantReadWriteLock> collectionsDbLock = lockManager.acquireBtreeWriteLock(collectionsDb.getLockName())) {
             final Value name = new CollectionStore.CollectionKey(collection.getURI().toString());
             try(final VariableByteOutputStream os = new VariableByteOutputStream(256)) {
                 collection.serialize(os);
@@ -1878,7 +1885,7 @@ public class NativeBroker extends DBBroker {
             return nextCollectionId;
         }
 
-        try(final ManagedLock<ReentrantLock> collectionsDbLock = lockManager.acquireBtreeWriteLock(collectionsDb.getLockName())) {
+        try(final ManagedLock<ReentrantReadWriteLock> collectionsDbLock = lockManager.acquireBtreeWriteLock(collectionsDb.getLockName())) {
             final Value key = new CollectionStore.CollectionKey(CollectionStore.NEXT_COLLECTION_ID_KEY);
             final Value data = collectionsDb.get(key);
             if(data != null) {
@@ -1908,9 +1915,21 @@ public class NativeBroker extends DBBroker {
                 return;
             }
 
-            LOG.info("Start indexing collection {}", collection.getURI().toString());
-            pool.getProcessMonitor().startJob(ProcessMonitor.ACTION_REINDEX_COLLECTION, collection.getURI());
-            reindexCollection(transaction, collection, IndexMode.STORE);
+            final ProcessMonitor.JobProgress progress = new ProcessMonitor.JobProgress(collection.getURI(), "documents");
+            pool.getProcessMonitor().startJob(ProcessMonitor.ACTION_REINDEX_COLLECTION, progress);
+
+            // each worker thread needs a broker of its own, leave at least one for others
+            final int threads = Math.min(reindexThreads, pool.getMax() - pool.countActiveBrokers() - 1);
+            if (threads > 1) {
+                LOG.info("Start indexing collection {} using {} threads", collection.getURI().toString(), threads);
+                try (final ParallelReindex parallel = new ParallelReindex(pool, getCurrentSubject(), transaction, IndexMode.STORE, threads, progress)) {
+                    reindexCollection(transaction, collection, IndexMode.STORE, parallel, progress);
+                    parallel.await();
+                }
+            } else {
+                LOG.info("Start indexing collection {}", collection.getURI().toString());
+                reindexCollection(transaction, collection, IndexMode.STORE, null, progress);
+            }
         } catch(final PermissionDeniedException | IOException e) {
             LOG.error("An error occurred during reindex: {}", e.getMessage(), e);
         } finally {
@@ -1922,6 +1941,24 @@ public class NativeBroker extends DBBroker {
     private void reindexCollection(final Txn transaction,
             @EnsureLocked(mode=LockMode.READ_LOCK) final Collection collection, final IndexMode mode)
             throws PermissionDeniedException, IOException, LockException {
+        reindexCollection(transaction, collection, mode, null, null);
+    }
+
+    /**
+     * Reindex the documents of a collection and of all its descendant collections.
+     *
+     * @param transaction the transaction
+     * @param collection the collection to reindex
+     * @param mode the index mode
+     * @param parallel if not null, the documents are submitted to it rather than
+     *     being reindexed by this broker
+     * @param progress if not null, the documents found are counted and, when
+     *     reindexed by this broker, the documents done
+     */
+    private void reindexCollection(final Txn transaction,
+            @EnsureLocked(mode=LockMode.READ_LOCK) final Collection collection, final IndexMode mode,
+            @Nullable final ParallelReindex parallel, @Nullable final ProcessMonitor.JobProgress progress)
+            throws PermissionDeniedException, IOException, LockException {
         if(!collection.getPermissionsNoLock().validate(getCurrentSubject(), Permission.WRITE)) {
             throw new PermissionDeniedException("Account " + getCurrentSubject().getName() + " have insufficient privileges on collection " + collection.getURI());
         }
@@ -1935,7 +1972,17 @@ public class NativeBroker extends DBBroker {
         try {
             for (final Iterator<DocumentImpl> i = collection.iterator(this); i.hasNext(); ) {
                 final DocumentImpl next = i.next();
-                reindexXMLResource(transaction, next, mode);
+                if (progress != null) {
+                    progress.addTotal(1);
+                }
+                if (parallel != null) {
+                    parallel.submit(next);
+                } else {
+                    reindexXMLResource(transaction, next, mode);
+                    if (progress != null) {
+                        progress.addDone(1);
+                    }
+                }
             }
         } catch(final LockException e) {
             LOG.error("LockException while reindexing documents of collection '{}'. Skipping...", collection.getURI(), e);
@@ -1950,7 +1997,7 @@ public class NativeBroker extends DBBroker {
                     if (child == null) {
                         throw new IOException("Collection '" + childUri + "' not found");
                     } else {
-                        reindexCollection(transaction, child, mode);
+                        reindexCollection(transaction, child, mode, parallel, progress);
                     }
                 }
             }
@@ -2095,7 +2142,7 @@ public class NativeBroker extends DBBroker {
     @Override
     public DocumentImpl getResourceById(final int collectionId, final byte resourceType, final int documentId) throws PermissionDeniedException {
         XmldbURI uri;
-        try(final ManagedLock<ReentrantLock> collectionsDbLock = lockManager.acquireBtreeReadLock(collectionsDb.getLockName())) {
+        try(final ManagedLock<ReentrantReadWriteLock> collectionsDbLock = lockManager.acquireBtreeReadLock(collectionsDb.getLockName())) {
 
             //get the collection uri
             String collectionUri = null;
@@ -2170,7 +2217,7 @@ public class NativeBroker extends DBBroker {
     @Override
     public void storeXMLResource(final Txn transaction, final DocumentImpl doc) {
         try(final VariableByteOutputStream os = new VariableByteOutputStream(256);
-                final ManagedLock<ReentrantLock> collectionsDbLock = lockManager.acquireBtreeWriteLock(collectionsDb.getLockName())) {
+                final ManagedLock<ReentrantReadWriteLock> collectionsDbLock = lockManager.acquireBtreeWriteLock(collectionsDb.getLockName())) {
             doc.write(os);
             final Value key = new CollectionStore.DocumentKey(doc.getCollection().getId(), doc.getResourceType(), doc.getDocId());
             collectionsDb.put(transaction, key, os.data(), true);
@@ -2374,7 +2421,7 @@ public class NativeBroker extends DBBroker {
     //TODO : consider a better cooperation with Collection -pb
     @Override
     public void getCollectionResources(final Collection.InternalAccess collectionInternalAccess) {
-        try(final ManagedLock<ReentrantLock> collectionsDbLock = lockManager.acquireBtreeReadLock(collectionsDb.getLockName())) {
+        try(final ManagedLock<ReentrantReadWriteLock> collectionsDbLock = lockManager.acquireBtreeReadLock(collectionsDb.getLockName())) {
             final Value key = new CollectionStore.DocumentKey(collectionInternalAccess.getId());
             final IndexQuery query = new IndexQuery(IndexQuery.TRUNC_RIGHT, key);
 
@@ -2389,7 +2436,7 @@ public class NativeBroker extends DBBroker {
     @Override
     public void getResourcesFailsafe(final Txn transaction, final BTreeCallback callback, final boolean fullScan) throws TerminatedException {
         assert(transaction != null && transaction.getState() == Txn.State.STARTED);
-        try(final ManagedLock<ReentrantLock> collectionsDbLock = lockManager.acquireBtreeReadLock(collectionsDb.getLockName())) {
+        try(final ManagedLock<ReentrantReadWriteLock> collectionsDbLock = lockManager.acquireBtreeReadLock(collectionsDb.getLockName())) {
             final Value key = new CollectionStore.DocumentKey();
             final IndexQuery query = new IndexQuery(IndexQuery.TRUNC_RIGHT, key);
             if(fullScan) {
@@ -2407,7 +2454,7 @@ public class NativeBroker extends DBBroker {
     @Override
     public void getCollectionsFailsafe(final Txn transaction, final BTreeCallback callback) throws TerminatedException {
         assert(transaction != null && transaction.getState() == Txn.State.STARTED);
-        try(final ManagedLock<ReentrantLock> collectionsDbLock = lockManager.acquireBtreeReadLock(collectionsDb.getLockName())) {
+        try(final ManagedLock<ReentrantReadWriteLock> collectionsDbLock = lockManager.acquireBtreeReadLock(collectionsDb.getLockName())) {
             final Value key = new CollectionStore.CollectionKey();
             final IndexQuery query = new IndexQuery(IndexQuery.TRUNC_RIGHT, key);
             collectionsDb.query(query, callback);
@@ -2918,7 +2965,7 @@ public class NativeBroker extends DBBroker {
     public void removeResourceMetadata(final Txn transaction,
             @EnsureLocked(mode=LockMode.WRITE_LOCK) final DocumentImpl document) {
         // remove document metadata
-        try(final ManagedLock<ReentrantLock> collectionsDbLock = lockManager.acquireBtreeWriteLock(collectionsDb.getLockName())) {
+        try(final ManagedLock<ReentrantReadWriteLock> collectionsDbLock = lockManager.acquireBtreeWriteLock(collectionsDb.getLockName())) {
             if(LOG.isDebugEnabled()) {
                 LOG.debug("Removing resource metadata for {}", document.getDocId());
             }
@@ -2950,7 +2997,7 @@ public class NativeBroker extends DBBroker {
             return nextDocId;
         }
         nextDocId = 1;
-        try(final ManagedLock<ReentrantLock> collectionsDbLock = lockManager.acquireBtreeWriteLock(collectionsDb.getLockName())) {
+        try(final ManagedLock<ReentrantReadWriteLock> collectionsDbLock = lockManager.acquireBtreeWriteLock(collectionsDb.getLockName())) {
             final Value key = new CollectionStore.CollectionKey(CollectionStore.NEXT_DOC_ID_KEY);
             final Value data = collectionsDb.get(key);
             if(data != null) {
@@ -3690,8 +3737,21 @@ public class NativeBroker extends DBBroker {
 
         loadIndexModules();
         LOG.info("Reindexing database files ...");
-        //Reindex from root collection
-        reindexCollection(null, getCollection(XmldbURI.ROOT_COLLECTION_URI), IndexMode.REPAIR);
+        try {
+            pool.getIndexManager().startBulkLoad();
+        } catch(final DBException e) {
+            LOG.error("Failed to start bulk load of index files: {}", e.getMessage(), e);
+        }
+        try {
+            //Reindex from root collection
+            reindexCollection(null, getCollection(XmldbURI.ROOT_COLLECTION_URI), IndexMode.REPAIR);
+        } finally {
+            try {
+                pool.getIndexManager().endBulkLoad();
+            } catch(final DBException e) {
+                LOG.error("Failed to bulk load index files: {}", e.getMessage(), e);
+            }
+        }
     }
 
     @Override
@@ -3702,7 +3762,7 @@ public class NativeBroker extends DBBroker {
 
     protected void rebuildIndex(final byte indexId) {
         final BTree btree = getStorage(indexId);
-        try(final ManagedLock<ReentrantLock> btreeLock = lockManager.acquireBtreeWriteLock(btree.getLockName())) {
+        try(final ManagedLock<ReentrantReadWriteLock> btreeLock = lockManager.acquireBtreeWriteLock(btree.getLockName())) {
             LOG.info("Rebuilding index {}", FileUtils.fileName(btree.getFile()));
             btree.rebuild();
             LOG.info("Index {} was rebuilt.", FileUtils.fileName(btree.getFile()));
@@ -3743,7 +3803,7 @@ public class NativeBroker extends DBBroker {
                 }
             }.run();
             if(syncEvent == Sync.MAJOR) {
-                try(final ManagedLock<ReentrantLock> collectionsDbLock = lockManager.acquireBtreeWriteLock(collectionsDb.getLockName())) {
+                try(final ManagedLock<ReentrantReadWriteLock> collectionsDbLock = lockManager.acquireBtreeWriteLock(collectionsDb.getLockName())) {
                     collectionsDb.flush();
                 } catch(final LockException e) {
                     LOG.error("Failed to acquire lock on {}", FileUtils.fileName(collectionsDb.getFile()), e);
@@ -3786,7 +3846,7 @@ public class NativeBroker extends DBBroker {
                 }
             }.run();
 
-            try(final ManagedLock<ReentrantLock> collectionsDbLock = lockManager.acquireBtreeWriteLock(collectionsDb.getLockName())) {
+            try(final ManagedLock<ReentrantReadWriteLock> collectionsDbLock = lockManager.acquireBtreeWriteLock(collectionsDb.getLockName())) {
                 collectionsDb.close();
             }
 
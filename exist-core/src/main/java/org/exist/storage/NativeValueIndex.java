@@ -65,7 +65,7 @@ import javax.annotation.Nullable;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.*;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  * Maintains an index on typed node values (optionally by QName).
@@ -347,7 +347,7 @@ public class NativeValueIndex implements ContentLoadingObserver {
 
     @Override
     public void sync() {
-        try(final ManagedLock<ReentrantLock> bfileLock = lockManager.acquireBtreeWriteLock(dbValues.getLockName())) {
+        try(final ManagedLock<ReentrantReadWriteLock> bfileLock = lockManager.acquireBtreeWriteLock(dbValues.getLockName())) {
             dbValues.flush();
         } catch (final LockException e) {
             LOG.warn("Failed to acquire lock for '{}'", FileUtils.fileName(dbValues.getFile()), e);
@@ -407,7 +407,7 @@ public class NativeValueIndex implements ContentLoadingObserver {
                 //TODO : throw exception?
             }
 
-            try(final ManagedLock<ReentrantLock> bfileLock = lockManager.acquireBtreeWriteLock(dbValues.getLockName())) {
+            try(final ManagedLock<ReentrantReadWriteLock> bfileLock = lockManager.acquireBtreeWriteLock(dbValues.getLockName())) {
                 final Value v = dbKeyFn.apply(key);
 
                 if (dbValues.append(v, os.data()) == BFile.UNKNOWN_ADDRESS) {
@@ -451,7 +451,7 @@ public class NativeValueIndex implements ContentLoadingObserver {
             final List<NodeId> newGIDList = new ArrayList<>();
             os.clear();
 
-            try(final ManagedLock<ReentrantLock> bfileLock = lockManager.acquireBtreeWriteLock(dbValues.getLockName())) {
+            try(final ManagedLock<ReentrantReadWriteLock> bfileLock = lockManager.acquireBtreeWriteLock(dbValues.getLockName())) {
 
                 //Compute a key for the value
                 final Value searchKey = dbKeyFn.apply(key);
@@ -558,7 +558,7 @@ public class NativeValueIndex implements ContentLoadingObserver {
 
     @Override
     public void dropIndex(final Collection collection) {
-        try(final ManagedLock<ReentrantLock> bfileLock = lockManager.acquireBtreeWriteLock(dbValues.getLockName())) {
+        try(final ManagedLock<ReentrantReadWriteLock> bfileLock = lockManager.acquireBtreeWriteLock(dbValues.getLockName())) {
 
             flush();
 
@@ -579,7 +579,7 @@ public class NativeValueIndex implements ContentLoadingObserver {
     @Override
     public void dropIndex(final DocumentImpl document) {
         final int collectionId = document.getCollection().getId();
-        try(final ManagedLock<ReentrantLock> bfileLock = lockManager.acquireBtreeWriteLock(dbValues.getLockName())) {
+        try(final ManagedLock<ReentrantReadWriteLock> bfileLock = lockManager.acquireBtreeWriteLock(dbValues.getLockName())) {
             dropIndex(document.getDocId(), pendingGeneric, key -> new SimpleValue(collectionId, (Indexable) key));
             dropIndex(document.getDocId(), pendingQName, key -> new QNameValue(collectionId, key.qname, key.value, broker.getBrokerPool().getSymbols()));
         } catch (final LockException e) {
@@ -703,7 +703,7 @@ public class NativeValueIndex implements ContentLoadingObserver {
             watchDog.proceed(null);
 
             if (qnames == null) {
-                try(final ManagedLock<ReentrantLock> bfileLock = lockManager.acquireBtreeReadLock(dbValues.getLockName())) {
+                try(final ManagedLock<ReentrantReadWriteLock> bfileLock = lockManager.acquireBtreeReadLock(dbValues.getLockName())) {
                     final Value searchKey = new SimpleValue(collectionId, value);
                     final IndexQuery query = new IndexQuery(idxOp, searchKey);
 
@@ -720,7 +720,7 @@ public class NativeValueIndex implements ContentLoadingObserver {
                 }
             } else {
                 for (final QName qname : qnames) {
-                    try(final ManagedLock<ReentrantLock> bfileLock = lockManager.acquireBtreeReadLock(dbValues.getLockName())) {
+                    try(final ManagedLock<ReentrantReadWriteLock> bfileLock = lockManager.acquireBtreeReadLock(dbValues.getLockName())) {
 
                         //Compute a key for the value in the collection
                         final Value searchKey = new QNameValue(collectionId, qname, value, broker.getBrokerPool().getSymbols());
@@ -859,7 +859,7 @@ public class NativeValueIndex implements ContentLoadingObserver {
 
             watchDog.proceed(null);
             if (qnames == null) {
-                try(final ManagedLock<ReentrantLock> bfileLock = lockManager.acquireBtreeReadLock(dbValues.getLockName())) {
+                try(final ManagedLock<ReentrantReadWriteLock> bfileLock = lockManager.acquireBtreeReadLock(dbValues.getLockName())) {
 
                     final Value searchKey;
                     if (startTerm != null) {
@@ -878,7 +878,7 @@ public class NativeValueIndex implements ContentLoadingObserver {
                 }
             } else {
                 for (final QName qname : qnames) {
-                    try(final ManagedLock<ReentrantLock> bfileLock = lockManager.acquireBtreeReadLock(dbValues.getLockName())) {
+                    try(final ManagedLock<ReentrantReadWriteLock> bfileLock = lockManager.acquireBtreeReadLock(dbValues.getLockName())) {
 
                         final Value searchKey;
                         if (startTerm != null) {
@@ -907,7 +907,7 @@ public class NativeValueIndex implements ContentLoadingObserver {
 
         for (final Iterator<Collection> i = docs.getCollectionIterator(); i.hasNext(); ) {
 
-            try(final ManagedLock<ReentrantLock> bfileLock = lockManager.acquireBtreeReadLock(dbValues.getLockName())) {
+            try(final ManagedLock<ReentrantReadWriteLock> bfileLock = lockManager.acquireBtreeReadLock(dbValues.getLockName())) {
                 final Collection c = i.next();
                 final int collectionId = c.getId();
 
@@ -957,7 +957,7 @@ public class NativeValueIndex implements ContentLoadingObserver {
         for (final QName qname : qnames) {
 
             for (final Iterator<Collection> i = docs.getCollectionIterator(); i.hasNext(); ) {
-                try(final ManagedLock<ReentrantLock> bfileLock = lockManager.acquireBtreeReadLock(dbValues.getLockName())) {
+                try(final ManagedLock<ReentrantReadWriteLock> bfileLock = lockManager.acquireBtreeReadLock(dbValues.getLockName())) {
                     final int collectionId = i.next().getId();
 
                     //Compute a key for the start value in the collection
@@ -1063,7 +1063,7 @@ public class NativeValueIndex implements ContentLoadingObserver {
 
     @Override
     public void closeAndRemove() throws DBException {
-        try(final ManagedLock<ReentrantLock> bfileLock = lockManager.acquireBtreeWriteLock(dbValues.getLockName())) {
+        try(final ManagedLock<ReentrantReadWriteLock> bfileLock = lockManager.acquireBtreeWriteLock(dbValues.getLockName())) {
             config.setProperty(getConfigKeyForFile(), null);
             dbValues.closeAndRemove();
         } catch (final LockException e) {
@@ -1073,7 +1073,7 @@ public class NativeValueIndex implements ContentLoadingObserver {
 
     @Override
     public void close() throws DBException {
-        try(final ManagedLock<ReentrantLock> bfileLock = lockManager.acquireBtreeWriteLock(dbValues.getLockName())) {
+        try(final ManagedLock<ReentrantReadWriteLock> bfileLock = lockManager.acquireBtreeWriteLock(dbValues.getLockName())) {
             config.setProperty(getConfigKeyForFile(), null);
             dbValues.close();
         } catch (final LockException e) {
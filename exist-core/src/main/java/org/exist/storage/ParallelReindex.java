@@ -0,0 +1,180 @@
+/*
+ * eXist-db Open Source Native XML Database
+ * Copyright (C) 2001 The eXist-db Authors
+ *
+ * info@exist-db.org
+ * http://www.exist-db.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.storage;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.exist.EXistException;
+import org.exist.dom.persistent.DocumentImpl;
+import org.exist.security.Subject;
+import org.exist.storage.lock.ManagedDocumentLock;
+import org.exist.storage.txn.Txn;
+import org.exist.util.LockException;
+import org.exist.util.NamedThreadFactory;
+
+import java.io.IOException;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Reindexes documents on a number of worker threads. The caller walks the
+ * collection tree and {@link #submit(DocumentImpl) submits} the documents,
+ * each worker reindexes them through its own broker, so that the pending
+ * index entries of a document are buffered per thread and flushed by
+ * {@link DBBroker#reindexXMLResource(Txn, DocumentImpl, DBBroker.IndexMode)} as before.
+ *
+ * The index entries are written within the transaction of the caller, which
+ * commits or aborts it once {@link #await()} has returned, so the reindex stays
+ * atomic with the rest of that transaction. A {@link Txn} is not thread-safe,
+ * but reindexing only hands it on to the index workers, which neither acquire
+ * locks through it nor register listeners on it; the workers take their document
+ * locks from the lock manager directly, so the transaction is never modified
+ * concurrently.
+ *
+ * The pending index entries of a worker are flushed once per document, as the
+ * index workers key their pending entries on the document being indexed and so
+ * can not buffer several documents at once.
+ *
+ * The work queue is bounded, which keeps the walker at most a few documents
+ * ahead of the workers.
+ */
+final class ParallelReindex implements AutoCloseable {
+
+    private static final Logger LOG = LogManager.getLogger(ParallelReindex.class);
+
+    private static final int QUEUE_CAPACITY_PER_THREAD = 16;
+
+    private final BrokerPool pool;
+    private final Subject subject;
+    private final Txn transaction;
+    private final DBBroker.IndexMode mode;
+    private final ProcessMonitor.JobProgress progress;
+    private final BlockingQueue<DocumentImpl> queue;
+    private final ExecutorService executor;
+    private final Future<?>[] workers;
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private volatile boolean submitted = false;
+
+    ParallelReindex(final BrokerPool pool, final Subject subject, final Txn transaction, final DBBroker.IndexMode mode,
+            final int threads, final ProcessMonitor.JobProgress progress) {
+        this.pool = pool;
+        this.subject = subject;
+        this.transaction = transaction;
+        this.mode = mode;
+        this.progress = progress;
+        this.queue = new ArrayBlockingQueue<>(threads * QUEUE_CAPACITY_PER_THREAD);
+        this.executor = Executors.newFixedThreadPool(threads, new NamedThreadFactory(pool, "reindex"));
+        this.workers = new Future<?>[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = executor.submit(this::work);
+        }
+    }
+
+    /**
+     * Queue a document for reindexing, blocking while the queue is full.
+     *
+     * @param doc the document to reindex
+     *
+     * @throws IOException if a worker has failed or the thread was interrupted
+     */
+    void submit(final DocumentImpl doc) throws IOException {
+        checkFailure();
+        try {
+            while (!queue.offer(doc, 100, TimeUnit.MILLISECONDS)) {
+                checkFailure();
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while queueing document " + doc.getURI() + " for reindex", e);
+        }
+    }
+
+    /**
+     * Wait for the workers to reindex all queued documents.
+     *
+     * @throws IOException if a worker has failed or the thread was interrupted
+     */
+    void await() throws IOException {
+        submitted = true;
+        try {
+            for (final Future<?> worker : workers) {
+                worker.get();
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for reindex to complete", e);
+        } catch (final ExecutionException e) {
+            failure.compareAndSet(null, e.getCause());
+        }
+        checkFailure();
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+        try {
+            if (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                LOG.warn("Reindex worker threads did not terminate");
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void work() {
+        try (final DBBroker broker = pool.get(Optional.of(subject))) {
+            while (true) {
+                final DocumentImpl doc = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (doc == null) {
+                    if (submitted && queue.isEmpty()) {
+                        break;
+                    }
+                    continue;
+                }
+                try (final ManagedDocumentLock docLock = pool.getLockManager().acquireDocumentReadLock(doc.getURI())) {
+                    broker.reindexXMLResource(transaction, doc, mode);
+                } catch (final LockException e) {
+                    LOG.error("LockException while reindexing document '{}'. Skipping...", doc.getURI(), e);
+                }
+                progress.addDone(1);
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (final EXistException | RuntimeException e) {
+            failure.compareAndSet(null, e);
+        }
+    }
+
+    private void checkFailure() throws IOException {
+        final Throwable t = failure.get();
+        if (t != null) {
+            throw new IOException("Reindex worker failed: " + t.getMessage(), t);
+        }
+    }
+}
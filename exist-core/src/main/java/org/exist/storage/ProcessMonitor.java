@@ -38,6 +38,7 @@ import java.util.*;
 import java.util.concurrent.DelayQueue;
 import java.util.concurrent.Delayed;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.apache.commons.lang3.ArrayUtils.isEmpty;
 
@@ -360,6 +361,49 @@ public class ProcessMonitor implements BrokerPoolService {
         }
     }
 
+    /**
+     * Progress of a job which works through a number of items, e.g. the
+     * documents of a collection being reindexed. Pass it as the additional
+     * info of {@link #startJob(String, Object)} to have the progress reported
+     * with the running jobs. The counters may be updated from several threads.
+     */
+    public final static class JobProgress {
+        private final Object target;
+        private final String unit;
+        private final AtomicLong total = new AtomicLong();
+        private final AtomicLong done = new AtomicLong();
+
+        public JobProgress(final Object target, final String unit) {
+            this.target = target;
+            this.unit = unit;
+        }
+
+        public Object getTarget() {
+            return target;
+        }
+
+        public void addTotal(final long count) {
+            total.addAndGet(count);
+        }
+
+        public void addDone(final long count) {
+            done.addAndGet(count);
+        }
+
+        public long getTotal() {
+            return total.get();
+        }
+
+        public long getDone() {
+            return done.get();
+        }
+
+        @Override
+        public String toString() {
+            return target + " (" + done.get() + "/" + total.get() + " " + unit + ")";
+        }
+    }
+
     /**
      * Try to figure out the HTTP request URI by which a query was called.
      * Request tracking is not enabled unless {@link #setTrackRequestURI(boolean)}
@@ -41,6 +41,15 @@ import java.nio.ByteBuffer;
  * @author <a href="mailto:adam@evolvedbinary.com">Adam Retter</a>
  */
 public abstract class AbstractBlobLoggable extends AbstractLoggable implements BlobLoggable {
+
+    /**
+     * All entries of the Blob Store share one redo partition,
+     * as they all update the reference counts of the Blob Store.
+     * Distinct from the partitions of the paged database files,
+     * which are identified by their file id (0-255).
+     */
+    static final int REDO_PARTITION = 256;
+
     protected DBBroker broker;
     private BlobId blobId;
 
@@ -81,4 +90,9 @@ public abstract class AbstractBlobLoggable extends AbstractLoggable implements B
     public BlobId getBlobId() {
         return blobId;
     }
+
+    @Override
+    public int getRedoPartition() {
+        return REDO_PARTITION;
+    }
 }
@@ -180,6 +180,19 @@ public interface BlobStore extends Closeable {
      */
     void remove(final Txn transaction, final BlobId blobId) throws IOException;
 
+    /**
+     * Get statistics about the de-duplication of the BLOBs
+     * in the BLOB Store.
+     *
+     * The size of every blob file on disk is examined, so this
+     * should not be called frequently on a large BLOB Store.
+     *
+     * @return the statistics.
+     *
+     * @throws IOException if an error occurs whilst examining the blob files.
+     */
+    BlobStoreStatistics getStatistics() throws IOException;
+
     /**
      * Backup the Blob Store to the backup.
      *
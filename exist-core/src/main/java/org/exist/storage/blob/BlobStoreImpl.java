@@ -62,7 +62,9 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
 import java.nio.channels.SeekableByteChannel;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.util.*;
 import java.util.concurrent.*;
@@ -213,6 +215,13 @@ public class BlobStoreImpl implements BlobStore {
         LogEntryTypes.addEntryType(LOG_UPDATE_BLOB_REF_COUNT, UpdateBlobRefCountLoggable::new);
     }
 
+    /**
+     * Suffix of the temporary name under which a staged
+     * blob file is linked into the blob directory whilst
+     * it is being promoted.
+     */
+    private static final String PROMOTING_FILE_SUFFIX = ".promoting";
+
     /**
      * Length in bytes of the reference count.
      */
@@ -381,6 +390,7 @@ public class BlobStoreImpl implements BlobStore {
                      * from a previous running database instance
                      */
                     FileUtils.deleteQuietly(stagingDir);
+                    deletePromotingFiles();
                 } else {
                     // recovery... so open the existing blob store file and just validate its header
                     channel = Files.newByteChannel(persistentFile, WRITE, READ);
@@ -414,6 +424,20 @@ public class BlobStoreImpl implements BlobStore {
         }
     }
 
+    /**
+     * Deletes any blob files which were left partially promoted by
+     * a previous running database instance, see {@link #promote(Tuple3)}.
+     *
+     * @throws IOException if an error occurs whilst deleting the files.
+     */
+    private void deletePromotingFiles() throws IOException {
+        try (final DirectoryStream<Path> promotingFiles = Files.newDirectoryStream(blobDir, "*" + PROMOTING_FILE_SUFFIX)) {
+            for (final Path promotingFile : promotingFiles) {
+                Files.deleteIfExists(promotingFile);
+            }
+        }
+    }
+
     @Override
     public void close() throws IOException {
         // check the blob store is open
@@ -1079,6 +1103,61 @@ public class BlobStoreImpl implements BlobStore {
         }
     }
 
+    @Override
+    public BlobStoreStatistics getStatistics() throws IOException {
+        if (state.get() != State.OPEN) {
+            throw new IOException("Blob Store is not open!");
+        }
+
+        final Set<String> referencedFileNames = new HashSet<>();
+        long uniqueBlobs = 0;
+        long totalReferences = 0;
+        long storedBytes = 0;
+        long referencedBytes = 0;
+        for (final Map.Entry<BlobId, BlobReference> reference : references.entrySet()) {
+            // NOTE: blobs which are momentarily being staged, promoted or updated are not counted
+            final int count = reference.getValue().count.get();
+            if (count <= 0) {
+                continue;
+            }
+
+            final String fileName = bytesToHex(reference.getKey().getId());
+            final long size;
+            try {
+                size = Files.size(blobDir.resolve(fileName));
+            } catch (final NoSuchFileException e) {
+                // the blob file was concurrently removed
+                continue;
+            }
+
+            referencedFileNames.add(fileName);
+            uniqueBlobs++;
+            totalReferences += count;
+            storedBytes += size;
+            referencedBytes += count * size;
+        }
+
+        long orphanedFiles = 0;
+        long orphanedBytes = 0;
+        try (final DirectoryStream<Path> blobFiles = Files.newDirectoryStream(blobDir, Files::isRegularFile)) {
+            for (final Path blobFile : blobFiles) {
+                final String fileName = fileName(blobFile);
+                if (referencedFileNames.contains(fileName) || fileName.endsWith(PROMOTING_FILE_SUFFIX)) {
+                    continue;
+                }
+                try {
+                    orphanedBytes += Files.size(blobFile);
+                    orphanedFiles++;
+                } catch (final NoSuchFileException e) {
+                    // the blob file was concurrently removed by the vacuum
+                }
+            }
+        }
+
+        return new BlobStoreStatistics(uniqueBlobs, totalReferences, storedBytes, referencedBytes,
+                orphanedFiles, orphanedBytes);
+    }
+
     @Override
     public void backupToArchive(final RawDataBackup backup) throws IOException {
         if (state.get() != State.OPEN) {
@@ -1287,17 +1366,34 @@ public class BlobStoreImpl implements BlobStore {
     /**
      * Promotes a staged BLOB file to the BLOB store.
      *
-     * Copies a staged BLOB file in the Blob Store staging area to
-     * the live Blob Store.
+     * Hard links a staged BLOB file in the Blob Store staging area into
+     * the live Blob Store, so that the BLOB's data is not written a second
+     * time. The link is first made under a temporary name and then
+     * atomically renamed, so a blob file is never seen partially written.
+     * If the file system does not support hard links, the staged BLOB file
+     * is copied instead.
      *
-     * The staged BLOB will be removed as part of the Journalling
-     * and Recovery.
+     * Blob files are never modified once written, so it is safe for the
+     * staged BLOB file and the blob file to share their data. The staged
+     * BLOB will be removed as part of the Journalling and Recovery,
+     * which only removes its link.
      *
      * @param staged the staged BLOB.
      * @throws IOException if an error occurs whilst promoting the BLOB.
      */
     private void promote(final Tuple3<Path, Long, MessageDigest> staged) throws IOException {
-        Files.copy(staged._1, blobDir.resolve(staged._3.toHexString()), REPLACE_EXISTING);
+        final Path blobFile = blobDir.resolve(staged._3.toHexString());
+        final Path linkFile = blobDir.resolve(staged._1.getFileName().toString() + PROMOTING_FILE_SUFFIX);
+        try {
+            Files.createLink(linkFile, staged._1);
+        } catch (final UnsupportedOperationException | IOException e) {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Unable to hard link staged blob file, copying instead: {}", e.getMessage());
+            }
+            Files.copy(staged._1, blobFile, REPLACE_EXISTING);
+            return;
+        }
+        Files.move(linkFile, blobFile, ATOMIC_MOVE, REPLACE_EXISTING);
     }
 
     /**
@@ -0,0 +1,96 @@
+/*
+ * eXist-db Open Source Native XML Database
+ * Copyright (C) 2001 The eXist-db Authors
+ *
+ * info@exist-db.org
+ * http://www.exist-db.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.storage.blob;
+
+/**
+ * A snapshot of how effectively a {@link BlobStore} is
+ * de-duplicating the BLOBs added to it.
+ */
+public final class BlobStoreStatistics {
+    private final long uniqueBlobs;
+    private final long references;
+    private final long storedBytes;
+    private final long referencedBytes;
+    private final long orphanedFiles;
+    private final long orphanedBytes;
+
+    /**
+     * @param uniqueBlobs the number of blob files which are referenced.
+     * @param references the total number of references to those blob files.
+     * @param storedBytes the size of those blob files on disk.
+     * @param referencedBytes the size those blobs would take up on disk without de-duplication.
+     * @param orphanedFiles the number of blob files which are no longer referenced.
+     * @param orphanedBytes the size of the unreferenced blob files on disk.
+     */
+    public BlobStoreStatistics(final long uniqueBlobs, final long references, final long storedBytes,
+            final long referencedBytes, final long orphanedFiles, final long orphanedBytes) {
+        this.uniqueBlobs = uniqueBlobs;
+        this.references = references;
+        this.storedBytes = storedBytes;
+        this.referencedBytes = referencedBytes;
+        this.orphanedFiles = orphanedFiles;
+        this.orphanedBytes = orphanedBytes;
+    }
+
+    public long getUniqueBlobs() {
+        return uniqueBlobs;
+    }
+
+    public long getReferences() {
+        return references;
+    }
+
+    public long getStoredBytes() {
+        return storedBytes;
+    }
+
+    public long getReferencedBytes() {
+        return referencedBytes;
+    }
+
+    /**
+     * Gets the number of bytes which de-duplication has saved,
+     * i.e. the size of the duplicate references.
+     *
+     * @return the number of bytes saved.
+     */
+    public long getSavedBytes() {
+        return referencedBytes - storedBytes;
+    }
+
+    /**
+     * Gets the number of blob files on disk which no longer have any references.
+     *
+     * These are usually waiting to be removed by the vacuum once their
+     * removal has been checkpointed, or were left behind by a crash and
+     * will be removed when the Blob Store is next opened.
+     *
+     * @return the number of orphaned blob files.
+     */
+    public long getOrphanedFiles() {
+        return orphanedFiles;
+    }
+
+    public long getOrphanedBytes() {
+        return orphanedBytes;
+    }
+}
@@ -63,4 +63,9 @@ public abstract class BTAbstractLoggable extends AbstractLoggable {
     public int getLogSize() {
         return 1;
     }
+
+    @Override
+    public int getRedoPartition() {
+        return fileId & 0xFF;
+    }
 }
@@ -119,6 +119,16 @@ public class BTree extends Paged implements Lockable {
 
     protected final static int MIN_SPACE_PER_KEY = 32;
 
+    /**
+     * Maximum number of leading bytes a key in a leaf page can share with
+     * the previous key. The length is stored in a single unsigned byte.
+     */
+    protected final static int MAX_LEAF_PREFIX_LEN = 0xFF;
+
+    public static final String BTREE_SUFFIX_TRUNCATION_ATTRIBUTE = "btreeSuffixTruncation";
+    public static final String PROPERTY_BTREE_SUFFIX_TRUNCATION = "db-connection.btree-suffix-truncation";
+    public static final String DEFAULT_BTREE_SUFFIX_TRUNCATION_STRING = "false";
+
     /** Log entry type for an insert value operation */
     public final static byte LOG_INSERT_VALUE = 0x20;
     /** Log entry type for creation of a new BTree node */
@@ -161,6 +171,12 @@ public class BTree extends Paged implements Lockable {
 
     private double splitFactor = -1;
 
+    /**
+     * If true, a leaf split promotes the shortest key which still separates
+     * the two pages instead of the complete first key of the right page.
+     */
+    private boolean suffixTruncation;
+
     protected BTree(final BrokerPool pool, final byte fileId, final short fileVersion, final boolean recoveryEnabled,
             final DefaultCacheManager cacheManager) throws DBException {
         super(pool, fileVersion);
@@ -175,6 +191,7 @@ public class BTree extends Paged implements Lockable {
         } else {
             this.logManager = Optional.empty();
         }
+        this.suffixTruncation = pool.getConfiguration().getProperty(PROPERTY_BTREE_SUFFIX_TRUNCATION, false);
     }
 
     protected boolean isRecoveryEnabled() {
@@ -223,10 +240,29 @@ public class BTree extends Paged implements Lockable {
         return null;
     }
 
+    /**
+     * Returns true if the read operations of this file may be run concurrently
+     * by threads sharing a READ_LOCK on it.
+     *
+     * Files have to opt in, by default readers do not share the lock.
+     * Subclasses may only return true if their read operations neither modify
+     * state shared by the whole file, nor are followed by writes whilst the
+     * READ_LOCK is held.
+     *
+     * @return true if readers may share the lock on this file
+     */
+    protected boolean isSharedReadSafe() {
+        return false;
+    }
+
     protected void initCache() {
-        this.cache = new BTreeCache<>(FileUtils.fileName(getFile()), cacheManager.getDefaultInitialSize(), 1.5,
-            0, Cache.CacheType.BTREE);
-        cacheManager.registerCache(cache);
+        this.cache = cacheManager.createBTreeCache(FileUtils.fileName(getFile()), cacheManager.getDefaultInitialSize(), 1.5, 0);
+        cacheManager.registerCache(cache, this);
+
+        final String lockName = getLockName();
+        if (lockName != null && isSharedReadSafe() && pool.getLockManager() != null) {
+            pool.getLockManager().registerSharedReadBtree(lockName);
+        }
     }
 
     protected void setSplitFactor(final double factor) {
@@ -236,6 +272,41 @@ public class BTree extends Paged implements Lockable {
         this.splitFactor = factor;
     }
 
+    protected void setSuffixTruncation(final boolean suffixTruncation) {
+        this.suffixTruncation = suffixTruncation;
+    }
+
+    /**
+     * Returns the number of leading bytes of key which are stored as a
+     * reference to the previous key of a leaf page.
+     *
+     * @param key the key to store
+     * @param previous the key preceding it in the leaf page
+     * @return the prefix length, at most {@link #MAX_LEAF_PREFIX_LEN}
+     */
+    static int leafPrefixLen(final Value key, final Value previous) {
+        return Math.min(key.commonPrefix(previous), MAX_LEAF_PREFIX_LEN);
+    }
+
+    /**
+     * Returns the shortest prefix of right which is greater than left.
+     * Used as separator key when splitting a leaf page: all keys of the
+     * left page are smaller, all keys of the right page are greater or equal.
+     *
+     * @param left the last key of the left page
+     * @param right the first key of the right page, must be greater than left
+     * @return the separator key
+     */
+    static Value shortestSeparator(final Value left, final Value right) {
+        final int len = left.commonPrefix(right) + 1;
+        if (len >= right.getLength()) {
+            return right;
+        }
+        final byte[] data = new byte[len];
+        System.arraycopy(right.data(), right.start(), data, 0, len);
+        return new Value(data);
+    }
+
     /**
      * addValue adds a Value to the BTree and associates a pointer with it. The
      * pointer can be used for referencing any type of data, it just so happens
@@ -525,10 +596,181 @@ public class BTree extends Paged implements Lockable {
     public TreeMetrics treeStatistics() throws IOException {
         final TreeMetrics metrics = new TreeMetrics(FileUtils.fileName(getFile()));
         final BTreeNode root = getRootNode();
-        root.treeStatistics(metrics);
+        root.treeStatistics(metrics, 1);
         return metrics;
     }
 
+    /**
+     * Start a bulk load of the tree. The returned {@link BulkLoader} builds
+     * the tree bottom-up from keys supplied in ascending order: leaf pages are
+     * filled up to the given fill factor and linked, the inner pages are
+     * created level by level while the leaves are written. This avoids the
+     * descent from the root and the page splits of {@link #addValue(Value, long)}.
+     *
+     * Only an empty tree can be bulk loaded. The pages are not written
+     * to the journal, so bulk loading is not available for files with
+     * recovery enabled. Call {@link #flush()} once the load is finished.
+     *
+     * @param fillFactor the fraction of a page filled before a new page is started
+     * @return the loader
+     * @throws BTreeException if the tree is not empty or recovery is enabled
+     */
+    public BulkLoader bulkLoad(final double fillFactor) throws BTreeException {
+        if (fillFactor <= 0 || fillFactor > 1.0) {
+            throw new IllegalArgumentException("fillFactor should be <= 1 > 0");
+        }
+        if (isRecoveryEnabled()) {
+            throw new BTreeException("Bulk load is not supported with recovery enabled: " + FileUtils.fileName(getFile()));
+        }
+        if (!isEmpty()) {
+            throw new BTreeException("Bulk load requires an empty tree: " + FileUtils.fileName(getFile()));
+        }
+        return new BulkLoader(getRootNode(), fillFactor);
+    }
+
+    /**
+     * @return true if the tree consists of a single leaf page without keys
+     */
+    public boolean isEmpty() {
+        final BTreeNode root = getRootNode();
+        return root != null && root.pageHeader.getStatus() == LEAF && root.nKeys == 0;
+    }
+
+    /**
+     * Builds a tree bottom-up from keys in ascending order.
+     * See {@link BTree#bulkLoad(double)}.
+     */
+    public final class BulkLoader {
+
+        private final int maxDataLen;
+
+        /** the node currently being filled on each level, starting with the leaf level */
+        private final List<BTreeNode> levels = new ArrayList<>();
+
+        private Value lastKey = null;
+        private long keyCount = 0;
+
+        private BulkLoader(final BTreeNode firstLeaf, final double fillFactor) {
+            this.maxDataLen = (int) (fileHeader.getWorkSize() * fillFactor);
+            levels.add(firstLeaf);
+        }
+
+        /**
+         * Append a key to the tree. The key must be greater than all keys
+         * added before.
+         *
+         * @param key the key
+         * @param pointer the pointer associated with the key
+         * @throws IOException if an I/O error occurs
+         * @throws BTreeException if the key is not in ascending order
+         */
+        public void add(final Value key, final long pointer) throws IOException, BTreeException {
+            if (lastKey != null && key.compareTo(lastKey) <= 0) {
+                throw new BTreeException("Bulk loaded keys must be in ascending order: " + FileUtils.fileName(getFile()));
+            }
+            BTreeNode leaf = levels.get(0);
+            if (leaf.nKeys > 0 && leaf.getDataLen() + appendedLen(leaf, key) > maxDataLen) {
+                final BTreeNode next = createBTreeNode(null, LEAF, null, false);
+                if (next == null) {
+                    throw new IOException("Failed to create a leaf page in " + FileUtils.fileName(getFile()));
+                }
+                leaf.pageHeader.setNextPage(next.page.getPageNum());
+                final Value separator = suffixTruncation && fileHeader.getFixedKeyLen() < 0 ?
+                        shortestSeparator(lastKey, key) : key;
+                promote(1, separator, leaf, next);
+                close(leaf);
+                levels.set(0, next);
+                leaf = next;
+            }
+            leaf.insertKey(key, leaf.nKeys);
+            leaf.insertPointer(pointer, leaf.nPtrs);
+            leaf.adjustDataLen(leaf.nKeys - 1);
+            lastKey = key;
+            keyCount++;
+        }
+
+        /**
+         * Write the remaining pages and make the top-most page the root of the tree.
+         *
+         * @throws IOException if an I/O error occurs
+         */
+        public void finish() throws IOException {
+            for (final BTreeNode node : levels) {
+                close(node);
+            }
+            setRootNode(levels.get(levels.size() - 1));
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("{} bulk loaded {} keys; depth: {}", FileUtils.fileName(getFile()), keyCount, levels.size());
+            }
+        }
+
+        /**
+         * @return the number of keys added so far
+         */
+        public long getKeyCount() {
+            return keyCount;
+        }
+
+        /**
+         * Insert a separator and the page right of it into the inner page
+         * at the given level. If the inner page is full, the separator moves
+         * up to the next level and a new inner page is started.
+         */
+        private void promote(final int level, final Value separator, final BTreeNode left, final BTreeNode right)
+                throws IOException {
+            BTreeNode parent;
+            if (level == levels.size()) {
+                parent = createBTreeNode(null, BRANCH, null, false);
+                if (parent == null) {
+                    throw new IOException("Failed to create a branch page in " + FileUtils.fileName(getFile()));
+                }
+                parent.insertPointer(left.page.getPageNum(), 0);
+                left.setParent(parent);
+                levels.add(parent);
+            } else {
+                parent = levels.get(level);
+            }
+            parent.insertKey(separator, parent.nKeys);
+            parent.insertPointer(right.page.getPageNum(), parent.nPtrs);
+            if (parent.nKeys > 1 && parent.recalculateDataLen() > maxDataLen) {
+                parent.removeKey(parent.nKeys - 1);
+                parent.removePointer(parent.nPtrs - 1);
+                final BTreeNode next = createBTreeNode(null, BRANCH, null, false);
+                if (next == null) {
+                    throw new IOException("Failed to create a branch page in " + FileUtils.fileName(getFile()));
+                }
+                next.insertPointer(right.page.getPageNum(), 0);
+                promote(level + 1, separator, parent, next);
+                close(parent);
+                levels.set(level, next);
+                parent = next;
+            }
+            right.setParent(parent);
+        }
+
+        private int appendedLen(final BTreeNode leaf, final Value key) {
+            int len = 8 + key.getLength();
+            if (fileHeader.getFixedKeyLen() < 0) {
+                len += 2;
+            }
+            if (leaf.nKeys > 0) {
+                len += 1 - leafPrefixLen(key, leaf.keys[leaf.nKeys - 1]);
+            }
+            return len;
+        }
+
+        private void close(final BTreeNode node) {
+            if (node.pageHeader.getStatus() == BRANCH) {
+                node.growPrefix();
+                cache.add(node, 2);
+            } else {
+                cache.add(node);
+            }
+            node.recalculateDataLen();
+            node.saved = false;
+        }
+    }
+
     @Override
     public boolean flush() throws DBException {
         boolean flushed = cache.flush();
@@ -1093,10 +1335,7 @@ public class BTree extends Paged implements Lockable {
                 if (pageHeader.getStatus() == LEAF && i > 0) {
                     // if this is a leaf page, we use prefix compression to store the keys,
                     // so subtract the size of the prefix
-                    int prefix = keys[i].commonPrefix(keys[i - 1]);
-                    if (prefix < 0 || prefix > Byte.MAX_VALUE) {
-                        prefix = 0;
-                    }
+                    final int prefix = leafPrefixLen(keys[i], keys[i - 1]);
                     currentDataLen += keys[i].getLength() - prefix;
                 } else {
                     currentDataLen += keys[i].getLength();
@@ -1144,11 +1383,7 @@ public class BTree extends Paged implements Lockable {
         }
 
         private int calculatePrefixLen(final int idx0, final int idx1) {
-            int prefix = keys[idx0].commonPrefix(keys[idx1]);
-            if (prefix < 0 || prefix > Byte.MAX_VALUE) {
-                prefix = 0;
-            }
-            return prefix;
+            return leafPrefixLen(keys[idx0], keys[idx1]);
         }
 
         /**
@@ -1169,10 +1404,7 @@ public class BTree extends Paged implements Lockable {
                 if (pageHeader.getStatus() == LEAF && i > 0) {
                     // if this is a leaf page, we use prefix compression to store the keys,
                     // so subtract the size of the prefix
-                    int prefix = keys[i].commonPrefix(keys[i - 1]);
-                    if (prefix < 0 || prefix > Byte.MAX_VALUE) {
-                        prefix = 0;
-                    }
+                    final int prefix = leafPrefixLen(keys[i], keys[i - 1]);
                     currentLen += keys[i].getLength() - prefix;
                 } else {
                     currentLen += keys[i].getLength();
@@ -1191,10 +1423,7 @@ public class BTree extends Paged implements Lockable {
                 if (pageHeader.getStatus() == LEAF && i > 0) {
                     // if this is a leaf page, we use prefix compression to store the keys,
                     // so subtract the size of the prefix
-                    int prefix = keys[i].commonPrefix(keys[i - 1]);
-                    if (prefix < 0 || prefix > Byte.MAX_VALUE) {
-                        prefix = 0;
-                    }
+                    final int prefix = leafPrefixLen(keys[i], keys[i - 1]);
                     totalLen += keys[i].getLength() - prefix;
                 } else {
                     totalLen += keys[i].getLength();
@@ -1306,9 +1535,7 @@ public class BTree extends Paged implements Lockable {
                     // keys that can be stored on one page. Each key is stored as follows:
                     // [valSize, prefixLen, value], where prefixLen specifies the number of
                     // leading bytes the key has in common with the previous key.
-                    int prefixLen = keys[i].commonPrefix(keys[i - 1]); // determine the common prefix
-                    if (prefixLen < 0 || prefixLen > Byte.MAX_VALUE)
-                        {prefixLen = 0;}
+                    final int prefixLen = leafPrefixLen(keys[i], keys[i - 1]); // determine the common prefix
                     // store the length of the prefix
                     temp[p++] = (byte) prefixLen;
                     // copy the remaining bytes, starting at prefixLen
@@ -1535,6 +1762,9 @@ public class BTree extends Paged implements Lockable {
                     System.arraycopy(keys, leftVals.length, rightVals, 0, rightVals.length);
                     System.arraycopy(ptrs, leftPtrs.length, rightPtrs, 0, rightPtrs.length);
                     separator = keys[leftVals.length];
+                    if (suffixTruncation && leftVals.length > 0 && fileHeader.getFixedKeyLen() < 0) {
+                        separator = shortestSeparator(leftVals[leftVals.length - 1], separator);
+                    }
                     break;
 
                 default :
@@ -1697,16 +1927,34 @@ public class BTree extends Paged implements Lockable {
             return writer.toString();
         }
 
-        private void treeStatistics(final TreeMetrics metrics) throws IOException {
+        private void treeStatistics(final TreeMetrics metrics, final int level) throws IOException {
             metrics.addPage(pageHeader.getStatus());
+            metrics.addPageData(pageHeader.getStatus(), level, nKeys, getKeyLen(), getDataLen(),
+                fileHeader.getWorkSize());
             if (pageHeader.getStatus() == BRANCH) {
                 for (int i = 0; i < nPtrs; i++) {
                     final BTreeNode child = getChildNode(i);
-                    child.treeStatistics(metrics);
+                    child.treeStatistics(metrics, level + 1);
                 }
             }
         }
 
+        /**
+         * Returns the length of all keys in this node before compression.
+         *
+         * @return the uncompressed key length
+         */
+        private int getKeyLen() {
+            int len = 0;
+            for (int i = 0; i < nKeys; i++) {
+                len += keys[i].getLength();
+            }
+            if (pageHeader.getStatus() == BRANCH && prefix != null) {
+                len += nKeys * prefix.getLength();
+            }
+            return len;
+        }
+
         /**
          * Prints out a debug view of the node to the given writer.
          *
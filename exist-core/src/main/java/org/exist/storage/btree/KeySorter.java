@@ -0,0 +1,223 @@
+/*
+ * eXist-db Open Source Native XML Database
+ * Copyright (C) 2001 The eXist-db Authors
+ *
+ * info@exist-db.org
+ * http://www.exist-db.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.storage.btree;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.exist.util.io.TemporaryFileManager;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Sorts key/pointer pairs for a {@link BTree.BulkLoader}. Pairs are
+ * collected in memory; once the buffer is full it is sorted and written to
+ * a temporary file as a run. {@link #drainTo(BTree.BulkLoader)} merges the
+ * runs and passes the keys to the loader in ascending order.
+ *
+ * If a key is added more than once, the pointer added last wins, like
+ * with {@link BTree#addValue(Value, long)}.
+ *
+ * Instances are not thread-safe.
+ */
+public class KeySorter implements AutoCloseable {
+
+    private final static Logger LOG = LogManager.getLogger(KeySorter.class);
+
+    /** default number of entries sorted in memory before a run is written to disk */
+    public final static int DEFAULT_RUN_SIZE = 256 * 1024;
+
+    private final static Comparator<Entry> ENTRY_ORDER = (e1, e2) -> e1.key.compareTo(e2.key);
+
+    private final int runSize;
+    private final List<Entry> buffer;
+    private final List<Path> runs = new ArrayList<>();
+    private long count = 0;
+
+    public KeySorter() {
+        this(DEFAULT_RUN_SIZE);
+    }
+
+    public KeySorter(final int runSize) {
+        this.runSize = runSize;
+        this.buffer = new ArrayList<>(Math.min(runSize, 1024));
+    }
+
+    public void add(final Value key, final long pointer) throws IOException {
+        buffer.add(new Entry(key, pointer));
+        count++;
+        if (buffer.size() >= runSize) {
+            writeRun();
+        }
+    }
+
+    /**
+     * @return the number of pairs added, including duplicate keys
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Pass all keys in ascending order to the loader. Does not call
+     * {@link BTree.BulkLoader#finish()}.
+     *
+     * @param loader the bulk loader of the target tree
+     * @throws IOException if an I/O error occurs
+     * @throws BTreeException if an error occurs with the tree
+     */
+    public void drainTo(final BTree.BulkLoader loader) throws IOException, BTreeException {
+        if (runs.isEmpty()) {
+            sortBuffer();
+            for (final Entry entry : buffer) {
+                loader.add(entry.key, entry.pointer);
+            }
+            buffer.clear();
+            return;
+        }
+        if (!buffer.isEmpty()) {
+            writeRun();
+        }
+
+        // the run number breaks ties, so for equal keys the one from the latest run comes last
+        final PriorityQueue<RunReader> queue = new PriorityQueue<>(runs.size(),
+                Comparator.<RunReader, Entry>comparing(r -> r.current, ENTRY_ORDER).thenComparingInt(r -> r.run));
+        final List<RunReader> readers = new ArrayList<>(runs.size());
+        try {
+            for (int i = 0; i < runs.size(); i++) {
+                final RunReader reader = new RunReader(runs.get(i), i);
+                readers.add(reader);
+                if (reader.next()) {
+                    queue.add(reader);
+                }
+            }
+            Entry pending = null;
+            while (!queue.isEmpty()) {
+                final RunReader reader = queue.poll();
+                final Entry entry = reader.current;
+                if (pending != null && pending.key.compareTo(entry.key) != 0) {
+                    loader.add(pending.key, pending.pointer);
+                }
+                pending = entry;
+                if (reader.next()) {
+                    queue.add(reader);
+                }
+            }
+            if (pending != null) {
+                loader.add(pending.key, pending.pointer);
+            }
+        } finally {
+            for (final RunReader reader : readers) {
+                reader.close();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        buffer.clear();
+        final TemporaryFileManager temporaryFileManager = TemporaryFileManager.getInstance();
+        for (final Path run : runs) {
+            temporaryFileManager.returnTemporaryFile(run);
+        }
+        runs.clear();
+    }
+
+    /**
+     * Sort the buffer and remove duplicate keys, keeping the entry added last.
+     */
+    private void sortBuffer() {
+        // List.sort is stable, so equal keys stay in the order they were added
+        buffer.sort(ENTRY_ORDER);
+        int last = -1;
+        for (final Entry entry : buffer) {
+            if (last >= 0 && buffer.get(last).key.compareTo(entry.key) == 0) {
+                buffer.set(last, entry);
+            } else {
+                buffer.set(++last, entry);
+            }
+        }
+        buffer.subList(last + 1, buffer.size()).clear();
+    }
+
+    private void writeRun() throws IOException {
+        sortBuffer();
+        final Path run = TemporaryFileManager.getInstance().getTemporaryFile();
+        try (final DataOutputStream os = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run), 65536))) {
+            for (final Entry entry : buffer) {
+                os.writeShort(entry.key.getLength());
+                os.write(entry.key.data(), entry.key.start(), entry.key.getLength());
+                os.writeLong(entry.pointer);
+            }
+        }
+        runs.add(run);
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Wrote run {} with {} keys", runs.size(), buffer.size());
+        }
+        buffer.clear();
+    }
+
+    private static class Entry {
+        final Value key;
+        final long pointer;
+
+        Entry(final Value key, final long pointer) {
+            this.key = key;
+            this.pointer = pointer;
+        }
+    }
+
+    private static class RunReader implements Closeable {
+        final int run;
+        final DataInputStream is;
+        Entry current = null;
+
+        RunReader(final Path file, final int run) throws IOException {
+            this.run = run;
+            this.is = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 65536));
+        }
+
+        boolean next() throws IOException {
+            final int len;
+            try {
+                len = is.readUnsignedShort();
+            } catch (final EOFException e) {
+                current = null;
+                return false;
+            }
+            final byte[] data = new byte[len];
+            is.readFully(data);
+            current = new Entry(new Value(data), is.readLong());
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            is.close();
+        }
+    }
+}
@@ -77,6 +77,7 @@ import org.apache.logging.log4j.Logger;
 import org.exist.storage.BrokerPool;
 import org.exist.storage.journal.Lsn;
 import org.exist.util.ByteConversion;
+import org.exist.util.Configuration;
 import org.exist.util.FileUtils;
 import org.exist.xquery.Constants;
 
@@ -85,12 +86,17 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.io.PrintStream;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
 import java.nio.channels.FileChannel;
 import java.nio.channels.FileLock;
 import java.nio.channels.NonWritableChannelException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  *  Paged is a paged file foundation that is used by the BTree class and
@@ -121,6 +127,13 @@ public abstract class Paged implements AutoCloseable {
     public static final int OFFSET_RECORD_COUNT = OFFSET_MAX_KEY_SIZE + LENGTH_MAX_KEY_SIZE; //43
     public static final int OFFSET_REMAINDER = OFFSET_RECORD_COUNT + LENGTH_RECORD_COUNT; //51
 
+    public static final String CONFIGURATION_PAGE_IO_ELEMENT_NAME = "page-io";
+    public static final String CONFIGURATION_PAGE_IO_FILE_ELEMENT_NAME = "file";
+    public static final String PAGE_IO_MODE_ATTRIBUTE = "mode";
+    public static final String PAGE_IO_FILE_NAME_ATTRIBUTE = "name";
+    public static final String PROPERTY_PAGE_IO_MODE = "db-connection.page-io.mode";
+    public static final String PROPERTY_PAGE_IO_FILES = "db-connection.page-io.files";
+
     protected final static Logger LOG = LogManager.getLogger(Paged.class);
 
     protected final static byte DELETED = 127;
@@ -134,13 +147,35 @@ public abstract class Paged implements AutoCloseable {
     private final byte[] tempPageData;
     private final byte[] tempHeaderData;
 
+    /**
+     * Guards the file pointer and the shared page buffers, so that pages
+     * may be read by several threads holding a shared lock on the file.
+     */
+    private final Object pageIOLock = new Object();
+
+    private final Configuration configuration;
+
+    /**
+     * The number of times that a positional read or write is retried
+     * after the channel was closed by the interrupt of a thread.
+     */
+    private static final int MAX_CHANNEL_REOPEN_ATTEMPTS = 3;
+
     private RandomAccessFile raf;
+    private volatile FileChannel channel;
+    private boolean closed = false;
+    private PageIO pageIO = PageIO.RANDOM_ACCESS;
     private Path file;
     private boolean readOnly = false;
     private boolean fileIsNew = false;
+
+    /** number of pages read from disk, and the time spent reading them */
+    private final LongAdder pageReads = new LongAdder();
+    private final LongAdder pageReadNanos = new LongAdder();
 	
     public Paged(final BrokerPool pool, final short fileVersion) {
         this.fileVersion = fileVersion;
+        this.configuration = pool.getConfiguration();
         this.fileHeader = createFileHeader(pool.getPageSize());
         this.tempPageData = new byte[fileHeader.pageSize];
         this.tempHeaderData = new byte[fileHeader.pageHeaderSize];
@@ -158,6 +193,34 @@ public abstract class Paged implements AutoCloseable {
         return readOnly;
     }
 
+    /**
+     * Get the strategy used for reading and writing pages of this file.
+     *
+     * @return the page I/O strategy
+     */
+    public final PageIO getPageIO() {
+        return pageIO;
+    }
+
+    /**
+     * Get the number of pages read from disk since the file was opened.
+     *
+     * @return the number of page reads
+     */
+    public final long getPageReads() {
+        return pageReads.sum();
+    }
+
+    /**
+     * Get the time spent reading pages from disk since the file was opened,
+     * i.e. the total penalty of page cache misses on this file.
+     *
+     * @return the time in nanoseconds
+     */
+    public final long getPageReadNanos() {
+        return pageReadNanos.sum();
+    }
+
     /**
      * Close the underlying files.
      *
@@ -166,7 +229,10 @@ public abstract class Paged implements AutoCloseable {
     @Override
     public void close() throws DBException {
         try {
-            raf.close();
+            synchronized (pageIOLock) {
+                closed = true;
+                raf.close();
+            }
         } catch (final IOException e) {
             throw new DBException("An error occurred whilst closing the database file '"
                     + file == null ? "null" : FileUtils.fileName(file) + "': " + e.getMessage());
@@ -242,8 +308,19 @@ public abstract class Paged implements AutoCloseable {
      * @throws IOException if an I/O error occurs
      */
     public void backupToStream(final OutputStream os) throws IOException {
-        raf.seek(0);
         final byte[] buf = new byte[4096];
+        if (pageIO == PageIO.POSITIONAL) {
+            final ByteBuffer buffer = ByteBuffer.wrap(buf);
+            long pos = 0;
+            int len;
+            while ((len = withChannel(buffer, pos, FileChannel::read)) > 0) {
+                os.write(buf, 0, len);
+                pos += len;
+                buffer.clear();
+            }
+            return;
+        }
+        raf.seek(0);
         int len;
         while ((len = raf.read(buf)) > 0) {
             os.write(buf, 0, len);
@@ -396,6 +473,7 @@ public abstract class Paged implements AutoCloseable {
      */
     protected final void setFile(final Path file) throws DBException {
         this.file = file;
+        this.pageIO = configuredPageIO(FileUtils.fileName(file));
         fileIsNew = !Files.exists(file);
         try {
             if ((!Files.exists(file)) || Files.isWritable(file)) {
@@ -417,11 +495,136 @@ public abstract class Paged implements AutoCloseable {
                 readOnly = true;
                 raf = new RandomAccessFile(file.toFile(), "r");
             }
+            channel = raf.getChannel();
         } catch (final IOException e) {
             LOG.warn("An exception occurred while opening database file {}: {}", file.toAbsolutePath().toString(), e.getMessage(), e);
         }
     }
 
+    /**
+     * Determines the page I/O strategy for a database file from the
+     * {@code page-io} configuration of the {@code db-connection}.
+     *
+     * @param fileName the name of the database file, e.g. {@code dom.dbx}
+     *
+     * @return the configured strategy, or {@link PageIO#RANDOM_ACCESS} if nothing is configured
+     */
+    private PageIO configuredPageIO(final String fileName) {
+        if (configuration == null) {
+            return PageIO.RANDOM_ACCESS;
+        }
+        @SuppressWarnings("unchecked")
+        final Map<String, PageIO> files = (Map<String, PageIO>) configuration.getProperty(PROPERTY_PAGE_IO_FILES);
+        if (files != null && files.containsKey(fileName)) {
+            return files.get(fileName);
+        }
+        return configuration.getProperty(PROPERTY_PAGE_IO_MODE, PageIO.RANDOM_ACCESS);
+    }
+
+    /**
+     * Reads {@code dst.length} bytes from the file at the given position,
+     * without moving the file pointer. Used by {@link PageIO#POSITIONAL}.
+     */
+    private void readFully(final byte[] dst, final long position) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.wrap(dst);
+        long pos = position;
+        while (buffer.hasRemaining()) {
+            final int read = withChannel(buffer, pos, FileChannel::read);
+            if (read < 0) {
+                // beyond the end of the file, behave like RandomAccessFile and leave the remainder as-is
+                break;
+            }
+            pos += read;
+        }
+    }
+
+    /**
+     * Writes all of {@code src} to the file at the given position,
+     * without moving the file pointer. Used by {@link PageIO#POSITIONAL}.
+     */
+    private void writeFully(final byte[] src, final long position) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.wrap(src);
+        long pos = position;
+        while (buffer.hasRemaining()) {
+            pos += withChannel(buffer, pos, FileChannel::write);
+        }
+    }
+
+    /**
+     * Positional read or write of a buffer on the file channel.
+     */
+    @FunctionalInterface
+    private interface ChannelIO {
+        int apply(FileChannel channel, ByteBuffer buffer, long position) throws IOException;
+    }
+
+    /**
+     * Performs a positional read or write on the file channel.
+     *
+     * A FileChannel is interruptible, if any thread is interrupted
+     * during I/O (e.g. a query is killed) the channel is closed for
+     * all threads. In that case the channel is reopened and the I/O
+     * is retried, the interrupt status of the thread is restored afterwards.
+     * As positional I/O does not move a file pointer, retrying
+     * a partially completed read or write is safe.
+     */
+    private int withChannel(final ByteBuffer buffer, final long position, final ChannelIO io) throws IOException {
+        FileChannel current = channel;
+        boolean interrupted = false;
+        try {
+            for (int attempt = 0; ; attempt++) {
+                try {
+                    return io.apply(current, buffer, position);
+                } catch (final ClosedChannelException e) {
+                    // NOTE: also covers ClosedByInterruptException and AsynchronousCloseException
+                    if (attempt >= MAX_CHANNEL_REOPEN_ATTEMPTS) {
+                        throw e;
+                    }
+                    // clear the interrupt status, otherwise the retry would immediately close the channel again
+                    interrupted |= Thread.interrupted();
+                    current = reopenChannel(current, e);
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Reopens the file after its channel has been closed,
+     * unless another thread has already done so.
+     *
+     * @param closedChannel the channel which was found to be closed
+     * @param cause the exception which reported the closed channel
+     *
+     * @return the open channel
+     *
+     * @throws IOException if the file has been closed by {@link #close()}, or cannot be reopened
+     */
+    private FileChannel reopenChannel(final FileChannel closedChannel, final ClosedChannelException cause) throws IOException {
+        synchronized (pageIOLock) {
+            if (closed) {
+                throw cause;
+            }
+            if (channel != closedChannel && channel.isOpen()) {
+                return channel;
+            }
+
+            LOG.warn("Channel of database file {} was closed by an interrupted thread, reopening it", FileUtils.fileName(file));
+            final RandomAccessFile reopened = new RandomAccessFile(file.toFile(), readOnly ? "r" : "rw");
+            final FileChannel reopenedChannel = reopened.getChannel();
+            if (!readOnly && reopenedChannel.tryLock() == null) {
+                reopened.close();
+                throw new IOException("Unable to lock database file " + FileUtils.fileName(file) + " after reopening it");
+            }
+            raf = reopened;
+            channel = reopenedChannel;
+            return reopenedChannel;
+        }
+    }
+
     /**
      * Unlinks a set of pages starting at the specified page.
      *
@@ -711,8 +914,12 @@ public abstract class Paged implements AutoCloseable {
         }
 
         public final synchronized void read() throws IOException {
-            raf.seek(0);
-            raf.read(buf);
+            if (pageIO == PageIO.POSITIONAL) {
+                readFully(buf, 0);
+            } else {
+                raf.seek(0);
+                raf.read(buf);
+            }
             read(buf);
             calculateWorkSize();
             dirty = false;
@@ -848,9 +1055,13 @@ public abstract class Paged implements AutoCloseable {
         }
 
         public final synchronized void write() throws IOException {
-            raf.seek(0);
             write(buf);
-            raf.write(buf);
+            if (pageIO == PageIO.POSITIONAL) {
+                writeFully(buf, 0);
+            } else {
+                raf.seek(0);
+                raf.write(buf);
+            }
             dirty = false;
         }
     }
@@ -870,7 +1081,7 @@ public abstract class Paged implements AutoCloseable {
         /**  This page number */
         private long pageNum;
 
-        private int refCount = 0;
+        private final AtomicInteger refCount = new AtomicInteger();
 
         public Page() {
             this.header = createPageHeader();
@@ -892,7 +1103,7 @@ public abstract class Paged implements AutoCloseable {
         }
 
         public void decRefCount() {
-            refCount--;
+            refCount.decrementAndGet();
         }
 
         /**
@@ -931,7 +1142,7 @@ public abstract class Paged implements AutoCloseable {
         }
 
         public int getRefCount() {
-            return refCount;
+            return refCount.get();
         }
 
         public int getDataPos() {
@@ -939,21 +1150,60 @@ public abstract class Paged implements AutoCloseable {
         }
 
         public void incRefCount() {
-            refCount++;
+            refCount.incrementAndGet();
         }
 
         public byte[] read() throws IOException {
+            final long start = System.nanoTime();
             try {
-                if (raf.getFilePointer() != offset) {
-                    raf.seek(offset);
+                if (pageIO == PageIO.POSITIONAL) {
+                    return readPositional();
                 }
-                Arrays.fill(tempHeaderData, (byte)0);
-                raf.read(tempHeaderData);
+                return readRandomAccess();
+            } finally {
+                pageReadNanos.add(System.nanoTime() - start);
+                pageReads.increment();
+            }
+        }
+
+        private byte[] readRandomAccess() throws IOException {
+            try {
+                synchronized (pageIOLock) {
+                    if (raf.getFilePointer() != offset) {
+                        raf.seek(offset);
+                    }
+                    Arrays.fill(tempHeaderData, (byte)0);
+                    raf.read(tempHeaderData);
+                    // Read in the header
+                    header.read(tempHeaderData, 0);
+                    // Read the working data
+                    final byte[] workData = new byte[header.dataLen];
+                    raf.read(workData);
+                    return workData;
+                }
+            } catch(final Exception e) {
+                LOG.warn("error while reading page: {}", getPageInfo(), e);
+                throw new IOException(e.getMessage());
+            }
+        }
+
+        /**
+         * Reads the page using positional reads on the file channel.
+         *
+         * Unlike {@link #read()} in {@link PageIO#RANDOM_ACCESS} mode,
+         * this neither moves the shared file pointer nor uses
+         * the shared header buffer, so readers of different pages
+         * do not contend with each other.
+         */
+        private byte[] readPositional() throws IOException {
+            try {
+                final byte[] headerData = new byte[fileHeader.pageHeaderSize];
+                readFully(headerData, offset);
                 // Read in the header
-                header.read(tempHeaderData, 0);
+                header.read(headerData, 0);
                 // Read the working data
                 final byte[] workData = new byte[header.dataLen];
-                raf.read(workData);
+                readFully(workData, offset + fileHeader.pageHeaderSize);
                 return workData;
             } catch(final Exception e) {
                 LOG.warn("error while reading page: {}", getPageInfo(), e);
@@ -970,7 +1220,13 @@ public abstract class Paged implements AutoCloseable {
             write(null);
         }
 
-        private final void write(final byte[] data) throws IOException {
+        private void write(final byte[] data) throws IOException {
+            synchronized (pageIOLock) {
+                writeLocked(data);
+            }
+        }
+
+        private void writeLocked(final byte[] data) throws IOException {
             if(data == null) {
                 // Removed page: fill with 0
                 Arrays.fill(tempPageData, (byte)0);
@@ -986,6 +1242,10 @@ public abstract class Paged implements AutoCloseable {
                     System.arraycopy(data, 0, tempPageData, fileHeader.pageHeaderSize, data.length);
                 }
             }
+            if (pageIO == PageIO.POSITIONAL) {
+                writeFully(tempPageData, offset);
+                return;
+            }
             if (raf.getFilePointer() != offset) {
                 raf.seek(offset);
             }
@@ -1009,15 +1269,66 @@ public abstract class Paged implements AutoCloseable {
         }
 
         public void dumpPage() throws IOException {
-            if (raf.getFilePointer() != offset) {
-                raf.seek(offset);
-            }
             final byte[] data = new byte[fileHeader.pageSize];
-            raf.read(data);
+            if (pageIO == PageIO.POSITIONAL) {
+                readFully(data, offset);
+            } else {
+                synchronized (pageIOLock) {
+                    if (raf.getFilePointer() != offset) {
+                        raf.seek(offset);
+                    }
+                    raf.read(data);
+                }
+            }
             LOG.debug("Contents of page {}: {}", pageNum, hexDump(data));
         }
     }
 
+    /**
+     * Strategy used to transfer pages between a {@link Paged} file and memory.
+     */
+    public enum PageIO {
+        /**
+         * Seek and read/write through a {@link RandomAccessFile}.
+         * All page I/O on the file is serialised on its file pointer.
+         */
+        RANDOM_ACCESS("random-access"),
+
+        /**
+         * Positional reads/writes through a {@link FileChannel}.
+         * Concurrent reads of different pages do not contend on a file pointer.
+         */
+        POSITIONAL("positional");
+
+        private final String id;
+
+        PageIO(final String id) {
+            this.id = id;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        /**
+         * Get the page I/O strategy from its configuration id.
+         *
+         * @param id the id as used in conf.xml, e.g. {@code positional}
+         *
+         * @return the page I/O strategy
+         *
+         * @throws IllegalArgumentException if there is no strategy with the id
+         */
+        public static PageIO fromId(final String id) {
+            for (final PageIO pageIO : values()) {
+                if (pageIO.id.equalsIgnoreCase(id)) {
+                    return pageIO;
+                }
+            }
+            throw new IllegalArgumentException("Unknown page-io mode: " + id);
+        }
+    }
+
     public static abstract class PageHeader {
 
         public static final int LENGTH_PAGE_STATUS = 1; //sizeof byte
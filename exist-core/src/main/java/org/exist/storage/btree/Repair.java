@@ -37,7 +37,7 @@ import org.exist.util.DatabaseConfigurationException;
 import org.exist.util.FileUtils;
 
 import java.util.Optional;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 
 /**
@@ -79,7 +79,7 @@ public class Repair {
             }
 
             final LockManager lockManager = broker.getBrokerPool().getLockManager();
-            try(final ManagedLock<ReentrantLock> btreeLock = lockManager.acquireBtreeWriteLock(btree.getLockName())) {
+            try(final ManagedLock<ReentrantReadWriteLock> btreeLock = lockManager.acquireBtreeWriteLock(btree.getLockName())) {
                 System.console().printf("Rebuilding %15s ...", FileUtils.fileName(btree.getFile()));
                 btree.rebuild();
                 System.out.println("Done");
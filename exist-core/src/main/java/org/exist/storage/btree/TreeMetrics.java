@@ -25,7 +25,10 @@ import java.io.PrintWriter;
 import java.io.StringWriter;
 
 /**
- *
+ * Collects page and key statistics of a {@link BTree}: the number of pages,
+ * the depth of the tree, the fill factor of the pages and the space saved
+ * by key compression. Used to compare the effect of different page formats,
+ * e.g. with and without separator suffix truncation, on the same data.
  */
 public class TreeMetrics {
 
@@ -34,6 +37,16 @@ public class TreeMetrics {
     private int dataPages = 0;
     private String btreeName;
 
+    private int depth = 0;
+    private long leafKeys = 0;
+    private long innerKeys = 0;
+    private long leafKeyBytes = 0;
+    private long innerKeyBytes = 0;
+    private long leafDataBytes = 0;
+    private long innerDataBytes = 0;
+    private long leafCapacity = 0;
+    private long innerCapacity = 0;
+
     public TreeMetrics(String name) {
         this.btreeName = name;
     }
@@ -57,11 +70,98 @@ public class TreeMetrics {
         ++dataPages;
     }
 
+    /**
+     * Record the contents of a page.
+     *
+     * @param status the page type, {@link BTree#LEAF} or {@link BTree#BRANCH}
+     * @param level the level of the page, the root being at level 1
+     * @param keys the number of keys stored in the page
+     * @param keyBytes the length of the keys before compression
+     * @param dataBytes the number of bytes used in the page
+     * @param capacity the number of bytes available in the page
+     */
+    public void addPageData(int status, int level, int keys, int keyBytes, int dataBytes, int capacity) {
+        depth = Math.max(depth, level);
+        if (status == BTree.BRANCH) {
+            innerKeys += keys;
+            innerKeyBytes += keyBytes;
+            innerDataBytes += dataBytes;
+            innerCapacity += capacity;
+        } else {
+            leafKeys += keys;
+            leafKeyBytes += keyBytes;
+            leafDataBytes += dataBytes;
+            leafCapacity += capacity;
+        }
+    }
+
+    public int getLeafPages() {
+        return leafPages;
+    }
+
+    public int getInnerPages() {
+        return innerPages;
+    }
+
+    public int getDataPages() {
+        return dataPages;
+    }
+
+    /**
+     * @return the number of levels of the tree, 1 if the root is a leaf
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    public long getLeafKeys() {
+        return leafKeys;
+    }
+
+    public long getInnerKeys() {
+        return innerKeys;
+    }
+
+    public long getLeafKeyBytes() {
+        return leafKeyBytes;
+    }
+
+    public long getInnerKeyBytes() {
+        return innerKeyBytes;
+    }
+
+    /**
+     * @return the ratio of used to available bytes in the leaf pages
+     */
+    public double getLeafFillFactor() {
+        return leafCapacity == 0 ? 0.0 : (double) leafDataBytes / leafCapacity;
+    }
+
+    /**
+     * @return the ratio of used to available bytes in the inner pages
+     */
+    public double getInnerFillFactor() {
+        return innerCapacity == 0 ? 0.0 : (double) innerDataBytes / innerCapacity;
+    }
+
+    /**
+     * @return the average number of keys per inner page
+     */
+    public double getFanOut() {
+        return innerPages == 0 ? 0.0 : (double) (innerKeys + innerPages) / innerPages;
+    }
+
     public void print(PrintWriter writer) {
         writer.println("BTree tree metrics for " + btreeName);
         writer.println("# inner pages: " + innerPages);
         writer.println("# leaf pages: " + leafPages);
         writer.println("# data pages: " + dataPages);
+        writer.println("depth: " + depth);
+        writer.println("# leaf keys: " + leafKeys + " (" + leafKeyBytes + " bytes uncompressed)");
+        writer.println("# inner keys: " + innerKeys + " (" + innerKeyBytes + " bytes uncompressed)");
+        writer.printf("leaf fill factor: %.3f%n", getLeafFillFactor());
+        writer.printf("inner fill factor: %.3f%n", getInnerFillFactor());
+        writer.printf("fan-out: %.1f%n", getFanOut());
     }
 
     public void toLogger() {
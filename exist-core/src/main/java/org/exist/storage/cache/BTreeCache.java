@@ -22,7 +22,7 @@
 package org.exist.storage.cache;
 
 import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
-import net.jcip.annotations.NotThreadSafe;
+import net.jcip.annotations.ThreadSafe;
 
 import java.util.Iterator;
 
@@ -30,7 +30,7 @@ import java.util.Iterator;
  * This cache implementation always tries to keep the inner btree pages in
  * cache, while the leaf pages can be removed.
  */
-@NotThreadSafe
+@ThreadSafe
 public class BTreeCache<T extends BTreeCacheable> extends LRUCache<T> {
 
     public BTreeCache(final String name, final int size, final double growthFactor, final double growthThreshold, final CacheType type) {
@@ -38,12 +38,12 @@ public class BTreeCache<T extends BTreeCacheable> extends LRUCache<T> {
     }
 
     @Override
-    public void add(final T item, final int initialRefCount) {
+    public synchronized void add(final T item, final int initialRefCount) {
         add(item);
     }
 
     @Override
-    public void add(final T item) {
+    public synchronized void add(final T item) {
         map.put(item.getKey(), item);
         if (map.size() >= max + 1) {
             removeNext(item);
@@ -61,6 +61,7 @@ public class BTreeCache<T extends BTreeCacheable> extends LRUCache<T> {
                     (mustRemoveInner || !cached.isInnerPage())) {
                 cached.sync(true);
                 map.remove(next.getLongKey());
+                evictions++;
                 removed = true;
             } else {
                 if (!iterator.hasNext()) {
@@ -166,6 +166,25 @@ public interface Cache<T extends Cacheable> {
      */
     int getFails();
 
+    /**
+     * Get the number of items which have been replaced
+     * to make room for other items.
+     *
+     * @return number of items replaced by the cache
+     */
+    long getEvictions();
+
+    /**
+     * Get the number of times a thread had to wait for a lock
+     * held by another thread. Caches which are not thread-safe
+     * rely on the locks of their owner and always return 0.
+     *
+     * @return number of contended lock acquisitions
+     */
+    default long getContention() {
+        return 0;
+    }
+
     /**
      * Get the load factor if the cache
      *
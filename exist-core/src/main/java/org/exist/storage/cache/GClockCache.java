@@ -60,6 +60,7 @@ public class GClockCache<T extends Cacheable> implements Cache<T> {
 	protected int count = 0;
 	protected int used = 0;
     private int hitsOld = 0;
+	protected long evictions = 0;
 	protected CacheManager cacheManager = null;
 
     public GClockCache(final String name, final Class<T> cacheableClazz, final int size, final double growthFactor, final double growthThreshold, final CacheType type) {
@@ -194,6 +195,7 @@ public class GClockCache<T extends Cacheable> implements Cache<T> {
                     }
 					map.remove(old.getKey());
 					old.sync(true);
+					evictions++;
 				} else {
 					used++;
 				}
@@ -237,6 +239,11 @@ public class GClockCache<T extends Cacheable> implements Cache<T> {
 		return accounting.getMisses();
 	}
 
+    @Override
+    public long getEvictions() {
+        return evictions;
+    }
+
     public int getThrashing() {
         return accounting.getThrashing();
     }
@@ -111,6 +111,7 @@ public class LRDCache<T extends Cacheable> extends GClockCache<T> {
 		if (old != null) {
 			map.remove(old.getKey());
 			old.sync(true);
+			evictions++;
 		} else {
 			used++;
 		}
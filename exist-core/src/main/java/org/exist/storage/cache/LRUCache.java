@@ -22,7 +22,7 @@
 package org.exist.storage.cache;
 
 import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
-import net.jcip.annotations.NotThreadSafe;
+import net.jcip.annotations.ThreadSafe;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.exist.storage.CacheManager;
@@ -36,10 +36,13 @@ import java.util.Iterator;
  * {@link org.exist.util.hashtable.SequencedLongHashMap}. Contrary
  * to the other {@link org.exist.storage.cache.Cache} implementations,
  * LRUCache ignores reference counts or timestamps.
+ *
+ * All operations synchronize on the cache, so that the readers of a
+ * file holding a shared lock may use the cache concurrently.
  * 
  * @author wolf
  */
-@NotThreadSafe
+@ThreadSafe
 public class LRUCache<T extends Cacheable> implements Cache<T> {
     private final static Logger LOG = LogManager.getLogger(LRUCache.class);
 
@@ -50,6 +53,7 @@ public class LRUCache<T extends Cacheable> implements Cache<T> {
 	protected SequencedLongHashMap<T> map;
     private final CacheType type;
     private int hitsOld = -1;
+    protected long evictions = 0;
     protected CacheManager cacheManager = null;
 
     public LRUCache(final String name, final int size, final double growthFactor, final double growthThreshold, final CacheType type) {
@@ -68,7 +72,7 @@ public class LRUCache<T extends Cacheable> implements Cache<T> {
 	}
 
 	@Override
-	public void add(final T item, final int initialRefCount) {
+	public synchronized void add(final T item, final int initialRefCount) {
 		_add(item);
 	}
 
@@ -78,7 +82,7 @@ public class LRUCache<T extends Cacheable> implements Cache<T> {
     }
 
     @Override
-	public void add(final T item) {
+	public synchronized void add(final T item) {
         _add(item);
 	}
 
@@ -94,12 +98,12 @@ public class LRUCache<T extends Cacheable> implements Cache<T> {
     }
 
 	@Override
-	public T get(final T item) {
+	public synchronized T get(final T item) {
 		return get(item.getKey());
 	}
 
 	@Override
-	public T get(final long key) {
+	public synchronized T get(final long key) {
 		final T obj = map.get(key);
 		if(obj == null) {
 		    accounting.missesIncrement();
@@ -110,12 +114,12 @@ public class LRUCache<T extends Cacheable> implements Cache<T> {
 	}
 
 	@Override
-	public void remove(final T item) {
+	public synchronized void remove(final T item) {
 		map.remove(item.getKey());
 	}
 
 	@Override
-	public boolean flush() {
+	public synchronized boolean flush() {
 		boolean flushed = false;
         final Iterator<T> iterator = map.valueIterator();
         while (iterator.hasNext()) {
@@ -129,7 +133,7 @@ public class LRUCache<T extends Cacheable> implements Cache<T> {
 
 	
     @Override
-    public boolean hasDirtyItems() {
+    public synchronized boolean hasDirtyItems() {
         final Iterator<T> iterator = map.valueIterator();
         while (iterator.hasNext()) {
             final T cacheable = iterator.next();
@@ -146,7 +150,7 @@ public class LRUCache<T extends Cacheable> implements Cache<T> {
 	}
 
 	@Override
-	public int getUsedBuffers() {
+	public synchronized int getUsedBuffers() {
 		return map.size();
 	}
 
@@ -160,6 +164,11 @@ public class LRUCache<T extends Cacheable> implements Cache<T> {
 		return accounting.getMisses();
 	}
  
+    @Override
+    public long getEvictions() {
+        return evictions;
+    }
+
     public int getThrashing() {
         return accounting.getThrashing();
     }
@@ -173,6 +182,7 @@ public class LRUCache<T extends Cacheable> implements Cache<T> {
             if(cached.allowUnload() && cached.getKey() != item.getKey()) {
                 cached.sync(true);
                 map.remove(next.getLongKey());
+                evictions++;
                 removed = true;
             } else {
                 if (!iterator.hasNext()) {
@@ -201,7 +211,7 @@ public class LRUCache<T extends Cacheable> implements Cache<T> {
     }
     
     @Override
-    public void resize(final int newSize) {
+    public synchronized void resize(final int newSize) {
         if (newSize < max) {
             shrink(newSize);
         } else {
@@ -223,7 +233,7 @@ public class LRUCache<T extends Cacheable> implements Cache<T> {
     }
 
     @Override
-    public int getLoad() {
+    public synchronized int getLoad() {
         if (hitsOld == 0) {
             hitsOld = accounting.getHits();
             return Integer.MAX_VALUE;
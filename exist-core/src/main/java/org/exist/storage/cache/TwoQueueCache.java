@@ -0,0 +1,541 @@
+/*
+ * eXist-db Open Source Native XML Database
+ * Copyright (C) 2001 The eXist-db Authors
+ *
+ * info@exist-db.org
+ * http://www.exist-db.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.storage.cache;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.jcip.annotations.GuardedBy;
+import net.jcip.annotations.ThreadSafe;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.exist.storage.CacheManager;
+import org.exist.util.hashtable.SequencedLongHashMap;
+
+import javax.annotation.Nullable;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A thread-safe, scan resistant cache implementing the "2Q" replacement
+ * policy with a probationary and a protected queue.
+ *
+ * New items enter the probationary queue and are promoted to the protected
+ * queue when they are hit while on probation. The keys of items replaced
+ * from the probationary queue are remembered for a while, so that a page
+ * which is loaded again soon after goes straight to the protected queue.
+ * Replacement picks the least recently used item of the probationary queue
+ * first, so that pages touched only once by a large scan are replaced
+ * before the working set. Inner pages of a {@link BTreeCacheable} are only
+ * replaced if no leaf page can be.
+ *
+ * Lookups are striped over several read/write locks and do not take the
+ * lock of the replacement policy: if it is held by another thread, the
+ * hit is only recorded on the item and applied by the next replacement.
+ * The number of times a thread found a lock held is reported by
+ * {@link #getContention()}.
+ *
+ * @param <T> The type that implements {@link Cacheable}
+ */
+@ThreadSafe
+public class TwoQueueCache<T extends Cacheable> implements Cache<T> {
+    private final static Logger LOG = LogManager.getLogger(TwoQueueCache.class);
+
+    /** the number of lock stripes used for lookups, must be a power of two */
+    private final static int STRIPES = 16;
+
+    /** the share of the cache reserved for the protected queue */
+    private final static double PROTECTED_RATIO = 0.8;
+
+    /** the number of replaced keys remembered, as a share of the cache size */
+    private final static double GHOST_RATIO = 0.5;
+
+    private final static Object GHOST = new Object();
+
+    private final String name;
+    private final CacheType type;
+    private final double growthFactor;
+    private final Stripe<T>[] stripes;
+
+    private final ReentrantLock policyLock = new ReentrantLock();
+    @GuardedBy("policyLock") private final Node<T> probation = new Node<>();
+    @GuardedBy("policyLock") private final Node<T> protect = new Node<>();
+    @GuardedBy("policyLock") private final SequencedLongHashMap<Object> ghosts;
+    @GuardedBy("policyLock") private final Accounting accounting;
+    @GuardedBy("policyLock") private int protectedSize = 0;
+    private volatile int max;
+    private volatile int size = 0;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder contention = new LongAdder();
+    private long hitsOld = 0;
+
+    private volatile CacheManager cacheManager = null;
+
+    @SuppressWarnings("unchecked")
+    public TwoQueueCache(final String name, final int size, final double growthFactor, final double growthThreshold, final CacheType type) {
+        this.name = name;
+        this.type = type;
+        this.max = size;
+        this.growthFactor = growthFactor;
+        this.accounting = new Accounting(growthThreshold);
+        this.accounting.setTotalSize(size);
+        this.ghosts = new SequencedLongHashMap<>(Math.max(size, 16));
+        this.stripes = new Stripe[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe<>(Math.max(size / STRIPES, 4), contention);
+        }
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public CacheType getType() {
+        return type;
+    }
+
+    @Override
+    public void add(final T item) {
+        add(item, 1);
+    }
+
+    /**
+     * Add the item to the cache. An initial reference count
+     * greater than 1 admits the item to the protected queue.
+     *
+     * @param item The item to add to the cache
+     * @param initialRefCount the initial reference count for the item
+     */
+    @Override
+    public void add(final T item, final int initialRefCount) {
+        final long key = item.getKey();
+        final boolean requestMem;
+        lock(policyLock, contention);
+        try {
+            final Stripe<T> stripe = stripeFor(key);
+            Node<T> node = stripe.get(key);
+            if (node != null) {
+                node.item = item;
+                onAccess(node);
+                return;
+            }
+
+            node = new Node<>(key, item);
+            stripe.put(key, node);
+            if (initialRefCount > 1 || isInnerPage(item) || ghosts.remove(key) != null) {
+                linkLast(protect, node);
+                protectedSize++;
+                demoteProtected();
+            } else {
+                linkLast(probation, node);
+            }
+            size++;
+
+            requestMem = size > max && evict(node);
+        } finally {
+            policyLock.unlock();
+        }
+
+        // outside of the policy lock, as the cache manager calls back into resize
+        final CacheManager manager = cacheManager;
+        if (requestMem && manager != null) {
+            manager.requestMem(this);
+        }
+    }
+
+    @Override
+    public T get(final T item) {
+        return get(item.getKey());
+    }
+
+    @Override
+    public T get(final long key) {
+        final Node<T> node = stripeFor(key).get(key);
+        if (node == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+
+        if (policyLock.tryLock()) {
+            try {
+                if (node.queue != Node.REMOVED) {
+                    onAccess(node);
+                }
+            } finally {
+                policyLock.unlock();
+            }
+        } else {
+            // applied lazily during the next replacement
+            node.referenced = true;
+            contention.increment();
+        }
+        return node.item;
+    }
+
+    @Override
+    public void remove(final T item) {
+        final long key = item.getKey();
+        lock(policyLock, contention);
+        try {
+            final Node<T> node = stripeFor(key).remove(key);
+            if (node != null) {
+                discard(node);
+            }
+        } finally {
+            policyLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean flush() {
+        boolean flushed = false;
+        lock(policyLock, contention);
+        try {
+            for (final Node<T> head : queues()) {
+                for (Node<T> node = head.next; node != head; node = node.next) {
+                    if (node.item.isDirty()) {
+                        flushed = flushed | node.item.sync(false);
+                    }
+                }
+            }
+        } finally {
+            policyLock.unlock();
+        }
+        return flushed;
+    }
+
+    @Override
+    public boolean hasDirtyItems() {
+        lock(policyLock, contention);
+        try {
+            for (final Node<T> head : queues()) {
+                for (Node<T> node = head.next; node != head; node = node.next) {
+                    if (node.item.isDirty()) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        } finally {
+            policyLock.unlock();
+        }
+    }
+
+    @Override
+    public int getBuffers() {
+        return max;
+    }
+
+    @Override
+    public double getGrowthFactor() {
+        return growthFactor;
+    }
+
+    @Override
+    public void resize(final int newSize) {
+        lock(policyLock, contention);
+        try {
+            max = newSize;
+            if (size > max) {
+                evict(null);
+            }
+            accounting.reset();
+            accounting.setTotalSize(max);
+        } finally {
+            policyLock.unlock();
+        }
+    }
+
+    @Override
+    public void setCacheManager(final CacheManager manager) {
+        this.cacheManager = manager;
+    }
+
+    @Override
+    public int getUsedBuffers() {
+        return size;
+    }
+
+    @Override
+    public int getHits() {
+        return (int) Math.min(hits.sum(), Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int getFails() {
+        return (int) Math.min(misses.sum(), Integer.MAX_VALUE);
+    }
+
+    @Override
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    @Override
+    public long getContention() {
+        return contention.sum();
+    }
+
+    @Override
+    public int getLoad() {
+        final long currentHits = hits.sum();
+        if (hitsOld == 0) {
+            hitsOld = currentHits;
+            return Integer.MAX_VALUE;
+        }
+        final long load = currentHits - hitsOld;
+        hitsOld = currentHits;
+        return (int) Math.min(load, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Replaces items until the cache is within its size.
+     *
+     * @param added the item which was just added and must not be replaced,
+     *     or null when shrinking the cache
+     *
+     * @return true if the cache manager should be asked for more memory
+     */
+    @GuardedBy("policyLock")
+    private boolean evict(@Nullable final Node<T> added) {
+        while (size > max) {
+            final Node<T> victim = findVictim(added);
+            if (victim == null) {
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("{}: no page can be unloaded, cache exceeds its size of {}", name, max);
+                }
+                break;
+            }
+            if (LOG.isTraceEnabled()) {
+                LOG.trace("{} replacing {}", name, victim.key);
+            }
+            victim.item.sync(true);
+            stripeFor(victim.key).remove(victim.key);
+            if (victim.queue == Node.PROBATION) {
+                remember(victim.key);
+            }
+            discard(victim);
+            evictions.increment();
+        }
+
+        if (added == null) {
+            return false;
+        }
+        accounting.replacedPage(added.item);
+        return growthFactor > 1.0 && accounting.resizeNeeded();
+    }
+
+    @GuardedBy("policyLock")
+    private void remember(final long key) {
+        final int maxGhosts = Math.max((int) (max * GHOST_RATIO), 1);
+        while (ghosts.size() >= maxGhosts) {
+            ghosts.removeFirst();
+        }
+        ghosts.put(key, GHOST);
+    }
+
+    @GuardedBy("policyLock")
+    private @Nullable Node<T> findVictim(@Nullable final Node<T> added) {
+        // inner btree pages are only replaced if there is nothing else
+        for (int pass = 0; pass < 2; pass++) {
+            final boolean allowInnerPages = pass > 0;
+            Node<T> victim = findVictim(probation, added, allowInnerPages);
+            if (victim == null) {
+                victim = findVictim(protect, added, allowInnerPages);
+            }
+            if (victim != null) {
+                return victim;
+            }
+        }
+        return null;
+    }
+
+    @GuardedBy("policyLock")
+    private @Nullable Node<T> findVictim(final Node<T> head, @Nullable final Node<T> added, final boolean allowInnerPages) {
+        Node<T> node = head.next;
+        while (node != head) {
+            final Node<T> next = node.next;
+            if (node.referenced) {
+                // hit while the policy lock was contended, give it a second chance
+                onAccess(node);
+            } else if (node != added && node.item.allowUnload()
+                    && (allowInnerPages || !isInnerPage(node.item))) {
+                return node;
+            }
+            node = next;
+        }
+        return null;
+    }
+
+    @GuardedBy("policyLock")
+    private void onAccess(final Node<T> node) {
+        node.referenced = false;
+        unlink(node);
+        if (node.queue == Node.PROBATION) {
+            node.queue = Node.PROTECTED;
+            protectedSize++;
+        }
+        linkLast(protect, node);
+        demoteProtected();
+    }
+
+    /**
+     * Moves the least recently used items of the protected queue back
+     * to the probationary queue, once the protected queue is full.
+     */
+    @GuardedBy("policyLock")
+    private void demoteProtected() {
+        final int maxProtected = Math.max((int) (max * PROTECTED_RATIO), 1);
+        while (protectedSize > maxProtected) {
+            final Node<T> node = protect.next;
+            unlink(node);
+            protectedSize--;
+            node.queue = Node.PROBATION;
+            linkLast(probation, node);
+        }
+    }
+
+    @GuardedBy("policyLock")
+    private void discard(final Node<T> node) {
+        unlink(node);
+        if (node.queue == Node.PROTECTED) {
+            protectedSize--;
+        }
+        node.queue = Node.REMOVED;
+        size--;
+    }
+
+    private void linkLast(final Node<T> head, final Node<T> node) {
+        node.queue = head == protect ? Node.PROTECTED : Node.PROBATION;
+        node.prev = head.prev;
+        node.next = head;
+        head.prev.next = node;
+        head.prev = node;
+    }
+
+    private static <T extends Cacheable> void unlink(final Node<T> node) {
+        node.prev.next = node.next;
+        node.next.prev = node.prev;
+        node.prev = null;
+        node.next = null;
+    }
+
+    private Node<T>[] queues() {
+        @SuppressWarnings("unchecked") final Node<T>[] queues = new Node[] { probation, protect };
+        return queues;
+    }
+
+    private Stripe<T> stripeFor(final long key) {
+        final int hash = (int) (key ^ (key >>> 32));
+        return stripes[(hash ^ (hash >>> 16)) & (STRIPES - 1)];
+    }
+
+    private static void lock(final Lock lock, final LongAdder contention) {
+        if (!lock.tryLock()) {
+            contention.increment();
+            lock.lock();
+        }
+    }
+
+    private static boolean isInnerPage(final Cacheable item) {
+        return item instanceof BTreeCacheable && ((BTreeCacheable) item).isInnerPage();
+    }
+
+    /**
+     * A partition of the key to item map, guarded by its own lock.
+     */
+    private static final class Stripe<V extends Cacheable> {
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        private final Long2ObjectOpenHashMap<Node<V>> map;
+        private final LongAdder contention;
+
+        Stripe(final int expected, final LongAdder contention) {
+            this.map = new Long2ObjectOpenHashMap<>(expected);
+            this.contention = contention;
+        }
+
+        @Nullable Node<V> get(final long key) {
+            TwoQueueCache.lock(lock.readLock(), contention);
+            try {
+                return map.get(key);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        void put(final long key, final Node<V> node) {
+            TwoQueueCache.lock(lock.writeLock(), contention);
+            try {
+                map.put(key, node);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        @Nullable Node<V> remove(final long key) {
+            TwoQueueCache.lock(lock.writeLock(), contention);
+            try {
+                return map.remove(key);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * An entry of the probationary or protected queue. The queues are
+     * circular doubly linked lists whose head is a sentinel node.
+     */
+    private static final class Node<T extends Cacheable> {
+        static final byte PROBATION = 0;
+        static final byte PROTECTED = 1;
+        static final byte REMOVED = 2;
+
+        final long key;
+        volatile T item;
+        volatile boolean referenced = false;
+
+        @GuardedBy("policyLock") byte queue = PROBATION;
+        @GuardedBy("policyLock") Node<T> prev;
+        @GuardedBy("policyLock") Node<T> next;
+
+        /**
+         * Creates the sentinel of a queue.
+         */
+        Node() {
+            this.key = -1;
+            this.prev = this;
+            this.next = this;
+        }
+
+        Node(final long key, final T item) {
+            this.key = key;
+            this.item = item;
+        }
+    }
+}
@@ -69,6 +69,11 @@ public class AddLinkLoggable extends AbstractLoggable {
         return 14;
     }
 
+    @Override
+    public int getRedoPartition() {
+        return NativeBroker.DOM_DBX_ID;
+    }
+
     @Override
     public void redo() throws LogException {
         domDb.redoAddLink(this);
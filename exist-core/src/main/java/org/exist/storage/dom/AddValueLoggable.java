@@ -92,6 +92,11 @@ public class AddValueLoggable extends AbstractLoggable {
         return 8 + value.length;
     }
 
+    @Override
+    public int getRedoPartition() {
+        return NativeBroker.DOM_DBX_ID;
+    }
+
     @Override
     public void redo() throws LogException {
         domDb.redoAddValue(this);
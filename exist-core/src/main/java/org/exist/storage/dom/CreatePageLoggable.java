@@ -77,6 +77,11 @@ public class CreatePageLoggable extends AbstractLoggable {
         return 14;
     }
 
+    @Override
+    public int getRedoPartition() {
+        return NativeBroker.DOM_DBX_ID;
+    }
+
     @Override
     public void redo() throws LogException {
         domDb.redoCreatePage(this);
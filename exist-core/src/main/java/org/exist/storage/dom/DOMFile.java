@@ -64,7 +64,6 @@ import org.exist.storage.btree.IndexQuery;
 import org.exist.storage.btree.Value;
 import org.exist.storage.cache.Cache;
 import org.exist.storage.cache.Cacheable;
-import org.exist.storage.cache.LRUCache;
 import org.exist.storage.journal.JournalException;
 import org.exist.storage.journal.LogEntryTypes;
 import org.exist.storage.journal.Loggable;
@@ -196,8 +195,8 @@ public class DOMFile extends BTree implements Lockable {
         fileHeader = (BTreeFileHeader)getFileHeader();
         fileHeader.setPageCount(0);
         fileHeader.setTotalCount(0);
-        dataCache = new LRUCache<>(getFileName(), 256, 0.0, 1.0, Cache.CacheType.DATA);
-        cacheManager.registerCache(dataCache);
+        dataCache = cacheManager.createDataCache(getFileName(), 256, 0.0, 1.0);
+        cacheManager.registerCache(dataCache, this);
         final Path file = dataDir.resolve(getFileName());
         setFile(file);
         if (exists()) {
@@ -85,6 +85,11 @@ public class InsertValueLoggable extends AbstractLoggable {
         return 13 + value.length;
     }
 
+    @Override
+    public int getRedoPartition() {
+        return NativeBroker.DOM_DBX_ID;
+    }
+
     @Override
     public void redo() throws LogException {
         domDb.redoInsertValue(this);
@@ -69,6 +69,11 @@ public class RemoveEmptyPageLoggable extends AbstractLoggable {
         return 12;
     }
 
+    @Override
+    public int getRedoPartition() {
+        return NativeBroker.DOM_DBX_ID;
+    }
+
     @Override
     public void redo() throws LogException {
         domDb.redoRemoveEmptyPage(this);
@@ -73,6 +73,11 @@ public class RemoveOverflowLoggable extends AbstractLoggable {
         return 10 + oldData.length;
     }
 
+    @Override
+    public int getRedoPartition() {
+        return NativeBroker.DOM_DBX_ID;
+    }
+
     @Override
     public void redo() throws LogException {
         domDb.redoRemoveOverflow(this);
@@ -88,6 +88,11 @@ public class RemovePageLoggable extends AbstractLoggable {
         return 18 + oldLen;
     }
 
+    @Override
+    public int getRedoPartition() {
+        return NativeBroker.DOM_DBX_ID;
+    }
+
     @Override
     public void redo() throws LogException {
         domDb.redoRemovePage(this);
@@ -89,6 +89,11 @@ public class RemoveValueLoggable extends AbstractLoggable {
         return 11 + oldData.length + (ItemId.isRelocated(tid) ? 8 : 0);
     }
 
+    @Override
+    public int getRedoPartition() {
+        return NativeBroker.DOM_DBX_ID;
+    }
+
     @Override
     public void redo() throws LogException {
         domDb.redoRemoveValue(this);
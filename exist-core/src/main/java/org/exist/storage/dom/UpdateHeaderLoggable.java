@@ -78,6 +78,11 @@ public class UpdateHeaderLoggable extends AbstractLoggable {
         return 20;
     }
 
+    @Override
+    public int getRedoPartition() {
+        return NativeBroker.DOM_DBX_ID;
+    }
+
     @Override
     public void redo() throws LogException {
         domDb.redoUpdateHeader(this);
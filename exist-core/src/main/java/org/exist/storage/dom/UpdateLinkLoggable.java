@@ -70,6 +70,11 @@ public class UpdateLinkLoggable extends AbstractLoggable {
         return 22;
     }
 
+    @Override
+    public int getRedoPartition() {
+        return NativeBroker.DOM_DBX_ID;
+    }
+
     @Override
     public void redo() throws LogException {
         domDb.redoUpdateLink(this);
@@ -81,6 +81,11 @@ public class UpdateValueLoggable extends AbstractLoggable {
         return 10 + (value.length * 2);
     }
 
+    @Override
+    public int getRedoPartition() {
+        return NativeBroker.DOM_DBX_ID;
+    }
+
     @Override
     public void redo() throws LogException {
         domDb.redoUpdateValue(this);
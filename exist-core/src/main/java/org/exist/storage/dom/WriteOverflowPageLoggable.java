@@ -74,6 +74,11 @@ public class WriteOverflowPageLoggable extends AbstractLoggable {
         return 10 + value.getLength();
     }
 
+    @Override
+    public int getRedoPartition() {
+        return NativeBroker.DOM_DBX_ID;
+    }
+
     @Override
     public void redo() throws LogException {
         domDb.redoWriteOverflow(this);
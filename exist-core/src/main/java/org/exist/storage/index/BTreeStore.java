@@ -49,4 +49,13 @@ public class BTreeStore extends BTree {
     public String getLockName() {
         return FileUtils.fileName(getFile());
     }
+
+    /**
+     * Reading the tree only touches the synchronized page cache
+     * and the page I/O of {@link org.exist.storage.btree.Paged}.
+     */
+    @Override
+    protected boolean isSharedReadSafe() {
+        return true;
+    }
 }
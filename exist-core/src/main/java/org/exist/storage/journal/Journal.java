@@ -418,7 +418,8 @@ public final class Journal implements Closeable {
         flushBuffer();
 
         try {
-            if (forceSync || (fsync && syncOnCommit && currentLsn.compareTo(lastSyncLsn) > 0)) {
+            // NOTE: there is no channel to sync before the first journal file is opened by switchFiles()
+            if (channel != null && (forceSync || (fsync && syncOnCommit && currentLsn.compareTo(lastSyncLsn) > 0))) {
                 sync();
                 lastSyncLsn = currentLsn;
             }
@@ -435,6 +436,34 @@ public final class Journal implements Closeable {
         }
     }
 
+    /**
+     * Flush the current buffer to disk and force a sync of the file,
+     * regardless of the sync-on-commit setting.
+     *
+     * Used by {@link JournalManager} to make a whole group of
+     * commit records durable with a single sync.
+     *
+     * @return the LSN up to which all entries of the journal are now durable,
+     *     or {@link Lsn#LSN_INVALID} if nothing could be synced.
+     */
+    synchronized Lsn syncToLog() {
+        if (inRecovery || channel == null) {
+            // NOTE: must not return the currentLsn, before the first switchFiles() its file number is -1 which compares after all valid LSNs
+            return Lsn.LSN_INVALID;
+        }
+        flushToLog(true, true);
+        return lastSyncLsn;
+    }
+
+    /**
+     * Determine if a sync of the journal file is required after every commit.
+     *
+     * @return true if the journal is synced on commit.
+     */
+    boolean isSyncOnCommit() {
+        return syncOnCommit;
+    }
+
     private void sync() throws IOException {
         channel.force(true);
     }
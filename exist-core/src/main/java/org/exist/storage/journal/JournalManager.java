@@ -61,19 +61,35 @@ public class JournalManager implements BrokerPoolService {
 
     @GuardedBy("this") private Path journalDir;
     @GuardedBy("this") private boolean groupCommits;
+    @GuardedBy("this") private boolean groupSyncs;
+    @GuardedBy("this") private long groupSyncMaxDelay;
+    @GuardedBy("this") private int groupSyncMaxBatch;
     @GuardedBy("this") private Journal journal;
     @GuardedBy("this") private boolean journallingDisabled = false;
     @GuardedBy("this") private boolean initialized = false;
 
     private final List<JournalListener> journalListeners = new CopyOnWriteArrayList<>();
 
+    /**
+     * Monitor for coordinating group syncs, independent of the
+     * monitor of this object so that committers waiting for a sync
+     * do not block other threads from writing to the journal.
+     */
+    private final Object groupSyncMonitor = new Object();
+    @GuardedBy("groupSyncMonitor") private Lsn durableLsn = Lsn.LSN_INVALID;
+    @GuardedBy("groupSyncMonitor") private boolean groupSyncInProgress = false;
+    @GuardedBy("groupSyncMonitor") private int groupSyncWaiters = 0;
+
     @Override
     public synchronized void configure(final Configuration configuration) {
         this.journalDir = (Path) Optional.ofNullable(configuration.getProperty(Journal.PROPERTY_RECOVERY_JOURNAL_DIR))
                 .orElse(configuration.getProperty(BrokerPool.PROPERTY_DATA_DIR));
         this.groupCommits = configuration.getProperty(BrokerPool.PROPERTY_RECOVERY_GROUP_COMMIT, false);
+        this.groupSyncs = configuration.getProperty(BrokerPool.PROPERTY_RECOVERY_GROUP_SYNC, false);
+        this.groupSyncMaxDelay = configuration.getProperty(BrokerPool.PROPERTY_RECOVERY_GROUP_SYNC_MAX_DELAY, BrokerPool.DEFAULT_GROUP_SYNC_MAX_DELAY);
+        this.groupSyncMaxBatch = configuration.getProperty(BrokerPool.PROPERTY_RECOVERY_GROUP_SYNC_MAX_BATCH, BrokerPool.DEFAULT_GROUP_SYNC_MAX_BATCH);
         if (LOG.isDebugEnabled()) {
-            LOG.debug("GroupCommits = {}", groupCommits);
+            LOG.debug("GroupCommits = {}, GroupSyncs = {}, max delay = {}ms, max batch = {}", groupCommits, groupSyncs, groupSyncMaxDelay, groupSyncMaxBatch);
         }
     }
 
@@ -112,6 +128,15 @@ public class JournalManager implements BrokerPoolService {
     /**
      * Write a group of entrys to the journal
      *
+     * When group commits are enabled, the journal is not synced at all,
+     * it is written once its buffer is full.
+     *
+     * When group syncs are enabled, the calling thread does not sync
+     * the journal by itself, instead it waits until a single sync
+     * has made the entries of all concurrently committing
+     * transactions durable. This method only returns once
+     * the entry is durable.
+     *
      * @see Journal#writeToLog(Loggable)
      * @see Journal#flushToLog(boolean)
      *
@@ -119,15 +144,112 @@ public class JournalManager implements BrokerPoolService {
      *
      * @throws JournalException of the journal group cannot be written
      */
-    public synchronized void journalGroup(final Loggable loggable) throws JournalException {
-        if (!journallingDisabled) {
+    public void journalGroup(final Loggable loggable) throws JournalException {
+        final long maxDelay;
+        final int maxBatch;
+        synchronized (this) {
+            if (journallingDisabled) {
+                return;
+            }
+
             journal.writeToLog(loggable);
-            if (!groupCommits) {
+            if (groupCommits) {
+                return;
+            }
+
+            if (!groupSyncs || !journal.isSyncOnCommit()) {
                 journal.flushToLog(true);
+                return;
+            }
+
+            maxDelay = groupSyncMaxDelay;
+            maxBatch = groupSyncMaxBatch;
+        }
+
+        awaitDurable(loggable.getLsn(), maxDelay, maxBatch);
+    }
+
+    /**
+     * Wait until the journal has been synced up to (at least) the {@code lsn}.
+     *
+     * The first waiting thread becomes the leader of a group, it waits
+     * for up to {@code maxDelay} milliseconds, or until {@code maxBatch}
+     * committers are waiting, and then syncs the journal on behalf of the
+     * whole group. Threads arriving whilst a sync is in progress form the
+     * next group.
+     *
+     * @param lsn the LSN which must become durable.
+     * @param maxDelay the maximum time in milliseconds that a leader waits for further committers.
+     * @param maxBatch the number of waiting committers at which the leader syncs immediately.
+     *
+     * @throws JournalException if the thread is interrupted whilst waiting.
+     */
+    private void awaitDurable(final Lsn lsn, final long maxDelay, final int maxBatch) throws JournalException {
+        synchronized (groupSyncMonitor) {
+            groupSyncWaiters++;
+            groupSyncMonitor.notifyAll();
+        }
+
+        try {
+            while (true) {
+                synchronized (groupSyncMonitor) {
+                    if (durableLsn.compareTo(lsn) >= 0) {
+                        return;
+                    }
+
+                    if (groupSyncInProgress) {
+                        // follower: the leader of the current group will sync on our behalf
+                        groupSyncMonitor.wait();
+                        continue;
+                    }
+
+                    // leader: collect the group before syncing for everyone
+                    groupSyncInProgress = true;
+                    try {
+                        final long deadline = System.currentTimeMillis() + maxDelay;
+                        long remaining = maxDelay;
+                        while (groupSyncWaiters < maxBatch && remaining > 0) {
+                            groupSyncMonitor.wait(remaining);
+                            remaining = deadline - System.currentTimeMillis();
+                        }
+                    } catch (final InterruptedException e) {
+                        groupSyncInProgress = false;
+                        groupSyncMonitor.notifyAll();
+                        throw e;
+                    }
+                }
+
+                // NOTE: sync outside of the groupSyncMonitor, other threads acquire the monitor of this object first
+                Lsn synced = null;
+                try {
+                    synced = syncJournal();
+                } finally {
+                    synchronized (groupSyncMonitor) {
+                        if (synced != null && synced.compareTo(durableLsn) > 0) {
+                            durableLsn = synced;
+                        }
+                        groupSyncInProgress = false;
+                        groupSyncMonitor.notifyAll();
+                    }
+                }
+
+                // our own entry was written before the sync, so it is now durable
+                return;
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new JournalException("Interrupted whilst waiting for group commit of: " + lsn, e);
+        } finally {
+            synchronized (groupSyncMonitor) {
+                groupSyncWaiters--;
             }
         }
     }
 
+    private synchronized Lsn syncJournal() {
+        return journal.syncToLog();
+    }
+
     /**
      * @see Journal#checkpoint(long, boolean)
      *
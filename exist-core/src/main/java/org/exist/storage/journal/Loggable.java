@@ -30,6 +30,12 @@ import java.nio.ByteBuffer;
  * @author wolf
  */
 public interface Loggable {
+
+    /**
+     * Partition of entries which have to be redone serially,
+     * after all previous entries have been redone.
+     */
+    int REDO_PARTITION_SERIAL = -1;
     
 	/**
 	 * Returns the type id of the log entry. This is the type registered
@@ -92,6 +98,22 @@ public interface Loggable {
      * @throws LogException if the operation cannot be redone
      */
     void redo() throws LogException;
+
+    /**
+     * Returns the partition of the storage that is modified when
+     * {@link #redo()} is called, typically the id of the database file.
+     *
+     * Entries of different partitions modify disjoint pages, so
+     * {@link org.exist.storage.recovery.RecoveryManager} may redo them
+     * concurrently. Entries of the same partition are always redone
+     * in the order of the journal.
+     *
+     * @return the redo partition, or {@link #REDO_PARTITION_SERIAL}
+     *     if the entry must not be redone concurrently with any other entry.
+     */
+    default int getRedoPartition() {
+        return REDO_PARTITION_SERIAL;
+    }
     
     /**
      * Undo, i.e. roll back, the underlying operation. The method
@@ -43,7 +43,9 @@ import org.exist.xmldb.XmldbURI;
 import uk.ac.ic.doc.slurp.multilock.MultiLock;
 
 import java.util.Arrays;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.Consumer;
 
 /**
@@ -79,6 +81,7 @@ public class LockManager {
     public final static String CONFIGURATION_WARN_WAIT_ON_READ_FOR_WRITE = "lock-manager.warn-wait-on-read-for-write";
     public final static String CONFIGURATION_PATH_LOCKS_FOR_DOCUMENTS = "lock-manager.document.use-path-locks";
     public final static String CONFIGURATION_PATHS_MULTI_WRITER = "lock-manager.paths-multi-writer";
+    public final static String CONFIGURATION_BTREE_SHARED_READ_LOCKS = "lock-manager.btree.shared-read-locks";
 
     //TODO(AR) remove eventually!
     // legacy properties for overriding the config
@@ -112,22 +115,34 @@ public class LockManager {
      */
     private final boolean warnWaitOnReadForWrite;
 
+    /**
+     * Set to true to let readers of a {@link org.exist.storage.btree.BTree}
+     * share its lock, if the BTree has been registered through
+     * {@link #registerSharedReadBtree(String)}
+     */
+    private final boolean btreeSharedReadLocks;
 
     private final LockTable lockTable;
     private final WeakLazyStripes<String, MultiLock> pathLocks;
     private final WeakLazyStripes<String, MultiLock> documentLocks;
-    private final WeakLazyStripes<String, ReentrantLock> btreeLocks;
+    private final WeakLazyStripes<String, ReentrantReadWriteLock> btreeLocks;
+    private final Set<String> sharedReadBtrees = ConcurrentHashMap.newKeySet();
 
     /**
      * @param configuration database configuration
      * @param concurrencyLevel Concurrency Level of the lock table.
      */
     public LockManager(final Configuration configuration, final int concurrencyLevel) {
+        this(configuration, concurrencyLevel, getConfigPropertyBool(configuration, CONFIGURATION_BTREE_SHARED_READ_LOCKS, false));
+    }
+
+    private LockManager(final Configuration configuration, final int concurrencyLevel, final boolean btreeSharedReadLocks) {
         // set configuration
         this.usePathLocksForDocuments = getConfigPropertyBool(configuration, CONFIGURATION_PATH_LOCKS_FOR_DOCUMENTS, false);
         this.pathsMultiWriter = getLegacySystemPropertyOrConfigPropertyBool(PROP_ENABLE_PATHS_MULTI_WRITER, configuration, CONFIGURATION_PATHS_MULTI_WRITER, false);
         this.upgradeCheck = getLegacySystemPropertyOrConfigPropertyBool(PROP_UPGRADE_CHECK, configuration, CONFIGURATION_UPGRADE_CHECK, false);
         this.warnWaitOnReadForWrite = getLegacySystemPropertyOrConfigPropertyBool(PROP_WARN_WAIT_ON_READ_FOR_WRITE, configuration, CONFIGURATION_WARN_WAIT_ON_READ_FOR_WRITE, false);
+        this.btreeSharedReadLocks = btreeSharedReadLocks;
 
         this.lockTable = new LockTable(configuration);
         this.pathLocks = new WeakLazyStripes<>(concurrencyLevel, LockManager::createCollectionLock);
@@ -138,7 +153,7 @@ public class LockManager {
         }
         this.btreeLocks = new WeakLazyStripes<>(concurrencyLevel, LockManager::createBtreeLock);
 
-        LOG.info("Configured LockManager with concurrencyLevel={} use-path-locks-for-documents={} paths-multi-writer={}", concurrencyLevel, usePathLocksForDocuments, pathsMultiWriter);
+        LOG.info("Configured LockManager with concurrencyLevel={} use-path-locks-for-documents={} paths-multi-writer={} btree-shared-read-locks={}", concurrencyLevel, usePathLocksForDocuments, pathsMultiWriter, btreeSharedReadLocks);
     }
 
     /**
@@ -150,6 +165,16 @@ public class LockManager {
         this(null, concurrencyLevel);
     }
 
+    /**
+     * Reserved for testing!
+     *
+     * @param concurrencyLevel Concurrency Level of the lock table.
+     * @param btreeSharedReadLocks true to let readers of registered BTrees share the lock.
+     */
+    LockManager(final int concurrencyLevel, final boolean btreeSharedReadLocks) {
+        this(null, concurrencyLevel, btreeSharedReadLocks);
+    }
+
     /**
      * Get the lock table.
      *
@@ -187,8 +212,36 @@ public class LockManager {
      * Creates a new lock for a {@link org.exist.storage.btree.BTree}
      * will be Striped by the btreeFileName
      */
-    private static ReentrantLock createBtreeLock(final String btreeFileName) {
-        return new ReentrantLock();
+    private static ReentrantReadWriteLock createBtreeLock(final String btreeFileName) {
+        return new ReentrantReadWriteLock();
+    }
+
+    /**
+     * Registers a {@link org.exist.storage.btree.BTree} whose read operations
+     * are safe to run concurrently. Threads acquiring a READ_LOCK on it will
+     * share the lock, unless shared read locks are disabled by the configuration.
+     *
+     * READ_LOCKs on other BTrees are exclusive, just like a WRITE_LOCK.
+     *
+     * NOTE: A shared READ_LOCK can not be upgraded. A thread which may write
+     * to the BTree must acquire its WRITE_LOCK before any READ_LOCK, see
+     * {@link #acquireBtreeWriteLock(String)}.
+     *
+     * @param btreeFileName the filename of the BTree
+     */
+    public void registerSharedReadBtree(final String btreeFileName) {
+        sharedReadBtrees.add(btreeFileName);
+    }
+
+    /**
+     * Returns true if threads acquiring a READ_LOCK on the BTree share the lock.
+     *
+     * @param btreeFileName the filename of the BTree
+     *
+     * @return true if READ_LOCKs on the BTree are shared
+     */
+    public boolean isBtreeReadLockShared(final String btreeFileName) {
+        return btreeSharedReadLocks && sharedReadBtrees.contains(btreeFileName);
     }
 
     /**
@@ -656,12 +709,16 @@ public class LockManager {
      *
      * @return A lock for the DOMFile
      */
-    ReentrantLock getBTreeLock(final String domFileName) {
+    ReentrantReadWriteLock getBTreeLock(final String domFileName) {
         return btreeLocks.get(domFileName);
     }
 
     /**
-     * Acquire a WRITE_LOCK on a {@link org.exist.storage.btree.BTree}
+     * Acquire a READ_LOCK on a {@link org.exist.storage.btree.BTree}
+     *
+     * The READ_LOCK is only shared with other readers if the BTree has been
+     * registered through {@link #registerSharedReadBtree(String)}, otherwise
+     * it is as exclusive as the WRITE_LOCK.
      *
      * @param btreeFileName the filename of the BTree
      *
@@ -669,10 +726,11 @@ public class LockManager {
      *
      * @throws LockException if the lock could not be acquired
      */
-    public ManagedLock<ReentrantLock> acquireBtreeReadLock(final String btreeFileName) throws LockException {
+    public ManagedLock<ReentrantReadWriteLock> acquireBtreeReadLock(final String btreeFileName) throws LockException {
         final long groupId = System.nanoTime();
 
-        final ReentrantLock lock = getBTreeLock(btreeFileName);
+        final ReentrantReadWriteLock rwLock = getBTreeLock(btreeFileName);
+        final java.util.concurrent.locks.Lock lock = isBtreeReadLockShared(btreeFileName) ? rwLock.readLock() : rwLock.writeLock();
         try {
             lockTable.attempt(groupId, btreeFileName, LockType.BTREE, Lock.LockMode.READ_LOCK);
 
@@ -684,7 +742,7 @@ public class LockManager {
             throw new LockException("Unable to acquire READ_LOCK for: " + btreeFileName, e);
         }
 
-        return new ManagedLock(lock, () -> {
+        return new ManagedLock<>(rwLock, () -> {
             lock.unlock();
             lockTable.released(groupId, btreeFileName, LockType.BTREE, Lock.LockMode.READ_LOCK);
         });
@@ -693,16 +751,29 @@ public class LockManager {
     /**
      * Acquire a WRITE_LOCK on a {@link org.exist.storage.btree.BTree}
      *
+     * A shared READ_LOCK can not be upgraded, a thread which holds it
+     * without also holding the WRITE_LOCK can not acquire the WRITE_LOCK.
+     *
      * @param btreeFileName the filename of the BTree
      *
      * @return the lock for the BTree
      *
-     * @throws LockException if the lock could not be acquired
+     * @throws LockException if the lock could not be acquired, or if the calling
+     *     thread holds a shared READ_LOCK on the BTree
      */
-    public ManagedLock<ReentrantLock> acquireBtreeWriteLock(final String btreeFileName) throws LockException {
+    public ManagedLock<ReentrantReadWriteLock> acquireBtreeWriteLock(final String btreeFileName) throws LockException {
         final long groupId = System.nanoTime();
 
-        final ReentrantLock lock = getBTreeLock(btreeFileName);
+        final ReentrantReadWriteLock rwLock = getBTreeLock(btreeFileName);
+        final ReentrantReadWriteLock.WriteLock lock = rwLock.writeLock();
+
+        // NOTE: a thread holding the write lock may also hold read locks, those do not prevent re-entering the write lock
+        if (!rwLock.isWriteLockedByCurrentThread() && rwLock.getReadHoldCount() > 0) {
+            // waiting would deadlock, the read lock can not be upgraded
+            throw new LockException("Unable to acquire WRITE_LOCK for: " + btreeFileName
+                    + ", the thread holds a shared READ_LOCK which can not be upgraded");
+        }
+
         try {
             lockTable.attempt(groupId, btreeFileName, LockType.BTREE, Lock.LockMode.WRITE_LOCK);
 
@@ -714,7 +785,7 @@ public class LockManager {
             throw new LockException("Unable to acquire WRITE_LOCK for: " + btreeFileName, e);
         }
 
-        return new ManagedLock(lock, () -> {
+        return new ManagedLock<>(rwLock, () -> {
             lock.unlock();
             lockTable.released(groupId, btreeFileName, LockType.BTREE, Lock.LockMode.WRITE_LOCK);
         });
@@ -731,8 +802,8 @@ public class LockManager {
      */
     @Deprecated
     public boolean isBtreeLocked(final String btreeFileName) {
-        final ReentrantLock lock = getBTreeLock(btreeFileName);
-        return lock.isLocked();
+        final ReentrantReadWriteLock lock = getBTreeLock(btreeFileName);
+        return lock.isWriteLocked() || lock.getReadLockCount() > 0;
     }
 
     /**
@@ -743,7 +814,7 @@ public class LockManager {
      * @return true if the Btree is locked for writes.
      */
     public boolean isBtreeLockedForWrite(final String btreeFileName) {
-        return isBtreeLocked(btreeFileName);
+        return getBTreeLock(btreeFileName).isWriteLocked();
     }
 
     /**
@@ -25,6 +25,11 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -41,6 +46,7 @@ import org.exist.storage.journal.*;
 import org.exist.storage.sync.Sync;
 import org.exist.storage.txn.Checkpoint;
 import org.exist.util.FileUtils;
+import org.exist.util.NamedThreadFactory;
 import org.exist.util.ProgressBar;
 import com.evolvedbinary.j8fu.function.SupplierE;
 import org.exist.util.sanity.SanityCheck;
@@ -56,14 +62,33 @@ public class RecoveryManager {
 	
 	private final static Logger LOG = LogManager.getLogger(RecoveryManager.class);
 
+    /**
+     * Maximum number of journal entries which have been read
+     * but not yet redone when redoing in parallel.
+     */
+    private static final int MAX_PENDING_REDO_ENTRIES = 4096;
+
     private final DBBroker broker;
     private final JournalRecoveryAccessor journalRecovery;
     private final boolean restartOnError;
+    private final int redoThreads;
 
     public RecoveryManager(final DBBroker broker, final JournalManager journalManager, final boolean restartOnError) {
+        this(broker, journalManager, restartOnError, 1);
+    }
+
+    /**
+     * @param broker the broker to use for recovery
+     * @param journalManager the journal manager
+     * @param restartOnError true if the database should start even if recovery fails
+     * @param redoThreads the number of threads used for redoing the entries of independent database files,
+     *     1 redoes all entries on the calling thread.
+     */
+    public RecoveryManager(final DBBroker broker, final JournalManager journalManager, final boolean restartOnError, final int redoThreads) {
         this.broker = broker;
         this.journalRecovery = journalManager.getRecoveryAccessor(this);
         this.restartOnError = restartOnError;
+        this.redoThreads = Math.max(1, redoThreads);
 	}
 
 	/**
@@ -119,6 +144,8 @@ public class RecoveryManager {
                     Checkpoint lastCheckpoint = null;
                     Lsn lastLsn = Lsn.LSN_INVALID;
                     Loggable next;
+                    final long scanStart = System.currentTimeMillis();
+                    long scanCnt = 0;
                     try {
                         final ProgressBar progress = new ProgressBar("Scanning journal ", FileUtils.sizeQuietly(last));
                         while ((next = reader.nextEntry()) != null) {
@@ -135,6 +162,7 @@ public class RecoveryManager {
                                 lastCheckpoint = (Checkpoint) next;
                             }
                             lastLsn = next.getLsn();
+                            scanCnt++;
                         }
                     } catch (final LogException e) {
                         if (LOG.isDebugEnabled()) {
@@ -142,6 +170,7 @@ public class RecoveryManager {
                         }
                         LOG.warn("Last readable journal log entry lsn: {}", lastLsn);
                     }
+                    logPhase("Scan", scanCnt, lastLsn.getOffset(), System.currentTimeMillis() - scanStart);
 
                     // if the last checkpoint record is not the last record in the file
                     // we need a recovery.
@@ -253,7 +282,10 @@ public class RecoveryManager {
             final ProgressBar progress = new ProgressBar("Redo ", FileUtils.sizeQuietly(last));
             Loggable next = null;
             int redoCnt = 0;
-            try {
+            long redoEntryCnt = 0;
+            final long redoStart = System.currentTimeMillis();
+            long redoStartOffset = -1;
+            try (final RedoExecutor redoExecutor = redoThreads > 1 ? new ParallelRedoExecutor(broker.getBrokerPool(), redoThreads) : new SerialRedoExecutor()) {
                 while ((next = reader.nextEntry()) != null) {
                     SanityCheck.ASSERT(next.getLogType() != LogEntryTypes.CHECKPOINT,
                             "Found a checkpoint during recovery run! This should not ever happen.");
@@ -270,11 +302,21 @@ public class RecoveryManager {
                     }
         //            LOG.debug("Redo: " + next.dump());
                     // redo the log entry
-                    next.redo();
+                    redoExecutor.redo(next);
+                    if (redoStartOffset < 0) {
+                        redoStartOffset = next.getLsn().getOffset();
+                    }
+                    redoEntryCnt++;
                     progress.set(next.getLsn().getOffset());
                     if (next.getLsn().equals(lastLsn))
                         {break;} // last readable entry reached. Stop here.
                 }
+                redoExecutor.awaitCompletion();
+            } catch (final RedoException e) {
+                LOG.error("Exception caught while redoing transactions. Aborting recovery to avoid possible damage. " +
+                    "Before starting again, make sure to run a check via the emergency export tool.", e.getCause());
+                LOG.info("Log entry that caused the exception: {}", e.getEntry().dump());
+                throw new LogException("Recovery aborted. ");
             } catch (final Exception e) {
                 LOG.error("Exception caught while redoing transactions. Aborting recovery to avoid possible damage. " +
                     "Before starting again, make sure to run a check via the emergency export tool.", e);
@@ -284,6 +326,8 @@ public class RecoveryManager {
                 throw new LogException("Recovery aborted. ");
             } finally {
                 LOG.info("Redo processed {} out of {} transactions.", redoCnt, txnCount);
+                final long redoBytes = redoStartOffset < 0 ? 0 : (next != null ? next.getLsn().getOffset() : lastLsn.getOffset()) - redoStartOffset;
+                logPhase("Redo (" + redoThreads + " threads)", redoEntryCnt, redoBytes, System.currentTimeMillis() - redoStart);
             }
 
             // ------- UNDO ---------
@@ -292,6 +336,8 @@ public class RecoveryManager {
                     LOG.info("Second pass: undoing dirty transactions. Uncommitted transactions: {}", runningTxns.size());}
             // see if there are uncommitted transactions pending
             if (runningTxns.size() > 0) {
+                final long undoStart = System.currentTimeMillis();
+                long undoCnt = 0;
                 // do a reverse scan of the log, undoing all uncommitted transactions
                 try {
                     while((next = reader.previousEntry()) != null) {
@@ -313,8 +359,10 @@ public class RecoveryManager {
                         if (runningTxns.get(next.getTransactionId()) != null) {
     //					LOG.debug("Undo: " + next.dump());
                             next.undo();
+                            undoCnt++;
                         }
                     }
+                    logPhase("Undo", undoCnt, -1, System.currentTimeMillis() - undoStart);
                 } catch (final Exception e) {
                     LOG.warn("Exception caught while undoing dirty transactions. Remaining transactions to be undone: {}. Aborting recovery to avoid possible damage. Before starting again, make sure to run a check via the emergency export tool.", runningTxns.size(), e);
                     if (next != null)
@@ -332,4 +380,173 @@ public class RecoveryManager {
 	private void cleanDirectory(final Stream<Path> files) {
         files.forEach(FileUtils::deleteQuietly);
 	}
+
+    /**
+     * Logs the timing and throughput of a phase of the recovery.
+     *
+     * @param phase the name of the phase
+     * @param entries the number of journal entries processed
+     * @param bytes the number of bytes of the journal processed, or -1 if unknown
+     * @param millis the duration of the phase in milliseconds
+     */
+    private void logPhase(final String phase, final long entries, final long bytes, final long millis) {
+        final double seconds = Math.max(millis, 1) / 1000.0;
+        final String msg;
+        if (bytes >= 0) {
+            msg = String.format("%s: %d journal entries (%.1f MB) in %d ms; %.0f entries/s, %.1f MB/s",
+                    phase, entries, bytes / (1024.0 * 1024.0), millis, entries / seconds, bytes / (1024.0 * 1024.0) / seconds);
+        } else {
+            msg = String.format("%s: %d journal entries in %d ms; %.0f entries/s", phase, entries, millis, entries / seconds);
+        }
+        LOG.info(msg);
+        broker.getBrokerPool().reportStatus(msg);
+    }
+
+    /**
+     * Thrown when redoing a journal entry fails.
+     */
+    private static class RedoException extends Exception {
+        private final Loggable entry;
+
+        RedoException(final Loggable entry, final Throwable cause) {
+            super(cause);
+            this.entry = entry;
+        }
+
+        Loggable getEntry() {
+            return entry;
+        }
+    }
+
+    /**
+     * Redoes journal entries in the order of the journal
+     * per {@link Loggable#getRedoPartition()}.
+     */
+    private interface RedoExecutor extends AutoCloseable {
+
+        /**
+         * Redo a journal entry, possibly asynchronously.
+         *
+         * @param entry the journal entry
+         *
+         * @throws RedoException if redoing this, or a previous entry failed.
+         * @throws InterruptedException if interrupted whilst waiting to redo the entry.
+         */
+        void redo(Loggable entry) throws RedoException, InterruptedException;
+
+        /**
+         * Wait until all entries have been redone.
+         *
+         * @throws RedoException if redoing an entry failed.
+         * @throws InterruptedException if interrupted whilst waiting.
+         */
+        void awaitCompletion() throws RedoException, InterruptedException;
+
+        @Override
+        void close() throws InterruptedException;
+    }
+
+    /**
+     * Redoes every entry immediately on the calling thread.
+     */
+    private static class SerialRedoExecutor implements RedoExecutor {
+        @Override
+        public void redo(final Loggable entry) throws RedoException {
+            try {
+                entry.redo();
+            } catch (final Exception e) {
+                throw new RedoException(entry, e);
+            }
+        }
+
+        @Override
+        public void awaitCompletion() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * Redoes the entries of each redo partition on a single
+     * lane (thread), so that entries which modify the same pages are redone
+     * in the order of the journal, whilst entries of different partitions
+     * are redone concurrently.
+     *
+     * Entries of {@link Loggable#REDO_PARTITION_SERIAL} act as a barrier, they are
+     * redone on the calling thread once all previous entries have been redone.
+     */
+    private static class ParallelRedoExecutor implements RedoExecutor {
+        private final ExecutorService[] lanes;
+        private final Semaphore pending = new Semaphore(MAX_PENDING_REDO_ENTRIES);
+        private final AtomicReference<RedoException> failure = new AtomicReference<>();
+
+        ParallelRedoExecutor(final BrokerPool brokerPool, final int threads) {
+            final NamedThreadFactory threadFactory = new NamedThreadFactory(brokerPool, "recovery.redo");
+            this.lanes = new ExecutorService[threads];
+            for (int i = 0; i < threads; i++) {
+                lanes[i] = Executors.newSingleThreadExecutor(threadFactory);
+            }
+        }
+
+        @Override
+        public void redo(final Loggable entry) throws RedoException, InterruptedException {
+            checkFailure();
+
+            final byte logType = entry.getLogType();
+            if (logType == LogEntryTypes.TXN_START || logType == LogEntryTypes.TXN_COMMIT || logType == LogEntryTypes.TXN_ABORT) {
+                // transaction records do not modify any storage
+                return;
+            }
+
+            final int partition = entry.getRedoPartition();
+            if (partition == Loggable.REDO_PARTITION_SERIAL) {
+                awaitCompletion();
+                try {
+                    entry.redo();
+                } catch (final Exception e) {
+                    throw new RedoException(entry, e);
+                }
+                return;
+            }
+
+            pending.acquire();
+            lanes[Math.floorMod(partition, lanes.length)].execute(() -> {
+                try {
+                    if (failure.get() == null) {
+                        entry.redo();
+                    }
+                } catch (final Exception e) {
+                    failure.compareAndSet(null, new RedoException(entry, e));
+                } finally {
+                    pending.release();
+                }
+            });
+        }
+
+        @Override
+        public void awaitCompletion() throws RedoException, InterruptedException {
+            pending.acquire(MAX_PENDING_REDO_ENTRIES);
+            pending.release(MAX_PENDING_REDO_ENTRIES);
+            checkFailure();
+        }
+
+        private void checkFailure() throws RedoException {
+            final RedoException e = failure.get();
+            if (e != null) {
+                throw e;
+            }
+        }
+
+        @Override
+        public void close() throws InterruptedException {
+            for (final ExecutorService lane : lanes) {
+                lane.shutdown();
+            }
+            for (final ExecutorService lane : lanes) {
+                lane.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
 }
@@ -71,6 +71,7 @@ import org.exist.util.serializer.SerializerPool;
 import org.exist.xmldb.XmldbURI;
 import org.exist.xquery.Constants;
 import org.exist.xquery.Option;
+import org.exist.xquery.PathExpr;
 import org.exist.xquery.XPathException;
 import org.exist.xquery.XQueryContext;
 import org.exist.xquery.value.Item;
@@ -935,12 +936,124 @@ public abstract class Serializer implements XMLReader {
 		attrs.addAttribute(ATTR_HITS_QNAME, Integer.toString(seq.getItemCount()));
 		attrs.addAttribute(ATTR_START_QNAME, Integer.toString(start));
 		attrs.addAttribute(ATTR_COUNT_QNAME, Integer.toString(count));
+		addResultAttributes(attrs, compilationTime, executionTime);
+
+		startResult(wrap, attrs);
+
+		for(int i = --start; i < start + count; i++) {
+			final Item item = seq.itemAt(i);
+                        if (item == null) {
+							LOG.debug("item {} not found", i);
+                            continue;
+                        }
+                        
+			itemToSAX(item, typed, wrap);
+		}
+		
+		endResult(wrap);
+	}
+
+	/**
+	 * Serialize the items in the given sequence to SAX in the order in which they are returned by
+	 * the sequence's iterator, starting with item start. Unlike
+	 * {@link #toSAX(Sequence, int, int, boolean, boolean, long, long)} the length of the sequence is
+	 * never asked for, so each item is passed on to the receiver as soon as it is reached and the
+	 * wrapper element, if requested, has the form:
+	 *
+	 * &lt;exist:result start="value of start"&gt;
+	 *
+	 * @param seq The sequence to serialize
+	 * @param start The position in the sequence to start serialization from
+	 * @param count The maximum number of items from the start position to serialize, or a value
+	 *              less than 1 to serialize all remaining items
+	 * @param wrap Indicates whether the output should be wrapped
+	 * @param typed Indicates whether the output types should be wrapped
+	 * @param compilationTime The time taken to compile the query which produced the sequence
+	 * @param executionTime The time taken to execute the query which produced the sequence
+	 *
+	 * @throws SAXException If an error occurs during serialization
+	 */
+	public void streamToSAX(final Sequence seq, final int start, final int count, final boolean wrap, final boolean typed, final long compilationTime, final long executionTime) throws SAXException {
+        try {
+            setStylesheetFromProperties(null);
+        } catch (final TransformerConfigurationException e) {
+            throw new SAXException(e.getMessage(), e);
+        }
+        setXSLHandler(null, false);
+		final AttrList attrs = new AttrList();
+		attrs.addAttribute(ATTR_START_QNAME, Integer.toString(start));
+		addResultAttributes(attrs, compilationTime, executionTime);
+
+		startResult(wrap, attrs);
+
+		try {
+			final SequenceIterator itSeq = seq.iterate();
+			for (int i = 1; i < start && itSeq.hasNext(); i++) {
+				itSeq.nextItem();
+			}
+			for (int i = 0; (count < 1 || i < count) && itSeq.hasNext(); i++) {
+				itemToSAX(itSeq.nextItem(), typed, wrap);
+			}
+		} catch (final XPathException e) {
+			throw new SAXException(e.getMessage(), e);
+		}
+
+		endResult(wrap);
+	}
+
+	/**
+	 * Serialize the result of a main module whose body is an element constructor by
+	 * evaluating the module in push mode, see {@link PathExpr#streamTo(Sequence, Serializer, Receiver)}.
+	 * The constructed element is written to the receiver as it is computed instead of
+	 * first being built in memory. No wrapper element is written.
+	 *
+	 * @param module the main module, which must have a streamable body
+	 * @param contextSequence the context sequence for the module
+	 *
+	 * @throws SAXException If an error occurs during serialization
+	 * @throws XPathException If an error occurs evaluating the module
+	 */
+	public void streamToSAX(final PathExpr module, final Sequence contextSequence) throws SAXException, XPathException {
+        try {
+            setStylesheetFromProperties(null);
+        } catch (final TransformerConfigurationException e) {
+            throw new SAXException(e.getMessage(), e);
+        }
+        setXSLHandler(null, false);
+
+		if(!documentStarted) {
+			receiver.startDocument();
+			documentStarted = true;
+		}
+		module.streamTo(contextSequence, this, receiver);
+		receiver.endDocument();
+	}
+
+	/**
+	 * Serialize a node to the current receiver as part of content which is being
+	 * written by the caller, without generating document events.
+	 *
+	 * @param node the node to serialize
+	 *
+	 * @throws SAXException If an error occurs during serialization
+	 */
+	public void nodeToReceiver(final NodeValue node) throws SAXException {
+		if(node.getImplementationType() == NodeValue.PERSISTENT_NODE) {
+			serializeToReceiver((NodeProxy) node, false, true);
+		} else {
+			((org.exist.dom.memtree.NodeImpl) node).streamTo(this, receiver);
+		}
+	}
+
+	private void addResultAttributes(final AttrList attrs, final long compilationTime, final long executionTime) {
 		if (outputProperties.getProperty(PROPERTY_SESSION_ID) != null) {
             attrs.addAttribute(ATTR_SESSION_ID, outputProperties.getProperty(PROPERTY_SESSION_ID));
         }
 		attrs.addAttribute(ATTR_COMPILATION_TIME_QNAME, Long.toString(compilationTime));
-		attrs.addAttribute(ATTR_EXECUTION_TIME_QNAME, Long.toString(compilationTime));
+		attrs.addAttribute(ATTR_EXECUTION_TIME_QNAME, Long.toString(executionTime));
+	}
 
+	private void startResult(final boolean wrap, final AttrList attrs) throws SAXException {
 		if(!documentStarted) {
 			receiver.startDocument();
 			documentStarted = true;
@@ -949,17 +1062,9 @@ public abstract class Serializer implements XMLReader {
 			receiver.startPrefixMapping("exist", Namespaces.EXIST_NS);
 			receiver.startElement(ELEM_RESULT_QNAME, attrs);
 		}
+	}
 
-		for(int i = --start; i < start + count; i++) {
-			final Item item = seq.itemAt(i);
-                        if (item == null) {
-							LOG.debug("item {} not found", i);
-                            continue;
-                        }
-                        
-			itemToSAX(item, typed, wrap);
-		}
-		
+	private void endResult(final boolean wrap) throws SAXException {
 		if(wrap) {
 			receiver.endElement(ELEM_RESULT_QNAME);
 			receiver.endPrefixMapping("exist");
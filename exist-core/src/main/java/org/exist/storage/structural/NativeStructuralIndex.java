@@ -24,18 +24,21 @@ package org.exist.storage.structural;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.file.Path;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.exist.backup.RawDataBackup;
 import org.exist.dom.persistent.SymbolTable;
 import org.exist.indexing.AbstractIndex;
+import org.exist.indexing.BulkLoadSupport;
 import org.exist.indexing.IndexWorker;
 import org.exist.indexing.RawBackupSupport;
 import org.exist.storage.BrokerPool;
 import org.exist.storage.DBBroker;
+import org.exist.storage.btree.BTree;
 import org.exist.storage.btree.DBException;
+import org.exist.storage.btree.KeySorter;
 import org.exist.storage.index.BTreeStore;
 import org.exist.storage.lock.LockManager;
 import org.exist.storage.lock.ManagedLock;
@@ -44,7 +47,7 @@ import org.exist.util.FileUtils;
 import org.exist.util.LockException;
 import org.w3c.dom.Element;
 
-public class NativeStructuralIndex extends AbstractIndex implements RawBackupSupport {
+public class NativeStructuralIndex extends AbstractIndex implements RawBackupSupport, BulkLoadSupport {
 
     protected static final Logger LOG = LogManager.getLogger(NativeStructuralIndex.class);
 
@@ -54,9 +57,18 @@ public class NativeStructuralIndex extends AbstractIndex implements RawBackupSup
 
     public static final byte STRUCTURAL_INDEX_ID = 1;
 
+    /** Fraction of a page filled by a bulk load */
+    private final static double BULK_LOAD_FILL_FACTOR = 0.9;
+
     /** The datastore for this node index */
     protected BTreeStore btree;
 
+    /**
+     * Collects the keys while a bulk load is running, null otherwise.
+     * Guarded by the lock on {@link #btree}.
+     */
+    protected KeySorter bulkLoad = null;
+
     protected LockManager lockManager;
     protected SymbolTable symbols;
 
@@ -95,7 +107,7 @@ public class NativeStructuralIndex extends AbstractIndex implements RawBackupSup
         if (btree == null) {
             return;
         }
-        try(final ManagedLock<ReentrantLock> bfileLock = lockManager.acquireBtreeWriteLock(btree.getLockName())) {
+        try(final ManagedLock<ReentrantReadWriteLock> bfileLock = lockManager.acquireBtreeWriteLock(btree.getLockName())) {
             btree.flush();
         } catch (final LockException e) {
             LOG.warn("Failed to acquire lock for '{}'", FileUtils.fileName(btree.getFile()), e);
@@ -106,6 +118,42 @@ public class NativeStructuralIndex extends AbstractIndex implements RawBackupSup
         }
     }
 
+    @Override
+    public void startBulkLoad() throws DBException {
+        try(final ManagedLock<ReentrantReadWriteLock> btreeLock = lockManager.acquireBtreeWriteLock(btree.getLockName())) {
+            if (!btree.isEmpty()) {
+                LOG.info("'{}' is not empty, keys will be inserted one by one", FileUtils.fileName(btree.getFile()));
+                return;
+            }
+            bulkLoad = new KeySorter();
+        } catch (final LockException e) {
+            throw new DBException("Failed to acquire lock for '" + FileUtils.fileName(btree.getFile()) + "': " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void endBulkLoad() throws DBException {
+        try(final ManagedLock<ReentrantReadWriteLock> btreeLock = lockManager.acquireBtreeWriteLock(btree.getLockName())) {
+            if (bulkLoad == null) {
+                return;
+            }
+            try (final KeySorter sorter = bulkLoad) {
+                bulkLoad = null;
+                final long start = System.currentTimeMillis();
+                final BTree.BulkLoader loader = btree.bulkLoad(BULK_LOAD_FILL_FACTOR);
+                sorter.drainTo(loader);
+                loader.finish();
+                btree.flush();
+                LOG.info("Bulk loaded {} keys into '{}' in {} ms", loader.getKeyCount(),
+                        FileUtils.fileName(btree.getFile()), System.currentTimeMillis() - start);
+            } catch (final IOException e) {
+                throw new DBException("Bulk load of '" + FileUtils.fileName(btree.getFile()) + "' failed: " + e.getMessage());
+            }
+        } catch (final LockException e) {
+            throw new DBException("Failed to acquire lock for '" + FileUtils.fileName(btree.getFile()) + "': " + e.getMessage());
+        }
+    }
+
     @Override
     public void remove() throws DBException {
         btree.closeAndRemove();
@@ -32,6 +32,7 @@ import org.exist.dom.persistent.DocumentSet;
 import org.exist.dom.persistent.DocumentImpl;
 import org.exist.dom.persistent.IStoredNode;
 import org.exist.dom.persistent.SymbolTable;
+import org.exist.dom.persistent.ColumnarNodeSet;
 import org.exist.dom.persistent.NewArrayNodeSet;
 import org.exist.dom.persistent.ExtNodeSet;
 import org.exist.dom.persistent.NodeSet;
@@ -56,7 +57,7 @@ import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 
 import java.util.*;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.exist.security.PermissionDeniedException;
 
@@ -117,7 +118,43 @@ public class NativeStructuralIndexWorker implements IndexWorker, StructuralIndex
             final byte[] toKey = computeKey(type, qname, range.end + 1);
             final IndexQuery query = new IndexQuery(IndexQuery.RANGE, new Value(fromKey), new Value(toKey));
 
-            try(final ManagedLock<ReentrantLock> btreeLock = index.lockManager.acquireBtreeReadLock(index.btree.getLockName())) {
+            try(final ManagedLock<ReentrantReadWriteLock> btreeLock = index.lockManager.acquireBtreeReadLock(index.btree.getLockName())) {
+                index.btree.query(query, callback);
+            } catch (final LockException e) {
+                NativeStructuralIndex.LOG.warn("Lock problem while searching structural index: {}", e.getMessage(), e);
+            } catch (final TerminatedException e) {
+                NativeStructuralIndex.LOG.warn("Query was terminated while searching structural index: {}", e.getMessage(), e);
+            } catch (final Exception e) {
+                NativeStructuralIndex.LOG.error("Error while searching structural index: {}", e.getMessage(), e);
+            }
+        }
+        return result;
+    }
+
+    public NodeSet findAllElementsByTagName(byte type, DocumentSet docs, QName qname, Expression parent) {
+        final ColumnarNodeSet result = new ColumnarNodeSet(index.getBrokerPool().getNodeFactory(),
+                type == ElementValue.ATTRIBUTE ? Node.ATTRIBUTE_NODE : Node.ELEMENT_NODE,
+                qname != null && qname.getNameType() != type ?
+                        new QName(qname.getLocalPart(), qname.getNamespaceURI(), qname.getPrefix(), type) : qname);
+        final BTreeCallback callback = (value, pointer) -> {
+            if (parent != null) {
+                parent.getContext().proceed(parent);
+            }
+            final byte[] key = value.getData();
+            final DocumentImpl doc = docs.getDoc(readDocId(key));
+            if (doc != null) {
+                // copy the node id from the key, without creating a node id object
+                result.add(doc, readNodeIdUnits(key, pointer), key, 9, pointer);
+            }
+            return true;
+        };
+
+        for (final Range range : getDocIdRanges(docs)) {
+            final byte[] fromKey = computeKey(type, qname, range.start);
+            final byte[] toKey = computeKey(type, qname, range.end + 1);
+            final IndexQuery query = new IndexQuery(IndexQuery.RANGE, new Value(fromKey), new Value(toKey));
+
+            try(final ManagedLock<ReentrantReadWriteLock> btreeLock = index.lockManager.acquireBtreeReadLock(index.btree.getLockName())) {
                 index.btree.query(query, callback);
             } catch (final LockException e) {
                 NativeStructuralIndex.LOG.warn("Lock problem while searching structural index: {}", e.getMessage(), e);
@@ -194,7 +231,7 @@ public class NativeStructuralIndexWorker implements IndexWorker, StructuralIndex
     public NodeSet findDescendantsByTagName(byte type, QName qname, int axis, DocumentSet docs, NodeSet contextSet, int contextId, Expression parent) {
         final NewArrayNodeSet result = new NewArrayNodeSet();
         final FindDescendantsCallback callback = new FindDescendantsCallback(type, axis, qname, contextId, result, parent);
-        try(final ManagedLock<ReentrantLock> btreeLock = index.lockManager.acquireBtreeReadLock(index.btree.getLockName())) {
+        try(final ManagedLock<ReentrantReadWriteLock> btreeLock = index.lockManager.acquireBtreeReadLock(index.btree.getLockName())) {
             for (final NodeProxy ancestor : contextSet) {
                 final DocumentImpl doc = ancestor.getOwnerDocument();
                 final NodeId ancestorId = ancestor.getNodeId();
@@ -225,7 +262,7 @@ public class NativeStructuralIndexWorker implements IndexWorker, StructuralIndex
     public NodeSet findAncestorsByTagName(byte type, QName qname, int axis, DocumentSet docs, NodeSet contextSet,
                                           int contextId) {
         final NewArrayNodeSet result = new NewArrayNodeSet();
-        try(final ManagedLock<ReentrantLock> btreeLock = index.lockManager.acquireBtreeReadLock(index.btree.getLockName())) {
+        try(final ManagedLock<ReentrantReadWriteLock> btreeLock = index.lockManager.acquireBtreeReadLock(index.btree.getLockName())) {
             for (final NodeProxy descendant : contextSet) {
                 NodeId parentId;
                 if (axis == Constants.ANCESTOR_SELF_AXIS || axis == Constants.SELF_AXIS)
@@ -271,7 +308,7 @@ public class NativeStructuralIndexWorker implements IndexWorker, StructuralIndex
             final DocumentImpl doc = ancestor.getOwnerDocument();
             final NodeId ancestorId = ancestor.getNodeId();
             final List<QName> qnames = getQNamesForDoc(doc);
-            try(final ManagedLock<ReentrantLock> btreeLock = index.lockManager.acquireBtreeReadLock(index.btree.getLockName())) {
+            try(final ManagedLock<ReentrantReadWriteLock> btreeLock = index.lockManager.acquireBtreeReadLock(index.btree.getLockName())) {
 	            for (final QName qname : qnames) {
 	            	if (test.getName() == null || test.matches(qname)) {
 	            		callback.setAncestor(doc, ancestor);
@@ -492,7 +529,7 @@ public class NativeStructuralIndexWorker implements IndexWorker, StructuralIndex
         try {
             for (final Map.Entry<QName,List<NodeProxy>> entry: pending.entrySet()) {
                 final QName qname = entry.getKey();
-                try(final ManagedLock<ReentrantLock> btreeLock = index.lockManager.acquireBtreeWriteLock(index.btree.getLockName())) {
+                try(final ManagedLock<ReentrantReadWriteLock> btreeLock = index.lockManager.acquireBtreeWriteLock(index.btree.getLockName())) {
                     final List<NodeProxy> nodes = entry.getValue();
                     for (final NodeProxy proxy : nodes) {
                         final NodeId nodeId = proxy.getNodeId();
@@ -518,7 +555,7 @@ public class NativeStructuralIndexWorker implements IndexWorker, StructuralIndex
             final byte[] fromKey = computeKey(qname.getNameType(), qname, docToRemove.getDocId());
             final byte[] toKey = computeKey(qname.getNameType(), qname, docToRemove.getDocId() + 1);
             final IndexQuery query = new IndexQuery(IndexQuery.RANGE, new Value(fromKey), new Value(toKey));
-            try(final ManagedLock<ReentrantLock> btreeLock = index.lockManager.acquireBtreeWriteLock(index.btree.getLockName())) {
+            try(final ManagedLock<ReentrantReadWriteLock> btreeLock = index.lockManager.acquireBtreeWriteLock(index.btree.getLockName())) {
                 index.btree.remove(query, null);
             } catch (final LockException e) {
                 NativeStructuralIndex.LOG.warn("Failed to lock structural index: {}", e.getMessage(), e);
@@ -533,7 +570,7 @@ public class NativeStructuralIndexWorker implements IndexWorker, StructuralIndex
         final byte[] fromKey = computeDocKey(doc.getDocId());
         final byte[] toKey = computeDocKey(doc.getDocId() + 1);
         final IndexQuery query = new IndexQuery(IndexQuery.RANGE, new Value(fromKey), new Value(toKey));
-        try(final ManagedLock<ReentrantLock> btreeLock = index.lockManager.acquireBtreeWriteLock(index.btree.getLockName())) {
+        try(final ManagedLock<ReentrantReadWriteLock> btreeLock = index.lockManager.acquireBtreeWriteLock(index.btree.getLockName())) {
             index.btree.remove(query, null);
         } catch (final LockException e) {
             NativeStructuralIndex.LOG.warn("Failed to lock structural index: {}", e.getMessage(), e);
@@ -549,7 +586,7 @@ public class NativeStructuralIndexWorker implements IndexWorker, StructuralIndex
         final byte[] fromKey = computeDocKey(doc.getDocId());
         final byte[] toKey = computeDocKey(doc.getDocId() + 1);
         final IndexQuery query = new IndexQuery(IndexQuery.RANGE, new Value(fromKey), new Value(toKey));
-        try(final ManagedLock<ReentrantLock> btreeLock = index.lockManager.acquireBtreeWriteLock(index.btree.getLockName())) {
+        try(final ManagedLock<ReentrantReadWriteLock> btreeLock = index.lockManager.acquireBtreeWriteLock(index.btree.getLockName())) {
             index.btree.query(query, (value, pointer) -> {
                 final QName qname = readQName(value.getData());
                 qnames.add(qname);
@@ -605,7 +642,7 @@ public class NativeStructuralIndexWorker implements IndexWorker, StructuralIndex
                 final byte[] toKey = computeKey(qname.getNameType(), qname, doc.getDocId() + 1);
                 final IndexQuery query = new IndexQuery(IndexQuery.RANGE, new Value(fromKey), new Value(toKey));
 
-                try(final ManagedLock<ReentrantLock> btreeLock = index.lockManager.acquireBtreeReadLock(index.btree.getLockName())) {
+                try(final ManagedLock<ReentrantReadWriteLock> btreeLock = index.lockManager.acquireBtreeReadLock(index.btree.getLockName())) {
                     index.btree.query(query, (value, pointer) -> {
                         Occurrences oc = occurrences.get(name);
                         if (oc == null) {
@@ -665,8 +702,17 @@ public class NativeStructuralIndexWorker implements IndexWorker, StructuralIndex
         try {
             for (final Map.Entry<QName,List<NodeProxy>> entry: pending.entrySet()) {
                 final QName qname = entry.getKey();
-                try(final ManagedLock<ReentrantLock> btreeLock = index.lockManager.acquireBtreeWriteLock(index.btree.getLockName())) {
+                try(final ManagedLock<ReentrantReadWriteLock> btreeLock = index.lockManager.acquireBtreeWriteLock(index.btree.getLockName())) {
                     final List<NodeProxy> nodes = entry.getValue();
+                    if (index.bulkLoad != null) {
+                        // the keys are sorted and written once all documents have been reindexed
+                        for (final NodeProxy proxy : nodes) {
+                            final byte[] key = computeKey(qname.getNameType(), qname, document.getDocId(), proxy.getNodeId());
+                            index.bulkLoad.add(new Value(key), computeValue(proxy));
+                        }
+                        index.bulkLoad.add(new Value(computeDocKey(qname.getNameType(), document.getDocId(), qname)), 0);
+                        continue;
+                    }
                     for (final NodeProxy proxy : nodes) {
                         final NodeId nodeId = proxy.getNodeId();
                         final byte[] key = computeKey(qname.getNameType(), qname, document.getDocId(), nodeId);
@@ -760,13 +806,16 @@ public class NativeStructuralIndexWorker implements IndexWorker, StructuralIndex
     }
 
     private NodeId readNodeId(byte[] key, long value) {
+        return index.getBrokerPool().getNodeFactory().createFromData(readNodeIdUnits(key, value), key, 9);
+    }
+
+    private int readNodeIdUnits(byte[] key, long value) {
         // extra number of bits of the node id is encoded in the long address
         short bits = (short)((value >>> 24) & 0xFFL);
         if (bits == 0)
             {bits = 8;}
         // compute total number of bits for node id
-        final int units = (key.length - 10) * 8 + bits;
-        return index.getBrokerPool().getNodeFactory().createFromData(units, key, 9);
+        return (key.length - 10) * 8 + bits;
     }
 
     private QName readQName(byte[] key) {
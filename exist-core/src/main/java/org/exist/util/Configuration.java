@@ -57,12 +57,17 @@ import org.exist.storage.IndexSpec;
 import org.exist.storage.NativeBroker;
 import org.exist.storage.NativeValueIndex;
 import org.exist.storage.XQueryPool;
+import org.exist.storage.btree.BTree;
+import org.exist.storage.btree.Paged;
 import org.exist.storage.journal.Journal;
 import org.exist.storage.serializers.CustomMatchListenerFactory;
 import org.exist.storage.serializers.Serializer;
 import org.exist.validation.GrammarPool;
 import org.exist.xmldb.DatabaseImpl;
+import org.exist.xmlrpc.QueryResultCache;
 import org.exist.xquery.FunctionFactory;
+import org.exist.xquery.GroupByClause;
+import org.exist.xquery.OrderByClause;
 import org.exist.xquery.PerformanceStats;
 import org.exist.xquery.XQueryContext;
 import org.exist.xquery.XQueryWatchDog;
@@ -328,6 +333,15 @@ public class Configuration implements ErrorHandler
 
             config.put(LockManager.CONFIGURATION_PATH_LOCKS_FOR_DOCUMENTS, documentUsePathLocks);
         }
+
+        final NodeList nlBtree = lockManager.getElementsByTagName("btree");
+        if(nlBtree.getLength() > 0) {
+            final Element btree = (Element)nlBtree.item(0);
+            final String sharedReadLocks = getConfigAttributeValue(btree, "shared-read-locks");
+            final boolean btreeSharedReadLocks = parseBoolean(sharedReadLocks, false);
+
+            config.put(LockManager.CONFIGURATION_BTREE_SHARED_READ_LOCKS, btreeSharedReadLocks);
+        }
     }
 
     private void configureRepository(Element element) {
@@ -386,6 +400,21 @@ public class Configuration implements ErrorHandler
         config.put( XQueryContext.PROPERTY_XQUERY_RAISE_ERROR_ON_FAILED_RETRIEVAL, Configuration.parseBoolean( raiseErrorOnFailedRetrieval, XQueryContext.XQUERY_RAISE_ERROR_ON_FAILED_RETRIEVAL_DEFAULT ) );
         LOG.debug(XQueryContext.PROPERTY_XQUERY_RAISE_ERROR_ON_FAILED_RETRIEVAL + ": {}", config.get(XQueryContext.PROPERTY_XQUERY_RAISE_ERROR_ON_FAILED_RETRIEVAL));
 
+        final String groupBySpillThreshold = getConfigAttributeValue( xquery, GroupByClause.GROUP_BY_SPILL_THRESHOLD_ATTRIBUTE );
+        config.put( GroupByClause.PROPERTY_GROUP_BY_SPILL_THRESHOLD, Configuration.parseInt( groupBySpillThreshold, GroupByClause.DEFAULT_GROUP_BY_SPILL_THRESHOLD ) );
+        LOG.debug(GroupByClause.PROPERTY_GROUP_BY_SPILL_THRESHOLD + ": {}", config.get(GroupByClause.PROPERTY_GROUP_BY_SPILL_THRESHOLD));
+
+        final String orderBySpillThreshold = getConfigAttributeValue( xquery, OrderByClause.ORDER_BY_SPILL_THRESHOLD_ATTRIBUTE );
+        config.put( OrderByClause.PROPERTY_ORDER_BY_SPILL_THRESHOLD, Configuration.parseInt( orderBySpillThreshold, OrderByClause.DEFAULT_ORDER_BY_SPILL_THRESHOLD ) );
+        LOG.debug(OrderByClause.PROPERTY_ORDER_BY_SPILL_THRESHOLD + ": {}", config.get(OrderByClause.PROPERTY_ORDER_BY_SPILL_THRESHOLD));
+
+        String rpcCursorMemory = getConfigAttributeValue( xquery, QueryResultCache.RPC_CURSOR_MEMORY_ATTRIBUTE );
+        if( rpcCursorMemory != null && ( rpcCursorMemory.endsWith( "M" ) || rpcCursorMemory.endsWith( "m" ) ) ) {
+            rpcCursorMemory = rpcCursorMemory.substring( 0, rpcCursorMemory.length() - 1 );
+        }
+        config.put( QueryResultCache.PROPERTY_RPC_CURSOR_MEMORY, Configuration.parseInt( rpcCursorMemory, QueryResultCache.DEFAULT_RPC_CURSOR_MEMORY ) );
+        LOG.debug(QueryResultCache.PROPERTY_RPC_CURSOR_MEMORY + ": {}m", config.get(QueryResultCache.PROPERTY_RPC_CURSOR_MEMORY));
+
         final String trace = getConfigAttributeValue( xquery, PerformanceStats.CONFIG_ATTR_TRACE );
         config.put( PerformanceStats.CONFIG_PROPERTY_TRACE, trace );
 
@@ -907,6 +936,34 @@ public class Configuration implements ErrorHandler
             LOG.warn("Cannot convert " + DefaultCacheManager.SHRINK_THRESHOLD_PROPERTY + " value to integer: {}", cacheShrinkThreshold, nfe);
         }
 
+        String cacheBalancing = getConfigAttributeValue( con, DefaultCacheManager.CACHE_BALANCING_ATTRIBUTE );
+
+        if( cacheBalancing == null ) {
+            cacheBalancing = DefaultCacheManager.DEFAULT_CACHE_BALANCING_STRING;
+        }
+
+        config.put( DefaultCacheManager.PROPERTY_CACHE_BALANCING, parseBoolean( cacheBalancing, false ) );
+        LOG.debug(DefaultCacheManager.PROPERTY_CACHE_BALANCING + ": {}", config.get(DefaultCacheManager.PROPERTY_CACHE_BALANCING));
+
+        String suffixTruncation = getConfigAttributeValue( con, BTree.BTREE_SUFFIX_TRUNCATION_ATTRIBUTE );
+
+        if( suffixTruncation == null ) {
+            suffixTruncation = BTree.DEFAULT_BTREE_SUFFIX_TRUNCATION_STRING;
+        }
+
+        config.put( BTree.PROPERTY_BTREE_SUFFIX_TRUNCATION, parseBoolean( suffixTruncation, false ) );
+        LOG.debug(BTree.PROPERTY_BTREE_SUFFIX_TRUNCATION + ": {}", config.get(BTree.PROPERTY_BTREE_SUFFIX_TRUNCATION));
+
+        final String cachePolicy = getConfigAttributeValue( con, DefaultCacheManager.CACHE_POLICY_ATTRIBUTE );
+        if( cachePolicy != null ) {
+            try {
+                config.put( DefaultCacheManager.PROPERTY_CACHE_POLICY, DefaultCacheManager.CachePolicy.fromId( cachePolicy ) );
+                LOG.debug(DefaultCacheManager.PROPERTY_CACHE_POLICY + ": {}", config.get(DefaultCacheManager.PROPERTY_CACHE_POLICY));
+            } catch( final IllegalArgumentException e ) {
+                throw new DatabaseConfigurationException( e.getMessage() );
+            }
+        }
+
         String collectionCache = getConfigAttributeValue(con, CollectionCache.CACHE_SIZE_ATTRIBUTE);
         if(collectionCache != null) {
             collectionCache = collectionCache.toLowerCase();
@@ -1057,6 +1114,45 @@ public class Configuration implements ErrorHandler
         if( recoveries.getLength() > 0 ) {
             configureRecovery( dbHome, (Element)recoveries.item( 0 ) );
         }
+
+        final NodeList pageIOs = con.getElementsByTagName( Paged.CONFIGURATION_PAGE_IO_ELEMENT_NAME );
+
+        if( pageIOs.getLength() > 0 ) {
+            configurePageIO( (Element)pageIOs.item( 0 ) );
+        }
+    }
+
+
+    private void configurePageIO( final Element pageIO ) throws DatabaseConfigurationException
+    {
+        final String mode = getConfigAttributeValue( pageIO, Paged.PAGE_IO_MODE_ATTRIBUTE );
+        if( mode != null ) {
+            try {
+                config.put( Paged.PROPERTY_PAGE_IO_MODE, Paged.PageIO.fromId( mode ) );
+                LOG.debug(Paged.PROPERTY_PAGE_IO_MODE + ": {}", config.get(Paged.PROPERTY_PAGE_IO_MODE));
+            } catch( final IllegalArgumentException e ) {
+                throw new DatabaseConfigurationException( e.getMessage() );
+            }
+        }
+
+        final Map<String, Paged.PageIO> files = new HashMap<>();
+        final NodeList nlFiles = pageIO.getElementsByTagName( Paged.CONFIGURATION_PAGE_IO_FILE_ELEMENT_NAME );
+        for( int i = 0; i < nlFiles.getLength(); i++ ) {
+            final Element file = (Element)nlFiles.item( i );
+            final String name = getConfigAttributeValue( file, Paged.PAGE_IO_FILE_NAME_ATTRIBUTE );
+            final String fileMode = getConfigAttributeValue( file, Paged.PAGE_IO_MODE_ATTRIBUTE );
+            if( name == null || fileMode == null ) {
+                throw new DatabaseConfigurationException( "Configuration element " + Paged.CONFIGURATION_PAGE_IO_FILE_ELEMENT_NAME
+                        + " needs the attributes '" + Paged.PAGE_IO_FILE_NAME_ATTRIBUTE + "' and '" + Paged.PAGE_IO_MODE_ATTRIBUTE + "'" );
+            }
+            try {
+                files.put( name, Paged.PageIO.fromId( fileMode ) );
+            } catch( final IllegalArgumentException e ) {
+                throw new DatabaseConfigurationException( e.getMessage() );
+            }
+        }
+        config.put( Paged.PROPERTY_PAGE_IO_FILES, files );
+        LOG.debug(Paged.PROPERTY_PAGE_IO_FILES + ": {}", config.get(Paged.PROPERTY_PAGE_IO_FILES));
     }
 
 
@@ -1074,6 +1170,30 @@ public class Configuration implements ErrorHandler
         setProperty( BrokerPool.PROPERTY_RECOVERY_GROUP_COMMIT, parseBoolean( option, false ) );
         LOG.debug(BrokerPool.PROPERTY_RECOVERY_GROUP_COMMIT + ": {}", config.get(BrokerPool.PROPERTY_RECOVERY_GROUP_COMMIT));
 
+        option = getConfigAttributeValue( recovery, BrokerPool.RECOVERY_GROUP_SYNC_ATTRIBUTE );
+        setProperty( BrokerPool.PROPERTY_RECOVERY_GROUP_SYNC, parseBoolean( option, false ) );
+        LOG.debug(BrokerPool.PROPERTY_RECOVERY_GROUP_SYNC + ": {}", config.get(BrokerPool.PROPERTY_RECOVERY_GROUP_SYNC));
+
+        option = getConfigAttributeValue( recovery, BrokerPool.RECOVERY_GROUP_SYNC_MAX_DELAY_ATTRIBUTE );
+        if( option != null ) {
+            try {
+                setProperty( BrokerPool.PROPERTY_RECOVERY_GROUP_SYNC_MAX_DELAY, Long.valueOf( option ) );
+                LOG.debug(BrokerPool.PROPERTY_RECOVERY_GROUP_SYNC_MAX_DELAY + ": {}ms", config.get(BrokerPool.PROPERTY_RECOVERY_GROUP_SYNC_MAX_DELAY));
+            } catch( final NumberFormatException e ) {
+                throw new DatabaseConfigurationException( "group-sync-max-delay attribute in recovery section needs to be a number" );
+            }
+        }
+
+        option = getConfigAttributeValue( recovery, BrokerPool.RECOVERY_GROUP_SYNC_MAX_BATCH_ATTRIBUTE );
+        if( option != null ) {
+            try {
+                setProperty( BrokerPool.PROPERTY_RECOVERY_GROUP_SYNC_MAX_BATCH, Integer.valueOf( option ) );
+                LOG.debug(BrokerPool.PROPERTY_RECOVERY_GROUP_SYNC_MAX_BATCH + ": {}", config.get(BrokerPool.PROPERTY_RECOVERY_GROUP_SYNC_MAX_BATCH));
+            } catch( final NumberFormatException e ) {
+                throw new DatabaseConfigurationException( "group-sync-max-batch attribute in recovery section needs to be a number" );
+            }
+        }
+
         option = getConfigAttributeValue( recovery, Journal.RECOVERY_JOURNAL_DIR_ATTRIBUTE );
 
         if(option != null) {
@@ -1114,6 +1234,16 @@ public class Configuration implements ErrorHandler
         setProperty( BrokerPool.PROPERTY_RECOVERY_FORCE_RESTART, value);
         LOG.debug(BrokerPool.PROPERTY_RECOVERY_FORCE_RESTART + ": {}", config.get(BrokerPool.PROPERTY_RECOVERY_FORCE_RESTART));
 
+        option = getConfigAttributeValue( recovery, BrokerPool.RECOVERY_REDO_THREADS_ATTRIBUTE );
+        if( option != null ) {
+            try {
+                setProperty( BrokerPool.PROPERTY_RECOVERY_REDO_THREADS, Integer.valueOf( option ) );
+                LOG.debug(BrokerPool.PROPERTY_RECOVERY_REDO_THREADS + ": {}", config.get(BrokerPool.PROPERTY_RECOVERY_REDO_THREADS));
+            } catch( final NumberFormatException e ) {
+                throw new DatabaseConfigurationException( "redo-threads attribute in recovery section needs to be a number" );
+            }
+        }
+
         option = getConfigAttributeValue( recovery, BrokerPool.RECOVERY_POST_RECOVERY_CHECK );
         value  = false;
 
@@ -1367,6 +1497,24 @@ public class Configuration implements ErrorHandler
             }
         }
 
+        final String reindexThreads = getConfigAttributeValue( indexer, NativeBroker.REINDEX_THREADS_ATTRIBUTE );
+
+        if( reindexThreads != null ) {
+
+            try {
+                int threads = Integer.parseInt( reindexThreads );
+
+                if( threads <= 0 ) {
+                    threads = Runtime.getRuntime().availableProcessors();
+                }
+                config.put( NativeBroker.PROPERTY_REINDEX_THREADS, threads);
+                LOG.debug(NativeBroker.PROPERTY_REINDEX_THREADS + ": {}", config.get(NativeBroker.PROPERTY_REINDEX_THREADS));
+            }
+            catch( final NumberFormatException e ) {
+                LOG.warn( e );
+            }
+        }
+
         final String suppressWS = getConfigAttributeValue( indexer, Indexer.SUPPRESS_WHITESPACE_ATTRIBUTE );
 
         if( suppressWS != null ) {
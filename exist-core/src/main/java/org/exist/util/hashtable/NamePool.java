@@ -21,35 +21,78 @@
  */
 package org.exist.util.hashtable;
 
+import java.util.Arrays;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
+import net.jcip.annotations.GuardedBy;
 import net.jcip.annotations.ThreadSafe;
 import org.exist.dom.QName;
 import org.exist.xquery.Constants;
 
 /**
+ * Interns {@link QName}s and assigns each distinct name an int code,
+ * so that in-memory documents can store names as codes rather than
+ * as object references.
+ *
  * @author Pieter Deelen
  */
 @ThreadSafe
 public class NamePool {
 
-    private final ConcurrentMap<WrappedQName, QName> pool;
+    private static final int INITIAL_SIZE = 64;
+
+    private final ConcurrentMap<WrappedQName, Integer> pool;
+
+    @GuardedBy("this") private int nextCode = 0;
+    private volatile QName[] names = new QName[INITIAL_SIZE];
 
     public NamePool() {
         pool = new ConcurrentHashMap<>();
     }
 
     public QName getSharedName(final QName name) {
+        return getName(getNameCode(name));
+    }
+
+    /**
+     * Returns the code of the given name, adding the name to the pool
+     * if it is not yet known.
+     *
+     * @param name the name
+     * @return the code of the name
+     */
+    public int getNameCode(final QName name) {
         final WrappedQName wrapped = new WrappedQName(name);
-        final QName sharedName = pool.putIfAbsent(wrapped, name);
-        if (sharedName == null) {
-            // The name was not in the pool, return the name just added.
-            return name;
-        } else {
-            // The name was in the pool, return the shared name.
-            return sharedName;
+        final Integer code = pool.get(wrapped);
+        if (code != null) {
+            return code;
         }
+        synchronized (this) {
+            final Integer existing = pool.get(wrapped);
+            if (existing != null) {
+                return existing;
+            }
+            QName[] newNames = names;
+            if (nextCode == newNames.length) {
+                newNames = Arrays.copyOf(newNames, (newNames.length * 3) / 2);
+            }
+            newNames[nextCode] = name;
+            // publish the array before the code becomes visible through the pool
+            names = newNames;
+            pool.put(wrapped, nextCode);
+            return nextCode++;
+        }
+    }
+
+    /**
+     * Returns the name for a code obtained from {@link #getNameCode(QName)}.
+     *
+     * @param code the code of the name
+     * @return the name
+     */
+    public QName getName(final int code) {
+        return names[code];
     }
 
     /**
@@ -25,6 +25,7 @@ import org.exist.storage.DBBroker;
 import org.exist.storage.serializers.EXistOutputKeys;
 import org.exist.storage.serializers.Serializer;
 import org.exist.util.serializer.json.JSONSerializer;
+import org.exist.xquery.PathExpr;
 import org.exist.xquery.XPathException;
 import org.exist.xquery.value.*;
 import org.xml.sax.SAXException;
@@ -62,6 +63,27 @@ public class XQuerySerializer {
     }
 
     public void serialize(final Sequence sequence, final int start, final int howmany, final boolean wrap, final boolean typed, final long compilationTime, final long executionTime) throws SAXException, XPathException {
+        serialize(sequence, start, howmany, wrap, typed, compilationTime, executionTime, false);
+    }
+
+    /**
+     * Serialize a window of the sequence.
+     *
+     * @param sequence the sequence to serialize
+     * @param start the position of the first item to serialize
+     * @param howmany the number of items to serialize
+     * @param wrap true to wrap the items in an exist:result element
+     * @param typed true to annotate the items with their type
+     * @param compilationTime the time taken to compile the query
+     * @param executionTime the time taken to execute the query
+     * @param stream true to write the items as the sequence is iterated, without asking
+     *               for its length first. A howmany of less than 1 then writes all
+     *               remaining items and the exist:result element carries no hit count.
+     *
+     * @throws SAXException if an error occurs during serialization
+     * @throws XPathException if an error occurs whilst iterating the sequence
+     */
+    public void serialize(final Sequence sequence, final int start, final int howmany, final boolean wrap, final boolean typed, final long compilationTime, final long executionTime, final boolean stream) throws SAXException, XPathException {
         final String method = outputProperties.getProperty(OutputKeys.METHOD, "xml");
         switch (method) {
             case "adaptive":
@@ -72,17 +94,49 @@ public class XQuerySerializer {
                 break;
             case "xml":
             default:
-                serializeXML(sequence, start, howmany, wrap, typed, compilationTime, executionTime);
+                serializeXML(sequence, start, howmany, wrap, typed, compilationTime, executionTime, stream);
                 break;
         }
     }
 
+    /**
+     * Serialize the result of a main module whose body is an element constructor,
+     * evaluating the body in push mode so that the element is written out as it is
+     * constructed. Only the XML based output methods (xml, xhtml, html and text)
+     * support this, i.e. those for which {@link #normalize()} is true.
+     *
+     * @param module the main module, which must have a streamable body
+     * @param contextSequence the context sequence for the module
+     *
+     * @throws SAXException if an error occurs during serialization
+     * @throws XPathException if an error occurs evaluating the module
+     */
+    public void serialize(final PathExpr module, final Sequence contextSequence) throws SAXException, XPathException {
+        final Serializer serializer = broker.borrowSerializer();
+        SAXSerializer sax = null;
+        try {
+            sax = (SAXSerializer) SerializerPool.getInstance().borrowObject(
+                    SAXSerializer.class);
+            sax.setOutput(writer, outputProperties);
+            serializer.setProperties(outputProperties);
+            serializer.setSAXHandlers(sax, sax);
+            serializer.streamToSAX(module, contextSequence);
+        } catch (SAXNotSupportedException | SAXNotRecognizedException e) {
+            throw new SAXException(e.getMessage(), e);
+        } finally {
+            if (sax != null) {
+                SerializerPool.getInstance().returnObject(sax);
+            }
+            broker.returnSerializer(serializer);
+        }
+    }
+
     public boolean normalize() {
         final String method = outputProperties.getProperty(OutputKeys.METHOD, "xml");
         return !("json".equals(method) || "adaptive".equals(method));
     }
 
-    private void serializeXML(final Sequence sequence, final int start, final int howmany, final boolean wrap, final boolean typed, final long compilationTime, final long executionTime) throws SAXException, XPathException {
+    private void serializeXML(final Sequence sequence, final int start, final int howmany, final boolean wrap, final boolean typed, final long compilationTime, final long executionTime, final boolean stream) throws SAXException, XPathException {
         final Serializer serializer = broker.borrowSerializer();
         SAXSerializer sax = null;
         try {
@@ -91,7 +145,11 @@ public class XQuerySerializer {
             sax.setOutput(writer, outputProperties);
             serializer.setProperties(outputProperties);
             serializer.setSAXHandlers(sax, sax);
-            serializer.toSAX(sequence, start, howmany, wrap, typed, compilationTime, executionTime);
+            if (stream) {
+                serializer.streamToSAX(sequence, start, howmany, wrap, typed, compilationTime, executionTime);
+            } else {
+                serializer.toSAX(sequence, start, howmany, wrap, typed, compilationTime, executionTime);
+            }
         } catch (SAXNotSupportedException | SAXNotRecognizedException e) {
             throw new SAXException(e.getMessage(), e);
         } finally {
@@ -106,7 +164,7 @@ public class XQuerySerializer {
         // backwards compatibility: if the sequence contains a single element, we assume
         // it should be transformed to JSON following the rules of the old JSON writer
         if (sequence.hasOne() && Type.subTypeOf(sequence.getItemType(), Type.ELEMENT)) {
-            serializeXML(sequence, 1, sequence.getItemCount(), false, false, compilationTime, executionTime);
+            serializeXML(sequence, 1, sequence.getItemCount(), false, false, compilationTime, executionTime, false);
         } else {
             JSONSerializer serializer = new JSONSerializer(broker, outputProperties);
             serializer.serialize(sequence, writer);
@@ -0,0 +1,230 @@
+/*
+ * eXist-db Open Source Native XML Database
+ * Copyright (C) 2001 The eXist-db Authors
+ *
+ * info@exist-db.org
+ * http://www.exist-db.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.xmlrpc;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Properties;
+import java.util.Set;
+import java.util.function.LongConsumer;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.exist.dom.memtree.DocumentImpl;
+import org.exist.dom.memtree.NodeImpl;
+import org.exist.xquery.XPathException;
+import org.exist.xquery.value.BinaryValue;
+import org.exist.xquery.value.Item;
+import org.exist.xquery.value.Sequence;
+import org.exist.xquery.value.SequenceIterator;
+import org.exist.xquery.value.Type;
+
+import javax.annotation.Nullable;
+
+/**
+ * A forward-only cursor over the results of a query. Unlike {@link QueryResult},
+ * which is paged through by position for as long as the client keeps it alive,
+ * the items of a cursor are handed out in order, each being released as soon as
+ * it has been fetched.
+ *
+ * The result is fully evaluated when the cursor is opened, so at that point it is
+ * held on the heap in full, just as for {@link QueryResult}. The approximate memory
+ * of the items not yet fetched is accounted against the session of the cursor by
+ * the {@link QueryResultCache}, and is given back as the items are fetched or the
+ * cursor is closed.
+ */
+public class QueryCursor extends AbstractCachedResult {
+
+    private final static Logger LOG = LogManager.getLogger(QueryCursor.class);
+
+    /** approximate number of bytes held for each item of the result, regardless of its value */
+    private static final int ITEM_OVERHEAD = 64;
+
+    private final String owner;
+    @Nullable private final String session;
+    private final Properties serialization;
+    private final int itemCount;
+    private Item[] items;
+    private long[] itemMemory;
+    private int position = 0;
+    private long memoryUsage;
+    @Nullable private LongConsumer releaseListener;
+
+    /**
+     * @param owner the name of the user who opened the cursor
+     * @param session an id, chosen by the client, of the session the cursor belongs to, or null
+     * @param result the evaluated result of the query, no reference to it is kept
+     * @param outputProperties the serialization parameters of the query
+     * @param queryTime the time taken to evaluate the query in milliseconds
+     *
+     * @throws XPathException if the string value of an item can not be determined
+     */
+    public QueryCursor(final String owner, @Nullable final String session, final Sequence result,
+            final Properties outputProperties, final long queryTime) throws XPathException {
+        super(queryTime);
+        this.owner = owner;
+        this.session = session;
+        this.serialization = outputProperties;
+        this.itemCount = result.getItemCount();
+        this.items = new Item[itemCount];
+        int i = 0;
+        for (final SequenceIterator iterator = result.iterate(); iterator.hasNext() && i < itemCount; ) {
+            items[i++] = iterator.nextItem();
+        }
+        this.itemMemory = estimateMemoryUsage(items);
+        for (final long bytes : itemMemory) {
+            memoryUsage += bytes;
+        }
+    }
+
+    /**
+     * Estimate the number of bytes of heap held by each item of a result.
+     *
+     * Each item is counted with a fixed overhead, plus the characters of string values.
+     * The node data of an in-memory document is counted once, against the last item
+     * belonging to it, as it can not be released before that item has been. Nodes
+     * stored in the database are only counted with the overhead.
+     *
+     * @param items the items of the result of a query
+     *
+     * @return the approximate memory usage in bytes of each item
+     *
+     * @throws XPathException if the string value of an item can not be determined
+     */
+    static long[] estimateMemoryUsage(final Item[] items) throws XPathException {
+        final long[] bytes = new long[items.length];
+        final Set<DocumentImpl> documents = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (int i = items.length - 1; i >= 0; i--) {
+            final Item item = items[i];
+            bytes[i] = ITEM_OVERHEAD;
+            if (item instanceof NodeImpl) {
+                final DocumentImpl document = item instanceof DocumentImpl ? (DocumentImpl) item : ((NodeImpl) item).getOwnerDocument();
+                if (document != null && documents.add(document)) {
+                    bytes[i] += document.getMemoryUsage();
+                }
+            } else if (Type.subTypeOf(item.getType(), Type.STRING) || item.getType() == Type.UNTYPED_ATOMIC) {
+                bytes[i] += 2L * item.getStringValue().length();
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * @return the name of the user who opened the cursor.
+     */
+    public String getOwner() {
+        return owner;
+    }
+
+    /**
+     * @return the id of the session the cursor belongs to, or null if the client gave none.
+     */
+    public @Nullable String getSession() {
+        return session;
+    }
+
+    /**
+     * @return the number of items in the result of the query.
+     */
+    public int getItemCount() {
+        return itemCount;
+    }
+
+    /**
+     * @return the approximate number of bytes held by the items which have not yet been fetched.
+     */
+    public synchronized long getMemoryUsage() {
+        return memoryUsage;
+    }
+
+    /**
+     * Set by the {@link QueryResultCache} to be told of the memory released
+     * as items are fetched and when the cursor is closed.
+     *
+     * @param releaseListener receives the number of bytes released
+     */
+    synchronized void setReleaseListener(@Nullable final LongConsumer releaseListener) {
+        this.releaseListener = releaseListener;
+    }
+
+    public Properties getSerialization() {
+        return serialization;
+    }
+
+    public synchronized boolean hasNext() {
+        return items != null && position < items.length;
+    }
+
+    /**
+     * Hands out the next item, after which the cursor no longer references it.
+     * If the item is a {@link BinaryValue} the caller must close it once done.
+     *
+     * @return the next item, or null if the cursor is exhausted or closed.
+     */
+    public synchronized @Nullable Item nextItem() {
+        if (!hasNext()) {
+            return null;
+        }
+        final Item item = items[position];
+        items[position] = null;
+        release(itemMemory[position]);
+        position++;
+        return item;
+    }
+
+    private void release(final long bytes) {
+        memoryUsage -= bytes;
+        if (releaseListener != null) {
+            releaseListener.accept(bytes);
+        }
+    }
+
+    /**
+     * @return null, the items of the result are held individually until they are fetched.
+     */
+    @Override
+    public Sequence getResult() {
+        return null;
+    }
+
+    @Override
+    protected synchronized void doClose() {
+        if (items != null) {
+
+            //cleanup any binary values which were never fetched
+            for (int i = position; i < items.length; i++) {
+                if (items[i] instanceof BinaryValue) {
+                    try {
+                        ((BinaryValue) items[i]).close();
+                    } catch (final IOException ioe) {
+                        LOG.warn("Unable to cleanup BinaryValue: {}", items[i].hashCode(), ioe);
+                    }
+                }
+            }
+
+            items = null;
+            itemMemory = null;
+            release(memoryUsage);
+        }
+    }
+}
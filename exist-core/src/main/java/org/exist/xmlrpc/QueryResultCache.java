@@ -26,8 +26,13 @@ import com.github.benmanes.caffeine.cache.Caffeine;
 import net.jcip.annotations.ThreadSafe;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.exist.EXistException;
+
+import javax.annotation.Nullable;
 
 import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -35,6 +40,12 @@ import java.util.concurrent.atomic.AtomicInteger;
  * Used by {@link XmldbRequestProcessorFactory} to cache query results. Each query result
  * is identified by a unique integer id.
  *
+ * The approximate memory held by the items of the open {@link QueryCursor}s of each
+ * session is accounted for, a session may not open a further cursor once its cursors
+ * hold more than the configured {@link #PROPERTY_RPC_CURSOR_MEMORY} megabytes. XML-RPC
+ * requests are stateless, so the session is identified by the client, see
+ * {@link RpcAPI#CURSOR_SESSION}; the cursors of a user which gives none share a single budget.
+ *
  * @author <a href="mailto:adam@evolvedbinary.com">Adam Retter</a>
  */
 @ThreadSafe
@@ -43,15 +54,25 @@ public class QueryResultCache {
     private static final Logger LOG = LogManager.getLogger(QueryResultCache.class);
     private static final int TIMEOUT = 180_000;  // ms (e.g. 2 minutes)
 
+    public static final String RPC_CURSOR_MEMORY_ATTRIBUTE = "rpc-cursor-memory";
+    public static final String PROPERTY_RPC_CURSOR_MEMORY = "xquery.rpc-cursor-memory";
+    public static final int DEFAULT_RPC_CURSOR_MEMORY = 64;  // MB per session
+
     private final AtomicInteger cacheIdCounter = new AtomicInteger();
     private final Cache<Integer, AbstractCachedResult> cache;
+    private final long maxCursorMemory;
+    private final Map<String, Long> cursorMemory = new ConcurrentHashMap<>();
 
-    public QueryResultCache() {
+    /**
+     * @param maxCursorMemory the number of bytes that the open cursors of a session may hold.
+     */
+    public QueryResultCache(final long maxCursorMemory) {
+        this.maxCursorMemory = maxCursorMemory;
         this.cache = Caffeine.newBuilder()
                 .expireAfterAccess(TIMEOUT, TimeUnit.MILLISECONDS)
                 .removalListener((key, value, cause) -> {
                     final AbstractCachedResult qr = (AbstractCachedResult)value;
-                    qr.free();  // must free associated resources
+                    qr.free();  // must free associated resources, cursors give back their memory
                     if(LOG.isDebugEnabled()) {
                         LOG.debug("Removing cached result set: {}", new Date(qr.getTimestamp()).toString());
                     }
@@ -64,6 +85,42 @@ public class QueryResultCache {
         return cacheId;
     }
 
+    /**
+     * Adds a cursor, accounting for the memory of its items against its session.
+     * The memory is given back as the items are fetched, and when the cursor is closed.
+     *
+     * A single cursor exceeding the limit is accepted if its session holds no other cursors,
+     * as its result has already been evaluated.
+     *
+     * @param cursor the cursor to add
+     *
+     * @return the id of the cursor
+     *
+     * @throws EXistException if the session already holds open cursors and adding
+     *     this one would take them over the limit
+     */
+    public int addCursor(final QueryCursor cursor) throws EXistException {
+        final String key = sessionKey(cursor.getOwner(), cursor.getSession());
+        final long bytes = cursor.getMemoryUsage();
+        final long held = cursorMemory.merge(key, bytes, Long::sum);
+        if (held > maxCursorMemory && held > bytes) {
+            release(key, bytes);
+            cursor.close();
+            throw new EXistException("Session " + key + " holds about " + (held - bytes)
+                    + " bytes in open cursors, close them before opening another");
+        }
+        cursor.setReleaseListener(released -> release(key, released));
+        return add(cursor);
+    }
+
+    private void release(final String key, final long released) {
+        cursorMemory.computeIfPresent(key, (k, bytes) -> bytes <= released ? null : bytes - released);
+    }
+
+    private static String sessionKey(final String owner, @Nullable final String session) {
+        return session == null ? owner : owner + '/' + session;
+    }
+
     public AbstractCachedResult get(final int cacheId) {
         if (cacheId < 0 || cacheId >= cacheIdCounter.get()) {
             return null;
@@ -76,6 +133,21 @@ public class QueryResultCache {
         return (acr != null && acr instanceof QueryResult) ? (QueryResult) acr : null;
     }
 
+    public QueryCursor getCursor(final int cacheId) {
+        final AbstractCachedResult acr = get(cacheId);
+        return (acr != null && acr instanceof QueryCursor) ? (QueryCursor) acr : null;
+    }
+
+    /**
+     * @param owner the name of a user
+     * @param session the id of a session of the user, or null
+     *
+     * @return the approximate number of bytes held by the open cursors of the session
+     */
+    public long getCursorMemory(final String owner, @Nullable final String session) {
+        return cursorMemory.getOrDefault(sessionKey(owner, session), 0L);
+    }
+
     public SerializedResult getSerializedResult(final int cacheId) {
         final AbstractCachedResult acr = get(cacheId);
         return (acr != null && acr instanceof SerializedResult) ? (SerializedResult) acr : null;
@@ -55,6 +55,7 @@ public interface RpcAPI {
     String LINE = "line";
     String COLUMN = "column";
     String MODULE_LOAD_PATH = "module-load-path";
+    String CURSOR_SESSION = "cursor-session";
 
     /**
      * Return the database version.
@@ -825,6 +826,45 @@ public interface RpcAPI {
     Map<String, Object> retrieveFirstChunk(int resultId, int num, Map<String, Object> parameters)
             throws EXistException, PermissionDeniedException;
 
+    /**
+     * Execute an XQuery and open a forward-only cursor over its results.
+     *
+     * The items are then fetched in order with {@link #fetchCursor(int, int, Map)}.
+     * The query is evaluated in full when the cursor is opened. Each item is released
+     * on the server once it has been fetched, the rest when the last item has been
+     * fetched, or when the cursor is closed with {@link #releaseQueryResult(int)}.
+     *
+     * The memory held by open cursors is limited per session. A client may identify
+     * its session by passing an id of its choosing as {@link #CURSOR_SESSION} in the
+     * parameters, otherwise all the cursors of the user share one limit.
+     *
+     * @param xquery the XQuery
+     * @param parameters controlling the execution and serialization of the query
+     * @return the id of the cursor
+     * @throws EXistException If an internal error occurs, or if the session already holds
+     *     too much memory in open cursors
+     * @throws PermissionDeniedException If the current user is not allowed to perform this action
+     */
+    int openCursor(byte[] xquery, Map<String, Object> parameters)
+            throws EXistException, PermissionDeniedException;
+
+    /**
+     * Fetch the next items from a cursor opened by {@link #openCursor(byte[], Map)}.
+     *
+     * At most {@link RpcConnection#MAX_CURSOR_FETCH} items are returned, and fewer
+     * once their serialized size reaches {@link RpcConnection#MAX_DOWNLOAD_CHUNK_SIZE}.
+     *
+     * @param cursorId the id of the cursor
+     * @param max the maximum number of items to return
+     * @param parameters controlling the serialization of the items
+     * @return a map with the serialized items under "data", their types under "types",
+     *     and under "more" whether the cursor has further items
+     * @throws EXistException If an internal error occurs, or the cursor is unknown or timed out
+     * @throws PermissionDeniedException If the current user is not allowed to perform this action
+     */
+    Map<String, Object> fetchCursor(int cursorId, int max, Map<String, Object> parameters)
+            throws EXistException, PermissionDeniedException;
+
     boolean addAccount(String name, String passwd, String digestPassword, List<String> groups, Boolean isEnabled, Integer umask, Map<String, String> metadata)
             throws EXistException, PermissionDeniedException;
 
@@ -132,6 +132,7 @@ public class RpcConnection implements RpcAPI {
     private final static Logger LOG = LogManager.getLogger(RpcConnection.class);
 
     public final static int MAX_DOWNLOAD_CHUNK_SIZE = 1024 * 1024;  // 1 MB
+    public final static int MAX_CURSOR_FETCH = 1000;  // items
     private final static Charset DEFAULT_ENCODING = StandardCharsets.UTF_8;
 
     private final XmldbRequestProcessorFactory factory;
@@ -2314,6 +2315,95 @@ public class RpcConnection implements RpcAPI {
         });
     }
 
+    @Override
+    public int openCursor(final byte[] xquery, final Map<String, Object> parameters) throws EXistException, PermissionDeniedException {
+        final Source source = new StringSource(new String(xquery, DEFAULT_ENCODING));
+        return withDb((broker, transaction) -> {
+            final long startTime = System.currentTimeMillis();
+            try {
+                final QueryResult result = this.<QueryResult>compileQuery(broker, transaction, source, parameters).apply(compiledQuery -> doQuery(broker, compiledQuery, null, parameters));
+                if (result.hasErrors()) {
+                    throw new EXistException(result.getException());
+                }
+                final Object session = parameters.get(RpcAPI.CURSOR_SESSION);
+                final QueryCursor cursor = new QueryCursor(user.getName(), session == null ? null : session.toString(),
+                        result.result, result.serialization, System.currentTimeMillis() - startTime);
+                // the items now belong to the cursor, they must not be closed with the query result
+                result.result = null;
+                return factory.resultSets.addCursor(cursor);
+            } catch (final XPathException e) {
+                throw new EXistException(e);
+            }
+        });
+    }
+
+    @Override
+    public Map<String, Object> fetchCursor(final int cursorId, final int max, final Map<String, Object> parameters)
+            throws EXistException, PermissionDeniedException {
+        return withDb((broker, transaction) -> {
+            final QueryCursor cursor = factory.resultSets.getCursor(cursorId);
+            if (cursor == null) {
+                throw new EXistException("cursor unknown or timed out: " + cursorId);
+            }
+            if (!cursor.getOwner().equals(user.getName())) {
+                throw new PermissionDeniedException("cursor " + cursorId + " was not opened by " + user.getName());
+            }
+            for (final Map.Entry<Object, Object> entry : cursor.getSerialization().entrySet()) {
+                parameters.put(entry.getKey().toString(), entry.getValue().toString());
+            }
+            final Properties properties = toProperties(parameters);
+            final int limit = max < 1 ? MAX_CURSOR_FETCH : Math.min(max, MAX_CURSOR_FETCH);
+
+            final List<String> data = new ArrayList<>();
+            final List<String> types = new ArrayList<>();
+            final boolean more;
+            synchronized (cursor) {
+                cursor.touch();
+                long size = 0;
+                Item item;
+                while (data.size() < limit && size < MAX_DOWNLOAD_CHUNK_SIZE && (item = cursor.nextItem()) != null) {
+                    final String value;
+                    if (Type.subTypeOf(item.getType(), Type.NODE)) {
+                        final NodeValue nodeValue = (NodeValue) item;
+                        try (final StringWriter writer = new StringWriter()) {
+                            serialize(broker, properties, saxSerializer -> saxSerializer.toSAX(nodeValue), writer);
+                            value = writer.toString();
+                        }
+                    } else {
+                        try {
+                            value = item.getStringValue();
+                        } catch (final XPathException e) {
+                            throw new EXistException(e);
+                        }
+                    }
+                    if (item instanceof BinaryValue) {
+                        // the cursor no longer references it
+                        try {
+                            ((BinaryValue) item).close();
+                        } catch (final IOException e) {
+                            LOG.warn("Unable to cleanup BinaryValue: {}", item.hashCode(), e);
+                        }
+                    }
+                    data.add(value);
+                    types.add(Type.getTypeName(item.getType()));
+                    size += value.length();
+                }
+                more = cursor.hasNext();
+            }
+
+            if (!more) {
+                // release the result straight away rather than when the cursor times out
+                factory.resultSets.remove(cursorId);
+            }
+
+            final Map<String, Object> result = new HashMap<>();
+            result.put("data", data);
+            result.put("types", types);
+            result.put("more", more);
+            return result;
+        });
+    }
+
     @Override
     public byte[] retrieveAll(final int resultId, final Map<String, Object> parameters) throws EXistException,
             PermissionDeniedException {
@@ -56,7 +56,7 @@ public class XmldbRequestProcessorFactory implements RequestProcessorFactoryFact
 
     private final boolean useDefaultUser;
     private final BrokerPool brokerPool;
-    protected final QueryResultCache resultSets = new QueryResultCache();
+    protected final QueryResultCache resultSets;
 
     protected final AtomicLazyVal<ExecutorService> restoreExecutorService;
     protected final Map<UUID, Tuple2<RpcConnection.BufferingRestoreListener, Future<Void>>> restoreTasks = new ConcurrentHashMap<>();
@@ -72,6 +72,8 @@ public class XmldbRequestProcessorFactory implements RequestProcessorFactoryFact
             this.databaseId = databaseId;
         }
         this.brokerPool = BrokerPool.getInstance(this.databaseId);
+        final int cursorMemory = brokerPool.getConfiguration().getProperty(QueryResultCache.PROPERTY_RPC_CURSOR_MEMORY, QueryResultCache.DEFAULT_RPC_CURSOR_MEMORY);
+        this.resultSets = new QueryResultCache(cursorMemory * 1024L * 1024L);
         this.restoreExecutorService = new AtomicLazyVal<>(() -> Executors.newCachedThreadPool(new NamedThreadFactory(brokerPool, "rpc-db-restore")));
     }
 
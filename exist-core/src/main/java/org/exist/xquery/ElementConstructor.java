@@ -24,19 +24,30 @@ package org.exist.xquery;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.exist.Namespaces;
+import org.exist.dom.INode;
 import org.exist.dom.QName;
 import org.exist.dom.memtree.MemTreeBuilder;
 import org.exist.dom.memtree.NodeImpl;
+import org.exist.dom.memtree.TextImpl;
+import org.exist.storage.serializers.Serializer;
 import org.exist.util.XMLNames;
+import org.exist.util.serializer.AttrList;
+import org.exist.util.serializer.Receiver;
 import org.exist.xquery.util.ExpressionDumper;
 import org.exist.xquery.value.Item;
+import org.exist.xquery.value.NodeValue;
 import org.exist.xquery.value.QNameValue;
 import org.exist.xquery.value.Sequence;
+import org.exist.xquery.value.SequenceIterator;
 import org.exist.xquery.value.StringValue;
 import org.exist.xquery.value.Type;
+import org.w3c.dom.Node;
+import org.xml.sax.SAXException;
 import org.xml.sax.helpers.AttributesImpl;
 
+import javax.annotation.Nullable;
 import javax.xml.XMLConstants;
+import java.util.Arrays;
 import java.util.Iterator;
 
 /**
@@ -189,117 +200,10 @@ public class ElementConstructor extends NodeConstructor {
         }
         try {
             final MemTreeBuilder builder = context.getDocumentBuilder();
-            // declare namespaces
-            if(namespaceDecls != null) {
-                for (QName namespaceDecl : namespaceDecls) {
-                    //if ("".equals(namespaceDecls[i].getNamespaceURI())) {
-                    // TODO: the specs are unclear here: should we throw XQST0085 or not?
-                    //	context.inScopeNamespaces.remove(namespaceDecls[i].getLocalPart());
-//					if (context.inScopeNamespaces.remove(namespaceDecls[i].getLocalPart()) == null)
-//		        		throw new XPathException(getAS      TNode(), "XQST0085 : can not undefine '" + namespaceDecls[i] + "'");
-                    //} else
-                    context.declareInScopeNamespace(namespaceDecl.getLocalPart(), namespaceDecl.getNamespaceURI());
-                }
-            }
-            // process attributes
-            final AttributesImpl attrs = new AttributesImpl();
-            if(attributes != null) {
-                // first, search for xmlns attributes and declare in-scope namespaces
-                for (final AttributeConstructor constructor : attributes) {
-                    if (constructor.isNamespaceDeclaration()) {
-                        final int p = constructor.getQName().indexOf(':');
-                        if (p == Constants.STRING_NOT_FOUND) {
-                            context.declareInScopeNamespace(XMLConstants.DEFAULT_NS_PREFIX, constructor.getLiteralValue());
-                        } else {
-                            final String prefix = constructor.getQName().substring(p + 1);
-                            context.declareInScopeNamespace(prefix, constructor.getLiteralValue());
-                        }
-                    }
-                }
-                String v = null;
-                // process the remaining attributes
-                for (int i = 0; i < attributes.length; i++) {
-                    context.proceed(this, builder);
-                    final AttributeConstructor constructor = attributes[i];
-                    final Sequence attrValues = constructor.eval(contextSequence, contextItem);
-                    QName attrQName;
-                    try {
-                        attrQName = QName.parse(context, constructor.getQName(), XMLConstants.NULL_NS_URI);
-                    } catch (final QName.IllegalQNameException e) {
-                        throw new XPathException(this, ErrorCodes.XPTY0004, "'" + constructor.getQName() + "' is not a valid attribute name");
-                    }
-                    
-                    final String namespaceURI = attrQName.getNamespaceURI();
-            		if (namespaceURI != null && !namespaceURI.isEmpty() && attrQName.getPrefix() == null) {
-            			String prefix = context.getPrefixForURI(namespaceURI);
-            			
-            			if (prefix != null) {
-                            attrQName = new QName(attrQName.getLocalPart(), attrQName.getNamespaceURI(), prefix);
-            			} else {
-            				//generate prefix
-            				for (final int n = 1; i < 100; i++) {
-            					prefix = "eXnsp"+n;
-            		            if (context.getURIForPrefix(prefix) == null) {
-                                    attrQName = new QName(attrQName.getLocalPart(), attrQName.getNamespaceURI(), prefix);
-            		            	break;
-            		            }
-            		            
-            		            prefix = null;
-            				}
-            				if (prefix == null) {
-            				    throw new XPathException(this, "Prefix can't be generated.");
-            				}
-            			}
-            		}
-                    
-                    if (attrs.getIndex(attrQName.getNamespaceURI(), attrQName.getLocalPart()) != -1) {
-            		    throw new XPathException(this, ErrorCodes.XQST0040, "'" + attrQName.getLocalPart() + "' is a duplicate attribute name");
-            		}
-                    
-                    v = DynamicAttributeConstructor.normalize(this, attrQName, attrValues.getStringValue());
-                    
-                    attrs.addAttribute(attrQName.getNamespaceURI(), attrQName.getLocalPart(),
-                            attrQName.getStringValue(), "CDATA", v);
-                }
-            }
+            declareNamespaces();
+            final AttributesImpl attrs = evalAttributes(contextSequence, contextItem, builder);
             context.proceed(this, builder);
-
-            // create the element
-            final Sequence qnameSeq = qnameExpr.eval(contextSequence, contextItem);
-            if(!qnameSeq.hasOne()) {
-                throw new XPathException(this, ErrorCodes.XPTY0004, "Type error: the node name should evaluate to a single item");
-            }
-            final Item qnitem = qnameSeq.itemAt(0);
-
-            QName qn;
-            if (qnitem instanceof QNameValue) {
-                qn = ((QNameValue)qnitem).getQName();
-            } else {
-                //Do we have the same result than Atomize there ? -pb
-            	try {
-            		qn = QName.parse(context, qnitem.getStringValue());
-            	} catch (final QName.IllegalQNameException e) {
-        			throw new XPathException(this, ErrorCodes.XPTY0004, "'" + qnitem.getStringValue() + "' is not a valid element name");
-            	} catch (final XPathException e) {
-            		e.setLocation(getLine(), getColumn(), getSource());
-            		throw e;
-				}
-            	
-                //Use the default namespace if specified
-                /*
-                 if (qn.getPrefix() == null && context.inScopeNamespaces.get("xmlns") != null) {
-                     qn.setNamespaceURI((String)context.inScopeNamespaces.get("xmlns"));
-                 }
-                 */
-                if (qn.getPrefix() == null && context.getInScopeNamespace(XMLConstants.DEFAULT_NS_PREFIX) != null) {
-                     qn = new QName(qn.getLocalPart(), context.getInScopeNamespace(XMLConstants.DEFAULT_NS_PREFIX), qn.getPrefix());
-                }
-             }
-
-            //Not in the specs but... makes sense
-            if(!XMLNames.isName(qn.getLocalPart())) {
-                throw new XPathException(this, ErrorCodes.XPTY0004, "'" + qnitem.getStringValue() + "' is not a valid element name");
-            }
+            final QName qn = evalName(contextSequence, contextItem);
 
             // add namespace declaration nodes
             final int nodeNr = builder.startElement(qn, attrs);
@@ -309,21 +213,9 @@ public class ElementConstructor extends NodeConstructor {
                 }
             }
             // do we need to add a namespace declaration for the current node?
-            if (qn.hasNamespace()) {
-                if (context.getInScopePrefix(qn.getNamespaceURI()) == null) {
-                    String prefix = qn.getPrefix();
-                    if (prefix == null) {
-                        prefix = XMLConstants.DEFAULT_NS_PREFIX;
-                    }
-                    context.declareInScopeNamespace(prefix, qn.getNamespaceURI());
-                    builder.namespaceNode(new QName(prefix, qn.getNamespaceURI(), XMLConstants.XMLNS_ATTRIBUTE));
-                }
-            } else if ((qn.getPrefix() == null || qn.getPrefix().length() == 0) &&
-                context.getInheritedNamespace(XMLConstants.DEFAULT_NS_PREFIX) != null) {
-                context.declareInScopeNamespace(XMLConstants.DEFAULT_NS_PREFIX, XMLConstants.NULL_NS_URI);
-                builder.namespaceNode(new QName("", XMLConstants.NULL_NS_URI, XMLConstants.XMLNS_ATTRIBUTE));
-            } else if (qn.getPrefix() == null || qn.getPrefix().length() == 0) {
-                context.declareInScopeNamespace(XMLConstants.DEFAULT_NS_PREFIX, XMLConstants.NULL_NS_URI);
+            final QName elementNamespace = declareElementNamespace(qn);
+            if (elementNamespace != null) {
+                builder.namespaceNode(elementNamespace);
             }
             // process element contents
             if(content != null) {
@@ -340,6 +232,361 @@ public class ElementConstructor extends NodeConstructor {
             context.expressionEnd(this);
         }
     }
+
+    /**
+     * Evaluates the constructor in push mode: rather than building the element in an
+     * in-memory tree, its start and end tags and its content are written to the receiver
+     * as they are computed. Nested element and text constructors are streamed in the same
+     * way, enclosed expressions are evaluated and their items written out one by one, and
+     * any other content expression is evaluated normally and the resulting nodes serialized.
+     *
+     * The output is the same as serializing the result of {@link #eval(Sequence, Item)},
+     * but the constructed element cannot be navigated, so this is only suitable where the
+     * element is serialized and then discarded, e.g. the body of a query whose result is
+     * written straight to an HTTP response.
+     *
+     * @param contextSequence the context sequence
+     * @param contextItem the context item, or null
+     * @param serializer the serializer which owns the receiver, used to write out nodes
+     *     returned by content expressions
+     * @param receiver the receiver to write the element to
+     *
+     * @throws XPathException if an error occurs evaluating the element or its content
+     * @throws SAXException if the receiver reports an error
+     */
+    public void streamTo(final Sequence contextSequence, final Item contextItem, final Serializer serializer,
+            final Receiver receiver) throws XPathException, SAXException {
+        final Sequence stepContext = contextItem != null ? contextItem.toSequence() : contextSequence;
+        if (stepContext != null && stepContext.hasMany()) {
+            // the content would be evaluated once per context item, leave that to PathExpr
+            streamItems(eval(contextSequence, contextItem), null, serializer, receiver);
+            return;
+        }
+        final Item stepItem = stepContext != null && !stepContext.isEmpty() ? stepContext.itemAt(0) : null;
+
+        context.expressionStart(this);
+        context.pushInScopeNamespaces();
+        try {
+            declareNamespaces();
+            final AttributesImpl attrs = evalAttributes(contextSequence, contextItem, null);
+            context.proceed(this);
+            final QName qn = evalName(contextSequence, contextItem);
+
+            final StreamedElement element = new StreamedElement(qn, receiver);
+            for (int i = 0; i < attrs.getLength(); i++) {
+                final String attrName = attrs.getQName(i);
+                final int p = attrName.indexOf(':');
+                element.attributes.addAttribute(new QName(attrs.getLocalName(i), attrs.getURI(i),
+                        p == Constants.STRING_NOT_FOUND ? null : attrName.substring(0, p)), attrs.getValue(i));
+            }
+            if (namespaceDecls != null) {
+                for (final QName namespaceDecl : namespaceDecls) {
+                    element.addNamespace(namespaceDecl);
+                }
+            }
+            final QName elementNamespace = declareElementNamespace(qn);
+            if (elementNamespace != null) {
+                element.addNamespace(elementNamespace);
+            }
+
+            if (content != null) {
+                for (final Expression step : content.steps) {
+                    context.getWatchDog().proceed(step);
+                    if (step instanceof ElementConstructor) {
+                        element.start();
+                        ((ElementConstructor) step).streamTo(stepContext, stepItem, serializer, receiver);
+                    } else if (step instanceof TextConstructor) {
+                        // whitespace-only text is stripped by TextConstructor#eval if boundary-space is strip
+                        final TextConstructor text = (TextConstructor) step;
+                        if (!text.isWhitespaceOnly() || !context.stripWhitespace()) {
+                            element.start();
+                            receiver.characters(text.getText());
+                        }
+                    } else if (step instanceof EnclosedExpr) {
+                        streamItems(((EnclosedExpr) step).evalContent(stepContext, stepItem), element, serializer, receiver);
+                    } else {
+                        final Sequence nodes;
+                        context.pushDocumentContext();
+                        try {
+                            nodes = step.eval(stepContext, stepItem);
+                        } finally {
+                            context.popDocumentContext();
+                        }
+                        streamItems(nodes, element, serializer, receiver);
+                    }
+                }
+            }
+            element.end();
+        } finally {
+            context.popInScopeNamespaces();
+            context.expressionEnd(this);
+        }
+    }
+
+    /**
+     * Writes the items of a content sequence to the receiver, following the rules
+     * {@link EnclosedExpr#eval(Sequence, Item)} applies when copying them into an
+     * in-memory tree.
+     */
+    private void streamItems(final Sequence items, final StreamedElement element, final Serializer serializer,
+            final Receiver receiver) throws XPathException, SAXException {
+        StringBuilder buf = null;
+        for (final SequenceIterator i = items.iterate(); i.hasNext(); ) {
+            final Item next = i.nextItem();
+            context.proceed(this);
+            if (Type.subTypeOf(next.getType(), Type.FUNCTION_REFERENCE)) {
+                throw new XPathException(this, ErrorCodes.XQTY0105, "Enclosed expression contains function item");
+            } else if (Type.subTypeOf(next.getType(), Type.ATOMIC)) {
+                if (buf == null) {
+                    buf = new StringBuilder();
+                } else if (buf.length() > 0) {
+                    buf.append(' ');
+                }
+                buf.append(next.getStringValue());
+                continue;
+            }
+
+            final NodeValue node = (NodeValue) next;
+            if (next.getType() == Type.ATTRIBUTE || next.getType() == Type.NAMESPACE) {
+                if (element == null || element.started || (buf != null && buf.length() > 0)) {
+                    throw new XPathException(this, ErrorCodes.XQTY0024,
+                            "An attribute may not appear after another child node.");
+                }
+                final Node attr = node.getNode();
+                if (next.getType() == Type.NAMESPACE) {
+                    element.addNamespace(new QName(attr.getLocalName(), attr.getNodeValue(), XMLConstants.XMLNS_ATTRIBUTE));
+                } else {
+                    element.addAttribute(this, ((INode<?, ?>) attr).getQName(), attr.getNodeValue());
+                }
+                continue;
+            }
+            if (next instanceof TextImpl && ((TextImpl) next).getStringValue().isEmpty()) {
+                continue;
+            }
+            if (element != null) {
+                element.start();
+            }
+            if (buf != null && buf.length() > 0) {
+                receiver.characters(buf);
+                buf.setLength(0);
+            }
+            serializer.nodeToReceiver(node);
+        }
+        if (buf != null && buf.length() > 0) {
+            if (element != null) {
+                element.start();
+            }
+            receiver.characters(buf);
+        }
+    }
+
+    private void declareNamespaces() {
+        if(namespaceDecls != null) {
+            for (QName namespaceDecl : namespaceDecls) {
+                //if ("".equals(namespaceDecls[i].getNamespaceURI())) {
+                // TODO: the specs are unclear here: should we throw XQST0085 or not?
+                //	context.inScopeNamespaces.remove(namespaceDecls[i].getLocalPart());
+//					if (context.inScopeNamespaces.remove(namespaceDecls[i].getLocalPart()) == null)
+//		        		throw new XPathException(getAS      TNode(), "XQST0085 : can not undefine '" + namespaceDecls[i] + "'");
+                //} else
+                context.declareInScopeNamespace(namespaceDecl.getLocalPart(), namespaceDecl.getNamespaceURI());
+            }
+        }
+    }
+
+    private AttributesImpl evalAttributes(final Sequence contextSequence, final Item contextItem,
+            @Nullable final MemTreeBuilder builder) throws XPathException {
+        final AttributesImpl attrs = new AttributesImpl();
+        if(attributes != null) {
+            // first, search for xmlns attributes and declare in-scope namespaces
+            for (final AttributeConstructor constructor : attributes) {
+                if (constructor.isNamespaceDeclaration()) {
+                    final int p = constructor.getQName().indexOf(':');
+                    if (p == Constants.STRING_NOT_FOUND) {
+                        context.declareInScopeNamespace(XMLConstants.DEFAULT_NS_PREFIX, constructor.getLiteralValue());
+                    } else {
+                        final String prefix = constructor.getQName().substring(p + 1);
+                        context.declareInScopeNamespace(prefix, constructor.getLiteralValue());
+                    }
+                }
+            }
+            String v = null;
+            // process the remaining attributes
+            for (int i = 0; i < attributes.length; i++) {
+                if (builder != null) {
+                    context.proceed(this, builder);
+                } else {
+                    context.proceed(this);
+                }
+                final AttributeConstructor constructor = attributes[i];
+                final Sequence attrValues = constructor.eval(contextSequence, contextItem);
+                QName attrQName;
+                try {
+                    attrQName = QName.parse(context, constructor.getQName(), XMLConstants.NULL_NS_URI);
+                } catch (final QName.IllegalQNameException e) {
+                    throw new XPathException(this, ErrorCodes.XPTY0004, "'" + constructor.getQName() + "' is not a valid attribute name");
+                }
+                
+                final String namespaceURI = attrQName.getNamespaceURI();
+        		if (namespaceURI != null && !namespaceURI.isEmpty() && attrQName.getPrefix() == null) {
+        			String prefix = context.getPrefixForURI(namespaceURI);
+        			
+        			if (prefix != null) {
+                        attrQName = new QName(attrQName.getLocalPart(), attrQName.getNamespaceURI(), prefix);
+        			} else {
+        				//generate prefix
+        				for (final int n = 1; i < 100; i++) {
+        					prefix = "eXnsp"+n;
+        		            if (context.getURIForPrefix(prefix) == null) {
+                                attrQName = new QName(attrQName.getLocalPart(), attrQName.getNamespaceURI(), prefix);
+        		            	break;
+        		            }
+        		            
+        		            prefix = null;
+        				}
+        				if (prefix == null) {
+        				    throw new XPathException(this, "Prefix can't be generated.");
+        				}
+        			}
+        		}
+                
+                if (attrs.getIndex(attrQName.getNamespaceURI(), attrQName.getLocalPart()) != -1) {
+        		    throw new XPathException(this, ErrorCodes.XQST0040, "'" + attrQName.getLocalPart() + "' is a duplicate attribute name");
+        		}
+                
+                v = DynamicAttributeConstructor.normalize(this, attrQName, attrValues.getStringValue());
+                
+                attrs.addAttribute(attrQName.getNamespaceURI(), attrQName.getLocalPart(),
+                        attrQName.getStringValue(), "CDATA", v);
+            }
+        }
+        return attrs;
+    }
+
+    private QName evalName(final Sequence contextSequence, final Item contextItem) throws XPathException {
+        final Sequence qnameSeq = qnameExpr.eval(contextSequence, contextItem);
+        if(!qnameSeq.hasOne()) {
+            throw new XPathException(this, ErrorCodes.XPTY0004, "Type error: the node name should evaluate to a single item");
+        }
+        final Item qnitem = qnameSeq.itemAt(0);
+
+        QName qn;
+        if (qnitem instanceof QNameValue) {
+            qn = ((QNameValue)qnitem).getQName();
+        } else {
+            //Do we have the same result than Atomize there ? -pb
+        	try {
+        		qn = QName.parse(context, qnitem.getStringValue());
+        	} catch (final QName.IllegalQNameException e) {
+    			throw new XPathException(this, ErrorCodes.XPTY0004, "'" + qnitem.getStringValue() + "' is not a valid element name");
+        	} catch (final XPathException e) {
+        		e.setLocation(getLine(), getColumn(), getSource());
+        		throw e;
+			}
+        	
+            //Use the default namespace if specified
+            /*
+             if (qn.getPrefix() == null && context.inScopeNamespaces.get("xmlns") != null) {
+                 qn.setNamespaceURI((String)context.inScopeNamespaces.get("xmlns"));
+             }
+             */
+            if (qn.getPrefix() == null && context.getInScopeNamespace(XMLConstants.DEFAULT_NS_PREFIX) != null) {
+                 qn = new QName(qn.getLocalPart(), context.getInScopeNamespace(XMLConstants.DEFAULT_NS_PREFIX), qn.getPrefix());
+            }
+         }
+
+        //Not in the specs but... makes sense
+        if(!XMLNames.isName(qn.getLocalPart())) {
+            throw new XPathException(this, ErrorCodes.XPTY0004, "'" + qnitem.getStringValue() + "' is not a valid element name");
+        }
+        return qn;
+    }
+
+    /**
+     * Declares the namespace of the element in the in-scope namespaces if needed.
+     *
+     * @return the namespace node to add to the element, or null if none is needed
+     */
+    private @Nullable QName declareElementNamespace(final QName qn) {
+        if (qn.hasNamespace()) {
+            if (context.getInScopePrefix(qn.getNamespaceURI()) == null) {
+                String prefix = qn.getPrefix();
+                if (prefix == null) {
+                    prefix = XMLConstants.DEFAULT_NS_PREFIX;
+                }
+                context.declareInScopeNamespace(prefix, qn.getNamespaceURI());
+                return new QName(prefix, qn.getNamespaceURI(), XMLConstants.XMLNS_ATTRIBUTE);
+            }
+        } else if ((qn.getPrefix() == null || qn.getPrefix().length() == 0) &&
+            context.getInheritedNamespace(XMLConstants.DEFAULT_NS_PREFIX) != null) {
+            context.declareInScopeNamespace(XMLConstants.DEFAULT_NS_PREFIX, XMLConstants.NULL_NS_URI);
+            return new QName("", XMLConstants.NULL_NS_URI, XMLConstants.XMLNS_ATTRIBUTE);
+        } else if (qn.getPrefix() == null || qn.getPrefix().length() == 0) {
+            context.declareInScopeNamespace(XMLConstants.DEFAULT_NS_PREFIX, XMLConstants.NULL_NS_URI);
+        }
+        return null;
+    }
+
+    /**
+     * An element being written by {@link #streamTo(Sequence, Item, Serializer, Receiver)}.
+     * The start tag is held back until the first child is written, so that attributes
+     * returned by enclosed expressions at the start of the content can still be added.
+     */
+    private static class StreamedElement {
+        private final QName qname;
+        private final Receiver receiver;
+        private final AttrList attributes = new AttrList();
+        private QName[] namespaces = null;
+        private boolean started = false;
+
+        StreamedElement(final QName qname, final Receiver receiver) {
+            this.qname = qname;
+            this.receiver = receiver;
+        }
+
+        void addNamespace(final QName namespace) {
+            if (namespaces == null) {
+                namespaces = new QName[] { namespace };
+            } else {
+                namespaces = Arrays.copyOf(namespaces, namespaces.length + 1);
+                namespaces[namespaces.length - 1] = namespace;
+            }
+        }
+
+        void addAttribute(final Expression expr, final QName name, final String value) throws XPathException {
+            if (attributes.getValue(name) != null) {
+                throw new XPathException(expr, ErrorCodes.XQDY0025, "element has more than one attribute '" + name + "'");
+            }
+            attributes.addAttribute(name, value);
+        }
+
+        void start() throws SAXException {
+            if (started) {
+                return;
+            }
+            started = true;
+            if (namespaces != null) {
+                for (final QName namespace : namespaces) {
+                    receiver.startPrefixMapping(prefixOf(namespace), namespace.getNamespaceURI());
+                }
+            }
+            receiver.startElement(qname, attributes);
+        }
+
+        void end() throws SAXException {
+            start();
+            receiver.endElement(qname);
+            if (namespaces != null) {
+                for (final QName namespace : namespaces) {
+                    receiver.endPrefixMapping(prefixOf(namespace));
+                }
+            }
+        }
+
+        private static String prefixOf(final QName namespace) {
+            return XMLConstants.XMLNS_ATTRIBUTE.equals(namespace.getLocalPart()) ? XMLConstants.DEFAULT_NS_PREFIX : namespace.getLocalPart();
+        }
+    }
 	
 	@Override
     public void dump(final ExpressionDumper dumper) {
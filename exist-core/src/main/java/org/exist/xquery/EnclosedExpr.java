@@ -163,6 +163,35 @@ public class EnclosedExpr extends PathExpr {
         return result;
     }
 
+    /**
+     * Evaluates the enclosed expression without copying the result into the
+     * document being constructed, for {@link ElementConstructor#streamTo}, which
+     * writes the items out itself. Arrays in the result are flattened.
+     *
+     * @param contextSequence the context sequence
+     * @param contextItem the context item, or null
+     *
+     * @return the flattened result of the expression
+     *
+     * @throws XPathException if an error occurs evaluating the expression
+     */
+    Sequence evalContent(Sequence contextSequence, final Item contextItem) throws XPathException {
+        if (contextItem != null) {
+            contextSequence = contextItem.toSequence();
+        }
+        context.enterEnclosedExpr();
+        try {
+            context.pushDocumentContext();
+            try {
+                return ArrayType.flatten(super.eval(contextSequence, null));
+            } finally {
+                context.popDocumentContext();
+            }
+        } finally {
+            context.exitEnclosedExpr();
+        }
+    }
+
     /* (non-Javadoc)
      * @see org.exist.xquery.PathExpr#dump(org.exist.xquery.util.ExpressionDumper)
      */
@@ -54,6 +54,14 @@ public class ExtensionExpression extends AbstractExpression {
         pragmas.add(pragma);
     }
 
+    public Expression getExpression() {
+        return innerExpression;
+    }
+
+    public List<Pragma> getPragmas() {
+        return pragmas;
+    }
+
     /**
      * For every pragma in the list, calls {@link Pragma#before(XQueryContext, Expression, Sequence)} before evaluation.
      * The method then tries to call {@link Pragma#eval(Sequence, Item)} on every pragma.
@@ -101,6 +109,9 @@ public class ExtensionExpression extends AbstractExpression {
             pragma.analyze(newContext);
         }
         innerExpression.analyze(newContext);
+        for (final Pragma pragma : pragmas) {
+            pragma.analyzed(innerExpression);
+        }
     }
 
     public void dump(ExpressionDumper dumper) {
@@ -26,6 +26,7 @@ import java.util.List;
 
 import org.exist.dom.persistent.NodeSet;
 import org.exist.dom.memtree.NodeImpl;
+import org.exist.xquery.functions.fn.FunPosition;
 import org.exist.xquery.util.ExpressionDumper;
 import org.exist.xquery.value.*;
 
@@ -43,6 +44,10 @@ public class FilteredExpression extends AbstractExpression {
     final protected List<Predicate> predicates = new ArrayList<>(2);
     private Expression parent;
 
+    // the "order by" clause producing the filtered sequence, if the first predicate only selects leading items
+    private OrderByClause sourceOrderBy = null;
+    private long positionalLimit = 0;
+
     public FilteredExpression(XQueryContext context, Expression expr) {
         super(context);
         this.expression = expr.simplify();
@@ -77,7 +82,59 @@ public class FilteredExpression extends AbstractExpression {
             for (final Predicate pred : predicates) {
                 pred.analyze(newContext);
             }
+            positionalLimit = abbreviated ? 0 : positionalLimit(predicates.get(0));
+            sourceOrderBy = positionalLimit > 0 ? OrderByClause.getTrailingOrderBy(expression) : null;
+        }
+    }
+
+    /**
+     * Get the number of leading items selected at most by a predicate
+     * of the form [n], [position() lt n], [position() le n] or [position() = n],
+     * where n is an integer literal.
+     *
+     * @param pred the predicate.
+     *
+     * @return the number of items, or 0 if the predicate is of another form.
+     */
+    private static long positionalLimit(final Predicate pred) {
+        if (pred.getLength() != 1) {
+            return 0;
+        }
+        final Expression inner = pred.getExpression(0).simplify();
+        if (inner instanceof LiteralValue) {
+            return literalPosition(inner);
+        }
+        if (inner instanceof GeneralComparison) {
+            final GeneralComparison comparison = (GeneralComparison) inner;
+            Expression left = comparison.getLeft().simplify();
+            if (left instanceof InternalFunctionCall) {
+                left = ((InternalFunctionCall) left).getFunction();
+            }
+            if (!(left instanceof FunPosition)) {
+                return 0;
+            }
+            final long position = literalPosition(comparison.getRight().simplify());
+            switch (comparison.getRelation()) {
+                case LT:
+                    return position - 1;
+                case LTEQ:
+                case EQ:
+                    return position;
+                default:
+                    return 0;
+            }
+        }
+        return 0;
+    }
+
+    private static long literalPosition(final Expression expr) {
+        if (expr instanceof LiteralValue) {
+            final AtomicValue value = ((LiteralValue) expr).getValue();
+            if (value instanceof IntegerValue && ((IntegerValue) value).isLong()) {
+                return Math.max(((IntegerValue) value).getLong(), 0);
+            }
         }
+        return 0;
     }
 
     /* (non-Javadoc)
@@ -98,7 +155,17 @@ public class FilteredExpression extends AbstractExpression {
         if (contextItem != null)
             {contextSequence = contextItem.toSequence();}
         Sequence result;
-        final Sequence seq = expression.eval(contextSequence, contextItem);
+        final Sequence seq;
+        if (sourceOrderBy != null) {
+            sourceOrderBy.pushLimit(positionalLimit);
+            try {
+                seq = expression.eval(contextSequence, contextItem);
+            } finally {
+                sourceOrderBy.popLimit();
+            }
+        } else {
+            seq = expression.eval(contextSequence, contextItem);
+        }
         if (seq.isEmpty())
             {result = Sequence.EMPTY_SEQUENCE;}
         else {
@@ -23,9 +23,15 @@ package org.exist.xquery;
 
 import org.exist.dom.QName;
 import org.exist.dom.persistent.NodeSet;
+import org.exist.xquery.pragmas.ParallelPragma;
 import org.exist.xquery.util.ExpressionDumper;
 import org.exist.xquery.value.*;
 
+import javax.annotation.Nullable;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 /**
  * Represents an XQuery "for" expression.
  * 
@@ -37,6 +43,13 @@ public class ForExpr extends BindingExpression {
     private boolean allowEmpty = false;
     private boolean isOuterFor = true;
 
+    // the expression selecting the items by rank, if they are ordered by rank right away
+    private RankedSelection rankedSelection = null;
+    private OrderByClause rankedOrderBy = null;
+
+    // set if the bindings may be evaluated in parallel, see exist:parallel
+    private ParallelPragma parallel = null;
+
     public ForExpr(XQueryContext context, boolean allowingEmpty) {
         super(context);
         this.allowEmpty = allowingEmpty;
@@ -57,6 +70,20 @@ public class ForExpr extends BindingExpression {
         positionalVariable = var;
     }
 
+    /**
+     * Allow the return expression to be evaluated for the bindings of this
+     * "for" in parallel.
+     *
+     * @param parallel the pragma which evaluates the bindings
+     */
+    public void setParallel(final ParallelPragma parallel) {
+        this.parallel = parallel;
+    }
+
+    public boolean isAllowingEmpty() {
+        return allowEmpty;
+    }
+
 	/* (non-Javadoc)
      * @see org.exist.xquery.Expression#analyze(org.exist.xquery.Expression)
      */
@@ -89,6 +116,8 @@ public class ForExpr extends BindingExpression {
             final AnalyzeContextInfo newContextInfo = new AnalyzeContextInfo(contextInfo);
             newContextInfo.addFlag(SINGLE_STEP_EXECUTION);
             returnExpr.analyze(newContextInfo);
+
+            rankedSelection = findRankedSelection(inVar.getQName());
         } catch (final QName.IllegalQNameException e) {
             throw new XPathException(ErrorCodes.XPST0081, "No namespace defined for prefix");
         } finally {
@@ -97,6 +126,101 @@ public class ForExpr extends BindingExpression {
         }
     }
 
+    /**
+     * Find the expression selecting the items of this clause by rank, if the items
+     * are ordered by their rank, descending, by the "order by" clause following this
+     * clause. For example, in
+     * {@code for $hit in //p[ft:query(., 'x')] order by ft:score($hit) descending return $hit}
+     * only the paragraphs scoring highest need to be selected if only the first
+     * items of the result are used.
+     *
+     * @param variable the name of the variable bound by this clause.
+     *
+     * @return the ranked selection, or null.
+     */
+    private @Nullable RankedSelection findRankedSelection(final QName variable) throws QName.IllegalQNameException {
+        rankedOrderBy = null;
+        if (positionalVariable != null || allowEmpty) {
+            return null;
+        }
+        // "let" clauses may come in between, any other clause would change the bindings
+        final Map<QName, Expression> lets = new HashMap<>();
+        Expression next = returnExpr;
+        while (next instanceof LetExpr) {
+            final LetExpr let = (LetExpr) next;
+            final QName name = QName.parse(context, let.getVariable(), null);
+            if (name.equals(variable)) {
+                return null;
+            }
+            lets.put(name, let.getInputSequence());
+            next = let.getReturnExpression();
+        }
+        if (!(next instanceof OrderByClause)) {
+            return null;
+        }
+        // further order specs could reorder the items ranked equal to the last one selected
+        final OrderSpec[] specs = ((OrderByClause) next).getOrderSpecs();
+        if (specs.length != 1) {
+            return null;
+        }
+        // the limit counts the items of the result, each binding must return at least one of them
+        if (!returnsAtLeastOneItem(((OrderByClause) next).getReturnExpression(), variable)) {
+            return null;
+        }
+        final OrderSpec spec = specs[0];
+        if ((spec.getModifiers() & OrderSpec.DESCENDING_ORDER) == 0) {
+            return null;
+        }
+        Expression key = RankedSelection.unwrap(spec.getSortExpression());
+        if (key instanceof VariableReference && lets.containsKey(((VariableReference) key).getName())) {
+            key = RankedSelection.unwrap(lets.get(((VariableReference) key).getName()));
+        }
+
+        // the selection may be the input sequence itself, or the only predicate of its last step
+        Expression input = RankedSelection.unwrap(inputSequence);
+        if (!(input instanceof RankedSelection) && input instanceof PathExpr && ((PathExpr) input).getLength() > 0) {
+            input = RankedSelection.unwrap(((PathExpr) input).getLastExpression());
+        }
+        if (!(input instanceof RankedSelection)) {
+            Predicate predicate = null;
+            if (input instanceof LocationStep) {
+                final Predicate[] predicates = ((LocationStep) input).getPredicates();
+                predicate = predicates != null && predicates.length == 1 ? predicates[0] : null;
+            } else if (input instanceof FilteredExpression) {
+                final List<Predicate> predicates = ((FilteredExpression) input).getPredicates();
+                predicate = predicates.size() == 1 ? predicates.get(0) : null;
+            }
+            input = predicate == null || predicate.getLength() != 1 ? null : RankedSelection.unwrap(predicate.getExpression(0));
+        }
+        if (input instanceof RankedSelection && ((RankedSelection) input).isRankedBy(key, variable)) {
+            rankedOrderBy = (OrderByClause) next;
+            return (RankedSelection) input;
+        }
+        return null;
+    }
+
+    /**
+     * Determine if the return expression of the FLWOR expression returns
+     * at least one item for each binding of the variable.
+     *
+     * @param returnExpr the expression following the "order by" clause.
+     * @param variable the name of the variable bound by this clause.
+     *
+     * @return true if the expression is the bound variable, or if its static
+     *     cardinality is exactly-one or one-or-more.
+     */
+    private static boolean returnsAtLeastOneItem(final Expression returnExpr, final QName variable) {
+        if (returnExpr instanceof FLWORClause) {
+            return false;
+        }
+        final Expression expr = RankedSelection.unwrap(returnExpr);
+        if (expr instanceof VariableReference && ((VariableReference) expr).getName().equals(variable)) {
+            return true;
+        }
+        final Cardinality cardinality = expr.getCardinality();
+        return cardinality == Cardinality.EXACTLY_ONE || cardinality == Cardinality.ONE_OR_MORE;
+    }
+
     /**
      * This implementation tries to process the "where" clause in advance, i.e. in one single
      * step. This is possible if the input sequence is a node set and the where expression
@@ -125,7 +249,17 @@ public class ForExpr extends BindingExpression {
         Sequence resultSequence = new ValueSequence(unordered);
         try {
             // Evaluate the "in" expression
-            in = inputSequence.eval(contextSequence, null);
+            final long rankLimit = rankedSelection == null ? 0 : rankedOrderBy.getLimit();
+            if (rankLimit > 0) {
+                rankedSelection.pushRankLimit(rankLimit);
+                try {
+                    in = inputSequence.eval(contextSequence, null);
+                } finally {
+                    rankedSelection.popRankLimit();
+                }
+            } else {
+                in = inputSequence.eval(contextSequence, null);
+            }
             clearContext(getExpressionId(), in);
             // Declare the iteration variable
             var = createVariable(varName);
@@ -182,6 +316,8 @@ public class ForExpr extends BindingExpression {
             int p = 0;
             if (in.isEmpty() && allowEmpty) {
                 processItem(var, AtomicValue.EMPTY_VALUE, Sequence.EMPTY_SEQUENCE, resultSequence, at, p);
+            } else if (parallel != null && parallel.evalBindings(in, resultSequence)) {
+                // the bindings were evaluated by the workers of the pragma
             } else {
                 for (final SequenceIterator i = in.iterate(); i.hasNext(); p++) {
                     processItem(var, i.nextItem(), in, resultSequence, at, p);
@@ -230,6 +366,44 @@ public class ForExpr extends BindingExpression {
         return resultSequence;
     }
 
+    /**
+     * Evaluates the return expression for a part of the bindings of this "for".
+     * Called by {@link ParallelPragma} on its own compilation of the query, within
+     * a worker thread.
+     *
+     * @param in the input sequence
+     * @param items the items to bind, a part of the input sequence
+     * @param offset the position of the first of the items within the input sequence
+     * @param watchDog the watchdog of the query which started the workers
+     * @return the concatenated results of the return expression
+     * @throws XPathException if an error occurs while evaluating the return expression
+     */
+    public Sequence evalBindings(final Sequence in, final List<Item> items, final int offset,
+            final XQueryWatchDog watchDog) throws XPathException {
+        final LocalVariable mark = context.markLocalVariables(false);
+        final Sequence resultSequence = new ValueSequence(unordered);
+        try {
+            final LocalVariable var = createVariable(varName);
+            var.setSequenceType(sequenceType);
+            context.declareVariableBinding(var);
+            LocalVariable at = null;
+            if (positionalVariable != null) {
+                at = new LocalVariable(QName.parse(context, positionalVariable, null));
+                at.setSequenceType(POSITIONAL_VAR_TYPE);
+                context.declareVariableBinding(at);
+            }
+            for (int i = 0; i < items.size(); i++) {
+                watchDog.proceed(this);
+                processItem(var, items.get(i), in, resultSequence, at, offset + i);
+            }
+        } catch (final QName.IllegalQNameException e) {
+            throw new XPathException(ErrorCodes.XPST0081, "No namespace defined for prefix " + positionalVariable);
+        } finally {
+            context.popLocalVariables(mark, resultSequence);
+        }
+        return resultSequence;
+    }
+
     private void processItem(LocalVariable var, Item contextItem, Sequence in, Sequence resultSequence, LocalVariable
             at, int p) throws XPathException {
         context.proceed(this);
@@ -27,7 +27,6 @@ import org.exist.xquery.util.ExpressionDumper;
 import org.exist.xquery.value.*;
 
 import java.util.*;
-import java.util.stream.Stream;
 
 /**
  * Implements a "group by" clause inside a FLWOR.
@@ -36,6 +35,10 @@ import java.util.stream.Stream;
  */
 public class GroupByClause extends AbstractFLWORClause {
 
+    public static final String GROUP_BY_SPILL_THRESHOLD_ATTRIBUTE = "group-by-spill-threshold";
+    public static final String PROPERTY_GROUP_BY_SPILL_THRESHOLD = "xquery.group-by-spill-threshold";
+    public static final int DEFAULT_GROUP_BY_SPILL_THRESHOLD = 500_000;
+
     protected FLWORClause rootClause = null;
     private GroupSpec[] groupSpecs;
     private final Deque<GroupByData> stack = new ArrayDeque<>();
@@ -48,20 +51,21 @@ public class GroupByClause extends AbstractFLWORClause {
      */
     private class GroupByData {
 
-        private Map<List<AtomicValue>, Tuple> groupedMap = null;
+        private GroupByTable groupedTable = null;
         private Map<QName, LocalVariable> variables = null;
         private List<LocalVariable> groupingVars = null;
 
         private boolean initialized = false;
 
         public GroupByData() {
-            // check if we can use a hash map
-            if (usesDefaultCollator()) {
-                groupedMap = new HashMap<>();
-            } else {
-                // non-default collation: must use tree map
-                groupedMap = new TreeMap<>(GroupByClause.this::compareKeys);
+            final Collator[] collators = new Collator[groupSpecs.length];
+            for (int i = 0; i < groupSpecs.length; i++) {
+                collators[i] = groupSpecs[i].getCollator();
             }
+            final int spillThreshold = context.getBroker().getConfiguration()
+                    .getProperty(PROPERTY_GROUP_BY_SPILL_THRESHOLD, DEFAULT_GROUP_BY_SPILL_THRESHOLD);
+            groupedTable = new GroupByTable(collators, Math.max(spillThreshold, 0),
+                    context.getBroker().getBrokerPool().getNodeFactory());
             variables = new HashMap<>();
             groupingVars = new ArrayList<>();
         }
@@ -107,14 +111,17 @@ public class GroupByClause extends AbstractFLWORClause {
             groupingKeys.add(groupingValue);
         }
 
-        // collect the current tuples into the grouping map
-        final Tuple tuple = data.groupedMap.computeIfAbsent(groupingKeys, ks -> new Tuple(groupingValues));
+        // collect the current tuples into the grouping table
+        final Tuple tuple = data.groupedTable.getGroup(groupingKeys, groupingValues);
 
         // scan in-scope variables to collect tuples
+        long items = 0;
         LocalVariable nextVar = rootClause.getStartVariable();
         Objects.requireNonNull(nextVar);
         while(nextVar != null) {
-            tuple.add(nextVar.getQName(), nextVar.getValue());
+            final Sequence value = nextVar.getValue();
+            tuple.add(nextVar.getQName(), value);
+            items += value.getItemCount();
             if (!data.initialized) {
                 // on first call: initialize non-grouping variable for later use
                 final LocalVariable var = new LocalVariable(nextVar.getQName());
@@ -125,6 +132,7 @@ public class GroupByClause extends AbstractFLWORClause {
             }
             nextVar = nextVar.after;
         }
+        data.groupedTable.added(items);
 
         data.initialized = true;
         return contextSequence;
@@ -145,30 +153,32 @@ public class GroupByClause extends AbstractFLWORClause {
                 for (LocalVariable var : data.groupingVars) {
                     context.declareVariableBinding(var);
                 }
-                // iterate over each group
-                for (Tuple tuple : data.groupedMap.values()) {
-                    context.proceed();
-
-                    // set grouping variable values
-                    final Iterator<Sequence> siter = tuple.groupingValues.iterator();
-                    for (LocalVariable var : data.groupingVars) {
-                        if (siter.hasNext()) {
-                            Sequence val = siter.next();
-                            var.setValue(val);
-                        } else {
-                            throw new XPathException(this, "Internal error: missing grouping value");
+                // iterate over each group, a partition at a time if the groups were spilled to disk
+                for (int partition = 0; partition < data.groupedTable.getPartitionCount(); partition++) {
+                    for (final Tuple tuple : data.groupedTable.getPartition(partition)) {
+                        context.proceed();
+
+                        // set grouping variable values
+                        final Iterator<Sequence> siter = tuple.groupingValues.iterator();
+                        for (LocalVariable var : data.groupingVars) {
+                            if (siter.hasNext()) {
+                                Sequence val = siter.next();
+                                var.setValue(val);
+                            } else {
+                                throw new XPathException(this, "Internal error: missing grouping value");
+                            }
                         }
+                        // set values of non-grouping variables
+                        for (Map.Entry<QName, Sequence> entry : tuple.entrySet()) {
+                            final LocalVariable var = data.variables.get(entry.getKey());
+                            var.setValue(entry.getValue());
+                        }
+                        final Sequence r = returnExpr.eval(null);
+                        result.addAll(r);
                     }
-                    // set values of non-grouping variables
-                    for (Map.Entry<QName, Sequence> entry : tuple.entrySet()) {
-                        final LocalVariable var = data.variables.get(entry.getKey());
-                        var.setValue(entry.getValue());
-                    }
-                    final Sequence r = returnExpr.eval(null);
-                    result.addAll(r);
                 }
             } finally {
-                stack.pop();
+                stack.pop().groupedTable.close();
                 context.popLocalVariables(mark, result);
             }
 
@@ -252,6 +262,9 @@ public class GroupByClause extends AbstractFLWORClause {
     @Override
     public void resetState(boolean postOptimization) {
         super.resetState(postOptimization);
+        for (final GroupByData data : stack) {
+            data.groupedTable.close();
+        }
         stack.clear();
         returnExpr.resetState(postOptimization);
         for (GroupSpec spec: groupSpecs) {
@@ -264,39 +277,9 @@ public class GroupByClause extends AbstractFLWORClause {
         visitor.visitGroupByClause(this);
     }
 
-    /**
-     * Compare keys using the collator given in the group spec. Used to
-     * sort keys into the grouping map.
-     */
-    private int compareKeys(List<AtomicValue> s1, List<AtomicValue> s2) {
-        final int c1 = s1.size();
-        final int c2 = s2.size();
-        if (c1 == c2) {
-            try {
-                for (int i = 0; i < c1; i++) {
-                    final AtomicValue v1 = s1.get(i);
-                    final AtomicValue v2 = s2.get(i);
-                    final Collator collator = groupSpecs[i].getCollator();
-                    final int r = v1.compareTo(collator, v2);
-                    if (r != Constants.EQUAL) {
-                        return r;
-                    }
-                }
-                return Constants.EQUAL;
-            } catch (XPathException e) {
-                return Constants.INFERIOR;
-            }
-        }
-        return c1 < c2 ? Constants.INFERIOR : Constants.SUPERIOR;
-    }
-
-    private boolean usesDefaultCollator() {
-        return Stream.of(groupSpecs).allMatch(spec -> spec.getCollator() == null);
-    }
-
     static class Tuple extends HashMap<QName, Sequence> {
 
-        private final List<Sequence> groupingValues;
+        final List<Sequence> groupingValues;
 
         public Tuple(final List<Sequence> groupingValues) {
             super();
@@ -0,0 +1,370 @@
+/*
+ * eXist-db Open Source Native XML Database
+ * Copyright (C) 2001 The eXist-db Authors
+ *
+ * info@exist-db.org
+ * http://www.exist-db.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.xquery;
+
+import com.ibm.icu.text.Collator;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.exist.dom.QName;
+import org.exist.numbering.NodeIdFactory;
+import org.exist.util.io.TemporaryFileManager;
+import org.exist.xquery.GroupByClause.Tuple;
+import org.exist.xquery.value.*;
+
+import javax.annotation.Nullable;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Hash table of the groups collected by a {@link GroupByClause}.
+ *
+ * Grouping keys are hashed with the collation of their group spec, so a
+ * non-default collation does not need an ordered map. When the groups hold
+ * more items than the configured threshold, they are written to a fixed number
+ * of hash partitions in temporary files and the table starts again empty.
+ * The groups are then read back one partition at a time, merging the spilled
+ * tuples of a key with the ones still in memory, so that only a single
+ * partition has to fit into memory.
+ *
+ * Only atomic values and persistent nodes can be spilled, if a group holds
+ * anything else the table stays in memory.
+ */
+final class GroupByTable implements AutoCloseable {
+
+    private static final Logger LOG = LogManager.getLogger(GroupByTable.class);
+
+    static final int PARTITIONS = 16;
+
+    private final Collator[] collators;
+    private final long spillThreshold;
+    private final ItemSpillCodec codec;
+
+    private Map<GroupKey, Tuple> groups = new HashMap<>();
+    private long itemCount = 0;
+    private boolean spillable = true;
+
+    private final List<QName> variableNames = new ArrayList<>();
+    private @Nullable Path[] partitionFiles = null;
+    private @Nullable DataOutputStream[] partitionOutputs = null;
+
+    /**
+     * @param collators the collation of each group spec, null for the default collation.
+     * @param spillThreshold the number of items after which the groups are spilled to disk, or 0 to never spill.
+     * @param nodeFactory the factory for restoring the ids of spilled nodes.
+     */
+    GroupByTable(final Collator[] collators, final long spillThreshold, final NodeIdFactory nodeFactory) {
+        this.collators = collators;
+        this.spillThreshold = spillThreshold;
+        this.codec = new ItemSpillCodec(nodeFactory);
+    }
+
+    /**
+     * Get the group for the grouping keys of a tuple, creating it if it does not yet exist.
+     *
+     * @param keys the atomized grouping keys.
+     * @param groupingValues the values of the grouping variables.
+     *
+     * @return the group.
+     *
+     * @throws XPathException if the grouping keys cannot be hashed.
+     */
+    Tuple getGroup(final List<AtomicValue> keys, final List<Sequence> groupingValues) throws XPathException {
+        final GroupKey key = new GroupKey(keys.toArray(new AtomicValue[0]), collators);
+        return groups.computeIfAbsent(key, k -> new Tuple(groupingValues));
+    }
+
+    /**
+     * Account for the items added to the groups by a tuple,
+     * spilling the groups to disk when the threshold is exceeded.
+     *
+     * @param items the number of items added.
+     *
+     * @throws XPathException if the groups cannot be written to disk.
+     */
+    void added(final long items) throws XPathException {
+        itemCount += items;
+        if (spillable && spillThreshold > 0 && itemCount > spillThreshold) {
+            spill();
+        }
+    }
+
+    /**
+     * Get the number of partitions of the groups.
+     *
+     * @return 1 if the groups were never spilled, {@link #PARTITIONS} otherwise.
+     */
+    int getPartitionCount() {
+        return partitionFiles == null ? 1 : PARTITIONS;
+    }
+
+    /**
+     * Get the groups of a partition.
+     *
+     * @param partition the partition, between 0 and {@link #getPartitionCount()}.
+     *
+     * @return the groups of the partition.
+     *
+     * @throws XPathException if the spilled groups cannot be read.
+     */
+    Collection<Tuple> getPartition(final int partition) throws XPathException {
+        if (partitionFiles == null) {
+            return groups.values();
+        }
+
+        try {
+            closeOutputs();
+
+            final Map<GroupKey, Tuple> merged = new LinkedHashMap<>();
+            try (final DataInputStream is = new DataInputStream(new BufferedInputStream(Files.newInputStream(partitionFiles[partition])))) {
+                while (true) {
+                    final int keyCount;
+                    try {
+                        keyCount = is.readInt();
+                    } catch (final EOFException e) {
+                        break;
+                    }
+                    final AtomicValue[] keys = new AtomicValue[keyCount];
+                    for (int i = 0; i < keyCount; i++) {
+                        keys[i] = (AtomicValue) codec.readItem(is);
+                    }
+                    final int groupingValueCount = is.readInt();
+                    final List<Sequence> groupingValues = new ArrayList<>(groupingValueCount);
+                    for (int i = 0; i < groupingValueCount; i++) {
+                        groupingValues.add(codec.readSequence(is));
+                    }
+                    final GroupKey key = new GroupKey(keys, collators);
+                    final Tuple tuple = merged.computeIfAbsent(key, k -> new Tuple(groupingValues));
+                    final int variableCount = is.readInt();
+                    for (int i = 0; i < variableCount; i++) {
+                        final QName name = variableNames.get(is.readInt());
+                        tuple.add(name, codec.readSequence(is));
+                    }
+                }
+            }
+
+            // groups still in memory were collected after the spilled ones
+            for (final Map.Entry<GroupKey, Tuple> entry : groups.entrySet()) {
+                if (partitionOf(entry.getKey()) != partition) {
+                    continue;
+                }
+                final Tuple tuple = merged.get(entry.getKey());
+                if (tuple == null) {
+                    merged.put(entry.getKey(), entry.getValue());
+                } else {
+                    for (final Map.Entry<QName, Sequence> variable : entry.getValue().entrySet()) {
+                        tuple.add(variable.getKey(), variable.getValue());
+                    }
+                }
+            }
+            return merged.values();
+        } catch (final IOException e) {
+            throw new XPathException("Unable to read spilled groups of group by clause: " + e.getMessage(), e);
+        }
+    }
+
+    private static int partitionOf(final GroupKey key) {
+        final int hash = key.hashCode();
+        return (hash ^ (hash >>> 16)) & (PARTITIONS - 1);
+    }
+
+    private void spill() throws XPathException {
+        for (final Tuple tuple : groups.values()) {
+            if (!isSpillable(tuple)) {
+                LOG.debug("Group by holds {} items which cannot be spilled to disk, keeping them in memory", itemCount);
+                spillable = false;
+                return;
+            }
+        }
+
+        try {
+            if (partitionFiles == null) {
+                partitionFiles = new Path[PARTITIONS];
+                partitionOutputs = new DataOutputStream[PARTITIONS];
+                for (int i = 0; i < PARTITIONS; i++) {
+                    partitionFiles[i] = TemporaryFileManager.getInstance().getTemporaryFile();
+                    partitionOutputs[i] = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(partitionFiles[i])));
+                }
+            }
+
+            LOG.debug("Spilling {} groups with {} items of group by to disk", groups.size(), itemCount);
+
+            for (final Map.Entry<GroupKey, Tuple> entry : groups.entrySet()) {
+                final DataOutputStream os = partitionOutputs[partitionOf(entry.getKey())];
+                final AtomicValue[] keys = entry.getKey().values;
+                os.writeInt(keys.length);
+                for (final AtomicValue key : keys) {
+                    codec.writeItem(os, key);
+                }
+                final Tuple tuple = entry.getValue();
+                os.writeInt(tuple.groupingValues.size());
+                for (final Sequence groupingValue : tuple.groupingValues) {
+                    codec.writeSequence(os, groupingValue);
+                }
+                os.writeInt(tuple.size());
+                for (final Map.Entry<QName, Sequence> variable : tuple.entrySet()) {
+                    int index = variableNames.indexOf(variable.getKey());
+                    if (index < 0) {
+                        index = variableNames.size();
+                        variableNames.add(variable.getKey());
+                    }
+                    os.writeInt(index);
+                    codec.writeSequence(os, variable.getValue());
+                }
+            }
+        } catch (final IOException e) {
+            throw new XPathException("Unable to spill groups of group by clause to disk: " + e.getMessage(), e);
+        }
+
+        groups = new HashMap<>();
+        itemCount = 0;
+    }
+
+    private static boolean isSpillable(final Tuple tuple) throws XPathException {
+        for (final Sequence groupingValue : tuple.groupingValues) {
+            if (!ItemSpillCodec.isSpillable(groupingValue)) {
+                return false;
+            }
+        }
+        for (final Sequence value : tuple.values()) {
+            if (!ItemSpillCodec.isSpillable(value)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void closeOutputs() throws IOException {
+        if (partitionOutputs != null) {
+            for (final DataOutputStream os : partitionOutputs) {
+                os.close();
+            }
+            partitionOutputs = null;
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            closeOutputs();
+        } catch (final IOException e) {
+            LOG.warn("Unable to close spilled groups of group by clause: {}", e.getMessage(), e);
+        }
+        if (partitionFiles != null) {
+            for (final Path partitionFile : partitionFiles) {
+                TemporaryFileManager.getInstance().returnTemporaryFile(partitionFile);
+            }
+            partitionFiles = null;
+        }
+        groups = new HashMap<>();
+    }
+
+    /**
+     * The grouping keys of a tuple.
+     *
+     * The hash code is computed once, using the collation key of string values
+     * when the group spec has a collation, and the numeric value of numbers so
+     * that equal numbers of different types share a hash code.
+     */
+    static final class GroupKey {
+        private final AtomicValue[] values;
+        private final Collator[] collators;
+        private final int hashCode;
+
+        GroupKey(final AtomicValue[] values, final Collator[] collators) throws XPathException {
+            this.values = values;
+            this.collators = collators;
+
+            int hash = 1;
+            for (int i = 0; i < values.length; i++) {
+                hash = 31 * hash + hashCode(values[i], collators[i]);
+            }
+            this.hashCode = hash;
+        }
+
+        private static int hashCode(final AtomicValue value, @Nullable final Collator collator) throws XPathException {
+            if (value.isEmpty()) {
+                return 0;
+            }
+            final int type = value.getType();
+            if (Type.subTypeOf(type, Type.STRING) || type == Type.UNTYPED_ATOMIC || type == Type.ANY_URI) {
+                final String s = value.getStringValue();
+                return collator == null ? s.hashCode() : collator.getCollationKey(s).hashCode();
+            }
+            if (value instanceof NumericValue) {
+                final double d = ((NumericValue) value).getDouble();
+                if (d == Math.rint(d) && !Double.isInfinite(d)) {
+                    return Long.hashCode((long) d);
+                }
+                return Double.hashCode(d);
+            }
+            return value.hashCode();
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof GroupKey)) {
+                return false;
+            }
+            final GroupKey other = (GroupKey) obj;
+            if (hashCode != other.hashCode || values.length != other.values.length) {
+                return false;
+            }
+            for (int i = 0; i < values.length; i++) {
+                final AtomicValue v1 = values[i];
+                final AtomicValue v2 = other.values[i];
+                if (v1.isEmpty() || v2.isEmpty()) {
+                    if (v1.isEmpty() != v2.isEmpty()) {
+                        return false;
+                    }
+                } else if (collators[i] == null) {
+                    if (!v1.equals(v2)) {
+                        return false;
+                    }
+                } else {
+                    try {
+                        if (v1.compareTo(collators[i], v2) != Constants.EQUAL) {
+                            return false;
+                        }
+                    } catch (final XPathException e) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+    }
+}
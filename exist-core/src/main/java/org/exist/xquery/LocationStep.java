@@ -596,7 +596,7 @@ public class LocationStep extends Step {
                                         + "'");
                     }
                     // TODO : why a null selector here ? We have one below !
-                    currentSet = index.findElementsByTagName(ElementValue.ATTRIBUTE, docs, test.getName(), null, this);
+                    currentSet = index.findAllElementsByTagName(ElementValue.ATTRIBUTE, docs, test.getName(), this);
                     currentDocs = docs;
                     registerUpdateListener();
                 }
@@ -685,7 +685,7 @@ public class LocationStep extends Step {
                                 "Using structural index '" + index.toString()
                                         + "'");
                     }
-                    currentSet = index.findElementsByTagName(ElementValue.ELEMENT, docs, test.getName(), null, this);
+                    currentSet = index.findAllElementsByTagName(ElementValue.ELEMENT, docs, test.getName(), this);
                     currentDocs = docs;
                     registerUpdateListener();
                 }
@@ -748,7 +748,7 @@ public class LocationStep extends Step {
                                 "Using structural index '" + index.toString()
                                         + "'");
                     }
-                    currentSet = index.findElementsByTagName(ElementValue.ELEMENT, docs, test.getName(), null, this);
+                    currentSet = index.findAllElementsByTagName(ElementValue.ELEMENT, docs, test.getName(), this);
                     currentDocs = docs;
                     registerUpdateListener();
                 }
@@ -26,22 +26,34 @@ import org.exist.xquery.value.Item;
 import org.exist.xquery.value.OrderedValueSequence;
 import org.exist.xquery.value.Sequence;
 
+import javax.annotation.Nullable;
 import java.util.ArrayDeque;
 import java.util.Deque;
 import java.util.List;
-import java.util.Stack;
 
 /**
  * Represents an "order by" clause within a FLWOR expression.
+ *
+ * If the sorted sequence is the result of the FLWOR expression and only its first
+ * items are used, e.g. by {@code fn:subsequence} or a positional predicate, the
+ * consumer can announce a limit with {@link #pushLimit(long)} and only that many
+ * items are retained while sorting.
  */
 public class OrderByClause extends AbstractFLWORClause {
 
+    public static final String ORDER_BY_SPILL_THRESHOLD_ATTRIBUTE = "order-by-spill-threshold";
+    public static final String PROPERTY_ORDER_BY_SPILL_THRESHOLD = "xquery.order-by-spill-threshold";
+    public static final int DEFAULT_ORDER_BY_SPILL_THRESHOLD = 500_000;
+
     protected OrderSpec[] orderSpecs = null;
 
     /*  OrderByClause needs to keep state between calls to eval and postEval. We thus need
         to track state in a stack to avoid overwrites if we're called recursively. */
     private final Deque<OrderedValueSequence> stack = new ArrayDeque<>();
 
+    // limits announced by the consumers of the FLWOR expression, for the same reason a stack
+    private final Deque<Long> limits = new ArrayDeque<>();
+
     public OrderByClause(XQueryContext context, List<OrderSpec> orderSpecs) {
         super(context);
         this.orderSpecs = orderSpecs.toArray(new OrderSpec[0]);
@@ -51,6 +63,60 @@ public class OrderByClause extends AbstractFLWORClause {
         return orderSpecs;
     }
 
+    /**
+     * Find the "order by" clause which produces the result of a FLWOR expression.
+     *
+     * @param expr the expression.
+     *
+     * @return the "order by" clause if expr is a FLWOR expression whose only "order by"
+     *     clause is directly followed by the return clause, null otherwise.
+     */
+    public static @Nullable OrderByClause getTrailingOrderBy(Expression expr) {
+        expr = expr.simplify();
+        // function arguments may be wrapped into checks which do not change the items
+        while (expr instanceof DynamicCardinalityCheck || expr instanceof DynamicTypeCheck) {
+            expr = expr.getSubExpression(0).simplify();
+        }
+        if (!(expr instanceof FLWORClause)) {
+            return null;
+        }
+        OrderByClause orderBy = null;
+        while (expr instanceof FLWORClause) {
+            if (orderBy != null) {
+                // the "order by" clause is followed by other clauses
+                return null;
+            }
+            if (expr instanceof OrderByClause) {
+                orderBy = (OrderByClause) expr;
+            }
+            expr = ((FLWORClause) expr).getReturnExpression();
+        }
+        return orderBy;
+    }
+
+    /**
+     * Announce that only the first items of the sorted sequence are used
+     * by the next evaluation of the FLWOR expression.
+     * Must be paired with a call to {@link #popLimit()}.
+     *
+     * @param limit the number of leading items used.
+     */
+    public void pushLimit(final long limit) {
+        limits.push(limit);
+    }
+
+    public void popLimit() {
+        limits.pop();
+    }
+
+    /**
+     * @return the limit announced for the current evaluation, or 0 if all items are used.
+     */
+    public long getLimit() {
+        final Long limit = limits.peek();
+        return limit == null ? 0 : limit;
+    }
+
     @Override
     public ClauseType getType() {
         return ClauseType.ORDERBY;
@@ -74,7 +140,10 @@ public class OrderByClause extends AbstractFLWORClause {
     public Sequence eval(Sequence contextSequence, Item contextItem) throws XPathException {
         final OrderedValueSequence orderedResult;
         if (stack.isEmpty()) {
-            orderedResult = new OrderedValueSequence(orderSpecs, 100);
+            final int spillThreshold = context.getBroker().getConfiguration()
+                    .getProperty(PROPERTY_ORDER_BY_SPILL_THRESHOLD, DEFAULT_ORDER_BY_SPILL_THRESHOLD);
+            orderedResult = new OrderedValueSequence(orderSpecs, 100, getLimit(),
+                    Math.max(spillThreshold, 0), context.getBroker().getBrokerPool().getNodeFactory());
         } else {
             orderedResult = stack.pop();
         }
@@ -121,6 +190,9 @@ public class OrderByClause extends AbstractFLWORClause {
     public void resetState(boolean postOptimization) {
         super.resetState(postOptimization);
         returnExpr.resetState(postOptimization);
+        for (final OrderedValueSequence orderedResult : stack) {
+            orderedResult.close();
+        }
         stack.clear();
     }
 }
@@ -25,10 +25,14 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.exist.dom.persistent.DocumentSet;
 import org.exist.dom.persistent.VirtualNodeSet;
+import org.exist.storage.serializers.Serializer;
+import org.exist.util.serializer.Receiver;
 import org.exist.xquery.util.ExpressionDumper;
 import org.exist.xquery.value.*;
+import org.xml.sax.SAXException;
 import org.xmldb.api.base.CompiledExpression;
 
+import javax.annotation.Nullable;
 import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Iterator;
@@ -385,6 +389,58 @@ public class PathExpr extends AbstractExpression implements CompiledXQuery,
         this.staticContext = staticContext;
     }
 
+    /**
+     * Returns the element constructor forming the body of this main module if the
+     * module consists of nothing but global variable declarations followed by an
+     * element constructor. Such a module can be evaluated in push mode with
+     * {@link #streamTo(Sequence, Serializer, Receiver)}.
+     *
+     * @return the element constructor, or null if the body is some other expression
+     */
+    public @Nullable ElementConstructor getStreamableBody() {
+        if (steps.isEmpty()) {
+            return null;
+        }
+        for (int i = 0; i < steps.size() - 1; i++) {
+            if (!(steps.get(i) instanceof VariableDeclaration)) {
+                return null;
+            }
+        }
+        Expression body = steps.get(steps.size() - 1);
+        while (body.getClass() == PathExpr.class && body.getSubExpressionCount() == 1) {
+            body = body.getSubExpression(0);
+        }
+        return body instanceof ElementConstructor ? (ElementConstructor) body : null;
+    }
+
+    /**
+     * Evaluates this main module, writing the element constructed by its body to
+     * the receiver rather than building it in memory.
+     *
+     * @param contextSequence the context sequence
+     * @param serializer the serializer which owns the receiver
+     * @param receiver the receiver to write the result to
+     *
+     * @throws XPathException if the module does not have a streamable body, see
+     *     {@link #getStreamableBody()}, or an error occurs during evaluation
+     * @throws SAXException if the receiver reports an error
+     */
+    public void streamTo(final Sequence contextSequence, final Serializer serializer, final Receiver receiver)
+            throws XPathException, SAXException {
+        final ElementConstructor body = getStreamableBody();
+        if (body == null) {
+            throw new XPathException(this, "The body of the query is not an element constructor and cannot be streamed");
+        }
+        Sequence currentContext = contextSequence;
+        for (int i = 0; i < steps.size() - 1; i++) {
+            final Expression decl = steps.get(i);
+            context.getWatchDog().proceed(decl);
+            currentContext = decl.eval(currentContext);
+        }
+        context.getWatchDog().proceed(body);
+        body.streamTo(currentContext, null, serializer, receiver);
+    }
+
     @Override
     public void accept(final ExpressionVisitor visitor) {
         visitor.visitPathExpr(this);
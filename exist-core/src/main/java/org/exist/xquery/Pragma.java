@@ -38,6 +38,16 @@ public abstract class Pragma {
     public void analyze(AnalyzeContextInfo contextInfo) throws XPathException {
     }
 
+    /**
+     * Called by the extension expression after the expression it encloses
+     * has been analyzed.
+     *
+     * @param expression the expression enclosed by the extension expression
+     * @throws XPathException if the pragma cannot be applied to the expression
+     */
+    public void analyzed(Expression expression) throws XPathException {
+    }
+
     public Sequence eval(Sequence contextSequence, Item contextItem)
     throws XPathException {
         return null;
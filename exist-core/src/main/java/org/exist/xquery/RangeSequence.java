@@ -32,8 +32,6 @@ import org.exist.xquery.value.Sequence;
 import org.exist.xquery.value.SequenceIterator;
 import org.exist.xquery.value.Type;
 
-import java.math.BigInteger;
-
 public class RangeSequence extends AbstractSequence {
 
     private final static Logger LOG = LogManager.getLogger(AbstractSequence.class);
@@ -151,6 +149,11 @@ public class RangeSequence extends AbstractSequence {
         if (start.compareTo(end) > 0) {
             return 0;
         }
+        if (start.isLong() && end.isLong()) {
+            final long count = end.getLong() - start.getLong() + 1;
+            // a range spanning (nearly) the whole of the long value space is clamped
+            return count > 0 ? count : Long.MAX_VALUE;
+        }
         try {
             return ((IntegerValue) end.minus(start)).getLong() + 1;
         } catch (final XPathException e) {
@@ -218,14 +221,8 @@ public class RangeSequence extends AbstractSequence {
     @Override
     public boolean contains(final Item item) {
         if (item instanceof IntegerValue) {
-            try {
-                final BigInteger other = item.toJavaObject(BigInteger.class);
-                return other.compareTo(start.toJavaObject(BigInteger.class)) >= 0
-                        && other.compareTo(end.toJavaObject(BigInteger.class)) <= 0;
-            } catch (final XPathException e) {
-                LOG.warn(e.getMessage(), e);
-                return false;
-            }
+            final IntegerValue other = (IntegerValue) item;
+            return other.compareTo(start) >= 0 && other.compareTo(end) <= 0;
         }
         return false;
     }
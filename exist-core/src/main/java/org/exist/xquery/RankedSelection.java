@@ -0,0 +1,83 @@
+/*
+ * eXist-db Open Source Native XML Database
+ * Copyright (C) 2001 The eXist-db Authors
+ *
+ * info@exist-db.org
+ * http://www.exist-db.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.xquery;
+
+import org.exist.dom.QName;
+import org.exist.xquery.pragmas.Optimize;
+
+/**
+ * An expression selecting items which have a rank, e.g. a full text query
+ * ranking the nodes it selects by their relevance score.
+ *
+ * If a "for" clause binds the items selected, the FLWOR expression orders them
+ * by their rank, descending, and only the first items of its result are used,
+ * the expression is told to only select the items ranked highest, see {@link ForExpr}.
+ */
+public interface RankedSelection extends Expression {
+
+    /**
+     * Check if an "order by" key is the rank of the items selected.
+     *
+     * @param key the sort expression of an order spec.
+     * @param variable the name of the variable the items selected are bound to.
+     *
+     * @return true if key computes the rank of the item bound to variable.
+     */
+    boolean isRankedBy(Expression key, QName variable);
+
+    /**
+     * Announce that only the items ranked highest are used by the next evaluation.
+     * Items ranked equal to the last of them must still be selected, as they
+     * may be ordered before it by another order spec.
+     * Must be paired with a call to {@link #popRankLimit()}.
+     *
+     * @param limit the number of items ranked highest which are used.
+     */
+    void pushRankLimit(long limit);
+
+    void popRankLimit();
+
+    /**
+     * Remove the wrappers from an expression which do not change its items,
+     * e.g. to find the expression selecting the items bound by a "for" clause,
+     * or the expression computing an "order by" key.
+     *
+     * @param expr the expression to unwrap.
+     *
+     * @return the innermost expression which is not such a wrapper.
+     */
+    static Expression unwrap(Expression expr) {
+        while (true) {
+            expr = expr.simplify();
+            if (expr instanceof DynamicCardinalityCheck || expr instanceof DynamicTypeCheck) {
+                expr = expr.getSubExpression(0);
+            } else if (expr instanceof InternalFunctionCall) {
+                expr = ((InternalFunctionCall) expr).getFunction();
+            } else if (expr instanceof ExtensionExpression
+                    && ((ExtensionExpression) expr).getPragmas().stream().allMatch(pragma -> pragma instanceof Optimize)) {
+                expr = ((ExtensionExpression) expr).getExpression();
+            } else {
+                return expr;
+            }
+        }
+    }
+}
@@ -92,6 +92,10 @@ public class TextConstructor extends NodeConstructor {
         return text;
     }
 
+    public boolean isWhitespaceOnly() {
+        return isWhitespaceOnly;
+    }
+
     @Override
     public boolean allowMixedNodesInReturn() {
         return true;
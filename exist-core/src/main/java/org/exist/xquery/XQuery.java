@@ -31,6 +31,7 @@ import java.util.List;
 import java.util.Optional;
 import java.util.Properties;
 
+import com.evolvedbinary.j8fu.function.FunctionE;
 import com.evolvedbinary.j8fu.tuple.Tuple3;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -349,6 +350,34 @@ public class XQuery {
     }
 
     public Sequence execute(final DBBroker broker, final CompiledXQuery expression, @Nullable final Tuple3<QName, List<Expression>, Optional<ErrorCodes.ErrorCode>> functionCall, @Nullable Sequence contextSequence, final Properties outputProperties, final boolean resetContext) throws XPathException, PermissionDeniedException {
+        return execute(broker, expression, functionCall, contextSequence, outputProperties, resetContext, null);
+    }
+
+    /**
+     * Executes a main module, handing its evaluation to the given function
+     * instead of calling {@link CompiledXQuery#eval(Sequence)}. The function
+     * runs with the same set-up as a normal execution (effective subject, watchdog,
+     * process monitor) and before the context is reset, so it may evaluate the module
+     * in a different way, e.g. with {@link PathExpr#streamTo}. The serialization
+     * options declared by the query are copied into the output properties before
+     * the function is called.
+     *
+     * @param broker the database broker
+     * @param expression the compiled main module
+     * @param contextSequence the context sequence, or null
+     * @param outputProperties the output properties, or null
+     * @param evaluator receives the context sequence and evaluates the module
+     *
+     * @return the sequence returned by the evaluator
+     *
+     * @throws XPathException if an error occurs during evaluation
+     * @throws PermissionDeniedException if the caller may not execute the query
+     */
+    public Sequence execute(final DBBroker broker, final CompiledXQuery expression, @Nullable final Sequence contextSequence, final Properties outputProperties, final FunctionE<Sequence, Sequence, XPathException> evaluator) throws XPathException, PermissionDeniedException {
+        return execute(broker, expression, null, contextSequence, outputProperties, true, evaluator);
+    }
+
+    private Sequence execute(final DBBroker broker, final CompiledXQuery expression, @Nullable final Tuple3<QName, List<Expression>, Optional<ErrorCodes.ErrorCode>> functionCall, @Nullable Sequence contextSequence, final Properties outputProperties, final boolean resetContext, @Nullable final FunctionE<Sequence, Sequence, XPathException> evaluator) throws XPathException, PermissionDeniedException {
     	
         //check execute permissions
         if (expression.getContext().getSource() instanceof DBSource) {
@@ -437,6 +466,11 @@ public class XQuery {
 
                     result = call.eval(contextSequence);
 
+                } else if (evaluator != null) {
+                    if (outputProperties != null) {
+                        context.checkOptions(outputProperties);
+                    }
+                    result = evaluator.apply(contextSequence);
                 } else {
                     result = expression.eval(contextSequence);
                 }
@@ -193,6 +193,9 @@ public class XQueryContext implements BinaryValueManager, Context {
     // Inline functions using closures need to be cleared after execution
     private Deque<UserDefinedFunction> closures = new ArrayDeque<>();
 
+    // The exist:parallel pragmas of this query, in the order in which they were parsed
+    private final List<ParallelPragma> parallelPragmas = new ArrayList<>();
+
     // List of options declared for this query at compile time - i.e. declare option
     private List<Option> staticOptions = null;
 
@@ -651,6 +654,35 @@ public class XQueryContext implements BinaryValueManager, Context {
         ctx.httpContext = this.httpContext;
     }
 
+    /**
+     * Copies the dynamic context of this context into the context of another
+     * compilation of the same query, which evaluates a part of it on another thread.
+     *
+     * Both then see the same current dateTime, implicit timezone, statically known
+     * and available documents and collections, context item and HTTP context.
+     *
+     * This context is only read, but the current dateTime and implicit timezone are
+     * fixed on first use: when copying into several contexts at once, call
+     * {@link #getCalendar()} and {@link #getImplicitTimeZone()} on the thread of this
+     * context beforehand. The context item is shared, callers should set a copy of it
+     * with {@link #setContextItem(Sequence)} if it may be read concurrently.
+     *
+     * @param ctx the context to copy the dynamic context into
+     */
+    public void copyDynamicContext(final XQueryContext ctx) {
+        ctx.calendar = (XMLGregorianCalendar) getCalendar().clone();
+        ctx.implicitTimeZone = (TimeZone) getImplicitTimeZone().clone();
+        ctx.staticDocumentPaths = this.staticDocumentPaths;
+        ctx.staticDocuments = this.protectedDocuments != null && this.staticDocuments == null
+                ? this.protectedDocuments.toDocumentSet() : this.staticDocuments;
+        ctx.dynamicDocuments = this.dynamicDocuments;
+        ctx.dynamicTextResources = this.dynamicTextResources;
+        ctx.dynamicCollections = this.dynamicCollections;
+        ctx.attributes = new HashMap<>(this.attributes);
+        ctx.contextItem = this.contextItem;
+        ctx.httpContext = this.httpContext;
+    }
+
     @Override
     public void prepareForExecution() {
         //if there is an existing user in the current http session
@@ -2972,11 +3004,29 @@ public class XQueryContext implements BinaryValueManager, Context {
             if (NoIndexPragma.NO_INDEX_PRAGMA.equals(qname)) {
                 return new NoIndexPragma(qname, contents);
             }
+
+            if (ParallelPragma.PARALLEL_PRAGMA.equals(qname)) {
+                final ParallelPragma pragma = new ParallelPragma(this, qname, contents, parallelPragmas.size());
+                parallelPragmas.add(pragma);
+                return pragma;
+            }
         }
 
         return null;
     }
 
+    /**
+     * Returns the exist:parallel pragma of this query with the given ordinal,
+     * i.e. the n-th exist:parallel pragma found when the query was parsed.
+     * Used to find the same pragma within another compilation of the query.
+     *
+     * @param ordinal the ordinal of the pragma
+     * @return the pragma, or null if there is no such pragma
+     */
+    public @Nullable ParallelPragma getParallelPragma(final int ordinal) {
+        return ordinal < parallelPragmas.size() ? parallelPragmas.get(ordinal) : null;
+    }
+
     @Override
     public DocumentImpl storeTemporaryDoc(final org.exist.dom.memtree.DocumentImpl doc) throws XPathException {
         try {
@@ -57,6 +57,9 @@ public class FunSubSequence extends Function {
                     },
                     new FunctionReturnSequenceType(Type.ITEM, Cardinality.ZERO_OR_MORE, "the subsequence"))};
 
+    // the "order by" clause producing the source sequence, if any
+    private @Nullable OrderByClause sourceOrderBy = null;
+
     public FunSubSequence(final XQueryContext context, final FunctionSignature signature) {
         super(context, signature);
     }
@@ -89,6 +92,10 @@ public class FunSubSequence extends Function {
             }
         }
         argumentsChecked = true;
+
+        if (getArgumentCount() == 3) {
+            sourceOrderBy = OrderByClause.getTrailingOrderBy(getArgument(0));
+        }
     }
 
     @Override
@@ -109,6 +116,25 @@ public class FunSubSequence extends Function {
         }
 
         final Sequence result;
+        if (sourceOrderBy != null) {
+            // evaluate the positions first, so that the "order by" clause only has to retain the items we return
+            final DoubleValue startLoc = (DoubleValue) getArgument(1).eval(contextSequence, contextItem).convertTo(Type.DOUBLE);
+            final DoubleValue length = (DoubleValue) getArgument(2).eval(contextSequence, contextItem).convertTo(Type.DOUBLE);
+            final long limit = limit(startLoc, length);
+            final Sequence seq;
+            if (limit <= 0) {
+                seq = getArgument(0).eval(contextSequence, contextItem);
+            } else {
+                sourceOrderBy.pushLimit(limit);
+                try {
+                    seq = getArgument(0).eval(contextSequence, contextItem);
+                } finally {
+                    sourceOrderBy.popLimit();
+                }
+            }
+            return seq.isEmpty() ? Sequence.EMPTY_SEQUENCE : subsequence(seq, startLoc, length);
+        }
+
         final Sequence seq = getArgument(0).eval(contextSequence, contextItem);
         if (seq.isEmpty()) {
             result = Sequence.EMPTY_SEQUENCE;
@@ -126,6 +152,26 @@ public class FunSubSequence extends Function {
         return result;
     }
 
+    /**
+     * Get the number of leading items of the source sequence needed by {@code fn:subsequence}.
+     *
+     * @param startLoc the starting location value as passed to {@code fn:subsequence}
+     * @param length the length value as passed to {@code fn:subsequence}
+     *
+     * @return the number of items, or 0 if it cannot be determined
+     */
+    private static long limit(final DoubleValue startLoc, final DoubleValue length) {
+        if (startLoc.isNaN() || startLoc.isInfinite() || length.isNaN() || length.isInfinite()) {
+            return 0;
+        }
+        final long startArg = startLoc.getLong();
+        final long lengthArg = length.getLong();
+        if (lengthArg <= 0 || startArg > Long.MAX_VALUE - lengthArg) {
+            return 0;
+        }
+        return Math.max(startArg + lengthArg - 1, 0);
+    }
+
     /**
      * Creates a Subsequence from a sequence
      *
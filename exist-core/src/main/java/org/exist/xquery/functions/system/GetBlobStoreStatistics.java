@@ -0,0 +1,90 @@
+/*
+ * eXist-db Open Source Native XML Database
+ * Copyright (C) 2001 The eXist-db Authors
+ *
+ * info@exist-db.org
+ * http://www.exist-db.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.xquery.functions.system;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.exist.dom.QName;
+import org.exist.storage.blob.BlobStoreStatistics;
+import org.exist.xquery.BasicFunction;
+import org.exist.xquery.Cardinality;
+import org.exist.xquery.FunctionSignature;
+import org.exist.xquery.XPathException;
+import org.exist.xquery.XQueryContext;
+import org.exist.xquery.functions.map.MapType;
+import org.exist.xquery.value.FunctionReturnSequenceType;
+import org.exist.xquery.value.IntegerValue;
+import org.exist.xquery.value.Sequence;
+import org.exist.xquery.value.StringValue;
+import org.exist.xquery.value.Type;
+
+import java.io.IOException;
+
+/**
+ * Returns statistics about the de-duplication of binary documents by the Blob Store.
+ */
+public class GetBlobStoreStatistics extends BasicFunction {
+
+    protected final static Logger logger = LogManager.getLogger(GetBlobStoreStatistics.class);
+
+    public final static FunctionSignature signature = new FunctionSignature(
+        new QName("get-blob-store-statistics", SystemModule.NAMESPACE_URI, SystemModule.PREFIX),
+        "Returns statistics about the de-duplication of binary documents by the Blob Store, as a map with the " +
+        "entries: unique-blobs, the number of distinct blob files; references, the number of binary documents " +
+        "referring to them; stored-bytes, their size on disk; referenced-bytes, the size they would take up without " +
+        "de-duplication; saved-bytes, the difference between the two; orphaned-files and orphaned-bytes, the number " +
+        "and size of blob files which are no longer referenced but have not yet been removed. " +
+        "The size of every blob file is examined, so this may be slow on a large database. " +
+        "The calling user must be a DBA.",
+        FunctionSignature.NO_ARGS,
+        new FunctionReturnSequenceType(Type.MAP, Cardinality.EXACTLY_ONE, "the Blob Store statistics")
+    );
+
+    public GetBlobStoreStatistics(final XQueryContext context) {
+        super(context, signature);
+    }
+
+    @Override
+    public Sequence eval(final Sequence[] args, final Sequence contextSequence) throws XPathException {
+        if (!context.getSubject().hasDbaRole()) {
+            throw new XPathException(this, "Permission denied, calling user '" + context.getSubject().getName() +
+                    "' must be a DBA to get the Blob Store statistics");
+        }
+
+        final BlobStoreStatistics statistics;
+        try {
+            statistics = context.getBroker().getBrokerPool().getBlobStore().getStatistics();
+        } catch (final IOException e) {
+            throw new XPathException(this, "Unable to retrieve the Blob Store statistics: " + e.getMessage(), e);
+        }
+
+        final MapType result = new MapType(context);
+        result.add(new StringValue("unique-blobs"), new IntegerValue(statistics.getUniqueBlobs()));
+        result.add(new StringValue("references"), new IntegerValue(statistics.getReferences()));
+        result.add(new StringValue("stored-bytes"), new IntegerValue(statistics.getStoredBytes()));
+        result.add(new StringValue("referenced-bytes"), new IntegerValue(statistics.getReferencedBytes()));
+        result.add(new StringValue("saved-bytes"), new IntegerValue(statistics.getSavedBytes()));
+        result.add(new StringValue("orphaned-files"), new IntegerValue(statistics.getOrphanedFiles()));
+        result.add(new StringValue("orphaned-bytes"), new IntegerValue(statistics.getOrphanedBytes()));
+        return result;
+    }
+}
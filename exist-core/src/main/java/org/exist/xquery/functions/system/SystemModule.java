@@ -69,6 +69,7 @@ public class SystemModule extends AbstractInternalModule {
             new FunctionDef(AsUser.FS_AS_USER, AsUser.class),
 			new FunctionDef(AsUser.FS_FUNCTION_AS_USER, AsUser.class),
             new FunctionDef(GetIndexStatistics.signature, GetIndexStatistics.class),
+            new FunctionDef(GetBlobStoreStatistics.signature, GetBlobStoreStatistics.class),
             new FunctionDef(UpdateStatistics.signature, UpdateStatistics.class),
             new FunctionDef(GetRunningXQueries.signature, GetRunningXQueries.class),
             new FunctionDef(KillRunningXQuery.signatures[0], KillRunningXQuery.class),
@@ -39,6 +39,7 @@ import org.exist.xquery.value.NodeValue;
 import org.exist.xquery.value.Sequence;
 import org.exist.xquery.value.SequenceType;
 import org.exist.xquery.value.Type;
+import org.w3c.dom.Node;
 
 /**
  * @author wolf
@@ -76,7 +77,14 @@ public class GetNodeById extends BasicFunction {
         final NodeId nodeId = context.getBroker().getBrokerPool().getNodeFactory().createFromString(id);
         final NodeValue docNode = (NodeValue) args[0].itemAt(0);
         if (docNode.getImplementationType() == NodeValue.IN_MEMORY_NODE) {
-            return ((NodeImpl) docNode).getOwnerDocument().getNodeById(nodeId);
+            final NodeImpl memNode = (NodeImpl) docNode;
+            final org.exist.dom.memtree.DocumentImpl doc = memNode.getNodeType() == Node.DOCUMENT_NODE ?
+                    (org.exist.dom.memtree.DocumentImpl) memNode : memNode.getOwnerDocument();
+            final NodeImpl node = doc.getNodeById(nodeId);
+            if (node == null) {
+                return Sequence.EMPTY_SEQUENCE;
+            }
+            return node;
         } else {
             final DocumentImpl doc = ((NodeProxy)docNode).getOwnerDocument();
             final NodeProxy proxy = new NodeProxy(doc, nodeId);
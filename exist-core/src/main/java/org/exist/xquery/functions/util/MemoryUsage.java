@@ -0,0 +1,71 @@
+/*
+ * eXist-db Open Source Native XML Database
+ * Copyright (C) 2001 The eXist-db Authors
+ *
+ * info@exist-db.org
+ * http://www.exist-db.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.xquery.functions.util;
+
+import org.exist.dom.QName;
+import org.exist.dom.memtree.DocumentImpl;
+import org.exist.dom.memtree.NodeImpl;
+import org.exist.xquery.BasicFunction;
+import org.exist.xquery.Cardinality;
+import org.exist.xquery.FunctionSignature;
+import org.exist.xquery.XPathException;
+import org.exist.xquery.XQueryContext;
+import org.exist.xquery.value.FunctionParameterSequenceType;
+import org.exist.xquery.value.FunctionReturnSequenceType;
+import org.exist.xquery.value.IntegerValue;
+import org.exist.xquery.value.NodeValue;
+import org.exist.xquery.value.Sequence;
+import org.exist.xquery.value.SequenceType;
+import org.exist.xquery.value.Type;
+import org.w3c.dom.Node;
+
+/**
+ * Reports the estimated heap usage of the in-memory document containing a node.
+ */
+public class MemoryUsage extends BasicFunction {
+
+    public final static FunctionSignature signature = new FunctionSignature(
+            new QName("memory-usage", UtilModule.NAMESPACE_URI, UtilModule.PREFIX),
+            "Returns the estimated number of bytes of memory used by the in-memory document " +
+            "containing the node, for example a document constructed by the query. " +
+            "Returns the empty sequence for a node stored in the database.",
+            new SequenceType[] {
+                    new FunctionParameterSequenceType("node", Type.NODE, Cardinality.EXACTLY_ONE, "The node")
+            },
+            new FunctionReturnSequenceType(Type.INTEGER, Cardinality.ZERO_OR_ONE, "the estimated memory usage in bytes")
+    );
+
+    public MemoryUsage(final XQueryContext context) {
+        super(context, signature);
+    }
+
+    @Override
+    public Sequence eval(final Sequence[] args, final Sequence contextSequence) throws XPathException {
+        final NodeValue node = (NodeValue) args[0].itemAt(0);
+        if (node.getImplementationType() != NodeValue.IN_MEMORY_NODE) {
+            return Sequence.EMPTY_SEQUENCE;
+        }
+        final NodeImpl memNode = (NodeImpl) node;
+        final DocumentImpl doc = memNode.getNodeType() == Node.DOCUMENT_NODE ? (DocumentImpl) memNode : memNode.getOwnerDocument();
+        return new IntegerValue(doc.getMemoryUsage());
+    }
+}
@@ -152,7 +152,8 @@ public class UtilModule extends AbstractInternalModule {
             new FunctionDef(Base64Functions.signatures[3], Base64Functions.class),
             new FunctionDef(BaseConversionFunctions.FNS_INT_TO_OCTAL, BaseConversionFunctions.class),
             new FunctionDef(BaseConversionFunctions.FNS_OCTAL_TO_INT, BaseConversionFunctions.class),
-            new FunctionDef(LineNumber.signature, LineNumber.class)
+            new FunctionDef(LineNumber.signature, LineNumber.class),
+            new FunctionDef(MemoryUsage.signature, MemoryUsage.class)
     };
 
     static {
@@ -0,0 +1,528 @@
+/*
+ * eXist-db Open Source Native XML Database
+ * Copyright (C) 2001 The eXist-db Authors
+ *
+ * info@exist-db.org
+ * http://www.exist-db.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.xquery.pragmas;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.exist.EXistException;
+import org.exist.Namespaces;
+import org.exist.dom.QName;
+import org.exist.dom.persistent.NewArrayNodeSet;
+import org.exist.dom.persistent.NodeSet;
+import org.exist.security.PermissionDeniedException;
+import org.exist.security.Subject;
+import org.exist.source.Source;
+import org.exist.storage.BrokerPool;
+import org.exist.storage.DBBroker;
+import org.exist.storage.XQueryPool;
+import org.exist.xquery.*;
+import org.exist.xquery.value.AnyURIValue;
+import org.exist.xquery.value.Item;
+import org.exist.xquery.value.Sequence;
+import org.exist.xquery.value.SequenceIterator;
+import org.exist.xquery.value.ValueSequence;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Predicate;
+
+/**
+ * Evaluates the bindings of a "for" clause in parallel:
+ *
+ * <pre>
+ * (# exist:parallel threads=8 #) {
+ *     for $doc in collection('/db/data')
+ *     return transform:transform($doc, $xsl, ())
+ * }
+ * </pre>
+ *
+ * The items of the binding sequence are split into contiguous parts, one for each
+ * worker thread. Expressions and contexts of a compiled query may only be
+ * used by one thread at a time, so every worker gets its own broker and its own
+ * compilation of the query (borrowed from the XQuery pool if possible), restores the
+ * variables visible to the "for" clause, and evaluates the return expression for its
+ * part. The results are concatenated in the order of the binding sequence.
+ *
+ * The return expression must not have side effects and must not depend on
+ * the evaluation of other bindings: this is not checked. Only a FLWOR expression
+ * starting with a "for" clause, and followed by nothing but "let", "where" and "for"
+ * clauses, in the main module of a query can be evaluated in parallel. The pragma is
+ * ignored otherwise.
+ *
+ * The number of threads defaults to the number of available processors, and is
+ * limited by the number of brokers the workers can reserve without waiting, while
+ * leaving a quarter of the brokers of the database to other queries. The threads
+ * are shared by all queries of the database. Each worker gets its own copies of the
+ * input sequence and of the variables, and the dynamic context of the query, so that
+ * e.g. fn:current-dateTime() and fn:collection() give the same results as serially.
+ */
+public class ParallelPragma extends Pragma {
+
+    public static final QName PARALLEL_PRAGMA = new QName("parallel", Namespaces.EXIST_NS, "exist");
+
+    private static final Logger LOG = LogManager.getLogger(ParallelPragma.class);
+
+    // set while a worker evaluates its bindings, nested pragmas are evaluated serially
+    private static final ThreadLocal<Boolean> IN_WORKER = ThreadLocal.withInitial(() -> false);
+
+    // a quarter of the brokers, and at least one, are left to other queries
+    private static final int BROKER_HEADROOM = 4;
+
+    private final XQueryContext context;
+    private final int ordinal;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private ForExpr forExpr = null;
+
+    public ParallelPragma(final XQueryContext context, final QName qname, final String contents, final int ordinal)
+            throws XPathException {
+        super(qname, contents);
+        this.context = context;
+        this.ordinal = ordinal;
+        if (contents != null && !contents.isEmpty()) {
+            for (final String option : Option.tokenize(contents)) {
+                final String[] param = Option.parseKeyValuePair(option);
+                if (param == null || !"threads".equals(param[0])) {
+                    throw new XPathException("Invalid content found for pragma " + PARALLEL_PRAGMA.getStringValue() +
+                            ": " + contents);
+                }
+                try {
+                    threads = Integer.parseInt(param[1]);
+                } catch (final NumberFormatException e) {
+                    throw new XPathException("Invalid number of threads for pragma " +
+                            PARALLEL_PRAGMA.getStringValue() + ": " + param[1]);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void analyzed(final Expression expression) throws XPathException {
+        Expression expr = expression;
+        while (expr instanceof PathExpr && ((PathExpr) expr).getLength() == 1) {
+            expr = ((PathExpr) expr).getExpression(0);
+        }
+        final String reason = unsupported(expr);
+        if (reason != null) {
+            LOG.warn("Ignoring {} at line {}: {}", PARALLEL_PRAGMA.getStringValue(), expression.getLine(), reason);
+            return;
+        }
+        forExpr = (ForExpr) expr;
+        forExpr.setParallel(this);
+    }
+
+    private @Nullable String unsupported(final Expression expr) {
+        if (context.getRootContext() != context) {
+            return "only supported in the main module";
+        }
+        if (!(expr instanceof ForExpr) || ((ForExpr) expr).getPreviousClause() != null) {
+            return "the expression is not a FLWOR expression starting with a for clause";
+        }
+        if (((ForExpr) expr).isAllowingEmpty()) {
+            return "allowing empty is not supported";
+        }
+        for (Expression clause = ((ForExpr) expr).getReturnExpression(); clause instanceof FLWORClause;
+                clause = ((FLWORClause) clause).getReturnExpression()) {
+            switch (((FLWORClause) clause).getType()) {
+                case LET:
+                case WHERE:
+                case FOR:
+                    break;
+                default:
+                    return "the results of the bindings are not independent of each other";
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Evaluates the return expression of the "for" clause for every item of the input sequence,
+     * using the threads of the executor shared by the database. Returns false if the bindings
+     * could not be evaluated in parallel and should be evaluated serially instead.
+     *
+     * Every worker first tries to reserve a broker, without waiting for one to become available
+     * and leaving a share of the brokers to other queries. The items are split between the
+     * workers that got one, if there are fewer than two of them the bindings are evaluated
+     * serially. Each worker gets its own copies of the input sequence, of the values of the
+     * variables, and of the dynamic context of the query. The contexts and compiled queries of
+     * the workers are kept until the context of the query is cleaned up, as the results may
+     * depend on them.
+     *
+     * @param in the input sequence of the "for" clause
+     * @param result the sequence to add the results to
+     * @return true if the bindings were evaluated, false otherwise
+     * @throws XPathException if an error occurs while evaluating the return expression
+     */
+    public boolean evalBindings(final Sequence in, final Sequence result) throws XPathException {
+        if (IN_WORKER.get() || threads < 2 || in.hasOne()) {
+            return false;
+        }
+        final Source source = context.getSource();
+        if (source == null) {
+            return false;
+        }
+        final BrokerPool pool = context.getBroker().getBrokerPool();
+        final int size = in.getItemCount();
+        final int headroom = Math.max(1, pool.getMax() / BROKER_HEADROOM);
+        final int candidates = Math.min(Math.min(threads, size), pool.getMax() - pool.countActiveBrokers() - headroom);
+        if (candidates < 2) {
+            return false;
+        }
+
+        // sequences may not be read concurrently: the list is only read, in disjoint parts,
+        // the sequences are copied for each worker below
+        final List<Item> items = new ArrayList<>(size);
+        for (final SequenceIterator i = in.iterate(); i.hasNext(); ) {
+            items.add(i.nextItem());
+        }
+        final Subject subject = context.getBroker().getCurrentSubject();
+        final List<ClosureVariable> locals = context.getLocalStack();
+        final Map<QName, Variable> globals = context.getGlobalVariables();
+        final XQueryWatchDog watchDog = context.getWatchDog();
+        // fix the current dateTime and implicit timezone before the workers copy them
+        context.getCalendar();
+        context.getImplicitTimeZone();
+
+        final ExecutorService executor = pool.getQueryExecutor();
+        final CountDownLatch reserved = new CountDownLatch(candidates);
+        final CountDownLatch finished = new CountDownLatch(candidates);
+        final List<Worker> workers = new ArrayList<>(candidates);
+        boolean evaluated = false;
+        try {
+            final List<Future<Sequence>> tasks = new ArrayList<>(candidates);
+            for (int w = 0; w < candidates; w++) {
+                final Worker worker = new Worker(pool, subject, source, copyOf(locals), copyOf(globals),
+                        copyOf(in), copyOf(context.getContextItem()), headroom, watchDog, reserved, finished);
+                tasks.add(executor.submit(worker));
+                workers.add(worker);
+            }
+            reserved.await();
+
+            final List<Integer> active = new ArrayList<>(candidates);
+            for (int w = 0; w < candidates; w++) {
+                if (workers.get(w).hasBroker) {
+                    active.add(w);
+                }
+            }
+            if (active.size() < 2) {
+                LOG.debug("Not enough brokers available for {}, evaluating serially", PARALLEL_PRAGMA.getStringValue());
+                return false;
+            }
+            for (int a = 0; a < active.size(); a++) {
+                final int from = (int) ((long) size * a / active.size());
+                final int to = (int) ((long) size * (a + 1) / active.size());
+                workers.get(active.get(a)).assign(items.subList(from, to), from);
+            }
+
+            final List<Sequence> results = new ArrayList<>(active.size());
+            for (final int w : active) {
+                final Sequence workerResult = tasks.get(w).get();
+                if (workerResult == null) {
+                    return false;
+                }
+                results.add(workerResult);
+            }
+            for (final Sequence workerResult : results) {
+                result.addAll(workerResult);
+            }
+            evaluated = true;
+            return true;
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new XPathException(forExpr, "Interrupted while evaluating the bindings in parallel", e);
+        } catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof XPathException) {
+                throw (XPathException) cause;
+            }
+            throw new XPathException(forExpr,
+                    "Error while evaluating the bindings in parallel: " + cause.getMessage(), cause);
+        } finally {
+            // workers still waiting for their part give up their broker, the others are stopped
+            for (final Worker worker : workers) {
+                worker.assign(null, 0);
+                if (!evaluated) {
+                    worker.interrupt();
+                }
+            }
+            if (evaluated) {
+                context.registerCleanupTask((ctx, predicate) -> {
+                    for (final Worker worker : workers) {
+                        worker.release(predicate);
+                    }
+                });
+            } else {
+                // tasks are never cancelled, so every submitted worker counts down
+                for (int w = workers.size(); w < candidates; w++) {
+                    finished.countDown();
+                }
+                awaitUninterruptibly(finished);
+                for (final Worker worker : workers) {
+                    worker.release(o -> true);
+                }
+            }
+        }
+    }
+
+    private static void awaitUninterruptibly(final CountDownLatch latch) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    latch.await();
+                    return;
+                } catch (final InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static @Nullable List<ClosureVariable> copyOf(@Nullable final List<ClosureVariable> locals)
+            throws XPathException {
+        if (locals == null) {
+            return null;
+        }
+        final List<ClosureVariable> copies = new ArrayList<>(locals.size());
+        for (final ClosureVariable var : locals) {
+            final ClosureVariable copy = new ClosureVariable(var);
+            copy.setValue(copyOf(var.getValue()));
+            copies.add(copy);
+        }
+        return copies;
+    }
+
+    private static List<VariableImpl> copyOf(final Map<QName, Variable> globals) throws XPathException {
+        final List<VariableImpl> copies = new ArrayList<>(globals.size());
+        for (final Variable var : globals.values()) {
+            if (var instanceof VariableImpl) {
+                final VariableImpl copy = new VariableImpl((VariableImpl) var);
+                copy.setValue(copyOf(var.getValue()));
+                copies.add(copy);
+            }
+        }
+        return copies;
+    }
+
+    /**
+     * Copies a sequence for a worker. Sequences may sort or otherwise change
+     * their internal state when read, node sets are copied as node sets, as
+     * path expressions depend on them. Single items are not copied.
+     */
+    private static @Nullable Sequence copyOf(@Nullable final Sequence sequence) throws XPathException {
+        if (sequence == null || sequence.isEmpty() || sequence instanceof Item) {
+            return sequence;
+        }
+        if (sequence instanceof NodeSet) {
+            final NewArrayNodeSet copy = new NewArrayNodeSet();
+            copy.addAll((NodeSet) sequence);
+            return copy;
+        }
+        return new ValueSequence(sequence);
+    }
+
+    /**
+     * Evaluates a part of the bindings on a thread of the shared executor.
+     *
+     * The worker holds its broker only while it waits for its part and evaluates it,
+     * its context and compiled query are released by the thread of the query.
+     */
+    private class Worker implements Callable<Sequence> {
+        private final BrokerPool pool;
+        private final Subject subject;
+        private final Source source;
+        private final @Nullable List<ClosureVariable> locals;
+        private final List<VariableImpl> globals;
+        private final Sequence in;
+        private final Sequence contextItem;
+        private final int headroom;
+        private final XQueryWatchDog watchDog;
+        private final CountDownLatch reserved;
+        private final CountDownLatch finished;
+        private final CompletableFuture<List<Item>> part = new CompletableFuture<>();
+
+        private volatile boolean hasBroker = false;
+        private int offset;
+        private @Nullable Thread thread = null;
+        private @Nullable CompiledXQuery compiled = null;
+        private @Nullable XQueryContext workerContext = null;
+
+        Worker(final BrokerPool pool, final Subject subject, final Source source,
+                @Nullable final List<ClosureVariable> locals, final List<VariableImpl> globals, final Sequence in,
+                final Sequence contextItem, final int headroom, final XQueryWatchDog watchDog,
+                final CountDownLatch reserved, final CountDownLatch finished) {
+            this.pool = pool;
+            this.subject = subject;
+            this.source = source;
+            this.locals = locals;
+            this.globals = globals;
+            this.in = in;
+            this.contextItem = contextItem;
+            this.headroom = headroom;
+            this.watchDog = watchDog;
+            this.reserved = reserved;
+            this.finished = finished;
+        }
+
+        /**
+         * @param items the items to evaluate, or null if the worker has nothing to do
+         * @param offset the position of the first item in the input sequence
+         */
+        void assign(@Nullable final List<Item> items, final int offset) {
+            if (!part.isDone()) {
+                this.offset = offset;
+                part.complete(items);
+            }
+        }
+
+        /**
+         * Interrupts the worker if it is still running.
+         */
+        synchronized void interrupt() {
+            if (thread != null) {
+                thread.interrupt();
+            }
+        }
+
+        /**
+         * @return the results of the bindings, or null if the worker had nothing to do
+         *     or the query could not be set up
+         */
+        @Override
+        public @Nullable Sequence call() throws Exception {
+            synchronized (this) {
+                thread = Thread.currentThread();
+            }
+            IN_WORKER.set(true);
+            try {
+                Optional<DBBroker> reservation = Optional.empty();
+                try {
+                    reservation = pool.tryGet(Optional.of(subject), headroom);
+                } finally {
+                    hasBroker = reservation.isPresent();
+                    reserved.countDown();
+                }
+                if (!reservation.isPresent()) {
+                    return null;
+                }
+                try (final DBBroker broker = reservation.get()) {
+                    final List<Item> items = part.get();
+                    if (items == null) {
+                        return null;
+                    }
+                    return eval(broker, items);
+                }
+            } finally {
+                IN_WORKER.remove();
+                synchronized (this) {
+                    thread = null;
+                    // the pooled thread may be reused, it must not be interrupted on behalf of this worker
+                    Thread.interrupted();
+                }
+                finished.countDown();
+            }
+        }
+
+        private @Nullable Sequence eval(final DBBroker broker, final List<Item> items)
+                throws EXistException, PermissionDeniedException, IOException, XPathException {
+            final XQueryPool xqueryPool = pool.getXQueryPool();
+            final CompiledXQuery borrowed = xqueryPool.borrowCompiledXQuery(broker, source);
+            if (borrowed == null) {
+                final XQueryContext newContext = new XQueryContext(pool);
+                newContext.setModuleLoadPath(context.getModuleLoadPath());
+                final AnyURIValue baseURI = context.getBaseURI();
+                if (baseURI != null) {
+                    newContext.setBaseURI(baseURI);
+                }
+                try {
+                    compiled = pool.getXQueryService().compile(newContext, source);
+                } catch (final XPathException e) {
+                    LOG.warn("Unable to compile the query for a worker of {}, evaluating serially: {}",
+                            PARALLEL_PRAGMA.getStringValue(), e.getMessage());
+                    return null;
+                }
+                workerContext = newContext;
+            } else {
+                compiled = borrowed;
+                workerContext = borrowed.getContext();
+                workerContext.prepareForReuse();
+            }
+
+            final ParallelPragma peer = workerContext.getParallelPragma(ordinal);
+            if (peer == null || peer.forExpr == null || peer.forExpr.getLine() != forExpr.getLine()
+                    || peer.forExpr.getColumn() != forExpr.getColumn()) {
+                return null;
+            }
+            // the thread of the query waits for the workers, its context is not modified meanwhile
+            context.copyDynamicContext(workerContext);
+            workerContext.setContextItem(contextItem);
+            workerContext.prepareForExecution();
+            for (final VariableImpl var : globals) {
+                workerContext.declareGlobalVariable(var);
+            }
+            if (locals != null) {
+                workerContext.restoreStack(locals);
+            }
+            return peer.forExpr.evalBindings(in, items, offset, watchDog);
+        }
+
+        /**
+         * Cleans up the context of the worker and returns its compiled query to the pool.
+         * Must only be called once the worker has finished.
+         *
+         * @param predicate selects the objects the cleanup tasks of the context may release
+         */
+        void release(final Predicate<Object> predicate) {
+            if (compiled == null) {
+                return;
+            }
+            workerContext.runCleanupTasks(predicate);
+            compiled.reset();
+            workerContext.reset();
+            pool.getXQueryPool().returnCompiledXQuery(source, compiled);
+            compiled = null;
+            workerContext = null;
+        }
+    }
+
+    @Override
+    public void before(final XQueryContext context, final Expression expression, final Sequence contextSequence)
+            throws XPathException {
+    }
+
+    @Override
+    public void after(final XQueryContext context, final Expression expression) throws XPathException {
+    }
+}
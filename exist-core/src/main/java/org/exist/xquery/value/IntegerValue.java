@@ -22,7 +22,6 @@
 package org.exist.xquery.value;
 
 import com.ibm.icu.text.Collator;
-import org.exist.xquery.Constants;
 import org.exist.xquery.ErrorCodes;
 import org.exist.xquery.XPathException;
 
@@ -46,53 +45,64 @@ public class IntegerValue extends NumericValue {
 
     public static final IntegerValue ZERO = new IntegerValue(0);
 
-    private static final BigInteger ZERO_BIGINTEGER = new BigInteger("0");
-    private static final BigInteger ONE_BIGINTEGER = new BigInteger("1");
-    private static final BigInteger MINUS_ONE_BIGINTEGER = new BigInteger("-1");
-
-    private static final BigInteger LARGEST_LONG = new BigInteger("9223372036854775807");
-    private static final BigInteger SMALLEST_LONG = new BigInteger("-9223372036854775808");
-
     private static final BigInteger LARGEST_UNSIGNED_LONG = new BigInteger("18446744073709551615");
 
-    private static final BigInteger LARGEST_INT = new BigInteger("2147483647");
-    private static final BigInteger SMALLEST_INT = new BigInteger("-2147483648");
-
-    private static final BigInteger LARGEST_UNSIGNED_INT = new BigInteger("4294967295");
-
-    private static final BigInteger LARGEST_SHORT = new BigInteger("32767");
-    private static final BigInteger SMALLEST_SHORT = new BigInteger("-32768");
-
-    private static final BigInteger LARGEST_UNSIGNED_SHORT = new BigInteger("65535");
-
-    private static final BigInteger LARGEST_BYTE = new BigInteger("127");
-    private static final BigInteger SMALLEST_BYTE = new BigInteger("-128");
+    /**
+     * The value, when it fits into a machine word. Only valid if {@link #bigValue} is null.
+     */
+    private final long value;
 
-    private static final BigInteger LARGEST_UNSIGNED_BYTE = new BigInteger("255");
+    /**
+     * The value, only when it does not fit into a machine word, otherwise null.
+     */
+    private final @Nullable BigInteger bigValue;
 
-    final BigInteger value;
     private final int type;
 
     public IntegerValue(final long value) {
-        this.value = BigInteger.valueOf(value);
+        this.value = value;
+        this.bigValue = null;
         this.type = Type.INTEGER;
     }
 
     public IntegerValue(final BigInteger integer) {
-        this.value = integer;
+        if (fitsLong(integer)) {
+            this.value = integer.longValue();
+            this.bigValue = null;
+        } else {
+            this.value = 0;
+            this.bigValue = integer;
+        }
         this.type = Type.INTEGER;
     }
 
     public IntegerValue(final long value, final int type) throws XPathException {
-        this(BigInteger.valueOf(value), type);
+        this(value, type, true);
     }
 
     public IntegerValue(final BigInteger value, final int requiredType) throws XPathException {
         this(value, requiredType, true);
     }
 
-    private IntegerValue(final BigInteger value, final int requiredType, boolean checkType) throws XPathException {
+    private IntegerValue(final long value, final int requiredType, final boolean checkType) throws XPathException {
         this.value = value;
+        this.bigValue = null;
+        this.type = requiredType;
+
+        if (checkType && !checkType()) {
+            throw new XPathException(ErrorCodes.FORG0001, "can not convert '" +
+                    value + "' to " + Type.getTypeName(type));
+        }
+    }
+
+    private IntegerValue(final BigInteger value, final int requiredType, final boolean checkType) throws XPathException {
+        if (fitsLong(value)) {
+            this.value = value.longValue();
+            this.bigValue = null;
+        } else {
+            this.value = 0;
+            this.bigValue = value;
+        }
         this.type = requiredType;
 
         if (checkType && !checkType()) {
@@ -106,73 +116,148 @@ public class IntegerValue extends NumericValue {
     }
 
     public IntegerValue(final String stringValue, final int requiredType) throws XPathException {
+        final String trimmed = StringValue.trimWhitespace(stringValue);
+        long parsedValue = 0;
+        BigInteger parsedBigValue = null;
         try {
-            this.value = new BigInteger(StringValue.trimWhitespace(stringValue));
-            this.type = requiredType;
-            if (!(checkType())) {
-                throw new XPathException(ErrorCodes.FORG0001, "can not convert '" +
-                        stringValue + "' to " + Type.getTypeName(type));
+            // nearly all lexical integers fit into a long, only fall back to BigInteger for those that don't
+            if (trimmed.length() < 19) {
+                parsedValue = Long.parseLong(trimmed);
+            } else {
+                final BigInteger parsed = new BigInteger(trimmed);
+                if (fitsLong(parsed)) {
+                    parsedValue = parsed.longValue();
+                } else {
+                    parsedBigValue = parsed;
+                }
             }
         } catch (final NumberFormatException e) {
             throw new XPathException(ErrorCodes.FORG0001, "can not convert '" +
                     stringValue + "' to " + Type.getTypeName(requiredType));
         }
+        this.value = parsedValue;
+        this.bigValue = parsedBigValue;
+        this.type = requiredType;
+        if (!(checkType())) {
+            throw new XPathException(ErrorCodes.FORG0001, "can not convert '" +
+                    stringValue + "' to " + Type.getTypeName(type));
+        }
+    }
+
+    private static boolean fitsLong(final BigInteger value) {
+        return value.bitLength() < Long.SIZE;
     }
 
     private boolean checkType() throws XPathException {
+        if (bigValue != null) {
+            return checkBigType();
+        }
+
         switch (type) {
 
             case Type.LONG:
-                // jmv: add test since now long is not the default implementation anymore:
-                return value.compareTo(SMALLEST_LONG) >= 0 &&
-                        value.compareTo(LARGEST_LONG) <= 0;
-
-            case Type.UNSIGNED_LONG:
-                return value.compareTo(ZERO_BIGINTEGER) >= 0 &&
-                        value.compareTo(LARGEST_UNSIGNED_LONG) <= 0;
-
             case Type.INTEGER:
             case Type.DECIMAL:
                 return true;
 
-            case Type.POSITIVE_INTEGER:
-                return value.compareTo(ZERO_BIGINTEGER) == 1; // >0
+            case Type.UNSIGNED_LONG:
             case Type.NON_NEGATIVE_INTEGER:
-                return value.compareTo(MINUS_ONE_BIGINTEGER) == 1; // > -1
+                return value >= 0;
+
+            case Type.POSITIVE_INTEGER:
+                return value > 0;
 
             case Type.NEGATIVE_INTEGER:
-                return value.compareTo(ZERO_BIGINTEGER) == -1; // <0
+                return value < 0;
             case Type.NON_POSITIVE_INTEGER:
-                return value.compareTo(ONE_BIGINTEGER) == -1; // <1
+                return value <= 0;
 
             case Type.INT:
-                return value.compareTo(SMALLEST_INT) >= 0 &&
-                        value.compareTo(LARGEST_INT) <= 0;
+                return value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE;
 
             case Type.UNSIGNED_INT:
-                return value.compareTo(ZERO_BIGINTEGER) >= 0 &&
-                        value.compareTo(LARGEST_UNSIGNED_INT) <= 0;
+                return value >= 0 && value <= 0xFFFFFFFFL;
 
             case Type.SHORT:
-                return value.compareTo(SMALLEST_SHORT) >= 0 &&
-                        value.compareTo(LARGEST_SHORT) <= 0;
+                return value >= Short.MIN_VALUE && value <= Short.MAX_VALUE;
 
             case Type.UNSIGNED_SHORT:
-                return value.compareTo(ZERO_BIGINTEGER) >= 0 &&
-                        value.compareTo(LARGEST_UNSIGNED_SHORT) <= 0;
+                return value >= 0 && value <= 0xFFFF;
 
             case Type.BYTE:
-                return value.compareTo(SMALLEST_BYTE) >= 0 &&
-                        value.compareTo(LARGEST_BYTE) <= 0;
+                return value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE;
 
             case Type.UNSIGNED_BYTE:
-                return value.compareTo(ZERO_BIGINTEGER) >= 0 &&
-                        value.compareTo(LARGEST_UNSIGNED_BYTE) <= 0;
+                return value >= 0 && value <= 0xFF;
         }
 
         throw new XPathException("Unknown type: " + Type.getTypeName(type));
     }
 
+    /**
+     * Checks the type of a value which does not fit into a long,
+     * so can only be valid for the unbounded types and xs:unsignedLong.
+     */
+    private boolean checkBigType() throws XPathException {
+        switch (type) {
+
+            case Type.UNSIGNED_LONG:
+                return bigValue.signum() >= 0 &&
+                        bigValue.compareTo(LARGEST_UNSIGNED_LONG) <= 0;
+
+            case Type.INTEGER:
+            case Type.DECIMAL:
+                return true;
+
+            case Type.POSITIVE_INTEGER:
+            case Type.NON_NEGATIVE_INTEGER:
+                return bigValue.signum() > 0;
+
+            case Type.NEGATIVE_INTEGER:
+            case Type.NON_POSITIVE_INTEGER:
+                return bigValue.signum() < 0;
+
+            case Type.LONG:
+            case Type.INT:
+            case Type.UNSIGNED_INT:
+            case Type.SHORT:
+            case Type.UNSIGNED_SHORT:
+            case Type.BYTE:
+            case Type.UNSIGNED_BYTE:
+                return false;
+        }
+
+        throw new XPathException("Unknown type: " + Type.getTypeName(type));
+    }
+
+    /**
+     * Returns true if the value fits into a machine word,
+     * in which case {@link #getLong()} is exact.
+     *
+     * @return true if the value can be represented by a long
+     */
+    public boolean isLong() {
+        return bigValue == null;
+    }
+
+    /**
+     * Get the value as a BigInteger.
+     *
+     * @return the value
+     */
+    BigInteger toBigInteger() {
+        return bigValue != null ? bigValue : BigInteger.valueOf(value);
+    }
+
+    /**
+     * Get the value as a BigDecimal.
+     *
+     * @return the value
+     */
+    BigDecimal toBigDecimal() {
+        return bigValue != null ? new BigDecimal(bigValue) : BigDecimal.valueOf(value);
+    }
+
     @Override
     public int getType() {
         return type;
@@ -189,13 +274,12 @@ public class IntegerValue extends NumericValue {
     }
 
     public long getValue() {
-        return value.longValue();
+        return bigValue != null ? bigValue.longValue() : value;
     }
 
     @Override
     public String getStringValue() {
-        return // Long.toString(value);
-                value.toString();
+        return bigValue != null ? bigValue.toString() : Long.toString(value);
     }
 
     @Override
@@ -210,37 +294,47 @@ public class IntegerValue extends NumericValue {
 
     @Override
     public boolean isZero() {
-        return value.signum() == 0;
-        //return value.compareTo(ZERO_BIGINTEGER) == Constants.EQUAL;
+        return signum() == 0;
     }
 
     @Override
     public boolean isNegative() {
-        return value.signum() < 0;
+        return signum() < 0;
     }
 
     @Override
     public boolean isPositive() {
-        return value.signum() > 0;
+        return signum() > 0;
+    }
+
+    private int signum() {
+        return bigValue != null ? bigValue.signum() : Long.signum(value);
     }
 
     @Override
     protected @Nullable IntSupplier createComparisonWith(final NumericValue other) {
         final IntSupplier comparison;
         if (other instanceof IntegerValue) {
-            comparison = () -> value.compareTo(((IntegerValue)other).value);
+            comparison = () -> compareIntegers(this, (IntegerValue) other);
         } else if (other instanceof DecimalValue) {
-            comparison = () -> new BigDecimal(value).compareTo(((DecimalValue)other).value);
+            comparison = () -> toBigDecimal().compareTo(((DecimalValue)other).value);
         } else if (other instanceof DoubleValue) {
-            comparison = () -> new BigDecimal(value).compareTo(BigDecimal.valueOf(((DoubleValue)other).value));
+            comparison = () -> toBigDecimal().compareTo(BigDecimal.valueOf(((DoubleValue)other).value));
         } else if (other instanceof FloatValue) {
-            comparison = () -> new BigDecimal(value).compareTo(BigDecimal.valueOf(((FloatValue)other).value));
+            comparison = () -> toBigDecimal().compareTo(BigDecimal.valueOf(((FloatValue)other).value));
         } else {
             return null;
         }
         return comparison;
     }
 
+    private static int compareIntegers(final IntegerValue left, final IntegerValue right) {
+        if (left.bigValue == null && right.bigValue == null) {
+            return Long.compare(left.value, right.value);
+        }
+        return left.toBigInteger().compareTo(right.toBigInteger());
+    }
+
     @Override
     public AtomicValue convertTo(final int requiredType) throws XPathException {
         if (this.type == requiredType) {
@@ -252,11 +346,11 @@ public class IntegerValue extends NumericValue {
             case Type.ITEM:
                 return this;
             case Type.DECIMAL:
-                return new DecimalValue(new BigDecimal(value));
+                return new DecimalValue(toBigDecimal());
             case Type.UNTYPED_ATOMIC:
                 return new UntypedAtomicValue(getStringValue());
             case Type.NUMBER:
-                return new IntegerValue(value, requiredType, false);
+                return bigValue != null ? new IntegerValue(bigValue, requiredType, false) : new IntegerValue(value, requiredType, false);
             case Type.LONG:
             case Type.INTEGER:
             case Type.NON_POSITIVE_INTEGER:
@@ -270,21 +364,21 @@ public class IntegerValue extends NumericValue {
             case Type.UNSIGNED_SHORT:
             case Type.UNSIGNED_BYTE:
             case Type.POSITIVE_INTEGER:
-                return new IntegerValue(value, requiredType);
+                return bigValue != null ? new IntegerValue(bigValue, requiredType) : new IntegerValue(value, requiredType);
             case Type.DOUBLE:
-                return new DoubleValue(value.doubleValue());
+                return new DoubleValue(getDouble());
             case Type.FLOAT:
-                return new FloatValue(value.floatValue());
+                return new FloatValue(bigValue != null ? bigValue.floatValue() : (float) value);
             case Type.STRING:
                 return new StringValue(getStringValue());
             case Type.BOOLEAN:
-                return (value.compareTo(ZERO_BIGINTEGER) == 0) ? BooleanValue.FALSE : BooleanValue.TRUE;
+                return isZero() ? BooleanValue.FALSE : BooleanValue.TRUE;
             default:
                 throw new XPathException(ErrorCodes.FORG0001,
                         "cannot convert '"
                                 + Type.getTypeName(this.getType())
                                 + " ("
-                                + value
+                                + getStringValue()
                                 + ")' into "
                                 + Type.getTypeName(requiredType));
         }
@@ -292,17 +386,17 @@ public class IntegerValue extends NumericValue {
 
     @Override
     public int getInt() {
-        return value.intValue();
+        return bigValue != null ? bigValue.intValue() : (int) value;
     }
 
     @Override
     public long getLong() {
-        return value.longValue();
+        return bigValue != null ? bigValue.longValue() : value;
     }
 
     @Override
     public double getDouble() {
-        return value.doubleValue();
+        return bigValue != null ? bigValue.doubleValue() : (double) value;
     }
 
     @Override
@@ -342,10 +436,16 @@ public class IntegerValue extends NumericValue {
 
     @Override
     public ComputableValue minus(final ComputableValue other) throws XPathException {
-        if (Type.subTypeOf(other.getType(), Type.INTEGER))
-        // return new IntegerValue(value - ((IntegerValue) other).value, type);
-        {
-            return new IntegerValue(value.subtract(((IntegerValue) other).value), type);
+        if (Type.subTypeOf(other.getType(), Type.INTEGER)) {
+            final IntegerValue otherInteger = (IntegerValue) other;
+            if (bigValue == null && otherInteger.bigValue == null) {
+                final long result = value - otherInteger.value;
+                // overflow iff both operands have different signs and the sign of the result differs from the left operand
+                if (((value ^ otherInteger.value) & (value ^ result)) >= 0) {
+                    return new IntegerValue(result, type);
+                }
+            }
+            return new IntegerValue(toBigInteger().subtract(otherInteger.toBigInteger()), type);
         } else {
             return ((ComputableValue) convertTo(other.getType())).minus(other);
         }
@@ -353,10 +453,16 @@ public class IntegerValue extends NumericValue {
 
     @Override
     public ComputableValue plus(final ComputableValue other) throws XPathException {
-        if (Type.subTypeOf(other.getType(), Type.INTEGER))
-        // return new IntegerValue(value + ((IntegerValue) other).value, type);
-        {
-            return new IntegerValue(value.add(((IntegerValue) other).value), type);
+        if (Type.subTypeOf(other.getType(), Type.INTEGER)) {
+            final IntegerValue otherInteger = (IntegerValue) other;
+            if (bigValue == null && otherInteger.bigValue == null) {
+                final long result = value + otherInteger.value;
+                // overflow iff both operands have the same sign and the sign of the result differs from it
+                if (((value ^ result) & (otherInteger.value ^ result)) >= 0) {
+                    return new IntegerValue(result, type);
+                }
+            }
+            return new IntegerValue(toBigInteger().add(otherInteger.toBigInteger()), type);
         } else {
             return ((ComputableValue) convertTo(other.getType())).plus(other);
         }
@@ -365,7 +471,19 @@ public class IntegerValue extends NumericValue {
     @Override
     public ComputableValue mult(final ComputableValue other) throws XPathException {
         if (Type.subTypeOf(other.getType(), Type.INTEGER)) {
-            return new IntegerValue(value.multiply(((IntegerValue) other).value), type);
+            final IntegerValue otherInteger = (IntegerValue) other;
+            if (bigValue == null && otherInteger.bigValue == null) {
+                final long result = value * otherInteger.value;
+                // same overflow test as Math#multiplyExact, without the cost of an exception
+                final long absLeft = Math.abs(value);
+                final long absRight = Math.abs(otherInteger.value);
+                if (((absLeft | absRight) >>> 31 == 0)
+                        || ((otherInteger.value == 0 || result / otherInteger.value == value)
+                            && !(value == Long.MIN_VALUE && otherInteger.value == -1))) {
+                    return new IntegerValue(result, type);
+                }
+            }
+            return new IntegerValue(toBigInteger().multiply(otherInteger.toBigInteger()), type);
         } else if (Type.subTypeOf(other.getType(), Type.DURATION)) {
             return other.mult(this);
         } else {
@@ -385,8 +503,8 @@ public class IntegerValue extends NumericValue {
                 throw new XPathException(ErrorCodes.FOAR0001, "division by zero");
             }
             //http://www.w3.org/TR/xpath20/#mapping : numeric; but xs:decimal if both operands are xs:integer
-            final BigDecimal d = new BigDecimal(value);
-            final BigDecimal od = new BigDecimal(((IntegerValue) other).value);
+            final BigDecimal d = toBigDecimal();
+            final BigDecimal od = ((IntegerValue) other).toBigDecimal();
             final int scale = Math.max(18, Math.max(d.scale(), od.scale()));
             return new DecimalValue(d.divide(od, scale, RoundingMode.HALF_DOWN));
         } else {
@@ -402,6 +520,15 @@ public class IntegerValue extends NumericValue {
         {
             throw new XPathException(ErrorCodes.FOAR0001, "division by zero");
         }
+        if (other instanceof IntegerValue) {
+            final IntegerValue otherInteger = (IntegerValue) other;
+            // integer division truncates towards zero, just as Java's does
+            if (bigValue == null && otherInteger.bigValue == null
+                    && !(value == Long.MIN_VALUE && otherInteger.value == -1)) {
+                return new IntegerValue(value / otherInteger.value);
+            }
+            return new IntegerValue(toBigInteger().divide(otherInteger.toBigInteger()));
+        }
         final ComputableValue result = div(other);
         return new IntegerValue(((IntegerValue) result.convertTo(Type.INTEGER)).getLong());
     }
@@ -413,9 +540,12 @@ public class IntegerValue extends NumericValue {
                 throw new XPathException(ErrorCodes.FOAR0001, "division by zero");
             }
 
-            // long ov = ((IntegerValue) other).value.longValue();
-            final BigInteger ov = ((IntegerValue) other).value;
-            return new IntegerValue(value.remainder(ov), type);
+            final IntegerValue otherInteger = (IntegerValue) other;
+            if (bigValue == null && otherInteger.bigValue == null) {
+                // the sign of the result follows the dividend, just as Java's remainder does
+                return new IntegerValue(value % otherInteger.value, type);
+            }
+            return new IntegerValue(toBigInteger().remainder(otherInteger.toBigInteger()), type);
         } else {
             return ((NumericValue) convertTo(other.getType())).mod(other);
         }
@@ -423,18 +553,25 @@ public class IntegerValue extends NumericValue {
 
     @Override
     public NumericValue negate() {
-        return new IntegerValue(value.negate());
+        if (bigValue == null && value != Long.MIN_VALUE) {
+            return new IntegerValue(-value);
+        }
+        return new IntegerValue(toBigInteger().negate());
     }
 
     @Override
     public NumericValue abs() throws XPathException {
-        return new IntegerValue(value.abs(), type);
+        if (bigValue == null && value != Long.MIN_VALUE) {
+            return new IntegerValue(Math.abs(value), type);
+        }
+        return new IntegerValue(toBigInteger().abs(), type);
     }
 
     @Override
     public AtomicValue max(final Collator collator, final AtomicValue other) throws XPathException {
         if (Type.subTypeOf(other.getType(), Type.INTEGER)) {
-            return new IntegerValue(value.max(((IntegerValue) other).value));
+            final IntegerValue otherInteger = (IntegerValue) other;
+            return (compareIntegers(this, otherInteger) >= 0 ? this : otherInteger).toInteger();
         } else {
             return convertTo(other.getType()).max(collator, other);
         }
@@ -443,12 +580,25 @@ public class IntegerValue extends NumericValue {
     @Override
     public AtomicValue min(final Collator collator, final AtomicValue other) throws XPathException {
         if (Type.subTypeOf(other.getType(), Type.INTEGER)) {
-            return new IntegerValue(value.min(((IntegerValue) other).value));
+            final IntegerValue otherInteger = (IntegerValue) other;
+            return (compareIntegers(this, otherInteger) <= 0 ? this : otherInteger).toInteger();
         } else {
             return convertTo(other.getType()).min(collator, other);
         }
     }
 
+    /**
+     * Get this value as an xs:integer.
+     *
+     * @return this value, or a copy of it typed as xs:integer.
+     */
+    private IntegerValue toInteger() {
+        if (type == Type.INTEGER) {
+            return this;
+        }
+        return bigValue != null ? new IntegerValue(bigValue) : new IntegerValue(value);
+    }
+
     @Override
     public int conversionPreference(final Class<?> javaClass) {
         if (javaClass.isAssignableFrom(IntegerValue.class)) {
@@ -491,17 +641,16 @@ public class IntegerValue extends NumericValue {
         if (target.isAssignableFrom(IntegerValue.class)) {
             return (T) this;
         } else if (target == Long.class || target == long.class) {
-            // ?? jmv: return new Long(value);
-            return (T) Long.valueOf(value.longValue());
+            return (T) Long.valueOf(getLong());
         } else if (target == Integer.class || target == int.class) {
             final IntegerValue v = (IntegerValue) convertTo(Type.INT);
-            return (T) Integer.valueOf(v.value.intValue());
+            return (T) Integer.valueOf(v.getInt());
         } else if (target == Short.class || target == short.class) {
             final IntegerValue v = (IntegerValue) convertTo(Type.SHORT);
-            return (T) Short.valueOf(v.value.shortValue());
+            return (T) Short.valueOf((short) v.getLong());
         } else if (target == Byte.class || target == byte.class) {
             final IntegerValue v = (IntegerValue) convertTo(Type.BYTE);
-            return (T) Byte.valueOf(v.value.byteValue());
+            return (T) Byte.valueOf((byte) v.getLong());
         } else if (target == Double.class || target == double.class) {
             final DoubleValue v = (DoubleValue) convertTo(Type.DOUBLE);
             return (T) Double.valueOf(v.getValue());
@@ -511,11 +660,11 @@ public class IntegerValue extends NumericValue {
         } else if (target == Boolean.class || target == boolean.class) {
             return (T) new BooleanValue(effectiveBooleanValue());
         } else if (target == String.class) {
-            return (T) value.toString();
+            return (T) getStringValue();
         } else if (target == BigInteger.class) {
-            return (T) new BigInteger(value.toByteArray());
+            return (T) toBigInteger();
         } else if (target == Object.class) {
-            return (T) value; // Long(value);
+            return (T) toBigInteger();
         }
 
         throw new XPathException("cannot convert value of type " + Type.getTypeName(getType()) +
@@ -526,7 +675,7 @@ public class IntegerValue extends NumericValue {
     public int compareTo(final Object o) {
         final AtomicValue other = (AtomicValue) o;
         if (Type.subTypeOf(other.getType(), Type.INTEGER)) {
-            return value.compareTo(((IntegerValue) other).value);
+            return compareIntegers(this, (IntegerValue) other);
         } else {
             return getType() > other.getType() ? 1 : -1;
         }
@@ -534,6 +683,6 @@ public class IntegerValue extends NumericValue {
 
     @Override
     public int hashCode() {
-        return value.hashCode();
+        return bigValue != null ? bigValue.hashCode() : Long.hashCode(value);
     }
 }
@@ -0,0 +1,192 @@
+/*
+ * eXist-db Open Source Native XML Database
+ * Copyright (C) 2001 The eXist-db Authors
+ *
+ * info@exist-db.org
+ * http://www.exist-db.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.xquery.value;
+
+import org.exist.dom.persistent.DocumentImpl;
+import org.exist.dom.persistent.NodeProxy;
+import org.exist.numbering.NodeId;
+import org.exist.numbering.NodeIdFactory;
+import org.exist.xquery.XPathException;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Writes items to, and reads them back from, the temporary files used by
+ * operators which spill their intermediate results to disk.
+ *
+ * Atomic values are written as their type and lexical form, persistent nodes
+ * as their document id and node id. The documents of the written nodes are
+ * remembered, so an instance must be used for reading back what it wrote.
+ * Any other item, e.g. an in-memory node or a function, cannot be spilled.
+ *
+ * Not thread-safe.
+ */
+public final class ItemSpillCodec {
+
+    private static final byte ITEM_EMPTY = 0;
+    private static final byte ITEM_ATOMIC = 1;
+    private static final byte ITEM_NODE = 2;
+
+    private final NodeIdFactory nodeFactory;
+    private final Map<Integer, DocumentImpl> documents = new HashMap<>();
+
+    /**
+     * @param nodeFactory the factory for restoring the ids of spilled nodes.
+     */
+    public ItemSpillCodec(final NodeIdFactory nodeFactory) {
+        this.nodeFactory = nodeFactory;
+    }
+
+    /**
+     * Determine if all the items of a sequence can be spilled.
+     *
+     * @param seq the sequence.
+     *
+     * @return true if all items can be spilled.
+     *
+     * @throws XPathException if the sequence cannot be iterated.
+     */
+    public static boolean isSpillable(final Sequence seq) throws XPathException {
+        for (final SequenceIterator i = seq.unorderedIterator(); i.hasNext(); ) {
+            if (!isSpillable(i.nextItem())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Determine if an item can be spilled.
+     *
+     * @param item the item.
+     *
+     * @return true if the item is a persistent node, or an atomic value
+     *     which can be restored from its lexical form.
+     */
+    public static boolean isSpillable(final Item item) {
+        if (item instanceof NodeProxy) {
+            return true;
+        }
+        if (!(item instanceof AtomicValue)) {
+            return false;
+        }
+        if (((AtomicValue) item).isEmpty()) {
+            return true;
+        }
+        final int type = item.getType();
+        return Type.subTypeOf(type, Type.STRING)
+                || type == Type.UNTYPED_ATOMIC
+                || type == Type.ANY_URI
+                || type == Type.BOOLEAN
+                || Type.subTypeOfUnion(type, Type.NUMBER)
+                || Type.subTypeOf(type, Type.DATE_TIME)
+                || type == Type.DATE
+                || type == Type.TIME
+                || type == Type.GYEAR
+                || type == Type.GMONTH
+                || type == Type.GDAY
+                || type == Type.GYEARMONTH
+                || type == Type.GMONTHDAY
+                || Type.subTypeOf(type, Type.DURATION);
+    }
+
+    public void writeSequence(final DataOutputStream os, final Sequence seq) throws IOException, XPathException {
+        os.writeInt(seq.getItemCount());
+        for (final SequenceIterator i = seq.iterate(); i.hasNext(); ) {
+            writeItem(os, i.nextItem());
+        }
+    }
+
+    public void writeItem(final DataOutputStream os, final Item item) throws IOException, XPathException {
+        if (item instanceof NodeProxy) {
+            final NodeProxy node = (NodeProxy) item;
+            final DocumentImpl doc = node.getOwnerDocument();
+            documents.putIfAbsent(doc.getDocId(), doc);
+            os.writeByte(ITEM_NODE);
+            os.writeInt(doc.getDocId());
+            os.writeShort(node.getNodeType());
+            os.writeLong(node.getInternalAddress());
+            final NodeId nodeId = node.getNodeId();
+            final byte[] data = new byte[nodeId.size()];
+            nodeId.serialize(data, 0);
+            os.writeInt(nodeId.units());
+            os.writeInt(data.length);
+            os.write(data);
+        } else if (((AtomicValue) item).isEmpty()) {
+            os.writeByte(ITEM_EMPTY);
+        } else {
+            os.writeByte(ITEM_ATOMIC);
+            os.writeInt(item.getType());
+            final byte[] data = item.getStringValue().getBytes(UTF_8);
+            os.writeInt(data.length);
+            os.write(data);
+        }
+    }
+
+    public Sequence readSequence(final DataInputStream is) throws IOException, XPathException {
+        final int count = is.readInt();
+        final ValueSequence seq = new ValueSequence(count);
+        for (int i = 0; i < count; i++) {
+            seq.add(readItem(is));
+        }
+        return seq;
+    }
+
+    public Item readItem(final DataInputStream is) throws IOException, XPathException {
+        final byte itemType = is.readByte();
+        switch (itemType) {
+            case ITEM_EMPTY:
+                return AtomicValue.EMPTY_VALUE;
+
+            case ITEM_NODE:
+                final DocumentImpl doc = documents.get(is.readInt());
+                final short nodeType = is.readShort();
+                final long address = is.readLong();
+                final int units = is.readInt();
+                final byte[] nodeIdData = new byte[is.readInt()];
+                is.readFully(nodeIdData);
+                return new NodeProxy(doc, nodeFactory.createFromData(units, nodeIdData, 0), nodeType, address);
+
+            case ITEM_ATOMIC:
+                final int type = is.readInt();
+                final byte[] data = new byte[is.readInt()];
+                is.readFully(data);
+                final String value = new String(data, UTF_8);
+                if (type == Type.UNTYPED_ATOMIC) {
+                    return new UntypedAtomicValue(value);
+                } else if (Type.subTypeOf(type, Type.STRING)) {
+                    return new StringValue(value, type);
+                } else {
+                    return new StringValue(value).convertTo(type);
+                }
+
+            default:
+                throw new IOException("Unknown type of spilled item: " + itemType);
+        }
+    }
+}
@@ -21,12 +21,16 @@
  */
 package org.exist.xquery.value;
 
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.exist.dom.memtree.DocumentImpl;
 import org.exist.dom.memtree.NodeImpl;
 import org.exist.dom.persistent.AVLTreeNodeSet;
 import org.exist.dom.persistent.NodeProxy;
 import org.exist.dom.persistent.NodeSet;
 import org.exist.numbering.NodeId;
+import org.exist.numbering.NodeIdFactory;
+import org.exist.util.io.TemporaryFileManager;
 import org.exist.xquery.Constants;
 import org.exist.xquery.OrderSpec;
 import org.exist.xquery.XPathException;
@@ -34,9 +38,18 @@ import org.exist.xquery.util.ExpressionDumper;
 import org.w3c.dom.Document;
 import org.w3c.dom.Node;
 
+import javax.annotation.Nullable;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Objects;
-import java.util.stream.Stream;
+import java.util.List;
+import java.util.PriorityQueue;
 
 /**
  * A sequence that sorts its entries in the order specified by the order specs of
@@ -46,10 +59,20 @@ import java.util.stream.Stream;
  * all order expressions are evaluated once for each item in the sequence
  * <b>while</b> items are added.
  *
+ * If only the first items of the sorted sequence are needed, the entries are
+ * kept in a bounded max-heap, so that an added item which sorts after all of
+ * the retained ones is dropped straight away. Otherwise, when more items than
+ * the spill threshold are added, the entries are sorted and written as a run
+ * to a temporary file, and {@link #sort()} merges the runs. Only entries made
+ * of atomic values and persistent nodes can be spilled, see
+ * {@link ItemSpillCodec}; if any other item is added the entries stay in memory.
+ *
  * @author wolf
  */
 public class OrderedValueSequence extends AbstractSequence {
 
+    private static final Logger LOG = LogManager.getLogger(OrderedValueSequence.class);
+
     private final OrderSpec[] orderSpecs;
     private Entry[] items;
     private int count = 0;
@@ -58,9 +81,40 @@ public class OrderedValueSequence extends AbstractSequence {
     // used to keep track of the type of added items.
     private int itemType = Type.ANY_TYPE;
 
+    // the original position of the next added item
+    private int position = 0;
+
+    private final long limit;
+    private final boolean topK;
+    private final long spillThreshold;
+    private final @Nullable NodeIdFactory nodeFactory;
+    private boolean spillable;
+    private @Nullable ItemSpillCodec codec = null;
+    private @Nullable List<Path> runs = null;
+    private long spilledCount = 0;
+
     public OrderedValueSequence(final OrderSpec orderSpecs[], final int size) {
+        this(orderSpecs, size, 0, 0, null);
+    }
+
+    /**
+     * @param orderSpecs the order specs of the "order by" clause.
+     * @param size the initial capacity.
+     * @param limit the number of leading items of the sorted sequence which will be used, or 0 for all items.
+     *     Any item sorting after them is dropped.
+     * @param spillThreshold the number of items after which sorted runs are written to disk, or 0 to never spill.
+     * @param nodeFactory the factory for restoring the ids of spilled nodes, may be null if spillThreshold is 0.
+     */
+    public OrderedValueSequence(final OrderSpec orderSpecs[], final int size, final long limit,
+            final long spillThreshold, @Nullable final NodeIdFactory nodeFactory) {
         this.orderSpecs = orderSpecs;
         this.items = new Entry[size == 0 ? 1 : size];
+        this.limit = limit;
+        // a heap larger than the spill threshold would hold too much in memory, merging the runs stops at the limit instead
+        this.topK = limit > 0 && (spillThreshold == 0 || limit <= spillThreshold);
+        this.spillThreshold = spillThreshold;
+        this.nodeFactory = nodeFactory;
+        this.spillable = spillThreshold > 0 && !topK;
     }
 
     @Override
@@ -90,6 +144,18 @@ public class OrderedValueSequence extends AbstractSequence {
 
     @Override
     public void add(final Item item) throws XPathException {
+        final Entry entry = new Entry(item, position++);
+        if (topK && count == limit) {
+            // the heap is full, the new entry replaces the greatest one if it sorts before it
+            if (entry.compareTo(items[0]) < 0) {
+                items[0] = entry;
+                siftDown(0);
+                checkItemType(item.getType());
+                setHasChanged();
+            }
+            return;
+        }
+
         if (hasOne) {
             hasOne = false;
         }
@@ -104,9 +170,88 @@ public class OrderedValueSequence extends AbstractSequence {
             System.arraycopy(items, 0, newItems, 0, count);
             items = newItems;
         }
-        items[count] = new Entry(item, count++);
+        items[count] = entry;
+        if (topK) {
+            siftUp(count);
+        }
+        count++;
         checkItemType(item.getType());
         setHasChanged();
+
+        if (spillable && count >= spillThreshold) {
+            spill();
+        }
+    }
+
+    private void siftUp(int i) {
+        final Entry entry = items[i];
+        while (i > 0) {
+            final int parent = (i - 1) >>> 1;
+            if (entry.compareTo(items[parent]) <= 0) {
+                break;
+            }
+            items[i] = items[parent];
+            i = parent;
+        }
+        items[i] = entry;
+    }
+
+    private void siftDown(int i) {
+        final Entry entry = items[i];
+        final int half = count >>> 1;
+        while (i < half) {
+            int child = (i << 1) + 1;
+            final int right = child + 1;
+            if (right < count && items[right].compareTo(items[child]) > 0) {
+                child = right;
+            }
+            if (entry.compareTo(items[child]) >= 0) {
+                break;
+            }
+            items[i] = items[child];
+            i = child;
+        }
+        items[i] = entry;
+    }
+
+    private void spill() throws XPathException {
+        for (int i = 0; i < count; i++) {
+            if (!items[i].isSpillable()) {
+                LOG.debug("Order by holds {} items which cannot be spilled to disk, keeping them in memory", spilledCount + count);
+                spillable = false;
+                return;
+            }
+        }
+
+        if (runs == null) {
+            runs = new ArrayList<>();
+            codec = new ItemSpillCodec(nodeFactory);
+        }
+
+        LOG.debug("Spilling a sorted run of {} items of order by to disk", count);
+
+        Arrays.parallelSort(items, 0, count);
+        try {
+            final Path run = TemporaryFileManager.getInstance().getTemporaryFile();
+            runs.add(run);
+            try (final DataOutputStream os = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run)))) {
+                os.writeInt(count);
+                for (int i = 0; i < count; i++) {
+                    final Entry entry = items[i];
+                    os.writeInt(entry.pos);
+                    for (final AtomicValue value : entry.values) {
+                        codec.writeItem(os, value);
+                    }
+                    codec.writeItem(os, entry.item);
+                }
+            }
+        } catch (final IOException e) {
+            throw new XPathException("Unable to spill sorted run of order by clause to disk: " + e.getMessage(), e);
+        }
+
+        Arrays.fill(items, 0, count, null);
+        spilledCount += count;
+        count = 0;
     }
 
     @Override
@@ -123,13 +268,74 @@ public class OrderedValueSequence extends AbstractSequence {
         }
     }
 
-    public void sort() {
+    public void sort() throws XPathException {
 //		FastQSort.sort(items, 0, count - 1);
 
         Arrays.parallelSort(items, 0, count);
+        if (runs != null) {
+            merge();
+        }
         Arrays.stream(items, 0, count).parallel().forEach(Entry::clear);
     }
 
+    /**
+     * Merge the spilled runs with the sorted entries still in memory,
+     * stopping after the limit if there is one.
+     */
+    private void merge() throws XPathException {
+        final long total = limit > 0 ? Math.min(spilledCount + count, limit) : spilledCount + count;
+        final Entry[] merged = new Entry[Math.toIntExact(total)];
+        final List<Run> openRuns = new ArrayList<>(runs.size() + 1);
+        try {
+            for (final Path run : runs) {
+                openRuns.add(new Run(new DataInputStream(new BufferedInputStream(Files.newInputStream(run)))));
+            }
+            openRuns.add(new Run(count));
+
+            final PriorityQueue<Run> queue = new PriorityQueue<>(openRuns.size(), (r1, r2) -> r1.head.compareTo(r2.head));
+            for (final Run run : openRuns) {
+                if (run.advance()) {
+                    queue.add(run);
+                }
+            }
+            int i = 0;
+            while (i < merged.length) {
+                final Run run = queue.poll();
+                merged[i++] = run.head;
+                if (run.advance()) {
+                    queue.add(run);
+                }
+            }
+        } catch (final IOException e) {
+            throw new XPathException("Unable to merge sorted runs of order by clause: " + e.getMessage(), e);
+        } finally {
+            for (final Run run : openRuns) {
+                run.close();
+            }
+            close();
+        }
+
+        items = merged;
+        count = merged.length;
+        spilledCount = 0;
+    }
+
+    /**
+     * Release the temporary files of the spilled runs, if any.
+     *
+     * Called by {@link #sort()}, it only needs to be called explicitly
+     * if the sequence is discarded without being sorted.
+     */
+    public void close() {
+        if (runs != null) {
+            for (final Path run : runs) {
+                TemporaryFileManager.getInstance().returnTemporaryFile(run);
+            }
+            runs = null;
+        }
+        spillable = false;
+    }
+
     @Override
     public Item itemAt(final int pos) {
         if (items != null && pos > -1 && pos < count) {
@@ -325,7 +531,7 @@ public class OrderedValueSequence extends AbstractSequence {
         public Entry(final Item item, final int position) throws XPathException {
             this.item = item;
             this.pos = position;
-            values = new AtomicValue[orderSpecs.length];
+            this.values = new AtomicValue[orderSpecs.length];
             for (int i = 0; i < orderSpecs.length; i++) {
                 final Sequence seq = orderSpecs[i].getSortExpression().eval(null);
                 values[i] = AtomicValue.EMPTY_VALUE;
@@ -339,6 +545,26 @@ public class OrderedValueSequence extends AbstractSequence {
             }
         }
 
+        /**
+         * @param item     the item in the sequence
+         * @param values   the values of the order expressions
+         * @param position the original position of the item in the result sequence
+         */
+        Entry(final Item item, final AtomicValue[] values, final int position) {
+            this.item = item;
+            this.values = values;
+            this.pos = position;
+        }
+
+        boolean isSpillable() {
+            for (final AtomicValue value : values) {
+                if (!ItemSpillCodec.isSpillable((Item) value)) {
+                    return false;
+                }
+            }
+            return ItemSpillCodec.isSpillable(item);
+        }
+
         @Override
         public int compareTo(final Entry other) {
             int cmp = 0;
@@ -350,9 +576,9 @@ public class OrderedValueSequence extends AbstractSequence {
                     final boolean bIsEmpty = (b.isEmpty() || (Type.subTypeOfUnion(b.getType(), Type.NUMBER) && ((NumericValue) b).isNaN()));
                     if (aIsEmpty) {
                         if (bIsEmpty)
-                        // both values are empty
+                        // both values are empty, compare the next order spec
                         {
-                            return Constants.EQUAL;
+                            cmp = Constants.EQUAL;
                         } else if ((orderSpecs[i].getModifiers() & OrderSpec.EMPTY_LEAST) != 0) {
                             cmp = Constants.INFERIOR;
                         } else {
@@ -416,6 +642,56 @@ public class OrderedValueSequence extends AbstractSequence {
         }
     }
 
+    /**
+     * A sorted run of entries, either spilled to disk or still in memory.
+     */
+    private class Run implements AutoCloseable {
+        private final @Nullable DataInputStream is;
+        private int remaining;
+        private int next = 0;
+        Entry head = null;
+
+        Run(final DataInputStream is) throws IOException {
+            this.is = is;
+            this.remaining = is.readInt();
+        }
+
+        Run(final int count) {
+            this.is = null;
+            this.remaining = count;
+        }
+
+        boolean advance() throws IOException, XPathException {
+            if (remaining == 0) {
+                head = null;
+                return false;
+            }
+            remaining--;
+            if (is == null) {
+                head = items[next++];
+            } else {
+                final int pos = is.readInt();
+                final AtomicValue[] values = new AtomicValue[orderSpecs.length];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = (AtomicValue) codec.readItem(is);
+                }
+                head = new Entry(codec.readItem(is), values, pos);
+            }
+            return true;
+        }
+
+        @Override
+        public void close() {
+            if (is != null) {
+                try {
+                    is.close();
+                } catch (final IOException e) {
+                    LOG.warn("Unable to close sorted run of order by clause: {}", e.getMessage(), e);
+                }
+            }
+        }
+    }
+
     private class OrderedValueSequenceIterator implements SequenceIterator {
         private int pos = 0;
 
@@ -208,6 +208,49 @@ public class BasicNodeSetTest {
         }
     }
 
+    @Test
+    public void columnarNodeSet_selectParentChild() throws XPathException, SAXException, PermissionDeniedException, EXistException {
+        NameTest test = new NameTest(Type.ELEMENT, new QName("SPEAKER", ""));
+        try(final DBBroker broker = existEmbeddedServer.getBrokerPool().get(Optional.of(existEmbeddedServer.getBrokerPool().getSecurityManager().getSystemSubject()))) {
+            NodeSet speakers = broker.getStructuralIndex().findAllElementsByTagName(ElementValue.ELEMENT, docs, test.getName(), null);
+            assertEquals(ColumnarNodeSet.class, speakers.getClass());
+            assertEquals(broker.getStructuralIndex().findElementsByTagName(ElementValue.ELEMENT, docs, test.getName(), null).getLength(),
+                    speakers.getLength());
+
+            Sequence smallSet = executeQuery(broker, "//SPEECH/LINE[fn:contains(., 'perturbed spirit')]/ancestor::SPEECH", 1, null);
+            NodeSet result = speakers.selectParentChild(smallSet.toNodeSet(), NodeSet.DESCENDANT);
+            assertEquals(1, result.getLength());
+            assertEquals("<SPEAKER>HAMLET</SPEAKER>", serialize(broker, result.itemAt(0)));
+
+            Sequence largeSet = executeQuery(broker, "//SPEECH/LINE[fn:contains(., 'love')]/ancestor::SPEECH", 187, null);
+            result = speakers.selectParentChild(largeSet.toNodeSet(), NodeSet.DESCENDANT);
+            assertEquals(187, result.getLength());
+
+            result = speakers.selectParentChild(largeSet.toNodeSet(), NodeSet.ANCESTOR);
+            assertEquals(187, result.getLength());
+        }
+    }
+
+    @Test
+    public void columnarNodeSet_selectAncestorDescendant() throws XPathException, SAXException, PermissionDeniedException, EXistException {
+        NameTest test = new NameTest(Type.ELEMENT, new QName("SPEAKER", ""));
+        try(final DBBroker broker = existEmbeddedServer.getBrokerPool().get(Optional.of(existEmbeddedServer.getBrokerPool().getSecurityManager().getSystemSubject()))) {
+            NodeSet speakers = broker.getStructuralIndex().findAllElementsByTagName(ElementValue.ELEMENT, docs, test.getName(), null);
+            Sequence outerSet = executeQuery(broker, "//SCENE/TITLE[fn:contains(., 'closet')]/ancestor::SCENE", 1, null);
+
+            NodeSet result = speakers.selectAncestorDescendant(outerSet.toNodeSet(), NodeSet.DESCENDANT, false, -1, true);
+            assertEquals(56, result.getLength());
+
+            Sequence nestedSet = executeQuery(broker, "//section[@n = ('1', '1.1', '1.1.2')]", 3, null);
+            NodeSet paras = broker.getStructuralIndex().findAllElementsByTagName(ElementValue.ELEMENT, docs, new QName("para", ""), null);
+            result = paras.selectAncestorDescendant(nestedSet.toNodeSet(), NodeSet.DESCENDANT, false, -1, true);
+            assertEquals(5, result.getLength());
+
+            result = paras.selectParentChild(nestedSet.toNodeSet(), NodeSet.DESCENDANT);
+            assertEquals(1, result.getLength());
+        }
+    }
+
 
     @Test
     public void getParents() throws XPathException, SAXException, PermissionDeniedException, EXistException {
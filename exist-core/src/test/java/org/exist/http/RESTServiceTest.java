@@ -25,16 +25,19 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
 import java.io.StringReader;
 import java.net.HttpURLConnection;
 import java.net.URL;
 import java.net.URLEncoder;
+import javax.annotation.Nullable;
 import javax.xml.parsers.ParserConfigurationException;
 
 import com.googlecode.junittoolbox.ParallelRunner;
 import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.io.IOUtils;
 import org.eclipse.jetty.http.HttpStatus;
 import org.exist.Namespaces;
 import org.exist.dom.memtree.SAXAdapter;
@@ -47,6 +50,7 @@ import org.xml.sax.SAXException;
 import org.xml.sax.XMLReader;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
 
 import javax.xml.parsers.SAXParserFactory;
 import javax.xml.parsers.SAXParser;
@@ -599,6 +603,165 @@ try {
         }
     }
 
+    @Test
+    public void queryGetStreamed() throws IOException, SAXException, ParserConfigurationException {
+        final String uri = getCollectionUri()
+                + "?_query="
+                + URLEncoder.encode("for $i in 1 to 5 return <i>{$i}</i>", UTF_8.displayName())
+                + "&_start=2&_howmany=0&_stream=yes";
+        final HttpURLConnection connect = getConnection(uri);
+        try {
+            connect.setRequestMethod("GET");
+            connect.connect();
+
+            final int r = connect.getResponseCode();
+            assertEquals("Server returned response code " + r, HttpStatus.OK_200, r);
+            assertEquals("chunked", connect.getHeaderField("Transfer-Encoding"));
+
+            final Element root = parseDocument(readResponse(connect.getInputStream()));
+            assertFalse(root.hasAttributeNS(Namespaces.EXIST_NS, "hits"));
+            assertFalse(root.hasAttributeNS(Namespaces.EXIST_NS, "count"));
+            assertEquals("2", root.getAttributeNS(Namespaces.EXIST_NS, "start"));
+
+            final NodeList items = root.getElementsByTagName("i");
+            assertEquals(4, items.getLength());
+            assertEquals("2", items.item(0).getTextContent());
+            assertEquals("5", items.item(3).getTextContent());
+        } finally {
+            connect.disconnect();
+        }
+    }
+
+    @Test
+    public void queryGetStreamedConstructor() throws IOException {
+        final int r = uploadData();
+        assertEquals("Server returned response code " + r, HttpStatus.CREATED_201, r);
+
+        final String query = "declare variable $title := 'Streamed';"
+                + "<html xmlns=\"http://www.w3.org/1999/xhtml\">{attribute lang {'en'}}"
+                + "<head><title>{$title}</title></head>"
+                + "<body class=\"{lower-case($title)}\">"
+                + "{for $i in 1 to 3 return <p n=\"{$i}\">{$i, 'x'}</p>}"
+                + "<!-- comment -->"
+                + "<div xmlns:x=\"urn:x\"><x:y/>{element x:z {doc('/db/test/test.xml')//*:para}}</div>"
+                + "{comment {'computed'}} text</body></html>";
+        final String materialised = queryGet(query, "&_wrap=no");
+        final String streamed = queryGet(query, "&_wrap=no&_stream=yes");
+        assertEquals(materialised, streamed);
+        assertTrue(streamed, streamed.contains("<p n=\"2\">2 x</p>"));
+    }
+
+    private String queryGet(final String query, final String parameters) throws IOException {
+        final HttpURLConnection connect = getConnection(getCollectionUri()
+                + "?_query=" + URLEncoder.encode(query, UTF_8.displayName()) + parameters);
+        try {
+            connect.setRequestMethod("GET");
+            connect.connect();
+
+            final int r = connect.getResponseCode();
+            assertEquals("Server returned response code " + r, HttpStatus.OK_200, r);
+            return readResponse(connect.getInputStream());
+        } finally {
+            connect.disconnect();
+        }
+    }
+
+    @Test
+    public void getBinaryRange() throws IOException {
+        final String uri = getCollectionUri() + "/range.bin";
+        final HttpURLConnection connect = getConnection(uri);
+        try {
+            connect.setRequestProperty("Authorization", "Basic " + credentials);
+            connect.setRequestMethod("PUT");
+            connect.setDoOutput(true);
+            connect.setRequestProperty("Content-Type", "application/octet-stream");
+            try (final OutputStream os = connect.getOutputStream()) {
+                os.write("0123456789".getBytes(UTF_8));
+            }
+
+            connect.connect();
+            final int r = connect.getResponseCode();
+            assertEquals("Server returned response code " + r, HttpStatus.CREATED_201, r);
+        } finally {
+            connect.disconnect();
+        }
+
+        assertEquals("0123456789", getRange(uri, null, null, HttpStatus.OK_200, null));
+        assertEquals("2345", getRange(uri, "bytes=2-5", null, HttpStatus.PARTIAL_CONTENT_206, "bytes 2-5/10"));
+        assertEquals("789", getRange(uri, "bytes=7-", null, HttpStatus.PARTIAL_CONTENT_206, "bytes 7-9/10"));
+        assertEquals("89", getRange(uri, "bytes=-2", null, HttpStatus.PARTIAL_CONTENT_206, "bytes 8-9/10"));
+        assertEquals("56789", getRange(uri, "bytes=5-100", null, HttpStatus.PARTIAL_CONTENT_206, "bytes 5-9/10"));
+
+        // multiple ranges are not supported, so the whole resource is sent
+        assertEquals("0123456789", getRange(uri, "bytes=0-1,4-5", null, HttpStatus.OK_200, null));
+
+        // the resource has been modified since the If-Range date, so the whole resource is sent
+        assertEquals("0123456789", getRange(uri, "bytes=2-5", "Thu, 01 Jan 1970 00:00:00 GMT", HttpStatus.OK_200, null));
+
+        getRange(uri, "bytes=10-", null, HttpStatus.RANGE_NOT_SATISFIABLE_416, "bytes */10");
+    }
+
+    private @Nullable String getRange(final String uri, @Nullable final String range, @Nullable final String ifRange,
+            final int expectedResponseCode, @Nullable final String expectedContentRange) throws IOException {
+        final HttpURLConnection connect = getConnection(uri);
+        try {
+            connect.setRequestProperty("Authorization", "Basic " + credentials);
+            connect.setRequestMethod("GET");
+            if (range != null) {
+                connect.setRequestProperty("Range", range);
+            }
+            if (ifRange != null) {
+                connect.setRequestProperty("If-Range", ifRange);
+            }
+            connect.connect();
+
+            final int r = connect.getResponseCode();
+            assertEquals("Server returned response code " + r, expectedResponseCode, r);
+            assertEquals("bytes", connect.getHeaderField("Accept-Ranges"));
+            assertEquals(expectedContentRange, connect.getHeaderField("Content-Range"));
+            if (r >= HttpStatus.BAD_REQUEST_400) {
+                return null;
+            }
+            try (final InputStream is = connect.getInputStream()) {
+                return new String(IOUtils.toByteArray(is), UTF_8);
+            }
+        } finally {
+            connect.disconnect();
+        }
+    }
+
+    @Test
+    public void queryPostJson() throws IOException {
+        final HttpURLConnection connect = preparePost(jsonQueryRequest(""), getCollectionUri());
+        try {
+            connect.connect();
+            final int r = connect.getResponseCode();
+            assertEquals("Server returned response code " + r, HttpStatus.OK_200, r);
+
+            final String response = readResponse(connect.getInputStream()).trim();
+            assertTrue(response, response.startsWith("{\"start\":1,\"count\":3,\"hits\":3,\"compilationTime\":"));
+            assertTrue(response, response.endsWith(",\"data\":[\"1\",\"2\",\"3\"]}"));
+        } finally {
+            connect.disconnect();
+        }
+    }
+
+    @Test
+    public void queryPostJsonStreamed() throws IOException {
+        final HttpURLConnection connect = preparePost(jsonQueryRequest(" stream=\"yes\" start=\"2\" max=\"0\""), getCollectionUri());
+        try {
+            connect.connect();
+            final int r = connect.getResponseCode();
+            assertEquals("Server returned response code " + r, HttpStatus.OK_200, r);
+
+            final String response = readResponse(connect.getInputStream()).trim();
+            assertTrue(response, response.startsWith("{\"start\":2,\"compilationTime\":"));
+            assertTrue(response, response.endsWith(",\"data\":[\"2\",\"3\"]}"));
+        } finally {
+            connect.disconnect();
+        }
+    }
+
     @Test
     public void queryGetXQueryError() throws IOException {
         String uri = getCollectionUri()
@@ -1224,7 +1387,19 @@ try {
         }
     }
 
+    private static String jsonQueryRequest(final String attributes) {
+        return "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+                + "<query xmlns=\"" + Namespaces.EXIST_NS + "\" method=\"json\"" + attributes + ">"
+                + "<text>(1 to 3) ! string(.)</text>"
+                + "</query>";
+    }
+
     private int parseResponse(final String data) throws IOException, SAXException, ParserConfigurationException {
+        final String hits = parseDocument(data).getAttributeNS(Namespaces.EXIST_NS, "hits");
+        return Integer.parseInt(hits);
+    }
+
+    private Element parseDocument(final String data) throws IOException, SAXException, ParserConfigurationException {
         final SAXParserFactory factory = ExistSAXParserFactory.getSAXParserFactory();
         factory.setNamespaceAware(true);
         final InputSource src = new InputSource(new StringReader(data));
@@ -1235,10 +1410,7 @@ try {
         reader.parse(src);
 
         final Document doc = adapter.getDocument();
-
-        final Element root = doc.getDocumentElement();
-        final String hits = root.getAttributeNS(Namespaces.EXIST_NS, "hits");
-        return Integer.parseInt(hits);
+        return doc.getDocumentElement();
     }
 
     private HttpURLConnection getConnection(final String url) throws IOException {
@@ -0,0 +1,191 @@
+/*
+ * eXist-db Open Source Native XML Database
+ * Copyright (C) 2001 The eXist-db Authors
+ *
+ * info@exist-db.org
+ * http://www.exist-db.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.storage;
+
+import org.exist.storage.cache.Cache;
+import org.exist.storage.cache.Cacheable;
+import org.exist.storage.cache.TwoQueueCache;
+import org.exist.util.Configuration;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.easymock.EasyMock.*;
+import static org.junit.Assert.*;
+
+public class DefaultCacheManagerTest {
+
+    private static final int PAGE_SIZE = 4096;
+
+    @Test
+    public void balanceMovesPagesFromColdToHotCache() {
+        // 1 MB, i.e. 256 pages
+        final DefaultCacheManager cacheManager = createCacheManager("balance-cold-hot", true);
+        final Cache<Page> cold = new TwoQueueCache<>("cold.dbx", 200, 1.5, 1.0, Cache.CacheType.BTREE);
+        final Cache<Page> hot = new TwoQueueCache<>("hot.dbx", 56, 1.5, 1.0, Cache.CacheType.BTREE);
+        cacheManager.registerCache(cold);
+        cacheManager.registerCache(hot);
+
+        for (long key = 0; key < 10; key++) {
+            load(cold, key);
+            load(cold, key);
+        }
+        for (long key = 0; key < 1000; key++) {
+            load(hot, key);
+        }
+
+        cacheManager.checkCaches();
+
+        assertEquals(140, cold.getBuffers());
+        assertEquals(84, hot.getBuffers());
+        assertEquals(224L * PAGE_SIZE, cacheManager.getCurrentSize());
+
+        final List<CacheBalanceEvent> history = cacheManager.getBalanceHistory();
+        assertEquals(2, history.size());
+        assertEquals("cold.dbx", history.get(0).getCacheName());
+        assertEquals(200, history.get(0).getOldSize());
+        assertEquals(140, history.get(0).getNewSize());
+        assertEquals(0.5, history.get(0).getHitRatio(), 0.0);
+        assertEquals("hot.dbx", history.get(1).getCacheName());
+        assertEquals(56, history.get(1).getOldSize());
+        assertEquals(84, history.get(1).getNewSize());
+        assertEquals(0.0, history.get(1).getHitRatio(), 0.0);
+    }
+
+    @Test
+    public void balanceKeepsBusyCaches() {
+        final DefaultCacheManager cacheManager = createCacheManager("balance-busy", true);
+        final Cache<Page> first = new TwoQueueCache<>("first.dbx", 128, 1.5, 1.0, Cache.CacheType.BTREE);
+        final Cache<Page> second = new TwoQueueCache<>("second.dbx", 128, 1.5, 1.0, Cache.CacheType.BTREE);
+        cacheManager.registerCache(first);
+        cacheManager.registerCache(second);
+
+        for (long key = 0; key < 1000; key++) {
+            load(first, key);
+            load(second, key);
+        }
+
+        cacheManager.checkCaches();
+
+        assertEquals(128, first.getBuffers());
+        assertEquals(128, second.getBuffers());
+        assertTrue(cacheManager.getBalanceHistory().isEmpty());
+    }
+
+    @Test
+    public void noBalancingByDefault() {
+        final DefaultCacheManager cacheManager = createCacheManager("balance-disabled", false);
+        final Cache<Page> cold = new TwoQueueCache<>("idle.dbx", 200, 1.5, 1.0, Cache.CacheType.BTREE);
+        final Cache<Page> hot = new TwoQueueCache<>("busy.dbx", 56, 1.5, 1.0, Cache.CacheType.BTREE);
+        cacheManager.registerCache(cold);
+        cacheManager.registerCache(hot);
+        for (long key = 0; key < 1000; key++) {
+            load(hot, key);
+        }
+
+        cacheManager.checkCaches();
+
+        assertFalse(cacheManager.isBalancing());
+        assertTrue(cacheManager.getBalanceHistory().isEmpty());
+        assertEquals(56, hot.getBuffers());
+    }
+
+    private static DefaultCacheManager createCacheManager(final String instanceName, final boolean balancing) {
+        final BrokerPool mockBrokerPool = createNiceMock(BrokerPool.class);
+        final Configuration mockConfiguration = createNiceMock(Configuration.class);
+        expect(mockBrokerPool.getId()).andReturn(instanceName).anyTimes();
+        expect(mockBrokerPool.getConfiguration()).andReturn(mockConfiguration).anyTimes();
+        expect(mockConfiguration.getInteger(BrokerPool.PROPERTY_PAGE_SIZE)).andReturn(PAGE_SIZE).anyTimes();
+        expect(mockConfiguration.getInteger(DefaultCacheManager.PROPERTY_CACHE_SIZE)).andReturn(1).anyTimes();
+        expect(mockConfiguration.getInteger(DefaultCacheManager.SHRINK_THRESHOLD_PROPERTY)).andReturn(DefaultCacheManager.DEFAULT_SHRINK_THRESHOLD).anyTimes();
+        expect(mockConfiguration.getProperty(DefaultCacheManager.PROPERTY_CACHE_BALANCING)).andReturn(balancing).anyTimes();
+        replay(mockBrokerPool, mockConfiguration);
+
+        return new DefaultCacheManager(mockBrokerPool);
+    }
+
+    private static void load(final Cache<Page> cache, final long key) {
+        if (cache.get(key) == null) {
+            cache.add(new Page(key));
+        }
+    }
+
+    private static class Page implements Cacheable {
+        private final long key;
+        private int refCount = 0;
+        private int timestamp = 0;
+
+        Page(final long key) {
+            this.key = key;
+        }
+
+        @Override
+        public long getKey() {
+            return key;
+        }
+
+        @Override
+        public int getReferenceCount() {
+            return refCount;
+        }
+
+        @Override
+        public int incReferenceCount() {
+            return ++refCount;
+        }
+
+        @Override
+        public int decReferenceCount() {
+            return --refCount;
+        }
+
+        @Override
+        public void setReferenceCount(final int count) {
+            this.refCount = count;
+        }
+
+        @Override
+        public void setTimestamp(final int timestamp) {
+            this.timestamp = timestamp;
+        }
+
+        @Override
+        public int getTimestamp() {
+            return timestamp;
+        }
+
+        @Override
+        public boolean sync(final boolean syncJournal) {
+            return false;
+        }
+
+        @Override
+        public boolean allowUnload() {
+            return true;
+        }
+
+        @Override
+        public boolean isDirty() {
+            return false;
+        }
+    }
+}
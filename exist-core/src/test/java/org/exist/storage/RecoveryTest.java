@@ -25,6 +25,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.StringWriter;
 import java.io.Writer;
+import java.util.Arrays;
 import java.util.Optional;
 
 import org.exist.EXistException;
@@ -50,11 +51,15 @@ import org.exist.xquery.value.NodeValue;
 import org.exist.xquery.value.Sequence;
 import org.exist.xquery.value.SequenceIterator;
 import org.junit.*;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.exist.samples.Samples.SAMPLES;
+import static org.exist.util.PropertiesBuilder.propertiesBuilder;
 
 import org.xml.sax.SAXException;
 
@@ -64,7 +69,17 @@ import org.xml.sax.SAXException;
  * @author wolf
  *
  */
+@RunWith(Parameterized.class)
 public class RecoveryTest {
+
+    @Parameters(name = "redo-threads={0}")
+    public static java.util.Collection<Object[]> data() {
+        return Arrays.asList(new Object[][] {
+                { 1 },
+                { 4 }
+        });
+    }
+
     
     private static String TEST_XML =
         "<?xml version=\"1.0\"?>" +
@@ -74,7 +89,16 @@ public class RecoveryTest {
         "</test>";
 
     @Rule
-    public ExistEmbeddedServer existEmbeddedServer = new ExistEmbeddedServer(true, true);
+    public ExistEmbeddedServer existEmbeddedServer;
+
+    public RecoveryTest(final int redoThreads) {
+        this.existEmbeddedServer = new ExistEmbeddedServer(
+                propertiesBuilder()
+                        .put(BrokerPool.PROPERTY_RECOVERY_REDO_THREADS, redoThreads)
+                        .build(),
+                true,
+                true);
+    }
 
     @After
     public void cleanup() {
@@ -0,0 +1,98 @@
+/*
+ * eXist-db Open Source Native XML Database
+ * Copyright (C) 2001 The eXist-db Authors
+ *
+ * info@exist-db.org
+ * http://www.exist-db.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.storage;
+
+import org.exist.EXistException;
+import org.exist.collections.Collection;
+import org.exist.security.PermissionDeniedException;
+import org.exist.storage.txn.Txn;
+import org.exist.test.ExistEmbeddedServer;
+import org.exist.util.LockException;
+import org.exist.util.MimeType;
+import org.exist.util.StringInputSource;
+import org.exist.xmldb.XmldbURI;
+import org.exist.xquery.XPathException;
+import org.exist.xquery.XQuery;
+import org.exist.xquery.value.Sequence;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.xml.sax.SAXException;
+
+import java.io.IOException;
+import java.util.Optional;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Rebuilds the index files with {@link DBBroker#repair()}, which bulk loads
+ * the structural index.
+ */
+public class RepairTest {
+
+    @ClassRule
+    public static final ExistEmbeddedServer existEmbeddedServer = new ExistEmbeddedServer(true, true);
+
+    private static final XmldbURI TEST_COLLECTION = XmldbURI.create("/db/repair-test");
+    private static final int DOCUMENTS = 50;
+    private static final int ITEMS = 100;
+
+    @Test
+    public void repairRebuildsStructuralIndex() throws EXistException, PermissionDeniedException, IOException, SAXException, LockException, XPathException {
+        final BrokerPool pool = existEmbeddedServer.getBrokerPool();
+        try (final DBBroker broker = pool.get(Optional.of(pool.getSecurityManager().getSystemSubject()))) {
+            try (final Txn transaction = pool.getTransactionManager().beginTransaction()) {
+                final Collection collection = broker.getOrCreateCollection(transaction, TEST_COLLECTION);
+                assertNotNull(collection);
+                broker.saveCollection(transaction, collection);
+                for (int i = 0; i < DOCUMENTS; i++) {
+                    final StringBuilder xml = new StringBuilder("<items doc=\"").append(i).append("\">");
+                    for (int j = 0; j < ITEMS; j++) {
+                        xml.append("<item n=\"").append(j).append("\"><name>item ").append(j).append("</name></item>");
+                    }
+                    xml.append("</items>");
+                    broker.storeDocument(transaction, XmldbURI.create("doc" + i + ".xml"),
+                            new StringInputSource(xml.toString()), MimeType.XML_TYPE, collection);
+                }
+                transaction.commit();
+            }
+
+            checkIndex(broker);
+
+            broker.repair();
+
+            checkIndex(broker);
+        }
+    }
+
+    private static void checkIndex(final DBBroker broker) throws XPathException, PermissionDeniedException {
+        final XQuery xquery = broker.getBrokerPool().getXQueryService();
+        Sequence result = xquery.execute(broker, "count(collection('" + TEST_COLLECTION + "')//item)", null);
+        assertEquals(DOCUMENTS * ITEMS, result.itemAt(0).toJavaObject(Integer.class).intValue());
+
+        result = xquery.execute(broker, "count(collection('" + TEST_COLLECTION + "')//item/@n)", null);
+        assertEquals(DOCUMENTS * ITEMS, result.itemAt(0).toJavaObject(Integer.class).intValue());
+
+        result = xquery.execute(broker, "count(collection('" + TEST_COLLECTION + "')/items[@doc = '7']//name)", null);
+        assertEquals(ITEMS, result.itemAt(0).toJavaObject(Integer.class).intValue());
+    }
+}
@@ -406,6 +406,34 @@ public class BlobStoreImplTest {
         }
     }
 
+    @Test
+    public void statistics() throws IOException {
+        final Path blobDbx = temporaryFolder.getRoot().toPath().resolve("blob.dbx");
+        final Path blobDir = temporaryFolder.newFolder("blob").toPath();
+
+        final Tuple2<byte[], MessageDigest> testFile1 = generateTestFile();
+        final Tuple2<byte[], MessageDigest> testFile2 = generateTestFile();
+
+        try (final BlobStore blobStore = newBlobStore(blobDbx, blobDir)) {
+            blobStore.open();
+
+            addAndVerify(blobStore, testFile1);
+            addAndVerify(blobStore, testFile2);
+
+            // add a second reference for testFile1
+            addAndVerify(blobStore, testFile1);
+
+            final BlobStoreStatistics statistics = blobStore.getStatistics();
+            assertEquals(2, statistics.getUniqueBlobs());
+            assertEquals(3, statistics.getReferences());
+            assertEquals(testFile1._1.length + testFile2._1.length, statistics.getStoredBytes());
+            assertEquals((2L * testFile1._1.length) + testFile2._1.length, statistics.getReferencedBytes());
+            assertEquals(testFile1._1.length, statistics.getSavedBytes());
+            assertEquals(0, statistics.getOrphanedFiles());
+            assertEquals(0, statistics.getOrphanedBytes());
+        }
+    }
+
     private long calculateBlobStoreSize(final int numRecords) {
         return BlobStoreImpl.BLOB_STORE_HEADER_LEN + (numRecords * (DIGEST_TYPE.getDigestLengthBytes() + BlobStoreImpl.REFERENCE_COUNT_LEN));
     }
@@ -474,6 +474,9 @@ public class BlobStoreRecoveryTest {
         final Configuration mockConfiguration = createNiceMock(Configuration.class);
         expect(mockConfiguration.getProperty(Journal.PROPERTY_RECOVERY_JOURNAL_DIR)).andReturn(journalDir);
         expect(mockConfiguration.getProperty(BrokerPool.PROPERTY_RECOVERY_GROUP_COMMIT, false)).andReturn(false);
+        expect(mockConfiguration.getProperty(BrokerPool.PROPERTY_RECOVERY_GROUP_SYNC, false)).andReturn(false);
+        expect(mockConfiguration.getProperty(BrokerPool.PROPERTY_RECOVERY_GROUP_SYNC_MAX_DELAY, BrokerPool.DEFAULT_GROUP_SYNC_MAX_DELAY)).andReturn(BrokerPool.DEFAULT_GROUP_SYNC_MAX_DELAY);
+        expect(mockConfiguration.getProperty(BrokerPool.PROPERTY_RECOVERY_GROUP_SYNC_MAX_BATCH, BrokerPool.DEFAULT_GROUP_SYNC_MAX_BATCH)).andReturn(BrokerPool.DEFAULT_GROUP_SYNC_MAX_BATCH);
 
         expect(mockConfiguration.getProperty(PROPERTY_RECOVERY_SYNC_ON_COMMIT, true)).andReturn(true);
         expect(mockConfiguration.getProperty(PROPERTY_RECOVERY_SIZE_MIN, 1)).andReturn(1);
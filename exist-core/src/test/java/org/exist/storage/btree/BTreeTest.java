@@ -23,6 +23,7 @@ package org.exist.storage.btree;
 
 import org.exist.EXistException;
 import org.exist.storage.BrokerPool;
+import org.exist.storage.index.BTreeStore;
 import org.exist.test.ExistEmbeddedServer;
 import org.exist.util.*;
 import org.exist.xquery.TerminatedException;
@@ -39,9 +40,19 @@ import java.io.StringWriter;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Collections;
 import java.util.Map;
 import java.util.Random;
 import java.util.TreeMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Low-level tests on the B+tree.
@@ -185,6 +196,325 @@ public class BTreeTest {
         }
     }
 
+    @Test
+    public void longCommonPrefix() throws DBException, IOException, TerminatedException {
+        // keys sharing more than Byte.MAX_VALUE leading bytes with their predecessor
+        final String prefixStr = String.join("", Collections.nCopies(200, "L"));
+        final BrokerPool pool = existEmbeddedServer.getBrokerPool();
+        try (final BTree btree = new BTree(pool, BTREE_TEST_FILE_ID, BTREE_TEST_FILE_VERSION, false, pool.getCacheManager(), file)) {
+            btree.create((short) -1);
+            for (int i = 1; i <= COUNT; i++) {
+                btree.addValue(new Value(prefixStr + i), i);
+            }
+            btree.flush();
+
+            final TreeMetrics metrics = btree.treeStatistics();
+            assertEquals(COUNT, metrics.getLeafKeys());
+            // uncompressed, the keys alone would need more than 240 pages
+            assertTrue("leaf pages: " + metrics.getLeafPages(), metrics.getLeafPages() < 60);
+        }
+
+        // re-open the file and decode the pages from disk
+        try (final BTree btree = new BTree(pool, BTREE_TEST_FILE_ID, BTREE_TEST_FILE_VERSION, false, pool.getCacheManager(), file)) {
+            assertTrue(btree.open(BTREE_TEST_FILE_VERSION));
+            for (int i = 1; i <= COUNT; i++) {
+                assertEquals(i, btree.findValue(new Value(prefixStr + i)));
+            }
+            btree.query(new IndexQuery(IndexQuery.TRUNC_RIGHT, new Value(prefixStr + "1")), new StringIndexCallback());
+            assertEquals(1111, count);
+        }
+    }
+
+    @Test
+    public void shortestSeparator() {
+        assertEquals(new Value("b"), BTree.shortestSeparator(new Value("apple"), new Value("banana")));
+        assertEquals(new Value("appm"), BTree.shortestSeparator(new Value("apple"), new Value("appmost")));
+        assertEquals(new Value("apples"), BTree.shortestSeparator(new Value("apple"), new Value("apples")));
+        assertEquals(new Value("applet"), BTree.shortestSeparator(new Value("apple"), new Value("applets")));
+    }
+
+    @Test
+    public void suffixTruncation() throws DBException, IOException, TerminatedException {
+        final BrokerPool pool = existEmbeddedServer.getBrokerPool();
+        final Random rand = new Random(42);
+        final Map<String, Integer> keys = new TreeMap<>();
+        for (int i = 1; i <= COUNT; i++) {
+            final StringBuilder buf = new StringBuilder("http://example.com/");
+            buf.append((char) ('a' + rand.nextInt(26))).append('/').append(i).append('/');
+            for (int j = 0; j < 100; j++) {
+                buf.append((char) ('a' + rand.nextInt(26)));
+            }
+            keys.put(buf.toString(), i);
+        }
+
+        final TreeMetrics full;
+        try (final BTree btree = new BTree(pool, BTREE_TEST_FILE_ID, BTREE_TEST_FILE_VERSION, false, pool.getCacheManager(), file)) {
+            btree.create((short) -1);
+            for (final Map.Entry<String, Integer> entry : keys.entrySet()) {
+                btree.addValue(new Value(entry.getKey()), entry.getValue());
+            }
+            full = btree.treeStatistics();
+        }
+
+        final Path truncatedFile = temporaryFolder.newFile("truncated.dbx").toPath();
+        try (final BTree btree = new BTree(pool, BTREE_TEST_FILE_ID, BTREE_TEST_FILE_VERSION, false, pool.getCacheManager(), truncatedFile)) {
+            btree.setSuffixTruncation(true);
+            btree.create((short) -1);
+            for (final Map.Entry<String, Integer> entry : keys.entrySet()) {
+                btree.addValue(new Value(entry.getKey()), entry.getValue());
+            }
+            btree.flush();
+
+            final TreeMetrics truncated = btree.treeStatistics();
+            assertEquals(full.getLeafKeys(), truncated.getLeafKeys());
+            assertTrue(truncated.getDepth() <= full.getDepth());
+            assertTrue(truncated.getInnerPages() <= full.getInnerPages());
+            assertTrue(truncated.getInnerKeyBytes() < full.getInnerKeyBytes() / 2);
+
+            for (final Map.Entry<String, Integer> entry : keys.entrySet()) {
+                assertEquals(entry.getValue().longValue(), btree.findValue(new Value(entry.getKey())));
+            }
+            for (char c = 'a'; c <= 'z'; c++) {
+                final String prefix = "http://example.com/" + c + "/";
+                final long expected = keys.keySet().stream().filter(k -> k.startsWith(prefix)).count();
+                btree.query(new IndexQuery(IndexQuery.TRUNC_RIGHT, new Value(prefix)), new StringIndexCallback());
+                assertEquals(expected, count);
+            }
+        }
+    }
+
+    @Test
+    public void bulkLoad() throws DBException, IOException, TerminatedException {
+        final BrokerPool pool = existEmbeddedServer.getBrokerPool();
+        final String prefixStr = "B";
+        final TreeMetrics inserted;
+        try (final BTree btree = new BTree(pool, BTREE_TEST_FILE_ID, BTREE_TEST_FILE_VERSION, false, pool.getCacheManager(), file)) {
+            btree.create((short) -1);
+            for (int i = 1; i <= COUNT; i++) {
+                btree.addValue(new Value(prefixStr + i), i);
+            }
+            inserted = btree.treeStatistics();
+        }
+
+        final Path bulkFile = temporaryFolder.newFile("bulk.dbx").toPath();
+        try (final BTree btree = new BTree(pool, BTREE_TEST_FILE_ID, BTREE_TEST_FILE_VERSION, false, pool.getCacheManager(), bulkFile)) {
+            btree.create((short) -1);
+            assertTrue(btree.isEmpty());
+
+            // keys in ascending order
+            final Map<String, Integer> keys = new TreeMap<>();
+            for (int i = 1; i <= COUNT; i++) {
+                keys.put(prefixStr + i, i);
+            }
+            final BTree.BulkLoader loader = btree.bulkLoad(1.0);
+            for (final Map.Entry<String, Integer> entry : keys.entrySet()) {
+                loader.add(new Value(entry.getKey()), entry.getValue());
+            }
+            loader.finish();
+            btree.flush();
+            assertFalse(btree.isEmpty());
+
+            final TreeMetrics loaded = btree.treeStatistics();
+            assertEquals(COUNT, loaded.getLeafKeys());
+            assertTrue(loaded.getLeafPages() < inserted.getLeafPages());
+            assertTrue(loaded.getLeafFillFactor() > inserted.getLeafFillFactor());
+
+            for (int i = 1; i <= COUNT; i++) {
+                assertEquals(i, btree.findValue(new Value(prefixStr + i)));
+            }
+            btree.query(new IndexQuery(IndexQuery.TRUNC_RIGHT, new Value(prefixStr + "1")), new StringIndexCallback());
+            assertEquals(1111, count);
+
+            // the bulk loaded tree must accept further updates
+            for (int i = 1; i <= COUNT; i++) {
+                btree.addValue(new Value("A" + i), i);
+                btree.addValue(new Value(prefixStr + i + "x"), i);
+            }
+            for (int i = 1; i <= COUNT; i++) {
+                assertEquals(i, btree.findValue(new Value("A" + i)));
+                assertEquals(i, btree.findValue(new Value(prefixStr + i)));
+                assertEquals(i, btree.findValue(new Value(prefixStr + i + "x")));
+            }
+            btree.query(new IndexQuery(IndexQuery.TRUNC_RIGHT, new Value(prefixStr)), new StringIndexCallback());
+            assertEquals(COUNT * 2, count);
+        }
+    }
+
+    @Test
+    public void bulkLoadLongKeys() throws DBException, IOException {
+        final BrokerPool pool = existEmbeddedServer.getBrokerPool();
+        final Random rand = new Random(11);
+        final Map<String, Integer> keys = new TreeMap<>();
+        for (int i = 1; i <= COUNT; i++) {
+            final StringBuilder buf = new StringBuilder();
+            for (int j = 0; j < 200; j++) {
+                buf.append((char) ('a' + rand.nextInt(26)));
+            }
+            keys.put(buf.toString(), i);
+        }
+        try (final BTree btree = new BTree(pool, BTREE_TEST_FILE_ID, BTREE_TEST_FILE_VERSION, false, pool.getCacheManager(), file)) {
+            btree.create((short) -1);
+            final BTree.BulkLoader loader = btree.bulkLoad(0.9);
+            for (final Map.Entry<String, Integer> entry : keys.entrySet()) {
+                loader.add(new Value(entry.getKey()), entry.getValue());
+            }
+            loader.finish();
+
+            // inner pages hold few of the long keys, so the tree has more than two levels
+            assertTrue(btree.treeStatistics().getDepth() > 2);
+            for (final Map.Entry<String, Integer> entry : keys.entrySet()) {
+                assertEquals(entry.getValue().longValue(), btree.findValue(new Value(entry.getKey())));
+            }
+
+            // splits after the bulk load need the parent links of the pages
+            for (final Map.Entry<String, Integer> entry : keys.entrySet()) {
+                btree.addValue(new Value(entry.getKey() + "x"), entry.getValue());
+            }
+            btree.flush();
+            for (final Map.Entry<String, Integer> entry : keys.entrySet()) {
+                assertEquals(entry.getValue().longValue(), btree.findValue(new Value(entry.getKey())));
+                assertEquals(entry.getValue().longValue(), btree.findValue(new Value(entry.getKey() + "x")));
+            }
+        }
+    }
+
+    @Test(expected = BTreeException.class)
+    public void bulkLoadUnsorted() throws DBException, IOException {
+        final BrokerPool pool = existEmbeddedServer.getBrokerPool();
+        try (final BTree btree = new BTree(pool, BTREE_TEST_FILE_ID, BTREE_TEST_FILE_VERSION, false, pool.getCacheManager(), file)) {
+            btree.create((short) -1);
+            final BTree.BulkLoader loader = btree.bulkLoad(0.9);
+            loader.add(new Value("b"), 1);
+            loader.add(new Value("a"), 2);
+        }
+    }
+
+    @Test(expected = BTreeException.class)
+    public void bulkLoadNotEmpty() throws DBException, IOException {
+        final BrokerPool pool = existEmbeddedServer.getBrokerPool();
+        try (final BTree btree = new BTree(pool, BTREE_TEST_FILE_ID, BTREE_TEST_FILE_VERSION, false, pool.getCacheManager(), file)) {
+            btree.create((short) -1);
+            btree.addValue(new Value("a"), 1);
+            btree.bulkLoad(0.9);
+        }
+    }
+
+    @Test
+    public void bulkLoadFromSorter() throws DBException, IOException {
+        final BrokerPool pool = existEmbeddedServer.getBrokerPool();
+        final Random rand = new Random(7);
+        final Map<String, Integer> keys = new TreeMap<>();
+        // a small run size makes the sorter merge several runs from disk
+        try (final BTree btree = new BTree(pool, BTREE_TEST_FILE_ID, BTREE_TEST_FILE_VERSION, false, pool.getCacheManager(), file);
+                final KeySorter sorter = new KeySorter(1000)) {
+            btree.setSuffixTruncation(true);
+            btree.create((short) -1);
+            for (int i = 0; i < COUNT * 4; i++) {
+                final String key = "key-" + rand.nextInt(COUNT * 2);
+                sorter.add(new Value(key), i);
+                keys.put(key, i);
+            }
+            final BTree.BulkLoader loader = btree.bulkLoad(0.9);
+            sorter.drainTo(loader);
+            loader.finish();
+            btree.flush();
+
+            assertEquals(keys.size(), loader.getKeyCount());
+            for (final Map.Entry<String, Integer> entry : keys.entrySet()) {
+                // the pointer added last wins
+                assertEquals(entry.getValue().longValue(), btree.findValue(new Value(entry.getKey())));
+            }
+        }
+    }
+
+    @Test
+    public void positionalPageIO() throws DBException, IOException {
+        final BrokerPool pool = existEmbeddedServer.getBrokerPool();
+        final Configuration configuration = pool.getConfiguration();
+        final Object previousMode = configuration.getProperty(Paged.PROPERTY_PAGE_IO_MODE);
+        configuration.setProperty(Paged.PROPERTY_PAGE_IO_MODE, Paged.PageIO.POSITIONAL);
+        try {
+            final String prefixStr = "P";
+            try (final BTree btree = new BTree(pool, BTREE_TEST_FILE_ID, BTREE_TEST_FILE_VERSION, false, pool.getCacheManager(), file)) {
+                assertEquals(Paged.PageIO.POSITIONAL, btree.getPageIO());
+                btree.create((short) -1);
+
+                for (int i = 1; i <= COUNT; i++) {
+                    btree.addValue(new Value(prefixStr + Integer.toString(i)), i);
+                }
+                btree.flush();
+            }
+
+            // re-open the file and read all pages back from disk
+            try (final BTree btree = new BTree(pool, BTREE_TEST_FILE_ID, BTREE_TEST_FILE_VERSION, false, pool.getCacheManager(), file)) {
+                assertTrue(btree.open(BTREE_TEST_FILE_VERSION));
+                for (int i = 1; i <= COUNT; i++) {
+                    assertEquals(i, btree.findValue(new Value(prefixStr + Integer.toString(i))));
+                }
+            }
+        } finally {
+            if (previousMode == null) {
+                configuration.removeProperty(Paged.PROPERTY_PAGE_IO_MODE);
+            } else {
+                configuration.setProperty(Paged.PROPERTY_PAGE_IO_MODE, previousMode);
+            }
+        }
+    }
+
+    @Test
+    public void positionalPageIOSurvivesInterrupt() throws DBException, IOException, InterruptedException {
+        final BrokerPool pool = existEmbeddedServer.getBrokerPool();
+        final Configuration configuration = pool.getConfiguration();
+        final Object previousMode = configuration.getProperty(Paged.PROPERTY_PAGE_IO_MODE);
+        configuration.setProperty(Paged.PROPERTY_PAGE_IO_MODE, Paged.PageIO.POSITIONAL);
+        try {
+            final String prefixStr = "I";
+            try (final BTree btree = new BTree(pool, BTREE_TEST_FILE_ID, BTREE_TEST_FILE_VERSION, false, pool.getCacheManager(), file)) {
+                btree.create((short) -1);
+
+                for (int i = 1; i <= COUNT; i++) {
+                    btree.addValue(new Value(prefixStr + Integer.toString(i)), i);
+                }
+                btree.flush();
+            }
+
+            try (final BTree btree = new BTree(pool, BTREE_TEST_FILE_ID, BTREE_TEST_FILE_VERSION, false, pool.getCacheManager(), file)) {
+                assertTrue(btree.open(BTREE_TEST_FILE_VERSION));
+
+                // an interrupted reader closes the file channel during its first read from disk
+                final AtomicLong found = new AtomicLong(-1);
+                final AtomicBoolean stillInterrupted = new AtomicBoolean();
+                final AtomicReference<Throwable> error = new AtomicReference<>();
+                final Thread reader = new Thread(() -> {
+                    Thread.currentThread().interrupt();
+                    try {
+                        found.set(btree.findValue(new Value(prefixStr + "1")));
+                    } catch (final Throwable e) {
+                        error.set(e);
+                    }
+                    stillInterrupted.set(Thread.currentThread().isInterrupted());
+                });
+                reader.start();
+                reader.join();
+
+                assertNull(error.get());
+                assertEquals(1, found.get());
+                assertTrue("interrupt status of the reader must be restored", stillInterrupted.get());
+
+                // later reads by other threads must still succeed
+                for (int i = 1; i <= COUNT; i++) {
+                    assertEquals(i, btree.findValue(new Value(prefixStr + Integer.toString(i))));
+                }
+            }
+        } finally {
+            if (previousMode == null) {
+                configuration.removeProperty(Paged.PROPERTY_PAGE_IO_MODE);
+            } else {
+                configuration.setProperty(Paged.PROPERTY_PAGE_IO_MODE, previousMode);
+            }
+        }
+    }
+
     @Test
     public void stringsTruncated() throws DBException, IOException, TerminatedException {
         final BrokerPool pool = existEmbeddedServer.getBrokerPool();
@@ -350,6 +680,53 @@ public class BTreeTest {
         }
     }
 
+    /**
+     * Readers sharing a READ_LOCK traverse the tree concurrently. The tree
+     * is larger than its cache, so the readers also evict (dirty) pages.
+     */
+    @Test
+    public void concurrentReads() throws Exception {
+        final int keys = 50_000;
+        final int readers = 8;
+        final BrokerPool pool = existEmbeddedServer.getBrokerPool();
+        // NOTE: plain BTrees do not opt in to shared reads, BTreeStore does
+        try (final BTree btree = new BTreeStore(pool, BTREE_TEST_FILE_ID, BTREE_TEST_FILE_VERSION, false, file, pool.getCacheManager())) {
+            for (int i = 0; i < keys; i++) {
+                btree.addValue(new Value("key-" + i), i);
+            }
+            assertTrue(btree.isSharedReadSafe());
+
+            final ExecutorService executor = Executors.newFixedThreadPool(readers);
+            try {
+                final List<Future<Integer>> results = new ArrayList<>();
+                for (int r = 0; r < readers; r++) {
+                    final long seed = r;
+                    results.add(executor.submit(() -> {
+                        final Random random = new Random(seed);
+                        int found = 0;
+                        for (int j = 0; j < keys; j++) {
+                            final int i = random.nextInt(keys);
+                            assertEquals(i, btree.findValue(new Value("key-" + i)));
+                            found++;
+                        }
+                        final AtomicInteger scanned = new AtomicInteger();
+                        btree.query(new IndexQuery(IndexQuery.TRUNC_RIGHT, new Value("key-1")), (value, pointer) -> {
+                            scanned.incrementAndGet();
+                            return true;
+                        });
+                        assertEquals(11_111, scanned.get());
+                        return found;
+                    }));
+                }
+                for (final Future<Integer> result : results) {
+                    assertEquals(keys, result.get().intValue());
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+    }
+
     @ClassRule
     public static final ExistEmbeddedServer existEmbeddedServer = new ExistEmbeddedServer(true, true);
 
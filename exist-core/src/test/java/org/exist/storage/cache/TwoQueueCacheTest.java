@@ -0,0 +1,266 @@
+/*
+ * eXist-db Open Source Native XML Database
+ * Copyright (C) 2001 The eXist-db Authors
+ *
+ * info@exist-db.org
+ * http://www.exist-db.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.storage.cache;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class TwoQueueCacheTest {
+
+    @Test
+    public void hotPagesSurviveScan() {
+        final TwoQueueCache<Page> cache = new TwoQueueCache<>("test", 100, 0.0, 1.0, Cache.CacheType.DATA);
+
+        // working set, read more than once
+        for (long key = 0; key < 50; key++) {
+            load(cache, key);
+        }
+        for (long key = 0; key < 50; key++) {
+            assertNotNull(cache.get(key));
+        }
+
+        // a scan much larger than the cache
+        for (long key = 1000; key < 11000; key++) {
+            load(cache, key);
+        }
+
+        for (long key = 0; key < 50; key++) {
+            assertNotNull("hot page " + key + " was replaced by the scan", cache.get(key));
+        }
+        assertEquals(100, cache.getUsedBuffers());
+        assertEquals(10000 - 50, cache.getEvictions());
+    }
+
+    @Test
+    public void innerPagesAreKept() {
+        final TwoQueueCache<Page> cache = new TwoQueueCache<>("test", 10, 0.0, 1.0, Cache.CacheType.BTREE);
+        for (long key = 0; key < 5; key++) {
+            final Page page = new Page(key);
+            page.inner = true;
+            cache.add(page);
+        }
+        for (long key = 100; key < 200; key++) {
+            load(cache, key);
+        }
+        for (long key = 0; key < 5; key++) {
+            assertNotNull(cache.get(key));
+        }
+    }
+
+    @Test
+    public void replacedPagesAreSynced() {
+        final TwoQueueCache<Page> cache = new TwoQueueCache<>("test", 4, 0.0, 1.0, Cache.CacheType.DATA);
+        final Page dirty = new Page(1);
+        dirty.dirty = true;
+        cache.add(dirty);
+        for (long key = 10; key < 20; key++) {
+            load(cache, key);
+        }
+        assertNull(cache.get(1));
+        assertFalse(dirty.dirty);
+        assertEquals(1, dirty.syncs);
+    }
+
+    @Test
+    public void pinnedPagesAreNotReplaced() {
+        final TwoQueueCache<Page> cache = new TwoQueueCache<>("test", 4, 0.0, 1.0, Cache.CacheType.DATA);
+        final List<Page> pinned = new ArrayList<>();
+        for (long key = 0; key < 4; key++) {
+            final Page page = new Page(key);
+            page.pinned = true;
+            pinned.add(page);
+            cache.add(page);
+        }
+
+        // nothing can be unloaded, the cache has to exceed its size
+        load(cache, 10);
+        assertEquals(5, cache.getUsedBuffers());
+
+        for (final Page page : pinned) {
+            page.pinned = false;
+        }
+        load(cache, 11);
+        assertEquals(4, cache.getUsedBuffers());
+        assertNotNull(cache.get(11));
+    }
+
+    @Test
+    public void shrink() {
+        final TwoQueueCache<Page> cache = new TwoQueueCache<>("test", 64, 1.5, 1.0, Cache.CacheType.DATA);
+        for (long key = 0; key < 64; key++) {
+            final Page page = new Page(key);
+            page.dirty = true;
+            cache.add(page);
+        }
+        cache.resize(16);
+        assertEquals(16, cache.getBuffers());
+        assertEquals(16, cache.getUsedBuffers());
+        assertEquals(48, cache.getEvictions());
+
+        cache.resize(32);
+        for (long key = 100; key < 116; key++) {
+            load(cache, key);
+        }
+        assertEquals(32, cache.getUsedBuffers());
+    }
+
+    @Test
+    public void removeAndFlush() {
+        final TwoQueueCache<Page> cache = new TwoQueueCache<>("test", 8, 0.0, 1.0, Cache.CacheType.DATA);
+        final Page page = new Page(3);
+        cache.add(page);
+        assertFalse(cache.hasDirtyItems());
+
+        page.dirty = true;
+        assertTrue(cache.hasDirtyItems());
+        assertTrue(cache.flush());
+        assertFalse(cache.hasDirtyItems());
+
+        cache.remove(page);
+        assertNull(cache.get(3));
+        assertEquals(0, cache.getUsedBuffers());
+    }
+
+    @Test
+    public void concurrentAccess() throws Exception {
+        final int threads = 8;
+        final TwoQueueCache<Page> cache = new TwoQueueCache<>("test", 256, 0.0, 1.0, Cache.CacheType.DATA);
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(() -> {
+                    final ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int j = 0; j < 20000; j++) {
+                        final long key = random.nextInt(1024);
+                        final Page page = load(cache, key);
+                        assertEquals(key, page.getKey());
+                        if (j % 100 == 0) {
+                            cache.remove(page);
+                        }
+                    }
+                }));
+            }
+            for (final Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+        }
+
+        assertTrue(cache.getUsedBuffers() <= 256);
+        assertEquals(threads * 20000L, (long) cache.getHits() + cache.getFails());
+    }
+
+    private static Page load(final Cache<Page> cache, final long key) {
+        Page page = cache.get(key);
+        if (page == null) {
+            page = new Page(key);
+            cache.add(page);
+        }
+        return page;
+    }
+
+    private static class Page implements BTreeCacheable {
+        private final long key;
+        private int refCount = 0;
+        private int timestamp = 0;
+        volatile boolean dirty = false;
+        volatile boolean pinned = false;
+        volatile boolean inner = false;
+        volatile int syncs = 0;
+
+        Page(final long key) {
+            this.key = key;
+        }
+
+        @Override
+        public long getKey() {
+            return key;
+        }
+
+        @Override
+        public int getReferenceCount() {
+            return refCount;
+        }
+
+        @Override
+        public int incReferenceCount() {
+            return ++refCount;
+        }
+
+        @Override
+        public int decReferenceCount() {
+            return --refCount;
+        }
+
+        @Override
+        public void setReferenceCount(final int count) {
+            this.refCount = count;
+        }
+
+        @Override
+        public void setTimestamp(final int timestamp) {
+            this.timestamp = timestamp;
+        }
+
+        @Override
+        public int getTimestamp() {
+            return timestamp;
+        }
+
+        @Override
+        public boolean sync(final boolean syncJournal) {
+            if (!dirty) {
+                return false;
+            }
+            dirty = false;
+            syncs++;
+            return true;
+        }
+
+        @Override
+        public boolean allowUnload() {
+            return !pinned;
+        }
+
+        @Override
+        public boolean isDirty() {
+            return dirty;
+        }
+
+        @Override
+        public boolean isInnerPage() {
+            return inner;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * eXist-db Open Source Native XML Database
+ * Copyright (C) 2001 The eXist-db Authors
+ *
+ * info@exist-db.org
+ * http://www.exist-db.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.storage.journal;
+
+import org.exist.EXistException;
+import org.exist.collections.Collection;
+import org.exist.security.PermissionDeniedException;
+import org.exist.storage.BrokerPool;
+import org.exist.storage.DBBroker;
+import org.exist.storage.txn.TransactionManager;
+import org.exist.storage.txn.Txn;
+import org.exist.test.ExistEmbeddedServer;
+import org.exist.util.DatabaseConfigurationException;
+import org.exist.xmldb.XmldbURI;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.exist.util.PropertiesBuilder.propertiesBuilder;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Tests that concurrent transactions commit correctly when
+ * their commit records are synced as a group.
+ */
+public class GroupCommitTest {
+
+    private static final XmldbURI TEST_COLLECTION_URI = XmldbURI.ROOT_COLLECTION_URI.append("group-commit");
+    private static final int THREADS = 8;
+    private static final int TRANSACTIONS_PER_THREAD = 20;
+
+    @Rule
+    public final ExistEmbeddedServer existEmbeddedServer = new ExistEmbeddedServer(
+            propertiesBuilder()
+                    .put(BrokerPool.PROPERTY_RECOVERY_GROUP_SYNC, true)
+                    .put(BrokerPool.PROPERTY_RECOVERY_GROUP_SYNC_MAX_DELAY, 5L)
+                    .put(BrokerPool.PROPERTY_RECOVERY_GROUP_SYNC_MAX_BATCH, 4)
+                    .put(Journal.PROPERTY_RECOVERY_SYNC_ON_COMMIT, true)
+                    .build(),
+            true,
+            true);
+
+    @After
+    public void resetCorruption() {
+        BrokerPool.FORCE_CORRUPTION = false;
+    }
+
+    @Test
+    public void concurrentCommits() throws InterruptedException, ExecutionException, EXistException, PermissionDeniedException, IOException, DatabaseConfigurationException {
+        commitConcurrently(existEmbeddedServer.getBrokerPool());
+
+        existEmbeddedServer.restart(false);
+
+        assertCollectionsExist(existEmbeddedServer.getBrokerPool());
+    }
+
+    /**
+     * Simulates a crash after the concurrent commits, neither the journal buffer
+     * nor the database files are flushed on shutdown, so the collections
+     * can only be restored by recovery if their commit records were synced.
+     */
+    @Test
+    public void concurrentCommitsSurviveCrash() throws InterruptedException, ExecutionException, EXistException, PermissionDeniedException, IOException, DatabaseConfigurationException {
+        BrokerPool.FORCE_CORRUPTION = true;
+        commitConcurrently(existEmbeddedServer.getBrokerPool());
+
+        existEmbeddedServer.restart();
+
+        BrokerPool.FORCE_CORRUPTION = false;
+        assertCollectionsExist(existEmbeddedServer.getBrokerPool());
+    }
+
+    private static void commitConcurrently(final BrokerPool pool) throws InterruptedException, ExecutionException {
+        final ExecutorService executorService = Executors.newFixedThreadPool(THREADS);
+        try {
+            final List<Future<Void>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                final int thread = i;
+                futures.add(executorService.submit(createCollections(pool, thread)));
+            }
+            for (final Future<Void> future : futures) {
+                future.get();
+            }
+        } finally {
+            executorService.shutdown();
+        }
+    }
+
+    private static void assertCollectionsExist(final BrokerPool restartedPool) throws EXistException, PermissionDeniedException {
+        try (final DBBroker broker = restartedPool.get(Optional.of(restartedPool.getSecurityManager().getSystemSubject()))) {
+            for (int i = 0; i < THREADS; i++) {
+                for (int j = 0; j < TRANSACTIONS_PER_THREAD; j++) {
+                    final Collection collection = broker.getCollection(TEST_COLLECTION_URI.append("t" + i + "-" + j));
+                    assertNotNull(collection);
+                }
+            }
+        }
+    }
+
+    private static Callable<Void> createCollections(final BrokerPool pool, final int thread) {
+        return () -> {
+            final TransactionManager transact = pool.getTransactionManager();
+            try (final DBBroker broker = pool.get(Optional.of(pool.getSecurityManager().getSystemSubject()))) {
+                for (int j = 0; j < TRANSACTIONS_PER_THREAD; j++) {
+                    try (final Txn transaction = transact.beginTransaction()) {
+                        final Collection collection = broker.getOrCreateCollection(transaction, TEST_COLLECTION_URI.append("t" + thread + "-" + j));
+                        broker.saveCollection(transaction, collection);
+                        transact.commit(transaction);
+                    }
+                }
+            }
+            return null;
+        };
+    }
+}
@@ -44,8 +44,13 @@ import uk.ac.ic.doc.slurp.multilock.MultiLock;
 import javax.annotation.Nullable;
 import java.util.Arrays;
 import java.util.Stack;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import static org.junit.Assert.*;
 
@@ -686,19 +691,19 @@ public class LockManagerTest {
     public void getBtreeLock_isStripedByPath() {
         final LockManager lockManager = new LockManager(CONCURRENCY_LEVEL);
 
-        final ReentrantLock btree1Lock1 = lockManager.getBTreeLock("btree1.dbx");
+        final ReentrantReadWriteLock btree1Lock1 = lockManager.getBTreeLock("btree1.dbx");
         assertNotNull(btree1Lock1);
 
-        final ReentrantLock btree1Lock2 = lockManager.getBTreeLock("btree1.dbx");
+        final ReentrantReadWriteLock btree1Lock2 = lockManager.getBTreeLock("btree1.dbx");
         assertNotNull(btree1Lock2);
 
         assertTrue(btree1Lock1 == btree1Lock2);
 
-        final ReentrantLock btree2Lock = lockManager.getBTreeLock("btree2.dbx");
+        final ReentrantReadWriteLock btree2Lock = lockManager.getBTreeLock("btree2.dbx");
         assertNotNull(btree2Lock);
         assertFalse(btree1Lock1 == btree2Lock);
 
-        final ReentrantLock btree3Lock = lockManager.getBTreeLock("btree3.dbx");
+        final ReentrantReadWriteLock btree3Lock = lockManager.getBTreeLock("btree3.dbx");
         assertNotNull(btree3Lock);
         assertFalse(btree1Lock1 == btree3Lock);
 
@@ -716,7 +721,7 @@ public class LockManagerTest {
 
         final LockManager lockManager = new LockManager(CONCURRENCY_LEVEL);
         final Stack<LockAction> events = recordLockEvents(lockManager, () -> {
-            try (final ManagedLock<ReentrantLock> btree1Lock
+            try (final ManagedLock<ReentrantReadWriteLock> btree1Lock
                          = lockManager.acquireBtreeReadLock(btree1Name)) {
                 assertNotNull(btree1Lock);
             }
@@ -741,6 +746,147 @@ public class LockManagerTest {
         assertEquals(Lock.LockMode.READ_LOCK, event3.mode);
     }
 
+    /**
+     * When acquiring a READ lock on a BTree which has been
+     * registered for shared reads, ensure that other readers
+     * share the lock, but writers wait
+     */
+    @Test
+    public void acquireBTreeReadLock_shared() throws Exception {
+        final String btree1Name = "btree1.dbx";
+
+        final LockManager lockManager = new LockManager(CONCURRENCY_LEVEL, true);
+        lockManager.registerSharedReadBtree(btree1Name);
+        assertTrue(lockManager.isBtreeReadLockShared(btree1Name));
+
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try (final ManagedLock<ReentrantReadWriteLock> btree1Lock = lockManager.acquireBtreeReadLock(btree1Name)) {
+            assertTrue(lockManager.isBtreeLocked(btree1Name));
+            assertFalse(lockManager.isBtreeLockedForWrite(btree1Name));
+
+            // another reader shares the lock
+            final Future<Boolean> reader = executor.submit(() -> {
+                try (final ManagedLock<ReentrantReadWriteLock> otherLock = lockManager.acquireBtreeReadLock(btree1Name)) {
+                    return lockManager.getBTreeLock(btree1Name).getReadLockCount() == 2;
+                }
+            });
+            assertTrue(reader.get(5, TimeUnit.SECONDS));
+
+            // a writer has to wait for the reader
+            final Future<Boolean> writer = executor.submit(() -> {
+                try (final ManagedLock<ReentrantReadWriteLock> otherLock = lockManager.acquireBtreeWriteLock(btree1Name)) {
+                    return lockManager.isBtreeLockedForWrite(btree1Name);
+                }
+            });
+            try {
+                writer.get(200, TimeUnit.MILLISECONDS);
+                fail("WRITE_LOCK was acquired whilst a READ_LOCK was held");
+            } catch (final TimeoutException e) {
+                // expected
+            }
+
+            btree1Lock.close();
+            assertTrue(writer.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Ensure that READ locks on BTrees are not shared
+     * unless enabled by the configuration
+     */
+    @Test
+    public void acquireBTreeReadLock_sharedDisabledByDefault() {
+        final String btree1Name = "btree1.dbx";
+
+        final LockManager lockManager = new LockManager(CONCURRENCY_LEVEL);
+        lockManager.registerSharedReadBtree(btree1Name);
+        assertFalse(lockManager.isBtreeReadLockShared(btree1Name));
+    }
+
+    /**
+     * When a thread holding a shared READ lock on a BTree
+     * acquires the WRITE lock on the same BTree, ensure that
+     * it fails fast instead of deadlocking, and still holds the READ lock
+     */
+    @Test
+    public void acquireBTreeWriteLock_whilstHoldingSharedReadLock_fails() throws Exception {
+        final String btree1Name = "btree1.dbx";
+
+        final LockManager lockManager = new LockManager(CONCURRENCY_LEVEL, true);
+        lockManager.registerSharedReadBtree(btree1Name);
+
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final Future<Boolean> readThenWrite = executor.submit(() -> {
+                final ReentrantReadWriteLock rwLock = lockManager.getBTreeLock(btree1Name);
+                try (final ManagedLock<ReentrantReadWriteLock> readLock = lockManager.acquireBtreeReadLock(btree1Name)) {
+                    assertEquals(1, rwLock.getReadHoldCount());
+
+                    try (final ManagedLock<ReentrantReadWriteLock> writeLock = lockManager.acquireBtreeWriteLock(btree1Name)) {
+                        fail("The shared READ_LOCK must not be upgraded to a WRITE_LOCK");
+                    } catch (final LockException e) {
+                        // expected, the READ_LOCK must still be held
+                        assertFalse(rwLock.isWriteLocked());
+                        assertEquals(1, rwLock.getReadHoldCount());
+                    }
+                }
+
+                // a WRITE_LOCK acquired before the READ_LOCK may be re-entered
+                try (final ManagedLock<ReentrantReadWriteLock> writeLock = lockManager.acquireBtreeWriteLock(btree1Name);
+                     final ManagedLock<ReentrantReadWriteLock> readLock = lockManager.acquireBtreeReadLock(btree1Name);
+                     final ManagedLock<ReentrantReadWriteLock> nestedWriteLock = lockManager.acquireBtreeWriteLock(btree1Name)) {
+                    assertTrue(rwLock.isWriteLockedByCurrentThread());
+                    assertEquals(2, rwLock.getWriteHoldCount());
+                }
+                return rwLock.getReadLockCount() == 0 && !rwLock.isWriteLocked();
+            });
+
+            try {
+                assertTrue(readThenWrite.get(5, TimeUnit.SECONDS));
+            } catch (final TimeoutException e) {
+                fail("Acquiring the WRITE_LOCK whilst holding a shared READ_LOCK deadlocked");
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * When acquiring a READ lock on a BTree which has not been
+     * registered for shared reads, ensure that it is exclusive
+     */
+    @Test
+    public void acquireBTreeReadLock_exclusive() throws Exception {
+        final String btree1Name = "btree1.dbx";
+
+        final LockManager lockManager = new LockManager(CONCURRENCY_LEVEL);
+        assertFalse(lockManager.isBtreeReadLockShared(btree1Name));
+
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try (final ManagedLock<ReentrantReadWriteLock> btree1Lock = lockManager.acquireBtreeReadLock(btree1Name)) {
+            assertTrue(lockManager.isBtreeLocked(btree1Name));
+
+            final Future<Boolean> reader = executor.submit(() -> {
+                try (final ManagedLock<ReentrantReadWriteLock> otherLock = lockManager.acquireBtreeReadLock(btree1Name)) {
+                    return lockManager.isBtreeLocked(btree1Name);
+                }
+            });
+            try {
+                reader.get(200, TimeUnit.MILLISECONDS);
+                fail("READ_LOCK was shared on a BTree which was not registered for shared reads");
+            } catch (final TimeoutException e) {
+                // expected
+            }
+
+            btree1Lock.close();
+            assertTrue(reader.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
     /**
      * When acquiring a WRITE lock on a BTree
      * ensure that we only take a single WRITE lock on the
@@ -752,7 +898,7 @@ public class LockManagerTest {
 
         final LockManager lockManager = new LockManager(CONCURRENCY_LEVEL);
         final Stack<LockAction> events = recordLockEvents(lockManager, () -> {
-            try (final ManagedLock<ReentrantLock> btree1Lock
+            try (final ManagedLock<ReentrantReadWriteLock> btree1Lock
                          = lockManager.acquireBtreeWriteLock(btree1Name)) {
                 assertNotNull(btree1Lock);
             }
@@ -0,0 +1,89 @@
+/*
+ * eXist-db Open Source Native XML Database
+ * Copyright (C) 2001 The eXist-db Authors
+ *
+ * info@exist-db.org
+ * http://www.exist-db.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.xmlrpc;
+
+import org.exist.EXistException;
+import org.exist.xquery.XPathException;
+import org.exist.xquery.value.StringValue;
+import org.exist.xquery.value.ValueSequence;
+import org.junit.Test;
+
+import java.util.Properties;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class QueryResultCacheTest {
+
+    @Test
+    public void fetchedItemsAreReleased() throws XPathException, EXistException {
+        final QueryResultCache cache = new QueryResultCache(1024 * 1024);
+        final QueryCursor cursor = cursor("admin", null, 3);
+        final long total = cursor.getMemoryUsage();
+        cache.addCursor(cursor);
+        assertEquals(total, cache.getCursorMemory("admin", null));
+
+        assertNotNull(cursor.nextItem());
+        final long remaining = cache.getCursorMemory("admin", null);
+        assertTrue(remaining > 0 && remaining < total);
+        assertEquals(remaining, cursor.getMemoryUsage());
+
+        cursor.close();
+        assertEquals(0, cache.getCursorMemory("admin", null));
+        assertNull(cursor.nextItem());
+    }
+
+    @Test
+    public void sessionsHaveTheirOwnBudget() throws XPathException, EXistException {
+        final QueryCursor first = cursor("admin", "a", 10);
+        final QueryResultCache cache = new QueryResultCache(first.getMemoryUsage());
+        cache.addCursor(first);
+
+        // another session of the same user is not affected
+        cache.addCursor(cursor("admin", "b", 10));
+
+        try {
+            cache.addCursor(cursor("admin", "a", 10));
+            fail("Expected the session to be over its budget");
+        } catch (final EXistException e) {
+            // expected
+        }
+
+        // fetching gives back enough for the session to open another
+        while (first.hasNext()) {
+            first.nextItem();
+        }
+        assertEquals(0, cache.getCursorMemory("admin", "a"));
+        cache.addCursor(cursor("admin", "a", 10));
+    }
+
+    private static QueryCursor cursor(final String owner, final String session, final int items) throws XPathException {
+        final ValueSequence result = new ValueSequence();
+        for (int i = 0; i < items; i++) {
+            result.add(new StringValue("item " + i));
+        }
+        return new QueryCursor(owner, session, result, new Properties(), 0);
+    }
+}
@@ -549,6 +549,64 @@ public class XmlRpcTest {
         item = (byte[]) xmlrpc.execute("retrieve", params);
     }
 
+    @Test
+    public void testCursor() throws XmlRpcException, MalformedURLException {
+        final XmlRpcClient xmlrpc = getClient();
+        List<Object> params = new ArrayList<>();
+        params.add("for $i in 1 to 5 return <i>{$i}</i>".getBytes(UTF_8));
+        params.add(new HashMap<>());
+        final Integer cursor = (Integer) xmlrpc.execute("openCursor", params);
+        assertNotNull(cursor);
+
+        params.clear();
+        params.add(cursor);
+        params.add(2);
+        params.add(new HashMap<>());
+        Map<?, ?> page = (Map<?, ?>) xmlrpc.execute("fetchCursor", params);
+        Object[] data = (Object[]) page.get("data");
+        assertEquals(2, data.length);
+        assertEquals("<i>1</i>", data[0]);
+        assertEquals("element()", ((Object[]) page.get("types"))[0]);
+        assertTrue((Boolean) page.get("more"));
+
+        params.set(1, 10);
+        page = (Map<?, ?>) xmlrpc.execute("fetchCursor", params);
+        data = (Object[]) page.get("data");
+        assertEquals(3, data.length);
+        assertEquals("<i>5</i>", data[2]);
+        assertFalse((Boolean) page.get("more"));
+
+        // an exhausted cursor is released
+        try {
+            xmlrpc.execute("fetchCursor", params);
+            fail("Expected the cursor to have been released");
+        } catch (final XmlRpcException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testCursorReleased() throws XmlRpcException, MalformedURLException {
+        final XmlRpcClient xmlrpc = getClient();
+        List<Object> params = new ArrayList<>();
+        params.add("(1 to 5) ! string(.)".getBytes(UTF_8));
+        params.add(new HashMap<>());
+        final Integer cursor = (Integer) xmlrpc.execute("openCursor", params);
+
+        params.clear();
+        params.add(cursor);
+        assertTrue((Boolean) xmlrpc.execute("releaseQueryResult", params));
+
+        params.add(2);
+        params.add(new HashMap<>());
+        try {
+            xmlrpc.execute("fetchCursor", params);
+            fail("Expected the cursor to have been released");
+        } catch (final XmlRpcException e) {
+            // expected
+        }
+    }
+
     @Test
     public void testQueryModuleExternalVar() throws XmlRpcException, MalformedURLException {
         storeData();
@@ -0,0 +1,131 @@
+/*
+ * eXist-db Open Source Native XML Database
+ * Copyright (C) 2001 The eXist-db Authors
+ *
+ * info@exist-db.org
+ * http://www.exist-db.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.xquery;
+
+import org.exist.EXistException;
+import org.exist.security.PermissionDeniedException;
+import org.exist.storage.BrokerPool;
+import org.exist.storage.DBBroker;
+import org.exist.test.ExistEmbeddedServer;
+import org.exist.xquery.value.Sequence;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.util.Optional;
+
+import static org.exist.util.PropertiesBuilder.propertiesBuilder;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks that a group by clause gives the same results when its groups
+ * exceed the spill threshold and are partitioned to disk.
+ */
+public class GroupBySpillTest {
+
+    @ClassRule
+    public static final ExistEmbeddedServer existEmbeddedServer = new ExistEmbeddedServer(
+            propertiesBuilder()
+                    .put(GroupByClause.PROPERTY_GROUP_BY_SPILL_THRESHOLD, 100)
+                    .build(),
+            true,
+            true);
+
+    @Test
+    public void atomicValues() throws EXistException, PermissionDeniedException, XPathException {
+        final String query =
+                "every $group in\n" +
+                "    for $i in 1 to 5000\n" +
+                "    let $s := 'item-' || $i\n" +
+                "    group by $k := $i mod 37\n" +
+                "    return string-join($s, ' ') eq string-join((1 to 5000)[. mod 37 eq $k] ! ('item-' || .), ' ')\n" +
+                "satisfies $group";
+        assertEquals("true", executeQuery(query));
+
+        final String countQuery =
+                "count(for $i in 1 to 5000 group by $k := $i mod 37 return $k)";
+        assertEquals("37", executeQuery(countQuery));
+    }
+
+    @Test
+    public void numericKeysOfDifferentTypes() throws EXistException, PermissionDeniedException, XPathException {
+        final String query =
+                "string-join(\n" +
+                "    for $i in 1 to 1000\n" +
+                "    let $k := if ($i mod 2 eq 0) then xs:double($i mod 3) else xs:integer($i mod 3)\n" +
+                "    group by $key := $k\n" +
+                "    order by $key\n" +
+                "    return count($i),\n" +
+                "    ',')";
+        assertEquals("333,334,333", executeQuery(query));
+    }
+
+    @Test
+    public void collation() throws EXistException, PermissionDeniedException, XPathException {
+        final String query =
+                "string-join(\n" +
+                "    for $i in 1 to 2000\n" +
+                "    let $name := if ($i mod 2 eq 0) then 'Name' || ($i mod 10) else 'NAME' || ($i mod 10)\n" +
+                "    group by $key := $name collation '?strength=primary'\n" +
+                "    order by lower-case($key)\n" +
+                "    return lower-case($key) || ':' || count($i),\n" +
+                "    ',')";
+        assertEquals("name0:200,name1:200,name2:200,name3:200,name4:200,name5:200,name6:200,name7:200,name8:200,name9:200",
+                executeQuery(query));
+    }
+
+    @Test
+    public void persistentNodes() throws EXistException, PermissionDeniedException, XPathException {
+        final String query =
+                "let $doc := xmldb:store('/db', 'group-by-spill.xml', <items>{for $i in 1 to 1000 return <item n='{$i mod 7}'>{$i}</item>}</items>)\n" +
+                "return string-join(\n" +
+                "    for $item in doc($doc)//item\n" +
+                "    group by $n := $item/@n\n" +
+                "    order by $n\n" +
+                "    return $n || ':' || count($item) || ':' || sum($item),\n" +
+                "    ',')";
+        final StringBuilder expected = new StringBuilder();
+        for (int n = 0; n < 7; n++) {
+            int count = 0;
+            int sum = 0;
+            for (int i = 1; i <= 1000; i++) {
+                if (i % 7 == n) {
+                    count++;
+                    sum += i;
+                }
+            }
+            if (n > 0) {
+                expected.append(',');
+            }
+            expected.append(n).append(':').append(count).append(':').append(sum);
+        }
+        assertEquals(expected.toString(), executeQuery(query));
+    }
+
+    private static String executeQuery(final String query) throws EXistException, PermissionDeniedException, XPathException {
+        final BrokerPool pool = existEmbeddedServer.getBrokerPool();
+        try (final DBBroker broker = pool.get(Optional.of(pool.getSecurityManager().getSystemSubject()))) {
+            final Sequence result = pool.getXQueryService().execute(broker, query, null);
+            assertEquals(1, result.getItemCount());
+            return result.itemAt(0).getStringValue();
+        }
+    }
+}
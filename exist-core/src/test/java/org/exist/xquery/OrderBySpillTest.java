@@ -0,0 +1,171 @@
+/*
+ * eXist-db Open Source Native XML Database
+ * Copyright (C) 2001 The eXist-db Authors
+ *
+ * info@exist-db.org
+ * http://www.exist-db.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.xquery;
+
+import org.exist.EXistException;
+import org.exist.security.PermissionDeniedException;
+import org.exist.storage.BrokerPool;
+import org.exist.storage.DBBroker;
+import org.exist.test.ExistEmbeddedServer;
+import org.exist.xquery.value.Sequence;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.exist.util.PropertiesBuilder.propertiesBuilder;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks that an order by clause gives the same results when its items
+ * exceed the spill threshold and are sorted in runs on disk, and when
+ * only the first items of the sorted sequence are used.
+ */
+public class OrderBySpillTest {
+
+    @ClassRule
+    public static final ExistEmbeddedServer existEmbeddedServer = new ExistEmbeddedServer(
+            propertiesBuilder()
+                    .put(OrderByClause.PROPERTY_ORDER_BY_SPILL_THRESHOLD, 100)
+                    .build(),
+            true,
+            true);
+
+    @Test
+    public void atomicValues() throws EXistException, PermissionDeniedException, XPathException {
+        final String query =
+                "string-join(\n" +
+                "    for $i in 1 to 1000\n" +
+                "    order by $i mod 10 descending, $i\n" +
+                "    return $i,\n" +
+                "    ',')";
+        assertEquals(IntStream.rangeClosed(1, 1000).boxed()
+                        .sorted((a, b) -> a % 10 != b % 10 ? Integer.compare(b % 10, a % 10) : Integer.compare(a, b))
+                        .map(String::valueOf)
+                        .collect(Collectors.joining(",")),
+                executeQuery(query));
+    }
+
+    @Test
+    public void stableForEqualKeys() throws EXistException, PermissionDeniedException, XPathException {
+        final String query =
+                "string-join(\n" +
+                "    for $i in 1 to 1000\n" +
+                "    stable order by $i mod 3\n" +
+                "    return $i,\n" +
+                "    ',')";
+        assertEquals(IntStream.rangeClosed(1, 1000).boxed()
+                        .sorted((a, b) -> Integer.compare(a % 3, b % 3))
+                        .map(String::valueOf)
+                        .collect(Collectors.joining(",")),
+                executeQuery(query));
+    }
+
+    @Test
+    public void emptyKeysAndCollation() throws EXistException, PermissionDeniedException, XPathException {
+        final String query =
+                "string-join(\n" +
+                "    for $i in 1 to 500\n" +
+                "    let $name := if ($i mod 50 eq 0) then () else if ($i mod 2 eq 0) then 'b' || ($i mod 5) else 'B' || ($i mod 5)\n" +
+                "    order by $name empty greatest collation '?strength=primary', $i descending\n" +
+                "    return $i,\n" +
+                "    ',')";
+        assertEquals(IntStream.rangeClosed(1, 500).boxed()
+                        .sorted((a, b) -> {
+                            final int ka = a % 50 == 0 ? Integer.MAX_VALUE : a % 5;
+                            final int kb = b % 50 == 0 ? Integer.MAX_VALUE : b % 5;
+                            return ka != kb ? Integer.compare(ka, kb) : Integer.compare(b, a);
+                        })
+                        .map(String::valueOf)
+                        .collect(Collectors.joining(",")),
+                executeQuery(query));
+    }
+
+    @Test
+    public void persistentNodes() throws EXistException, PermissionDeniedException, XPathException {
+        final String query =
+                "let $doc := xmldb:store('/db', 'order-by-spill.xml', <items>{for $i in 1 to 1000 return <item n='{($i * 7) mod 1000}'>{$i}</item>}</items>)\n" +
+                "return string-join(\n" +
+                "    for $item in doc($doc)//item\n" +
+                "    order by xs:integer($item/@n)\n" +
+                "    return $item/@n || ':' || $item,\n" +
+                "    ',')";
+        assertEquals(IntStream.rangeClosed(1, 1000).boxed()
+                        .sorted((a, b) -> Integer.compare((a * 7) % 1000, (b * 7) % 1000))
+                        .map(i -> ((i * 7) % 1000) + ":" + i)
+                        .collect(Collectors.joining(",")),
+                executeQuery(query));
+    }
+
+    @Test
+    public void subsequence() throws EXistException, PermissionDeniedException, XPathException {
+        // within the spill threshold the items are kept in a heap
+        final String query =
+                "string-join(subsequence(\n" +
+                "    for $i in 1 to 1000\n" +
+                "    order by $i mod 7, $i descending\n" +
+                "    return $i,\n" +
+                "    4, 5), ',')";
+        assertEquals(expectedByMod7(3, 5), executeQuery(query));
+
+        // beyond the spill threshold the merge of the runs stops early
+        final String largeQuery =
+                "string-join(subsequence(\n" +
+                "    for $i in 1 to 1000\n" +
+                "    order by $i mod 7, $i descending\n" +
+                "    return $i,\n" +
+                "    200, 150), ',')";
+        assertEquals(expectedByMod7(199, 150), executeQuery(largeQuery));
+    }
+
+    @Test
+    public void positionalPredicate() throws EXistException, PermissionDeniedException, XPathException {
+        assertEquals(expectedByMod7(0, 1), executeQuery(
+                "(for $i in 1 to 1000 order by $i mod 7, $i descending return $i)[1]"));
+        assertEquals(expectedByMod7(4, 1), executeQuery(
+                "(for $i in 1 to 1000 order by $i mod 7, $i descending return $i)[5]"));
+        assertEquals(expectedByMod7(0, 3), executeQuery(
+                "string-join((for $i in 1 to 1000 order by $i mod 7, $i descending return $i)[position() le 3], ',')"));
+        assertEquals(expectedByMod7(0, 2), executeQuery(
+                "string-join((for $i in 1 to 1000 order by $i mod 7, $i descending return $i)[position() lt 3], ',')"));
+    }
+
+    private static String expectedByMod7(final int skip, final int limit) {
+        return IntStream.rangeClosed(1, 1000).boxed()
+                .sorted((a, b) -> a % 7 != b % 7 ? Integer.compare(a % 7, b % 7) : Integer.compare(b, a))
+                .skip(skip)
+                .limit(limit)
+                .map(String::valueOf)
+                .collect(Collectors.joining(","));
+    }
+
+    private static String executeQuery(final String query) throws EXistException, PermissionDeniedException, XPathException {
+        final BrokerPool pool = existEmbeddedServer.getBrokerPool();
+        try (final DBBroker broker = pool.get(Optional.of(pool.getSecurityManager().getSystemSubject()))) {
+            final Sequence result = pool.getXQueryService().execute(broker, query, null);
+            assertEquals(1, result.getItemCount());
+            return result.itemAt(0).getStringValue();
+        }
+    }
+}
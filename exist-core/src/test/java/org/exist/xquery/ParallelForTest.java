@@ -0,0 +1,215 @@
+/*
+ * eXist-db Open Source Native XML Database
+ * Copyright (C) 2001 The eXist-db Authors
+ *
+ * info@exist-db.org
+ * http://www.exist-db.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.xquery;
+
+import org.exist.EXistException;
+import org.exist.security.PermissionDeniedException;
+import org.exist.storage.BrokerPool;
+import org.exist.storage.DBBroker;
+import org.exist.test.ExistEmbeddedServer;
+import org.exist.xquery.value.Sequence;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks that a for clause evaluated in parallel by the exist:parallel pragma
+ * gives the same results, in the same order, as the serial evaluation.
+ */
+public class ParallelForTest {
+
+    @ClassRule
+    public static final ExistEmbeddedServer existEmbeddedServer = new ExistEmbeddedServer(true, true);
+
+    @Test
+    public void atomicValues() throws EXistException, PermissionDeniedException, XPathException {
+        final String query =
+                "string-join(\n" +
+                "    (# exist:parallel threads=4 #) {\n" +
+                "        for $i in 1 to 1000\n" +
+                "        return $i * 2\n" +
+                "    },\n" +
+                "    ',')";
+        assertEquals(IntStream.rangeClosed(1, 1000)
+                        .mapToObj(i -> String.valueOf(i * 2))
+                        .collect(Collectors.joining(",")),
+                executeQuery(query));
+    }
+
+    @Test
+    public void variablesAndFunctions() throws EXistException, PermissionDeniedException, XPathException {
+        final String query =
+                "declare variable $local:factor := 3;\n" +
+                "declare function local:multiply($i) { $i * $local:factor };\n" +
+                "let $offset := 10\n" +
+                "return string-join(\n" +
+                "    (# exist:parallel threads=3 #) {\n" +
+                "        for $i at $p in 1 to 500\n" +
+                "        let $j := local:multiply($i) + $offset\n" +
+                "        where $i mod 2 eq 0\n" +
+                "        return $p || ':' || $j\n" +
+                "    },\n" +
+                "    ',')";
+        assertEquals(IntStream.rangeClosed(1, 500)
+                        .filter(i -> i % 2 == 0)
+                        .mapToObj(i -> i + ":" + (i * 3 + 10))
+                        .collect(Collectors.joining(",")),
+                executeQuery(query));
+    }
+
+    @Test
+    public void nodes() throws EXistException, PermissionDeniedException, XPathException {
+        final String query =
+                "let $doc := xmldb:store('/db', 'parallel-for.xml', <items>{for $i in 1 to 1000 return <item n='{$i}'/>}</items>)\n" +
+                "let $items := (# exist:parallel threads=4 #) {\n" +
+                "    for $item in doc($doc)//item\n" +
+                "    return <result>{$item/@n * 2}</result>\n" +
+                "}\n" +
+                "return string-join($items, ',')";
+        assertEquals(IntStream.rangeClosed(1, 1000)
+                        .mapToObj(i -> String.valueOf(i * 2))
+                        .collect(Collectors.joining(",")),
+                executeQuery(query));
+    }
+
+    @Test
+    public void inMemoryNodesOutliveWorkers() throws EXistException, PermissionDeniedException, XPathException {
+        final String query =
+                "let $items := (# exist:parallel threads=4 #) {\n" +
+                "    for $i in 1 to 1000\n" +
+                "    return <result n='{$i}'><value>{$i * 2}</value></result>\n" +
+                "}\n" +
+                "return string-join(for $item in $items return $item/@n || ':' || $item/value, ',')";
+        assertEquals(IntStream.rangeClosed(1, 1000)
+                        .mapToObj(i -> i + ":" + (i * 2))
+                        .collect(Collectors.joining(",")),
+                executeQuery(query));
+    }
+
+    @Test(timeout = 60_000)
+    public void noFreeBrokersIsEvaluatedSerially() throws Exception {
+        final BrokerPool pool = existEmbeddedServer.getBrokerPool();
+        final int others = pool.getMax() - 1;  // the query holds the last broker
+        final ExecutorService executor = Executors.newFixedThreadPool(others);
+        final CountDownLatch held = new CountDownLatch(others);
+        final CountDownLatch done = new CountDownLatch(1);
+        try {
+            final List<Future<Void>> holders = new ArrayList<>(others);
+            for (int i = 0; i < others; i++) {
+                holders.add(executor.submit(() -> {
+                    try (final DBBroker broker = pool.get(Optional.of(pool.getSecurityManager().getSystemSubject()))) {
+                        held.countDown();
+                        done.await();
+                    }
+                    return null;
+                }));
+            }
+            held.await();
+
+            final String query =
+                    "string-join(\n" +
+                    "    (# exist:parallel threads=4 #) {\n" +
+                    "        for $i in 1 to 100\n" +
+                    "        return $i\n" +
+                    "    },\n" +
+                    "    ',')";
+            assertEquals(IntStream.rangeClosed(1, 100)
+                            .mapToObj(String::valueOf)
+                            .collect(Collectors.joining(",")),
+                    executeQuery(query));
+
+            done.countDown();
+            for (final Future<Void> holder : holders) {
+                holder.get();
+            }
+        } finally {
+            done.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void dynamicContext() throws EXistException, PermissionDeniedException, XPathException {
+        final String query =
+                "let $now := current-dateTime()\n" +
+                "let $timezone := implicit-timezone()\n" +
+                "let $same := (# exist:parallel threads=4 #) {\n" +
+                "    for $i in 1 to 1000\n" +
+                "    return current-dateTime() eq $now and implicit-timezone() eq $timezone\n" +
+                "}\n" +
+                "return string(count($same) eq 1000 and (every $s in $same satisfies $s))";
+        assertEquals("true", executeQuery(query));
+    }
+
+    @Test
+    public void unsupportedExpressionIsEvaluatedSerially() throws EXistException, PermissionDeniedException, XPathException {
+        final String query =
+                "string-join(\n" +
+                "    (# exist:parallel #) {\n" +
+                "        for $i in 1 to 100\n" +
+                "        order by $i descending\n" +
+                "        return $i\n" +
+                "    },\n" +
+                "    ',')";
+        assertEquals(IntStream.rangeClosed(1, 100)
+                        .mapToObj(i -> String.valueOf(101 - i))
+                        .collect(Collectors.joining(",")),
+                executeQuery(query));
+    }
+
+    @Test
+    public void errors() throws EXistException, PermissionDeniedException {
+        final String query =
+                "(# exist:parallel threads=4 #) {\n" +
+                "    for $i in 1 to 100\n" +
+                "    return if ($i eq 77) then error(xs:QName('local:parallel'), 'failed at 77') else $i\n" +
+                "}";
+        try {
+            executeQuery(query);
+            fail("Expected the error raised by a worker");
+        } catch (final XPathException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("failed at 77"));
+        }
+    }
+
+    private static String executeQuery(final String query) throws EXistException, PermissionDeniedException, XPathException {
+        final BrokerPool pool = existEmbeddedServer.getBrokerPool();
+        try (final DBBroker broker = pool.get(Optional.of(pool.getSecurityManager().getSystemSubject()))) {
+            final Sequence result = pool.getXQueryService().execute(broker, query, null);
+            assertEquals(1, result.getItemCount());
+            return result.itemAt(0).getStringValue();
+        }
+    }
+}
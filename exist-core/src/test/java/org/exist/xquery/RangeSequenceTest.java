@@ -26,8 +26,12 @@ import org.exist.xquery.value.IntegerValue;
 import org.exist.xquery.value.SequenceIterator;
 import org.junit.Test;
 
+import java.math.BigInteger;
+
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 public class RangeSequenceTest {
 
@@ -158,4 +162,19 @@ public class RangeSequenceTest {
     public void itemAt_afterEnd() {
         assertNull(rangeSequence.itemAt(99));
     }
+
+    @Test
+    public void contains() {
+        assertTrue(rangeSequence.contains(new IntegerValue(1)));
+        assertTrue(rangeSequence.contains(new IntegerValue(99)));
+        assertFalse(rangeSequence.contains(new IntegerValue(0)));
+        assertFalse(rangeSequence.contains(new IntegerValue(100)));
+        assertFalse(rangeSequence.contains(new IntegerValue(new BigInteger("99999999999999999999"))));
+    }
+
+    @Test
+    public void itemCount_wholeLongRange() {
+        final RangeSequence wholeRange = new RangeSequence(new IntegerValue(Long.MIN_VALUE), new IntegerValue(Long.MAX_VALUE));
+        assertEquals(Long.MAX_VALUE, wholeRange.getItemCountLong());
+    }
 }
@@ -0,0 +1,116 @@
+/*
+ * eXist-db Open Source Native XML Database
+ * Copyright (C) 2001 The eXist-db Authors
+ *
+ * info@exist-db.org
+ * http://www.exist-db.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.xquery.value;
+
+import org.exist.xquery.Constants.Comparison;
+import org.exist.xquery.XPathException;
+import org.junit.Test;
+
+import java.math.BigInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class IntegerValueTest {
+
+    private static final BigInteger LONG_MAX = BigInteger.valueOf(Long.MAX_VALUE);
+    private static final BigInteger LONG_MIN = BigInteger.valueOf(Long.MIN_VALUE);
+
+    @Test
+    public void plusOverflowsToBigInteger() throws XPathException {
+        final IntegerValue result = (IntegerValue) new IntegerValue(Long.MAX_VALUE).plus(new IntegerValue(1));
+        assertFalse(result.isLong());
+        assertEquals(LONG_MAX.add(BigInteger.ONE), result.toJavaObject(BigInteger.class));
+    }
+
+    @Test
+    public void minusOverflowsToBigInteger() throws XPathException {
+        final IntegerValue result = (IntegerValue) new IntegerValue(Long.MIN_VALUE).minus(new IntegerValue(1));
+        assertFalse(result.isLong());
+        assertEquals(LONG_MIN.subtract(BigInteger.ONE), result.toJavaObject(BigInteger.class));
+    }
+
+    @Test
+    public void multOverflowsToBigInteger() throws XPathException {
+        final IntegerValue result = (IntegerValue) new IntegerValue(Long.MAX_VALUE).mult(new IntegerValue(Long.MAX_VALUE));
+        assertFalse(result.isLong());
+        assertEquals(LONG_MAX.multiply(LONG_MAX), result.toJavaObject(BigInteger.class));
+
+        final IntegerValue minTimesMinusOne = (IntegerValue) new IntegerValue(Long.MIN_VALUE).mult(new IntegerValue(-1));
+        assertEquals(LONG_MIN.negate(), minTimesMinusOne.toJavaObject(BigInteger.class));
+    }
+
+    @Test
+    public void bigResultNormalisedToLong() throws XPathException {
+        final IntegerValue big = (IntegerValue) new IntegerValue(Long.MAX_VALUE).plus(new IntegerValue(10));
+        final IntegerValue result = (IntegerValue) big.minus(new IntegerValue(20));
+        assertTrue(result.isLong());
+        assertEquals(Long.MAX_VALUE - 10, result.getLong());
+        assertEquals(new IntegerValue(Long.MAX_VALUE - 10), result);
+        assertEquals(new IntegerValue(Long.MAX_VALUE - 10).hashCode(), result.hashCode());
+    }
+
+    @Test
+    public void idivAndMod() throws XPathException {
+        assertEquals(-3, new IntegerValue(-7).idiv(new IntegerValue(2)).getLong());
+        assertEquals(-1, ((IntegerValue) new IntegerValue(-7).mod(new IntegerValue(2))).getLong());
+        assertEquals(LONG_MIN.negate(), new IntegerValue(Long.MIN_VALUE).idiv(new IntegerValue(-1)).toJavaObject(BigInteger.class));
+    }
+
+    @Test
+    public void negateAndAbs() throws XPathException {
+        assertEquals(LONG_MIN.negate(), new IntegerValue(Long.MIN_VALUE).negate().toJavaObject(BigInteger.class));
+        assertEquals(LONG_MIN.negate(), new IntegerValue(Long.MIN_VALUE).abs().toJavaObject(BigInteger.class));
+        assertEquals(5, ((IntegerValue) new IntegerValue(-5).abs()).getLong());
+    }
+
+    @Test
+    public void compareMixedRepresentations() throws XPathException {
+        final IntegerValue big = new IntegerValue(LONG_MAX.add(BigInteger.ONE));
+        final IntegerValue small = new IntegerValue(Long.MAX_VALUE);
+        assertTrue(big.compareTo(small) > 0);
+        assertTrue(small.compareTo(big) < 0);
+        assertTrue(small.compareTo(null, Comparison.LT, big));
+        assertTrue(new IntegerValue(3).compareTo(null, Comparison.EQ, new DecimalValue("3.0")));
+        assertTrue(new IntegerValue(3).compareTo(null, Comparison.LT, new DoubleValue(3.5)));
+    }
+
+    @Test
+    public void parse() throws XPathException {
+        assertTrue(new IntegerValue(" 42 ").isLong());
+        assertEquals(42, new IntegerValue(" 42 ").getLong());
+        assertTrue(new IntegerValue("-9223372036854775808").isLong());
+        assertFalse(new IntegerValue("9223372036854775808").isLong());
+        assertEquals("18446744073709551615", new IntegerValue("18446744073709551615", Type.UNSIGNED_LONG).getStringValue());
+    }
+
+    @Test(expected = XPathException.class)
+    public void parseInvalid() throws XPathException {
+        new IntegerValue("12a");
+    }
+
+    @Test(expected = XPathException.class)
+    public void checkTypeOfBigValue() throws XPathException {
+        new IntegerValue(LONG_MAX.add(BigInteger.ONE), Type.INT);
+    }
+}
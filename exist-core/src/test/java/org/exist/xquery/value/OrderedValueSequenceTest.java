@@ -25,6 +25,7 @@ package org.exist.xquery.value;
 import org.exist.xquery.Expression;
 import org.exist.xquery.OrderSpec;
 import org.exist.xquery.XPathException;
+import org.exist.xquery.XQueryContext;
 import org.junit.Test;
 
 import static org.easymock.EasyMock.createMock;
@@ -96,6 +97,30 @@ public class OrderedValueSequenceTest {
         assertEquals(69, count);
     }
 
+    @Test
+    public void limit_keeps_least_items() throws XPathException {
+        final int[] keys = { 5, 3, 9, 1, 3, 7, 0, 8, 3, 2 };
+        final Expression mockSortExpr = createMock(Expression.class);
+        for (final int key : keys) {
+            expect(mockSortExpr.eval(null)).andReturn(new IntegerValue(key));
+        }
+        final XQueryContext mockContext = createMock(XQueryContext.class);
+        expect(mockContext.getDefaultCollator()).andReturn(null).anyTimes();
+        replay(mockSortExpr, mockContext);
+
+        final OrderedValueSequence orderedValueSequence = new OrderedValueSequence(new OrderSpec[] { new OrderSpec(mockContext, mockSortExpr) }, 2, 4, 0, null);
+        for (int i = 0; i < keys.length; i++) {
+            orderedValueSequence.add(new StringValue(keys[i] + "@" + i));
+        }
+        orderedValueSequence.sort();
+
+        assertEquals(4, orderedValueSequence.getItemCount());
+        assertEquals("0@6", orderedValueSequence.itemAt(0).getStringValue());
+        assertEquals("1@3", orderedValueSequence.itemAt(1).getStringValue());
+        assertEquals("2@9", orderedValueSequence.itemAt(2).getStringValue());
+        assertEquals("3@1", orderedValueSequence.itemAt(3).getStringValue());
+    }
+
     private static OrderedValueSequence mockOrderedValueSequence(final int size) throws XPathException {
         final Expression mockSortExpr = createMock(Expression.class);
         expect(mockSortExpr.eval(null)).andReturn(Sequence.EMPTY_SEQUENCE).anyTimes();
@@ -0,0 +1,154 @@
+/*
+ * eXist-db Open Source Native XML Database
+ * Copyright (C) 2001 The eXist-db Authors
+ *
+ * info@exist-db.org
+ * http://www.exist-db.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.indexing.lucene;
+
+import org.apache.lucene.index.AtomicReader;
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.index.DocsEnum;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.search.DocIdSet;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.Filter;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRefBuilder;
+import org.apache.lucene.util.FixedBitSet;
+import org.apache.lucene.util.NumericUtils;
+import org.exist.dom.persistent.DocumentImpl;
+import org.exist.dom.persistent.DocumentSet;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+
+/**
+ * Filter which restricts a search to the Lucene documents indexed for the
+ * documents of a {@link DocumentSet}. The documents are looked up by the full
+ * precision terms of the {@link LuceneUtil#FIELD_DOC_ID} field.
+ *
+ * Two filters are equal if they select the same document ids, so the filter
+ * can be used as the key of a cache. The hash code does not depend on the order
+ * of the ids, so creating a filter to look up the cache takes a single pass over
+ * the documents. Only the filters held by the cache sort their ids, once, to check
+ * the ids of another filter against them.
+ */
+public class DocumentSetFilter extends Filter {
+
+    private final int[] docIds;
+    private final int hashCode;
+    private int[] sortedDocIds = null;
+
+    public DocumentSetFilter(final DocumentSet docs) {
+        final int[] ids = new int[docs.getDocumentCount()];
+        int count = 0;
+        int hash = 0;
+        for (final Iterator<DocumentImpl> i = docs.getDocumentIterator(); i.hasNext(); ) {
+            final int docId = i.next().getDocId();
+            ids[count++] = docId;
+            hash += mix(docId);
+        }
+        this.docIds = count == ids.length ? ids : Arrays.copyOf(ids, count);
+        this.hashCode = 31 * hash + count;
+    }
+
+    // spreads the bits of a document id, so that the sum of several ids does not collide easily
+    private static int mix(final int docId) {
+        final int h = docId * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private synchronized int[] sortedDocIds() {
+        if (sortedDocIds == null) {
+            final int[] sorted = docIds.clone();
+            Arrays.sort(sorted);
+            sortedDocIds = sorted;
+        }
+        return sortedDocIds;
+    }
+
+    /**
+     * @return the number of documents selected by this filter
+     */
+    public int size() {
+        return docIds.length;
+    }
+
+    @Override
+    public DocIdSet getDocIdSet(final AtomicReaderContext context, final Bits acceptDocs) throws IOException {
+        final AtomicReader reader = context.reader();
+        final Terms terms = reader.terms(LuceneUtil.FIELD_DOC_ID);
+        if (terms == null) {
+            return null;
+        }
+        final TermsEnum termsEnum = terms.iterator(null);
+        final BytesRefBuilder bytes = new BytesRefBuilder();
+        FixedBitSet bits = null;
+        DocsEnum docsEnum = null;
+        for (final int docId : docIds) {
+            NumericUtils.intToPrefixCoded(docId, 0, bytes);
+            if (!termsEnum.seekExact(bytes.get())) {
+                continue;
+            }
+            if (bits == null) {
+                bits = new FixedBitSet(reader.maxDoc());
+            }
+            docsEnum = termsEnum.docs(acceptDocs, docsEnum, DocsEnum.FLAG_NONE);
+            int doc;
+            while ((doc = docsEnum.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
+                bits.set(doc);
+            }
+        }
+        return bits;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        final DocumentSetFilter other = (DocumentSetFilter) obj;
+        if (hashCode != other.hashCode || docIds.length != other.docIds.length) {
+            return false;
+        }
+        // the ids of a document set are distinct, so the same number of ids which are all found is the same set
+        final int[] otherIds = other.sortedDocIds();
+        for (final int docId : docIds) {
+            if (Arrays.binarySearch(otherIds, docId) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    @Override
+    public String toString() {
+        return "DocumentSetFilter(" + docIds.length + " documents)";
+    }
+}
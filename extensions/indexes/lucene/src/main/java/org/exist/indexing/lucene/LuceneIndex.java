@@ -31,11 +31,16 @@ import org.apache.lucene.facet.taxonomy.SearcherTaxonomyManager;
 import org.apache.lucene.facet.taxonomy.TaxonomyWriter;
 import org.apache.lucene.facet.taxonomy.directory.DirectoryTaxonomyWriter;
 import org.apache.lucene.index.*;
+import org.apache.lucene.search.CachingWrapperFilter;
+import org.apache.lucene.search.Filter;
+import org.apache.lucene.search.ReferenceManager;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.FSDirectory;
 import org.apache.lucene.util.Version;
 import org.exist.backup.RawDataBackup;
+import org.exist.dom.persistent.DocumentSet;
 import org.exist.indexing.AbstractIndex;
+import org.exist.indexing.DeferredCommitSupport;
 import org.exist.indexing.IndexWorker;
 import org.exist.indexing.RawBackupSupport;
 import org.exist.storage.BrokerPool;
@@ -47,13 +52,37 @@ import org.exist.xquery.XPathException;
 import org.w3c.dom.Element;
 import org.w3c.dom.NodeList;
 
+import javax.annotation.Nullable;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Stream;
 
-public class LuceneIndex extends AbstractIndex implements RawBackupSupport {
+/**
+ * The Lucene full text and field index.
+ *
+ * All workers share a single {@link IndexWriter}. Its changes are committed when the
+ * database syncs, or, if configured by the "commit-interval" attribute, at most once per
+ * interval, plus whenever "commit-threshold" updates are pending. Searches see uncommitted
+ * changes through near-real-time readers, which are refreshed before every search, or at
+ * most once per "refresh-interval". Even with an interval, a thread searching after it wrote
+ * to the index refreshes the readers first, so that a broker always sees its own changes.
+ *
+ * Deferring commits past a sync means that a checkpoint of the journal may cover changes
+ * which are not yet committed. While such changes are pending a marker file is kept in the
+ * index directory, and if it is found on startup the database is repaired.
+ *
+ * Searches are restricted to the documents in the query context by a {@link DocumentSetFilter}.
+ * The bitsets computed by the filters are cached per segment for the last "filter-cache-size"
+ * document sets. Sets of more than "filter-max-documents" documents, such as all the documents
+ * of a large database, are not filtered: computing their bitsets costs more than it saves.
+ */
+public class LuceneIndex extends AbstractIndex implements RawBackupSupport, DeferredCommitSupport {
     
     public final static Version LUCENE_VERSION_IN_USE = Version.LUCENE_4_10_4;
 
@@ -63,6 +92,16 @@ public class LuceneIndex extends AbstractIndex implements RawBackupSupport {
 
 	private static final String DIR_NAME = "lucene";
 	private static final String TAXONOMY_DIR_NAME = "taxonomy";
+    private static final String UNCOMMITTED_FILE_NAME = "uncommitted";
+
+    public static final String COMMIT_INTERVAL_ATTRIBUTE = "commit-interval";
+    public static final String COMMIT_THRESHOLD_ATTRIBUTE = "commit-threshold";
+    public static final String REFRESH_INTERVAL_ATTRIBUTE = "refresh-interval";
+    public static final String FILTER_CACHE_SIZE_ATTRIBUTE = "filter-cache-size";
+    public static final String FILTER_MAX_DOCUMENTS_ATTRIBUTE = "filter-max-documents";
+
+    public static final int DEFAULT_FILTER_CACHE_SIZE = 32;
+    public static final int DEFAULT_FILTER_MAX_DOCUMENTS = 4096;
 
     protected Directory directory;
     protected Directory taxoDirectory;
@@ -71,12 +110,45 @@ public class LuceneIndex extends AbstractIndex implements RawBackupSupport {
 
     protected double bufferSize = IndexWriterConfig.DEFAULT_RAM_BUFFER_SIZE_MB;
 
+    // the minimum time between two commits in milliseconds, 0 to commit on every sync
+    protected long commitInterval = 0;
+    // the number of pending updates which triggers a commit, 0 for no limit
+    protected long commitThreshold = 0;
+    // the minimum time between two refreshes of the readers in milliseconds, 0 to refresh before every search
+    protected long refreshInterval = 0;
+    // the number of document sets for which filters are cached, 0 to not filter searches
+    protected int filterCacheSize = DEFAULT_FILTER_CACHE_SIZE;
+    // the number of documents above which searches are not filtered
+    protected int filterMaxDocuments = DEFAULT_FILTER_MAX_DOCUMENTS;
+
     protected IndexWriter cachedWriter = null;
     protected DirectoryTaxonomyWriter cachedTaxonomyWriter = null;
 
     protected SearcherTaxonomyManager searcherManager = null;
     protected ReaderManager readerManager = null;
 
+    private Path uncommittedFile = null;
+    private boolean lostChanges = false;
+    private long pendingUpdates = 0;
+    private long lastCommit = 0;
+    private final AtomicLong lastSearcherRefresh = new AtomicLong();
+    private final AtomicLong lastReaderRefresh = new AtomicLong();
+
+    // incremented by every write to the index
+    private final AtomicLong writeGeneration = new AtomicLong();
+    // the write generation of the last write by the current thread, i.e. by its broker
+    private final ThreadLocal<Long> threadWriteGeneration = ThreadLocal.withInitial(() -> 0L);
+    // the write generations seen by the searchers and readers
+    private final AtomicLong searcherGeneration = new AtomicLong();
+    private final AtomicLong readerGeneration = new AtomicLong();
+
+    private final Map<DocumentSetFilter, Filter> filterCache = new LinkedHashMap<DocumentSetFilter, Filter>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<DocumentSetFilter, Filter> eldest) {
+            return size() > filterCacheSize;
+        }
+    };
+
     public String getDirName() {
         return DIR_NAME;
     }
@@ -97,6 +169,18 @@ public class LuceneIndex extends AbstractIndex implements RawBackupSupport {
 
         if (LOG.isDebugEnabled())
             LOG.debug("Using buffer size: {}", bufferSize);
+
+        commitInterval = parseLong(config, COMMIT_INTERVAL_ATTRIBUTE, commitInterval);
+        commitThreshold = parseLong(config, COMMIT_THRESHOLD_ATTRIBUTE, commitThreshold);
+        refreshInterval = parseLong(config, REFRESH_INTERVAL_ATTRIBUTE, refreshInterval);
+        if (LOG.isDebugEnabled())
+            LOG.debug("Using commit interval: {}ms, commit threshold: {}, refresh interval: {}ms",
+                    commitInterval, commitThreshold, refreshInterval);
+
+        filterCacheSize = (int) Math.min(parseLong(config, FILTER_CACHE_SIZE_ATTRIBUTE, filterCacheSize), Integer.MAX_VALUE);
+        filterMaxDocuments = (int) Math.min(parseLong(config, FILTER_MAX_DOCUMENTS_ATTRIBUTE, filterMaxDocuments), Integer.MAX_VALUE);
+        if (LOG.isDebugEnabled())
+            LOG.debug("Using filter cache size: {}, filter max documents: {}", filterCacheSize, filterMaxDocuments);
         
         NodeList nl = config.getElementsByTagName("analyzer");
         if (nl.getLength() > 0) {
@@ -110,6 +194,19 @@ public class LuceneIndex extends AbstractIndex implements RawBackupSupport {
             LOG.debug("Using default analyzer: {}", defaultAnalyzer.getClass().getName());
     }
 
+    private static long parseLong(final Element config, final String attribute, final long defaultValue) {
+        final String param = config.getAttribute(attribute);
+        if (param == null || param.isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Math.max(Long.parseLong(param), 0);
+        } catch (final NumberFormatException e) {
+            LOG.warn("Invalid {} setting for lucene index: {}", attribute, param, e);
+            return defaultValue;
+        }
+    }
+
     @Override
     public void open() throws DatabaseConfigurationException {
         Path dir = getDataDir().resolve(getDirName());
@@ -137,6 +234,14 @@ public class LuceneIndex extends AbstractIndex implements RawBackupSupport {
 
             searcherManager = new SearcherTaxonomyManager(cachedWriter, true, null, cachedTaxonomyWriter);
             readerManager = new ReaderManager(cachedWriter, true);
+
+            uncommittedFile = dir.resolve(UNCOMMITTED_FILE_NAME);
+            lostChanges = Files.exists(uncommittedFile);
+            if (lostChanges) {
+                LOG.warn("Lucene index has lost changes which were not committed before the database stopped");
+            }
+            pendingUpdates = 0;
+            lastCommit = System.currentTimeMillis();
         } catch (IOException e) {
             throw new DatabaseConfigurationException("Exception while reading lucene index directory: " +
                 e.getMessage(), e);
@@ -147,6 +252,9 @@ public class LuceneIndex extends AbstractIndex implements RawBackupSupport {
 
     @Override
     public synchronized void close() throws DBException {
+        synchronized (filterCache) {
+            filterCache.clear();
+        }
         try {
             if (searcherManager != null) {
                 searcherManager.close();
@@ -173,10 +281,18 @@ public class LuceneIndex extends AbstractIndex implements RawBackupSupport {
 
     @Override
     public synchronized void sync() throws DBException {
-        //Nothing special to do
+        if (commitInterval > 0 && System.currentTimeMillis() - lastCommit < commitInterval) {
+            // leave the changes to a later sync, the uncommitted file tells if they are lost
+            return;
+        }
         commit();
     }
 
+    @Override
+    public boolean hasLostChanges() {
+        return lostChanges;
+    }
+
     @Override
     public void remove() throws DBException {
         close();
@@ -220,7 +336,29 @@ public class LuceneIndex extends AbstractIndex implements RawBackupSupport {
     public synchronized void releaseWriter(IndexWriter writer) {
         if (writer == null)
             return;
+        if (!needsCommit && commitInterval > 0) {
+            markUncommitted();
+        }
         needsCommit = true;
+        pendingUpdates++;
+        threadWriteGeneration.set(writeGeneration.incrementAndGet());
+        if (commitThreshold > 0 && pendingUpdates >= commitThreshold) {
+            commit();
+        }
+    }
+
+    /**
+     * Create the file telling that the index has changes which are not committed,
+     * before a sync can write a checkpoint covering them.
+     */
+    private void markUncommitted() {
+        try {
+            Files.write(uncommittedFile, new byte[0], StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.SYNC);
+        } catch (final IOException e) {
+            LOG.error("Unable to create {}, uncommitted changes of the lucene index will not be detected after a crash: {}",
+                    uncommittedFile, e.getMessage(), e);
+        }
     }
 
     protected void commit() {
@@ -236,6 +374,9 @@ public class LuceneIndex extends AbstractIndex implements RawBackupSupport {
                 cachedWriter.commit();
             }
             needsCommit = false;
+            pendingUpdates = 0;
+            lastCommit = System.currentTimeMillis();
+            Files.deleteIfExists(uncommittedFile);
         } catch(CorruptIndexException cie) {
             LOG.error("Detected corrupt Lucence index on writer release and commit: {}", cie.getMessage(), cie);
         } catch(IOException ioe) {
@@ -243,8 +384,52 @@ public class LuceneIndex extends AbstractIndex implements RawBackupSupport {
         }
     }
 
+    /**
+     * Refresh a reference manager, so that it sees the changes of the writer. If a refresh
+     * interval is configured and did not yet elapse, or another thread is already refreshing,
+     * the current reference is kept, unless the current thread wrote to the index since the
+     * reference was last refreshed: it then waits for the refresh, so that it sees its own changes.
+     */
+    private void refresh(final ReferenceManager<?> manager, final AtomicLong lastRefresh,
+            final AtomicLong refreshedGeneration) throws IOException {
+        final long generation = writeGeneration.get();
+        if (refreshInterval == 0 || threadWriteGeneration.get() > refreshedGeneration.get()) {
+            manager.maybeRefreshBlocking();
+            refreshedGeneration.accumulateAndGet(generation, Math::max);
+            return;
+        }
+        final long now = System.currentTimeMillis();
+        final long last = lastRefresh.get();
+        if (now - last >= refreshInterval && lastRefresh.compareAndSet(last, now)) {
+            if (manager.maybeRefresh()) {
+                refreshedGeneration.accumulateAndGet(generation, Math::max);
+            }
+        }
+    }
+
+    /**
+     * Get a filter which restricts a search to the given documents. The filter caches
+     * its bitset for every segment of the index. Segments created by later changes get
+     * their own bitsets, while those of segments which were merged away are dropped
+     * together with the segment.
+     *
+     * @param docs the documents to search, may be null
+     *
+     * @return the filter, or null if searches should not be filtered, which is also
+     *     the case if the set has more than "filter-max-documents" documents
+     */
+    public @Nullable Filter getDocumentSetFilter(@Nullable final DocumentSet docs) {
+        if (filterCacheSize == 0 || docs == null || docs.getDocumentCount() > filterMaxDocuments) {
+            return null;
+        }
+        final DocumentSetFilter filter = new DocumentSetFilter(docs);
+        synchronized (filterCache) {
+            return filterCache.computeIfAbsent(filter, CachingWrapperFilter::new);
+        }
+    }
+
     public <R> R withReader(FunctionE<IndexReader, R, IOException> fn) throws IOException {
-        readerManager.maybeRefreshBlocking();
+        refresh(readerManager, lastReaderRefresh, readerGeneration);
         final DirectoryReader reader = readerManager.acquire();
         try {
             return fn.apply(reader);
@@ -254,7 +439,7 @@ public class LuceneIndex extends AbstractIndex implements RawBackupSupport {
     }
 
     public <R> R withSearcher(Function2E<SearcherTaxonomyManager.SearcherAndTaxonomy, R, IOException, XPathException> consumer) throws IOException, XPathException {
-        searcherManager.maybeRefreshBlocking();
+        refresh(searcherManager, lastSearcherRefresh, searcherGeneration);
         final SearcherTaxonomyManager.SearcherAndTaxonomy searcher = searcherManager.acquire();
         try {
             return consumer.apply(searcher);
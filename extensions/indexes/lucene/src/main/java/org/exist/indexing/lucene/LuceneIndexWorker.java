@@ -450,7 +450,7 @@ public class LuceneIndexWorker implements OrderedValuesIndex, QNamedKeysIndex {
                     query = drilldown(facets.get(), query, config);
                 }
                 searchAndProcess(contextId, qname, docs, contextSet, resultSet,
-                        returnAncestor, searcher, query, options.getFields(), config);
+                        returnAncestor, searcher, query, options.getFields(), config, options.getLimit());
             }
             return resultSet;
         });
@@ -494,7 +494,7 @@ public class LuceneIndexWorker implements OrderedValuesIndex, QNamedKeysIndex {
                 }
                 if (query != null) {
                     searchAndProcess(contextId, qname, docs, contextSet, resultSet,
-                            returnAncestor, searcher, query, options.getFields(), config);
+                            returnAncestor, searcher, query, options.getFields(), config, options.getLimit());
                 }
             }
             return resultSet;
@@ -512,7 +512,7 @@ public class LuceneIndexWorker implements OrderedValuesIndex, QNamedKeysIndex {
             final Query query = queryTranslator.parse(field, queryRoot, analyzer, options);
             if (query != null) {
                 searchAndProcess(contextId, null, docs, contextSet, resultSet,
-                        returnAncestor, searcher, query, null, config);
+                        returnAncestor, searcher, query, null, config, options.getLimit());
             }
             return resultSet;
         });
@@ -530,11 +530,14 @@ public class LuceneIndexWorker implements OrderedValuesIndex, QNamedKeysIndex {
     private void searchAndProcess(int contextId, QName qname, DocumentSet docs,
                                   NodeSet contextSet, NodeSet resultSet, boolean returnAncestor,
                                   SearcherTaxonomyManager.SearcherAndTaxonomy searcher, Query query,
-                                  @Nullable Set<String> fields, LuceneConfig config) throws IOException {
+                                  @Nullable Set<String> fields, LuceneConfig config, long limit) throws IOException {
         final LuceneFacets facets = new LuceneFacets();
         final FacetsCollector facetsCollector = new FacetsCollector();
-        final LuceneHitCollector collector = new LuceneHitCollector(qname, query, docs, contextSet, resultSet, returnAncestor, contextId, facets, facetsCollector, fields);
-        searcher.searcher.search(query, collector);
+        final LuceneHitCollector collector = new LuceneHitCollector(qname, query, docs, contextSet, resultSet, returnAncestor, contextId, facets, facetsCollector, fields, limit);
+        // only score the Lucene documents of the documents in the context
+        final Filter filter = index.getDocumentSetFilter(docs);
+        searcher.searcher.search(filter == null ? query : new FilteredQuery(query, filter), collector);
+        collector.addRankedHits(searcher.searcher.getIndexReader());
 
         // compute facets
         facets.compute(searcher.taxonomyReader, config.facetsConfig, facetsCollector);
@@ -595,7 +598,7 @@ public class LuceneIndexWorker implements OrderedValuesIndex, QNamedKeysIndex {
             options.configureParser(parser.getConfiguration());
             Query query = parser.parse(queryString);
             searchAndProcess(contextId, null, docs, contextSet, resultSet,
-                    returnAncestor, searcher, query, null, config);
+                    returnAncestor, searcher, query, null, config, options.getLimit());
             return resultSet;
         });
     }
@@ -905,11 +908,18 @@ public class LuceneIndexWorker implements OrderedValuesIndex, QNamedKeysIndex {
         return false;
     }
 
+    /**
+     * Collects the nodes matched by a query. If a limit is given, only the nodes
+     * scoring highest, plus those scoring equal to the last of them, are returned.
+     * These are only known once all hits are collected, so the matches are created
+     * by {@link #addRankedHits(IndexReader)}.
+     */
     private class LuceneHitCollector extends Collector {
 
         private Scorer scorer;
 
         private AtomicReader reader;
+        private int docBase;
         private NumericDocValues docIdValues;
         private BinaryDocValues nodeIdValues;
         private final QName qname;
@@ -922,8 +932,11 @@ public class LuceneIndexWorker implements OrderedValuesIndex, QNamedKeysIndex {
         private final LuceneFacets facets;
         private final FacetsCollector chainedCollector;
         private final Set<String> fields;
+        private final long limit;
+        // the hits of every node, by the node returned, while a limit applies
+        private final Map<NodeProxy, RankedHit> rankedHits;
 
-        private LuceneHitCollector(QName qname, Query query, DocumentSet docs, NodeSet contextSet, NodeSet resultSet, boolean returnAncestor, int contextId, LuceneFacets facets, FacetsCollector nextCollector, @Nullable Set<String> fields) {
+        private LuceneHitCollector(QName qname, Query query, DocumentSet docs, NodeSet contextSet, NodeSet resultSet, boolean returnAncestor, int contextId, LuceneFacets facets, FacetsCollector nextCollector, @Nullable Set<String> fields, long limit) {
             this.qname = qname;
             this.docs = docs;
             this.contextSet = contextSet;
@@ -934,6 +947,10 @@ public class LuceneIndexWorker implements OrderedValuesIndex, QNamedKeysIndex {
             this.facets = facets;
             this.chainedCollector = nextCollector;
             this.fields = fields;
+            // a node from the context set is only returned for its own hits, but a limit
+            // cannot apply to nodes which are still filtered after the search
+            this.limit = contextSet != null && returnAncestor ? limit : 0;
+            this.rankedHits = this.limit > 0 ? new IdentityHashMap<>() : null;
         }
 
         @Override
@@ -945,6 +962,7 @@ public class LuceneIndexWorker implements OrderedValuesIndex, QNamedKeysIndex {
         @Override
         public void setNextReader(AtomicReaderContext atomicReaderContext) throws IOException {
             this.reader = atomicReaderContext.reader();
+            this.docBase = atomicReaderContext.docBase;
             this.docIdValues = this.reader.getNumericDocValues(FIELD_DOC_ID);
             this.nodeIdValues = this.reader.getBinaryDocValues(LuceneUtil.FIELD_NODE_ID);
             chainedCollector.setNextReader(atomicReaderContext);
@@ -979,8 +997,12 @@ public class LuceneIndexWorker implements OrderedValuesIndex, QNamedKeysIndex {
                     if (returnAncestor) {
                         NodeProxy parentNode = contextSet.get(storedNode);
                         // NodeProxy parentNode = contextSet.parentWithChild(storedNode, false, true, NodeProxy.UNKNOWN_NODE_LEVEL);
-                        if (parentNode != null) {
-                            LuceneMatch match = createMatch(doc, score, nodeId);
+                        if (parentNode != null && limit > 0) {
+                            rankedHits.put(parentNode, new RankedHit(storedNode, docBase + doc, score, sizeHint,
+                                    rankedHits.get(parentNode)));
+                            chainedCollector.collect(doc);
+                        } else if (parentNode != null) {
+                            LuceneMatch match = createMatch(reader, doc, score, nodeId);
                             parentNode.addMatch(match);
                             resultSet.add(parentNode, sizeHint);
                             if (Expression.NO_CONTEXT_ID != contextId) {
@@ -990,13 +1012,13 @@ public class LuceneIndexWorker implements OrderedValuesIndex, QNamedKeysIndex {
                             chainedCollector.collect(doc);
                         }
                     } else {
-                        LuceneMatch match = createMatch(doc, score, nodeId);
+                        LuceneMatch match = createMatch(reader, doc, score, nodeId);
                         storedNode.addMatch(match);
                         resultSet.add(storedNode, sizeHint);
                         chainedCollector.collect(doc);
                     }
                 } else {
-                    LuceneMatch match = createMatch(doc, score, nodeId);
+                    LuceneMatch match = createMatch(reader, doc, score, nodeId);
                     storedNode.addMatch(match);
                     resultSet.add(storedNode);
                     chainedCollector.collect(doc);
@@ -1006,7 +1028,51 @@ public class LuceneIndexWorker implements OrderedValuesIndex, QNamedKeysIndex {
             }
         }
 
-        private LuceneMatch createMatch(int docId, float score, NodeId nodeId) throws IOException {
+        /**
+         * Add the nodes scoring highest to the result, once all hits are collected.
+         * The score of a node is the sum of the scores of its hits.
+         *
+         * @param reader the reader searched
+         *
+         * @throws IOException if an I/O error occurs
+         */
+        private void addRankedHits(IndexReader reader) throws IOException {
+            if (rankedHits == null || rankedHits.isEmpty()) {
+                return;
+            }
+            float minScore = Float.NEGATIVE_INFINITY;
+            if (rankedHits.size() > limit) {
+                final PriorityQueue<Float> best = new PriorityQueue<>((int) limit + 1);
+                for (final RankedHit hits : rankedHits.values()) {
+                    best.add(hits.totalScore());
+                    if (best.size() > limit) {
+                        best.poll();
+                    }
+                }
+                minScore = best.peek();
+            }
+            final List<AtomicReaderContext> leaves = reader.leaves();
+            for (final Map.Entry<NodeProxy, RankedHit> entry : rankedHits.entrySet()) {
+                if (entry.getValue().totalScore() < minScore) {
+                    continue;
+                }
+                final NodeProxy parentNode = entry.getKey();
+                for (RankedHit hit = entry.getValue(); hit != null; hit = hit.next) {
+                    final AtomicReaderContext leaf = leaves.get(ReaderUtil.subIndex(hit.doc, leaves));
+                    final LuceneMatch match = createMatch(leaf.reader(), hit.doc - leaf.docBase, hit.score,
+                            hit.storedNode.getNodeId());
+                    parentNode.addMatch(match);
+                    resultSet.add(parentNode, hit.sizeHint);
+                    if (Expression.NO_CONTEXT_ID != contextId) {
+                        parentNode.deepCopyContext(hit.storedNode, contextId);
+                    } else
+                        parentNode.copyContext(hit.storedNode);
+                }
+            }
+            rankedHits.clear();
+        }
+
+        private LuceneMatch createMatch(AtomicReader reader, int docId, float score, NodeId nodeId) throws IOException {
             final LuceneMatch match = new LuceneMatch(contextId, nodeId, query, facets);
             match.setScore(score);
             if (fields != null && !fields.isEmpty()) {
@@ -1019,6 +1085,33 @@ public class LuceneIndexWorker implements OrderedValuesIndex, QNamedKeysIndex {
         }
     }
 
+    /**
+     * A hit on a node collected while a limit applies. The hits of the same node are chained.
+     */
+    private static class RankedHit {
+        private final NodeProxy storedNode;
+        private final int doc;
+        private final float score;
+        private final int sizeHint;
+        private final RankedHit next;
+
+        private RankedHit(NodeProxy storedNode, int doc, float score, int sizeHint, @Nullable RankedHit next) {
+            this.storedNode = storedNode;
+            this.doc = doc;
+            this.score = score;
+            this.sizeHint = sizeHint;
+            this.next = next;
+        }
+
+        private float totalScore() {
+            float total = 0.0f;
+            for (RankedHit hit = this; hit != null; hit = hit.next) {
+                total += hit.score;
+            }
+            return total;
+        }
+    }
+
     /**
      * Check index configurations for all collection in the given DocumentSet and return
      * a list of QNames, which have indexes defined on them.
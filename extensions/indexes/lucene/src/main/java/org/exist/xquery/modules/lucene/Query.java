@@ -36,10 +36,12 @@ import org.exist.xquery.value.*;
 import org.w3c.dom.Element;
 
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
 
-public class Query extends Function implements Optimizable {
+public class Query extends Function implements Optimizable, RankedSelection {
 	
 	protected static final Logger logger = LogManager.getLogger(Query.class);
 
@@ -103,6 +105,9 @@ public class Query extends Function implements Optimizable {
     private NodeSet preselectResult = null;
     protected boolean optimizeSelf = false;
     protected boolean optimizeChild = false;
+    // true if every node returned is ranked by its own matches only
+    private boolean rankable = false;
+    private final Deque<Long> rankLimits = new ArrayDeque<>();
 
     public Query(XQueryContext context, FunctionSignature signature) {
         super(context, signature);
@@ -133,6 +138,10 @@ public class Query extends Function implements Optimizable {
         super.analyze(new AnalyzeContextInfo(contextInfo));
 
         List<LocationStep> steps = BasicExpressionVisitor.findLocationSteps(getArgument(0));
+        // within a predicate, the nodes returned are those of the context, which are ranked by
+        // the matches of their descendants unless the query is applied to the context itself
+        rankable = (contextInfo.getFlags() & IN_PREDICATE) == 0 ||
+                (steps.size() == 1 && steps.get(0) != null && steps.get(0).getAxis() == Constants.SELF_AXIS);
         if (!steps.isEmpty()) {
             LocationStep firstStep = steps.get(0);
             LocationStep lastStep = steps.get(steps.size() - 1);
@@ -181,7 +190,31 @@ public class Query extends Function implements Optimizable {
     }
 
     public boolean canOptimize(Sequence contextSequence) {
-        return contextQName != null;
+        // the pre-selection cannot be limited, as the nodes selected may be filtered afterwards
+        return contextQName != null && rankLimits.isEmpty();
+    }
+
+    @Override
+    public boolean isRankedBy(Expression key, QName variable) {
+        if (!rankable) {
+            return false;
+        }
+        key = RankedSelection.unwrap(key);
+        if (!(key instanceof Score)) {
+            return false;
+        }
+        final Expression node = RankedSelection.unwrap(((Score) key).getArgument(0));
+        return node instanceof VariableReference && ((VariableReference) node).getName().equals(variable);
+    }
+
+    @Override
+    public void pushRankLimit(long limit) {
+        rankLimits.push(limit);
+    }
+
+    @Override
+    public void popRankLimit() {
+        rankLimits.pop();
     }
 
     public boolean optimizeOnSelf() {
@@ -243,7 +276,8 @@ public class Query extends Function implements Optimizable {
     		return Sequence.EMPTY_SEQUENCE;
         
         NodeSet result;
-        if (preselectResult == null) {
+        final long rankLimit = rankLimits.isEmpty() ? 0 : rankLimits.peek();
+        if (preselectResult == null || rankLimit > 0) {
             long start = System.currentTimeMillis();
             Sequence input = getArgument(0).eval(contextSequence);
             if (!(input instanceof VirtualNodeSet) && input.isEmpty())
@@ -260,6 +294,7 @@ public class Query extends Function implements Optimizable {
                     qnames.add(contextQName);
                 }
                 QueryOptions options = parseOptions(this, contextSequence, contextItem, 3);
+                options.setLimit(rankLimit);
                 try {
                     if (key != null && Type.subTypeOf(key.getType(), Type.ELEMENT)) {
                         final Element queryXML = (Element) ((NodeValue) key).getNode();
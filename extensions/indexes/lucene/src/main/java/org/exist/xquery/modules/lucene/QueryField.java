@@ -103,6 +103,12 @@ public class QueryField extends Query implements Optimizable {
     	return true;
     }
 
+    @Override
+    public boolean isRankedBy(Expression key, QName variable) {
+        // the nodes selected are not limited by rank
+        return false;
+    }
+
     public int getOptimizeAxis() {
         return Constants.DESCENDANT_SELF_AXIS;
     }
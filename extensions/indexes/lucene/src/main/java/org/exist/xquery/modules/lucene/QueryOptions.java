@@ -70,6 +70,9 @@ public class QueryOptions {
     protected Optional<Map<String, FacetQuery>> facets = Optional.empty();
     protected Set<String> fields = null;
 
+    // not an option given by the user: the number of nodes scoring highest which are used, 0 for all
+    protected long limit = 0;
+
     public QueryOptions() {
         // default options
     }
@@ -204,6 +207,17 @@ public class QueryOptions {
         return fields;
     }
 
+    /**
+     * @return the number of nodes scoring highest which need to be returned, or 0 to return all nodes.
+     */
+    public long getLimit() {
+        return limit;
+    }
+
+    public void setLimit(final long limit) {
+        this.limit = limit;
+    }
+
     public boolean filterRewrite() {
         return filterRewrite;
     }
@@ -0,0 +1,209 @@
+/*
+ * eXist-db Open Source Native XML Database
+ * Copyright (C) 2001 The eXist-db Authors
+ *
+ * info@exist-db.org
+ * http://www.exist-db.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.indexing.lucene;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.IntField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.Filter;
+import org.apache.lucene.search.FilteredQuery;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.exist.dom.persistent.DefaultDocumentSet;
+import org.exist.dom.persistent.DocumentImpl;
+import org.exist.util.DatabaseConfigurationException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.w3c.dom.Element;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.IOException;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Checks that searches can be restricted to the Lucene documents of a set of documents,
+ * and that the filters are cached per set of documents.
+ */
+public class DocumentSetFilterTest {
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void equalForSameDocuments() {
+        assertEquals(new DocumentSetFilter(docs(3, 1, 2)), new DocumentSetFilter(docs(1, 2, 3)));
+        assertEquals(new DocumentSetFilter(docs(3, 1, 2)).hashCode(), new DocumentSetFilter(docs(1, 2, 3)).hashCode());
+        assertNotEquals(new DocumentSetFilter(docs(1, 2)), new DocumentSetFilter(docs(1, 2, 3)));
+        assertNotEquals(new DocumentSetFilter(docs(1, 4)), new DocumentSetFilter(docs(2, 3)));
+    }
+
+    @Test
+    public void searchOnlyDocumentsInSet() throws Exception {
+        final LuceneIndex index = open(null);
+        try {
+            addDocument(index, 1, "a");
+            addDocument(index, 2, "b");
+            addDocument(index, 2, "c");
+            addDocument(index, 3, "d");
+
+            assertEquals(set("b", "c", "d"), search(index, index.getDocumentSetFilter(docs(2, 3))));
+            assertEquals(set("a"), search(index, index.getDocumentSetFilter(docs(1, 4))));
+            assertEquals(set(), search(index, index.getDocumentSetFilter(docs(4))));
+        } finally {
+            index.close();
+        }
+    }
+
+    @Test
+    public void cachedFilterSeesNewSegments() throws Exception {
+        final LuceneIndex index = open(null);
+        try {
+            addDocument(index, 1, "a");
+            addDocument(index, 2, "b");
+
+            final Filter filter = index.getDocumentSetFilter(docs(1));
+            assertEquals(set("a"), search(index, filter));
+
+            addDocument(index, 1, "c");
+            addDocument(index, 2, "d");
+            index.getWriter().deleteDocuments(new Term("id", "a"));
+
+            assertSame(filter, index.getDocumentSetFilter(docs(1)));
+            assertEquals(set("c"), search(index, filter));
+        } finally {
+            index.close();
+        }
+    }
+
+    @Test
+    public void evictLeastRecentlyUsed() throws Exception {
+        final LuceneIndex index = open("2");
+        try {
+            final Filter filter1 = index.getDocumentSetFilter(docs(1));
+            final Filter filter2 = index.getDocumentSetFilter(docs(2));
+            assertSame(filter1, index.getDocumentSetFilter(docs(1)));
+
+            index.getDocumentSetFilter(docs(3));
+            assertSame(filter1, index.getDocumentSetFilter(docs(1)));
+            assertNotSame(filter2, index.getDocumentSetFilter(docs(2)));
+        } finally {
+            index.close();
+        }
+    }
+
+    @Test
+    public void largeSetsAreNotFiltered() throws Exception {
+        final LuceneIndex index = open(null, "2");
+        try {
+            assertNotNull(index.getDocumentSetFilter(docs(1, 2)));
+            assertNull(index.getDocumentSetFilter(docs(1, 2, 3)));
+        } finally {
+            index.close();
+        }
+    }
+
+    @Test
+    public void disabled() throws Exception {
+        final LuceneIndex index = open("0");
+        try {
+            assertNull(index.getDocumentSetFilter(docs(1)));
+        } finally {
+            index.close();
+        }
+    }
+
+    private LuceneIndex open(final String filterCacheSize) throws IOException, ParserConfigurationException,
+            DatabaseConfigurationException {
+        return open(filterCacheSize, null);
+    }
+
+    private LuceneIndex open(final String filterCacheSize, final String filterMaxDocuments) throws IOException,
+            ParserConfigurationException, DatabaseConfigurationException {
+        final Element config = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument().createElement("module");
+        config.setAttribute("id", "lucene-index");
+        if (filterCacheSize != null) {
+            config.setAttribute(LuceneIndex.FILTER_CACHE_SIZE_ATTRIBUTE, filterCacheSize);
+        }
+        if (filterMaxDocuments != null) {
+            config.setAttribute(LuceneIndex.FILTER_MAX_DOCUMENTS_ATTRIBUTE, filterMaxDocuments);
+        }
+        final LuceneIndex index = new LuceneIndex();
+        index.configure(null, temporaryFolder.newFolder().toPath(), config);
+        index.open();
+        return index;
+    }
+
+    private static DefaultDocumentSet docs(final int... docIds) {
+        final DefaultDocumentSet docs = new DefaultDocumentSet();
+        for (final int docId : docIds) {
+            docs.add(new DocumentImpl(null, null, docId, null, null, 0, null, 0, null, null, null));
+        }
+        return docs;
+    }
+
+    private static void addDocument(final LuceneIndex index, final int docId, final String id) throws IOException {
+        final IndexWriter writer = index.getWriter();
+        try {
+            final Document doc = new Document();
+            doc.add(new IntField(LuceneUtil.FIELD_DOC_ID, docId, Field.Store.NO));
+            doc.add(new StringField("id", id, Field.Store.YES));
+            doc.add(new StringField("text", "foo", Field.Store.NO));
+            writer.addDocument(doc);
+        } finally {
+            index.releaseWriter(writer);
+        }
+    }
+
+    private static Set<String> search(final LuceneIndex index, final Filter filter) throws Exception {
+        return index.withSearcher(searcher -> {
+            final TopDocs topDocs = searcher.searcher.search(
+                    new FilteredQuery(new TermQuery(new Term("text", "foo")), filter), 100);
+            final Set<String> ids = new TreeSet<>();
+            for (final ScoreDoc scoreDoc : topDocs.scoreDocs) {
+                ids.add(searcher.searcher.doc(scoreDoc.doc).get("id"));
+            }
+            return ids;
+        });
+    }
+
+    private static Set<String> set(final String... ids) {
+        final Set<String> set = new TreeSet<>();
+        for (final String id : ids) {
+            set.add(id);
+        }
+        return set;
+    }
+}
@@ -0,0 +1,224 @@
+/*
+ * eXist-db Open Source Native XML Database
+ * Copyright (C) 2001 The eXist-db Authors
+ *
+ * info@exist-db.org
+ * http://www.exist-db.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.indexing.lucene;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.IndexWriter;
+import org.exist.util.DatabaseConfigurationException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.w3c.dom.Element;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks when the Lucene index commits and refreshes its readers,
+ * depending on the configured policy.
+ */
+public class LuceneCommitPolicyTest {
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void commitOnEverySync() throws Exception {
+        final Path dataDir = temporaryFolder.newFolder().toPath();
+        final LuceneIndex index = open(dataDir, null, null, null);
+        try {
+            addDocument(index, "1");
+            assertTrue(index.getWriter().hasUncommittedChanges());
+
+            index.sync();
+            assertFalse(index.getWriter().hasUncommittedChanges());
+            assertFalse(Files.exists(uncommittedFile(dataDir)));
+        } finally {
+            index.close();
+        }
+    }
+
+    @Test
+    public void deferCommitWithinInterval() throws Exception {
+        final Path dataDir = temporaryFolder.newFolder().toPath();
+        final LuceneIndex index = open(dataDir, "3600000", null, null);
+        try {
+            addDocument(index, "1");
+            index.sync();
+            assertTrue(index.getWriter().hasUncommittedChanges());
+            assertTrue(Files.exists(uncommittedFile(dataDir)));
+        } finally {
+            index.close();
+        }
+
+        // closing commits
+        assertFalse(Files.exists(uncommittedFile(dataDir)));
+        final LuceneIndex reopened = open(dataDir, "3600000", null, null);
+        try {
+            assertFalse(reopened.hasLostChanges());
+            assertEquals(1, (int) reopened.withReader(reader -> reader.numDocs()));
+        } finally {
+            reopened.close();
+        }
+    }
+
+    @Test
+    public void lostChangesAfterCrash() throws Exception {
+        final Path dataDir = temporaryFolder.newFolder().toPath();
+        final LuceneIndex index = open(dataDir, "3600000", null, null);
+        addDocument(index, "1");
+        index.sync();
+
+        // stop without committing
+        index.searcherManager.close();
+        index.readerManager.close();
+        index.cachedTaxonomyWriter.rollback();
+        index.cachedWriter.rollback();
+
+        final LuceneIndex reopened = open(dataDir, "3600000", null, null);
+        try {
+            assertTrue(reopened.hasLostChanges());
+            assertEquals(0, (int) reopened.withReader(reader -> reader.numDocs()));
+        } finally {
+            reopened.close();
+        }
+    }
+
+    @Test
+    public void commitAtThreshold() throws Exception {
+        final Path dataDir = temporaryFolder.newFolder().toPath();
+        final LuceneIndex index = open(dataDir, "3600000", "2", null);
+        try {
+            addDocument(index, "1");
+            assertTrue(index.getWriter().hasUncommittedChanges());
+            assertTrue(Files.exists(uncommittedFile(dataDir)));
+
+            addDocument(index, "2");
+            assertFalse(index.getWriter().hasUncommittedChanges());
+            assertFalse(Files.exists(uncommittedFile(dataDir)));
+        } finally {
+            index.close();
+        }
+    }
+
+    @Test
+    public void refreshBeforeEverySearch() throws Exception {
+        final Path dataDir = temporaryFolder.newFolder().toPath();
+        final LuceneIndex index = open(dataDir, null, null, null);
+        try {
+            assertEquals(0, (int) index.withReader(reader -> reader.numDocs()));
+            addDocument(index, "1");
+            assertEquals(1, (int) index.withReader(reader -> reader.numDocs()));
+        } finally {
+            index.close();
+        }
+    }
+
+    @Test
+    public void refreshAfterInterval() throws Exception {
+        final Path dataDir = temporaryFolder.newFolder().toPath();
+        final LuceneIndex index = open(dataDir, null, null, "3600000");
+        try {
+            assertEquals(0, (int) index.withReader(reader -> reader.numDocs()));
+            addDocumentOnOtherThread(index, "1");
+            // the reader is not refreshed before the interval elapsed
+            assertEquals(0, (int) index.withReader(reader -> reader.numDocs()));
+        } finally {
+            index.close();
+        }
+    }
+
+    @Test
+    public void refreshAfterOwnWriteWithinInterval() throws Exception {
+        final Path dataDir = temporaryFolder.newFolder().toPath();
+        final LuceneIndex index = open(dataDir, null, null, "3600000");
+        try {
+            assertEquals(0, (int) index.withReader(reader -> reader.numDocs()));
+            addDocument(index, "1");
+            // the thread which wrote sees its own changes
+            assertEquals(1, (int) index.withReader(reader -> reader.numDocs()));
+            assertEquals(1, (int) index.withSearcher(searcher -> searcher.searcher.getIndexReader().numDocs()));
+
+            addDocumentOnOtherThread(index, "2");
+            assertEquals(1, (int) index.withReader(reader -> reader.numDocs()));
+        } finally {
+            index.close();
+        }
+    }
+
+    private static LuceneIndex open(final Path dataDir, final String commitInterval, final String commitThreshold,
+            final String refreshInterval) throws ParserConfigurationException, DatabaseConfigurationException {
+        final Element config = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument().createElement("module");
+        config.setAttribute("id", "lucene-index");
+        if (commitInterval != null) {
+            config.setAttribute(LuceneIndex.COMMIT_INTERVAL_ATTRIBUTE, commitInterval);
+        }
+        if (commitThreshold != null) {
+            config.setAttribute(LuceneIndex.COMMIT_THRESHOLD_ATTRIBUTE, commitThreshold);
+        }
+        if (refreshInterval != null) {
+            config.setAttribute(LuceneIndex.REFRESH_INTERVAL_ATTRIBUTE, refreshInterval);
+        }
+        final LuceneIndex index = new LuceneIndex();
+        index.configure(null, dataDir, config);
+        index.open();
+        return index;
+    }
+
+    private static void addDocument(final LuceneIndex index, final String id) throws IOException {
+        final IndexWriter writer = index.getWriter();
+        try {
+            final Document doc = new Document();
+            doc.add(new StringField("id", id, Field.Store.YES));
+            writer.addDocument(doc);
+        } finally {
+            index.releaseWriter(writer);
+        }
+    }
+
+    private static void addDocumentOnOtherThread(final LuceneIndex index, final String id) throws Exception {
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            executor.submit(() -> {
+                addDocument(index, id);
+                return null;
+            }).get();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static Path uncommittedFile(final Path dataDir) {
+        return dataDir.resolve("lucene").resolve("uncommitted");
+    }
+}